@@ -0,0 +1,146 @@
+package com.liferay.documentation.movedclassreporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+/**
+ * An index of the Java source files of a Git commit's tree, read straight
+ * from the repository's objects, so the commit doesn't need to be checked
+ * out. Each folder's tree is walked with a {@link TreeWalk}, and only the
+ * blobs the index needs are read: the headers of the Java files whose
+ * packages are looked up, and the modules' <code>bnd.bnd</code> files.
+ *
+ * <p>
+ * The index's files are named by their paths in the tree, below a root folder
+ * named after the commit's ref (e.g., <code>7.0.0-ga1/modules/apps</code>).
+ * Git trees are sorted by name, so a folder's files are in name order rather
+ * than in the order a file system lists them. A module's
+ * <code>bnd.bnd</code> file is only found if it's below an indexed folder.
+ * </p>
+ */
+public class GitSourceIndex extends SourceIndex {
+
+	/**
+	 * Walks the folders of the ref's tree into a new index.
+	 *
+	 * @param  repository the Git repository
+	 * @param  ref the ref of the commit to index (e.g., a tag or a branch)
+	 * @param  dirNames the paths of the folders to index, relative to the
+	 *         tree's root (e.g., <code>modules/apps</code>)
+	 * @param  threads the number of threads to walk the folders and read the
+	 *         files on
+	 * @return the index
+	 * @throws IOException if the ref couldn't be resolved to a tree, or an IO
+	 *         exception occurred
+	 */
+	public static SourceIndex scan(
+			Repository repository, String ref, List<String> dirNames,
+			int threads)
+		throws IOException {
+
+		ObjectId treeId = repository.resolve(ref + "^{tree}");
+
+		if (treeId == null) {
+			throw new IOException("Unable to resolve " + ref + " to a tree");
+		}
+
+		GitSourceIndex gitSourceIndex = new GitSourceIndex(
+			repository, ref, treeId, threads);
+
+		gitSourceIndex.walk(dirNames);
+
+		return gitSourceIndex;
+	}
+
+	@Override
+	protected BufferedReader openReader(File file) throws IOException {
+		ObjectId blobId = _blobIds.get(file);
+
+		if (blobId == null) {
+			return null;
+		}
+
+		return new BufferedReader(
+			new InputStreamReader(
+				_repository.open(blobId, Constants.OBJ_BLOB).openStream()));
+	}
+
+	/**
+	 * Walks the folder's tree, collecting its Java files in name order and
+	 * keeping the blob IDs of its Java files and <code>bnd.bnd</code> files.
+	 *
+	 * @param  dirName the folder's path relative to the tree's root
+	 * @return the folder's Java files
+	 * @throws IOException if an IO exception occurred
+	 */
+	@Override
+	protected JavaFiles walk(String dirName) throws IOException {
+		JavaFiles javaFiles = new JavaFiles();
+
+		TreeWalk treeWalk = new TreeWalk(_repository);
+
+		try {
+			treeWalk.addTree(_treeId);
+			treeWalk.setFilter(PathFilter.create(dirName));
+			treeWalk.setRecursive(true);
+
+			while (treeWalk.next()) {
+				FileMode fileMode = treeWalk.getFileMode(0);
+
+				if ((fileMode != FileMode.REGULAR_FILE) &&
+					(fileMode != FileMode.EXECUTABLE_FILE)) {
+
+					continue;
+				}
+
+				String fileName = treeWalk.getNameString();
+
+				boolean javaFile = fileName.endsWith(".java");
+
+				if (!javaFile && !fileName.equals("bnd.bnd")) {
+					continue;
+				}
+
+				File file = new File(getRootDir(), treeWalk.getPathString());
+
+				_blobIds.put(file, treeWalk.getObjectId(0));
+
+				if (javaFile) {
+					javaFiles.add(fileName, file);
+				}
+			}
+		}
+		finally {
+			treeWalk.release();
+		}
+
+		return javaFiles;
+	}
+
+	private GitSourceIndex(
+		Repository repository, String ref, ObjectId treeId, int threads) {
+
+		super(new File(ref), threads);
+
+		_repository = repository;
+		_treeId = treeId;
+	}
+
+	private final ConcurrentMap<File, ObjectId> _blobIds =
+		new ConcurrentHashMap<File, ObjectId>();
+	private final Repository _repository;
+	private final ObjectId _treeId;
+
+}
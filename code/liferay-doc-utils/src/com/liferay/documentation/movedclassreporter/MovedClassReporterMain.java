@@ -1,31 +1,47 @@
 package com.liferay.documentation.movedclassreporter;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import freemarker.cache.ClassTemplateLoader;
-import freemarker.template.Configuration;
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 
 
 public class MovedClassReporterMain {
 
 	public static void main(String[] args) {
-		if (args == null || args.length < 3) {
+		boolean git = (args != null) && (args.length > 0) && args[0].equals(GIT_OPTION);
+
+		if (git) {
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
+		if (args == null || args.length < (git ? 4 : 3)) {
 			System.out.println("Usage: MovedClassReporter oldDir newDir movedClassesOutputFile [removedClassesOutputFile]");
+			System.out.println("   or: MovedClassReporter " + GIT_OPTION + " repoDir oldRef newRef movedClassesOutputFile [removedClassesOutputFile]");
 			return;
 		}
 
+		Repository repository = null;
+
+		if (git) {
+			try {
+				repository = new FileRepositoryBuilder().readEnvironment(
+					).findGitDir(new File(args[0])).build();
+			} catch (IOException e) {
+				e.printStackTrace();
+
+				return;
+			}
+
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
 		File oldDir = new File(args[0]);
 		File newDir = new File(args[1]);
 		File movedClassesOutputFile = new File(args[2]);
@@ -35,170 +51,209 @@ public class MovedClassReporterMain {
 			removedClassesOutputFile = new File(args[3]);
 		}
 
-		if (!oldDir.isDirectory()) {
+		if (!git && !oldDir.isDirectory()) {
 			System.out.println("oldDir is not a directory: " + args[0]);
 		}
 
-		if (!newDir.isDirectory()) {
+		if (!git && !newDir.isDirectory()) {
 			System.out.println("newDir is not a directory: " + args[1]);
 		}
 
-		// Create a list of all portal-kernel classes
+		int threads = Runtime.getRuntime().availableProcessors();
 
-		File kernelSrcDir = new File(newDir + "/" + PORTAL_KERNEL_SRC);
-		System.out.println("kernelSrcDir: " + kernelSrcDir.getPath());
+		List<String> moduleDirNames = Arrays.asList(
+			MODULES_APPS, MODULES_CORE, MODULES_UTIL);
 
-		ArrayList<File> kernelClasses = new ArrayList<File>();
+		List<String> newDirNames = new ArrayList<String>();
 
-		MovedClassReporterMain.listJavaFiles(kernelSrcDir, kernelClasses);
+		newDirNames.add(PORTAL_KERNEL_SRC);
+		newDirNames.addAll(moduleDirNames);
 
-		System.out.println(PORTAL_KERNEL_SRC + " class count: " + kernelClasses.size());
+		SourceIndex newIndex = null;
+		SourceIndex oldIndex = null;
 
+		List<FormerPortalServiceClass> movedClasses = new ArrayList<FormerPortalServiceClass>();
+		List<FormerPortalServiceClass> removedClasses = new ArrayList<FormerPortalServiceClass>();
 
-		// Create list of portal-service class files
+		try {
 
-		File serviceSrcDir = new File(oldDir.getPath() + "/" + PORTAL_SERVICE_SRC);
-		System.out.println("serviceSrcDir: " + serviceSrcDir.getPath());
+			// Index the portal-kernel and module classes, and the portal-service
+			// classes, walking each source folder once
 
-		ArrayList<File> serviceClasses = new ArrayList<File>();
+			if (git) {
 
-		MovedClassReporterMain.listJavaFiles(serviceSrcDir, serviceClasses);
+				// Read the refs' trees straight from the repository, without
+				// checking them out
 
-		System.out.println(PORTAL_SERVICE_SRC + " class count: " + serviceClasses.size());
+				newIndex = GitSourceIndex.scan(
+					repository, args[1], newDirNames, threads);
+				oldIndex = GitSourceIndex.scan(
+					repository, args[0], Arrays.asList(PORTAL_SERVICE_SRC),
+					threads);
+			}
+			else {
+				newIndex = SourceIndex.scan(newDir, newDirNames, threads);
+				oldIndex = SourceIndex.scan(
+					oldDir, Arrays.asList(PORTAL_SERVICE_SRC), threads);
+			}
 
+			findMovedClasses(
+				oldIndex, newIndex, moduleDirNames, movedClasses,
+				removedClasses);
+		} catch (IOException e) {
+			e.printStackTrace();
 
-		// Create list of service class BasicClassInfo objects
+			return;
+		} finally {
+			if (newIndex != null) {
+				newIndex.close();
+			}
 
-		List<BasicClassInfo> serviceBasicClassInfos = new ArrayList<BasicClassInfo>();
+			if (oldIndex != null) {
+				oldIndex.close();
+			}
 
-		for (File file : serviceClasses) {
-			String pkg = "";
-			try {
-				pkg = getPackage(file);
-				BasicClassInfo info = new BasicClassInfo(file.getName(), pkg);
-				serviceBasicClassInfos.add(info);
-			} catch (Exception e) {
-				e.printStackTrace();
+			if (repository != null) {
+				repository.close();
 			}
 		}
 
-		// Add to a new list of BasicClassInfo objects all service classes not in kernel
-		List<FormerPortalServiceClass> classesNotInKernel = new ArrayList<FormerPortalServiceClass>();
+		System.out.println("movedClasses: " + movedClasses.size());
+		sortByClassName(movedClasses);
+		removeJavaSuffix(movedClasses);
+
+		System.out.println("removedClasses: " + removedClasses.size());
+		sortByPackageName(removedClasses);
+		removeJavaSuffix(removedClasses);
 
-		for (BasicClassInfo serviceInfo: serviceBasicClassInfos) {
-			String serviceFileName = serviceInfo.getName();
+		String oldDirName = oldDir.getName();
+		String newDirName = newDir.getName();
 
-			boolean matched = false;
-			for (File kernelClass : kernelClasses) {
-				if (serviceFileName.equals(kernelClass.getName())) {
-					matched = true;
-					break;
-				}
-			}
+		if (git) {
+			oldDirName = args[0];
+			newDirName = args[1];
+		}
+		
+		TemplateProcessor movedClassesTemplateProcessor = new TemplateProcessor();
+		movedClassesTemplateProcessor.processMovedClassesTemplate(movedClasses,  movedClassesOutputFile, oldDirName, newDirName);
+		System.out.println("Reported moved classes to file: " + movedClassesOutputFile.getPath());
+
+		if (removedClassesOutputFile != null) {
+			TemplateProcessor removedClassesTemplateProcessor = new TemplateProcessor();
+			removedClassesTemplateProcessor.processRemovedClassesTemplate(removedClasses, removedClassesOutputFile, oldDirName, newDirName);
+			System.out.println("Reported removed classes to file: " + removedClassesOutputFile.getPath());
 
-			if (!matched) {
-				FormerPortalServiceClass formerClass =
-					new FormerPortalServiceClass(serviceInfo.getName(), serviceInfo.getPkg());
-				classesNotInKernel.add(formerClass);
+		}
+	}
+
+	/**
+	 * Sorts the portal-service classes that aren't in portal-kernel into the
+	 * classes that moved to a module and the classes that were removed. Each
+	 * class is matched by its file name, with hash lookups in the indexes.
+	 *
+	 * @param  oldIndex the index of the portal-service classes
+	 * @param  newIndex the index of the portal-kernel and module classes
+	 * @param  moduleDirNames the module folders, in the order to search them
+	 * @param  movedClasses the list to add the moved classes to
+	 * @param  removedClasses the list to add the removed classes to
+	 */
+	private static void findMovedClasses(
+		SourceIndex oldIndex, SourceIndex newIndex, List<String> moduleDirNames,
+		List<FormerPortalServiceClass> movedClasses,
+		List<FormerPortalServiceClass> removedClasses) {
+
+		List<File> kernelClasses = newIndex.getFiles(PORTAL_KERNEL_SRC);
+
+		System.out.println("kernelSrcDir: " + new File(newIndex.getRootDir() + "/" + PORTAL_KERNEL_SRC).getPath());
+		System.out.println(PORTAL_KERNEL_SRC + " class count: " + kernelClasses.size());
+
+		List<File> serviceClasses = oldIndex.getFiles(PORTAL_SERVICE_SRC);
+
+		System.out.println("serviceSrcDir: " + new File(oldIndex.getRootDir().getPath() + "/" + PORTAL_SERVICE_SRC).getPath());
+		System.out.println(PORTAL_SERVICE_SRC + " class count: " + serviceClasses.size());
+
+		// Only the packages of the service classes not in kernel are reported
+
+		List<File> serviceClassesNotInKernel = new ArrayList<File>();
+
+		for (File serviceClass : serviceClasses) {
+			if (newIndex.getFile(PORTAL_KERNEL_SRC, serviceClass.getName()) == null) {
+				serviceClassesNotInKernel.add(serviceClass);
 			}
 		}
 
-		System.out.println("classesNotInKernel: " + classesNotInKernel.size());
+		Map<File, String> servicePackages = oldIndex.getPackages(
+			serviceClassesNotInKernel);
 
+		List<FormerPortalServiceClass> classesNotInKernel = new ArrayList<FormerPortalServiceClass>();
 
-		ArrayList<File> moduleFiles = new ArrayList<File>();
+		for (File serviceClass : serviceClassesNotInKernel) {
+			String pkg = servicePackages.get(serviceClass);
 
-		File modulesAppsDir = new File(newDir + "/" + MODULES_APPS);
-		listJavaFiles(modulesAppsDir, moduleFiles);
+			if (pkg != null) {
+				classesNotInKernel.add(
+					new FormerPortalServiceClass(serviceClass.getName(), pkg));
+			}
+		}
 
-		File modulesCoreDir = new File(newDir + "/" + MODULES_CORE);
-		listJavaFiles(modulesCoreDir, moduleFiles);
+		System.out.println("classesNotInKernel: " + classesNotInKernel.size());
 
-		File modulesUtilDir = new File(newDir + "/" + MODULES_UTIL);
-		listJavaFiles(modulesUtilDir, moduleFiles);
+		int moduleFileCount = 0;
 
-		System.out.println("moduleFiles: " + moduleFiles.size());
+		for (String moduleDirName : moduleDirNames) {
+			moduleFileCount += newIndex.getFiles(moduleDirName).size();
+		}
+
+		System.out.println("moduleFiles: " + moduleFileCount);
 
 		// Find the module class info for each moved class and store in FormerPortalServiceClass objects
 
-		List<FormerPortalServiceClass> movedClasses = new ArrayList<FormerPortalServiceClass>();
-		List<FormerPortalServiceClass> removedClasses = new ArrayList<FormerPortalServiceClass>();
+		List<File> moduleFiles = new ArrayList<File>();
 
 		for (FormerPortalServiceClass classNotInKernel : classesNotInKernel) {
-			String className = classNotInKernel.getName();
-
-			boolean foundMatch = false;
-			for (File moduleFile : moduleFiles) {
-				if (className.equals(moduleFile.getName())) {
-					foundMatch = true;
-
-					try {
-						String pkg = MovedClassReporterMain.getPackage(moduleFile);
-						classNotInKernel.setPackageNew(pkg);
-
-						File currentDir = moduleFile.getParentFile();
-						while (currentDir != null) {
-							if (currentDir.getName().equals("src")) {
-								File moduleDir = currentDir.getParentFile();
-
-								FilenameFilter filter = new FilenameFilter() {
-									@Override
-									public boolean accept(File dir, String name) {
-										if (name.equals("bnd.bnd")) {
-											return true;
-										}
-										return false;
-									}
-								};
-								File[] bndFiles = moduleDir.listFiles(filter);
-								if ((bndFiles != null) && bndFiles.length > 0) {
-									File bndFile = bndFiles[0];
-
-									processModuleInfo(bndFile, classNotInKernel);
-								}
-								else {
-									System.out.println("Couldn't find a parent folder with a bnd.bnd file.");
-								}
-								
-								break;
-							}
-							currentDir = currentDir.getParentFile();
-						}
-
-						movedClasses.add(classNotInKernel);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-
-					break;
-				}
+			File moduleFile = newIndex.getFile(
+				moduleDirNames, classNotInKernel.getName());
+
+			if (moduleFile != null) {
+				moduleFiles.add(moduleFile);
 			}
+		}
+
+		Map<File, String> modulePackages = newIndex.getPackages(moduleFiles);
 
-			if (!foundMatch) {
+		for (FormerPortalServiceClass classNotInKernel : classesNotInKernel) {
+			File moduleFile = newIndex.getFile(
+				moduleDirNames, classNotInKernel.getName());
+
+			if (moduleFile == null) {
 				removedClasses.add(classNotInKernel);
+
+				continue;
 			}
-		}
 
-		System.out.println("movedClasses: " + movedClasses.size());
-		sortByClassName(movedClasses);
-		removeJavaSuffix(movedClasses);
+			String pkg = modulePackages.get(moduleFile);
 
-		System.out.println("removedClasses: " + removedClasses.size());
-		sortByPackageName(removedClasses);
-		removeJavaSuffix(removedClasses);
+			if (pkg == null) {
+				continue;
+			}
 
-		String oldDirName = oldDir.getName();
-		String newDirName = newDir.getName();
-		
-		TemplateProcessor movedClassesTemplateProcessor = new TemplateProcessor();
-		movedClassesTemplateProcessor.processMovedClassesTemplate(movedClasses,  movedClassesOutputFile, oldDirName, newDirName);
-		System.out.println("Reported moved classes to file: " + movedClassesOutputFile.getPath());
+			classNotInKernel.setPackageNew(pkg);
 
-		if (removedClassesOutputFile != null) {
-			TemplateProcessor removedClassesTemplateProcessor = new TemplateProcessor();
-			removedClassesTemplateProcessor.processRemovedClassesTemplate(removedClasses, removedClassesOutputFile, oldDirName, newDirName);
-			System.out.println("Reported removed classes to file: " + removedClassesOutputFile.getPath());
+			SourceIndex.Module module = newIndex.getModule(moduleFile);
 
+			if (module != null) {
+				if (module.getBndFile() == null) {
+					System.out.println("Couldn't find a parent folder with a bnd.bnd file.");
+				}
+				else if (module.getBundleSymbolicName().isEmpty()) {
+					System.out.println("ERROR: Could not fill bundle info for " + module.getBndFile().getPath());
+				}
+				else {
+					classNotInKernel.setModule(module.getBundleSymbolicName());
+				}
+			}
+
+			movedClasses.add(classNotInKernel);
 		}
 	}
 
@@ -248,107 +303,7 @@ public class MovedClassReporterMain {
 		}
 	}
 
-	private static void processModuleInfo(File bndFile, FormerPortalServiceClass formerClass) {
-		String bundleName = "";
-		try {
-
-			LineNumberReader in =
-					new LineNumberReader(new FileReader(bndFile));
-			String line;
-			while ((line = in.readLine()) != null) {
-				if (line.startsWith("Bundle-SymbolicName:")) {
-					String[] tokens = line.split(" ");
-					if (tokens.length > 1) {
-						bundleName = tokens[1].trim();
-					}
-				}
-
-				if (!bundleName.isEmpty()) {
-					break;
-				}
-			}
-			in.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		if (!bundleName.isEmpty()) {
-			formerClass.setModule(bundleName);
-		}
-		else {
-			System.out.println("ERROR: Could not fill bundle info for " + bndFile.getPath());
-		}
-	}
-
-	private static String getPackage(File serviceClass) throws Exception {
-		String pkgStr = "package";
-		int pkgStrLen = pkgStr.length();
-		String pkg = "";
-
-		try {
-			LineNumberReader in =
-					new LineNumberReader(new FileReader(serviceClass));
-			String line;
-			while ((line = in.readLine()) != null) {
-				if (line.startsWith("package")) {
-					String str = line.substring(pkgStrLen);
-					str = str.trim();
-					int semiIndex = str.indexOf(';');
-					if (semiIndex > 0) {
-						str = str.substring(0, semiIndex);
-					}
-
-					pkg = str;
-					break;
-				}
-			}
-			in.close();
-		} catch (IOException e) {
-			throw new Exception(e.getLocalizedMessage());
-		}
-
-		return pkg;
-	}
-
-	private static void listBndFiles(String directoryName, ArrayList<File> files) {
-	    File directory = new File(directoryName);
-
-	    // get all the files from a directory
-	    File[] fList = directory.listFiles();
-	    if (fList == null) {
-	    	return;
-	    }
-
-	    for (File file : fList) {
-	        if (file.isFile()) {
-	        	if (file.getName().equals("bnd.bnd")) {
-	        		files.add(file);
-	        	}
-	        } else if (file.isDirectory()) {
-	        	listBndFiles(file.getAbsolutePath(), files);
-	        }
-	    }
-	}
-
-	private static void listJavaFiles(File directory, ArrayList<File> files) {
-
-	    // get all the files from a directory
-	    File[] fList = directory.listFiles();
-	    if (fList == null) {
-	    	return;
-	    }
-
-	    for (File file : fList) {
-	        if (file.isFile()) {
-	        	if (file.getName().endsWith(".java")) {
-	        		files.add(file);
-	        	}
-	        } else if (file.isDirectory()) {
-	            listJavaFiles(file, files);
-	        }
-	    }
-	}
-
+	public static final String GIT_OPTION = "-git";
 
 	public static final String MODULES_APPS = "modules/apps";
 
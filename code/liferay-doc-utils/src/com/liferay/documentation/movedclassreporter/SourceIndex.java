@@ -0,0 +1,512 @@
+package com.liferay.documentation.movedclassreporter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An index of the Java source files below a source tree's folders, e.g.,
+ * <code>portal-kernel/src</code> and <code>modules/apps</code>. Each folder is
+ * walked once, on a thread of its own, into a hash index of its Java files by
+ * file name, so looking up a class is a hash lookup instead of a scan of every
+ * file.
+ *
+ * <p>
+ * The index also reads the files' package declarations, in parallel, reading
+ * only up to the declaration, and the <code>Bundle-SymbolicName</code> of the
+ * modules the files belong to. Each module's <code>bnd.bnd</code> file is
+ * looked up and read once, no matter how many of its files are looked up.
+ * </p>
+ *
+ * <p>
+ * This index reads a source tree on disk. Subclasses can index other source
+ * trees by overriding how folders are walked and files are read (see
+ * {@link GitSourceIndex}).
+ * </p>
+ */
+public class SourceIndex {
+
+	/**
+	 * Walks the source tree's folders into a new index.
+	 *
+	 * @param  rootDir the source tree's root folder
+	 * @param  dirNames the paths of the folders to index, relative to the root
+	 *         folder (e.g., <code>modules/apps</code>)
+	 * @param  threads the number of threads to walk the folders and read the
+	 *         files on
+	 * @return the index
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static SourceIndex scan(
+			File rootDir, List<String> dirNames, int threads)
+		throws IOException {
+
+		SourceIndex sourceIndex = new SourceIndex(rootDir, threads);
+
+		sourceIndex.walk(dirNames);
+
+		return sourceIndex;
+	}
+
+	/**
+	 * Stops the threads reading the files.
+	 */
+	public void close() {
+		_executorService.shutdownNow();
+	}
+
+	/**
+	 * Returns the indexed folder's Java file with the file name that's found
+	 * first, walking the folder depth first in the order the file system lists
+	 * its entries.
+	 *
+	 * @param  dirName the indexed folder's path relative to the root folder
+	 * @param  fileName the Java file's name (e.g., <code>Foo.java</code>)
+	 * @return the Java file, or <code>null</code> if the folder has none with
+	 *         the file name
+	 */
+	public File getFile(String dirName, String fileName) {
+		List<File> files = _javaFiles.get(dirName)._filesByName.get(fileName);
+
+		if (files == null) {
+			return null;
+		}
+
+		return files.get(0);
+	}
+
+	/**
+	 * Returns the first Java file with the file name in the indexed folders,
+	 * looking in the folders in the given order.
+	 *
+	 * @param  dirNames the indexed folders' paths relative to the root folder
+	 * @param  fileName the Java file's name
+	 * @return the Java file, or <code>null</code> if none of the folders has
+	 *         one with the file name
+	 */
+	public File getFile(List<String> dirNames, String fileName) {
+		for (String dirName : dirNames) {
+			File file = getFile(dirName, fileName);
+
+			if (file != null) {
+				return file;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the indexed folder's Java files, in the order the folder was
+	 * walked.
+	 *
+	 * @param  dirName the indexed folder's path relative to the root folder
+	 * @return the Java files
+	 */
+	public List<File> getFiles(String dirName) {
+		return Collections.unmodifiableList(_javaFiles.get(dirName)._files);
+	}
+
+	/**
+	 * Returns the module the Java file belongs to. The module's folder is the
+	 * parent of the nearest <code>src</code> folder above the file.
+	 *
+	 * @param  javaFile the Java file
+	 * @return the module, or <code>null</code> if the file isn't below a
+	 *         <code>src</code> folder
+	 */
+	public Module getModule(File javaFile) {
+		File currentDir = javaFile.getParentFile();
+
+		while (currentDir != null) {
+			if (currentDir.getName().equals("src")) {
+				return getModuleInfo(currentDir.getParentFile());
+			}
+
+			currentDir = currentDir.getParentFile();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the Java files' packages, read in parallel.
+	 *
+	 * @param  javaFiles the Java files
+	 * @return the packages, keyed by the Java files, or an empty string for a
+	 *         file without a package declaration. A file that couldn't be read
+	 *         is left out.
+	 */
+	public Map<File, String> getPackages(List<File> javaFiles) {
+		Map<File, Future<String>> futures =
+			new LinkedHashMap<File, Future<String>>();
+
+		for (final File javaFile : javaFiles) {
+			futures.put(javaFile, _executorService.submit(
+				new Callable<String>() {
+
+					@Override
+					public String call() throws IOException {
+						BufferedReader in = openReader(javaFile);
+
+						if (in == null) {
+							throw new IOException(
+								"Unable to read " + javaFile.getPath());
+						}
+
+						try {
+							return readPackage(in);
+						}
+						finally {
+							in.close();
+						}
+					}
+
+				}));
+		}
+
+		Map<File, String> packages = new HashMap<File, String>();
+
+		for (Map.Entry<File, Future<String>> entry : futures.entrySet()) {
+			try {
+				packages.put(entry.getKey(), getResult(entry.getValue()));
+			}
+			catch (IOException ioe) {
+				ioe.printStackTrace();
+			}
+		}
+
+		return packages;
+	}
+
+	public File getRootDir() {
+		return _rootDir;
+	}
+
+	/**
+	 * Returns the package declared in the Java source read from the reader.
+	 * Only the lines up to the package declaration are read; reading stops at
+	 * the first <code>import</code> statement, which can't precede the
+	 * declaration.
+	 *
+	 * @param  in the reader of the Java source
+	 * @return the package, or an empty string if the source doesn't declare
+	 *         one
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static String readPackage(BufferedReader in) throws IOException {
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith(PACKAGE)) {
+				String str = line.substring(PACKAGE.length());
+				str = str.trim();
+				int semiIndex = str.indexOf(';');
+				if (semiIndex > 0) {
+					str = str.substring(0, semiIndex);
+				}
+
+				return str;
+			}
+
+			if (line.startsWith("import ")) {
+				break;
+			}
+		}
+
+		return "";
+	}
+
+	/**
+	 * Returns the <code>Bundle-SymbolicName</code> declared in the
+	 * <code>bnd.bnd</code> content read from the reader.
+	 *
+	 * @param  in the reader of the <code>bnd.bnd</code> content
+	 * @return the bundle symbolic name, or an empty string if none is declared
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static String readBundleSymbolicName(BufferedReader in)
+		throws IOException {
+
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith("Bundle-SymbolicName:")) {
+				String[] tokens = line.split(" ");
+
+				if (tokens.length > 1) {
+					String bundleName = tokens[1].trim();
+
+					if (!bundleName.isEmpty()) {
+						return bundleName;
+					}
+				}
+			}
+		}
+
+		return "";
+	}
+
+	private static <T> T getResult(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new RuntimeException(cause);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+
+			throw new IOException(ie);
+		}
+	}
+
+	/**
+	 * Creates an empty index of the source tree.
+	 *
+	 * @param rootDir the source tree's root folder
+	 * @param threads the number of threads to walk the folders and read the
+	 *        files on
+	 */
+	protected SourceIndex(File rootDir, int threads) {
+		_rootDir = rootDir;
+		_executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+	}
+
+	/**
+	 * Returns a reader of the file's content.
+	 *
+	 * @param  file the file
+	 * @return the reader, or <code>null</code> if the file doesn't exist
+	 * @throws IOException if an IO exception occurred
+	 */
+	protected BufferedReader openReader(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+
+		return new BufferedReader(new FileReader(file));
+	}
+
+	/**
+	 * Walks the folders into the index, each folder on a thread of its own.
+	 *
+	 * @param  dirNames the paths of the folders to index, relative to the root
+	 *         folder
+	 * @throws IOException if an IO exception occurred
+	 */
+	protected void walk(List<String> dirNames) throws IOException {
+		List<Future<JavaFiles>> futures = new ArrayList<Future<JavaFiles>>();
+
+		for (final String dirName : dirNames) {
+			futures.add(_executorService.submit(new Callable<JavaFiles>() {
+
+				@Override
+				public JavaFiles call() throws IOException {
+					return walk(dirName);
+				}
+
+			}));
+		}
+
+		for (int i = 0; i < dirNames.size(); i++) {
+			_javaFiles.put(dirNames.get(i), getResult(futures.get(i)));
+		}
+	}
+
+	/**
+	 * Walks the folder depth first, collecting its Java files in the order the
+	 * file system lists each folder's entries.
+	 *
+	 * @param  dirName the folder's path relative to the root folder
+	 * @return the folder's Java files
+	 * @throws IOException if an IO exception occurred
+	 */
+	protected JavaFiles walk(String dirName) throws IOException {
+		final JavaFiles javaFiles = new JavaFiles();
+
+		File dir = new File(_rootDir + "/" + dirName);
+
+		if (!dir.isDirectory()) {
+			return javaFiles;
+		}
+
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(
+				Path path, BasicFileAttributes basicFileAttributes) {
+
+				String fileName = path.getFileName().toString();
+
+				if (basicFileAttributes.isRegularFile() &&
+					fileName.endsWith(".java")) {
+
+					javaFiles.add(fileName, path.toFile());
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(
+				Path path, IOException ioe) {
+
+				// Skip unreadable entries, like listing them does
+
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+
+		return javaFiles;
+	}
+
+	private Module getModuleInfo(File moduleDir) {
+		Module module = _modules.get(moduleDir);
+
+		if (module != null) {
+			return module;
+		}
+
+		File bndFile = new File(moduleDir, "bnd.bnd");
+
+		String bundleSymbolicName = null;
+
+		try {
+			BufferedReader in = openReader(bndFile);
+
+			if (in != null) {
+				try {
+					bundleSymbolicName = readBundleSymbolicName(in);
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+		catch (IOException ioe) {
+			bundleSymbolicName = "";
+
+			ioe.printStackTrace();
+		}
+
+		if (bundleSymbolicName == null) {
+			bndFile = null;
+		}
+
+		module = new Module(moduleDir.getPath(), bndFile, bundleSymbolicName);
+
+		Module previousModule = _modules.putIfAbsent(moduleDir, module);
+
+		if (previousModule != null) {
+			return previousModule;
+		}
+
+		return module;
+	}
+
+	private static final String PACKAGE = "package";
+
+	private final ExecutorService _executorService;
+	private final Map<String, JavaFiles> _javaFiles =
+		new HashMap<String, JavaFiles>();
+	private final ConcurrentMap<File, Module> _modules =
+		new ConcurrentHashMap<File, Module>();
+	private final File _rootDir;
+
+	/**
+	 * A module of the source tree, described by its <code>bnd.bnd</code>
+	 * file.
+	 */
+	public static class Module {
+
+		public Module(
+			String path, File bndFile, String bundleSymbolicName) {
+
+			_path = path;
+			_bndFile = bndFile;
+			_bundleSymbolicName = bundleSymbolicName;
+		}
+
+		/**
+		 * Returns the module's <code>bnd.bnd</code> file.
+		 *
+		 * @return the <code>bnd.bnd</code> file, or <code>null</code> if the
+		 *         module doesn't have one
+		 */
+		public File getBndFile() {
+			return _bndFile;
+		}
+
+		/**
+		 * Returns the module's <code>Bundle-SymbolicName</code>.
+		 *
+		 * @return the bundle symbolic name, an empty string if the module's
+		 *         <code>bnd.bnd</code> file doesn't declare one, or
+		 *         <code>null</code> if the module doesn't have a
+		 *         <code>bnd.bnd</code> file
+		 */
+		public String getBundleSymbolicName() {
+			return _bundleSymbolicName;
+		}
+
+		public String getPath() {
+			return _path;
+		}
+
+		private final File _bndFile;
+		private final String _bundleSymbolicName;
+		private final String _path;
+	}
+
+	/**
+	 * The Java files of an indexed folder, in walk order and by file name.
+	 */
+	protected static class JavaFiles {
+
+		public void add(String fileName, File file) {
+			_files.add(file);
+
+			List<File> files = _filesByName.get(fileName);
+
+			if (files == null) {
+				files = new ArrayList<File>(1);
+
+				_filesByName.put(fileName, files);
+			}
+
+			files.add(file);
+		}
+
+		private final List<File> _files = new ArrayList<File>();
+		private final Map<String, List<File>> _filesByName =
+			new HashMap<String, List<File>>();
+	}
+
+}
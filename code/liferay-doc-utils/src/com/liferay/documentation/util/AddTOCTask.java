@@ -1,15 +1,9 @@
 package com.liferay.documentation.util;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
@@ -28,113 +22,95 @@ public class AddTOCTask extends Task {
 			dirTypes.add("-dxp");
 		}
 
-		for (String dirType : dirTypes) {
+		DocSet docSet = new DocSet(docDir);
 
-			List<String> fileList = DocsUtil.getMarkdownFileList(docDir, dirType);
-			List<String> fileListNoTOC = new ArrayList<String>();
+		try {
+			for (String dirType : dirTypes) {
 
-			try {
-				fileListNoTOC = getFilesWithNoTOC(fileList);
-				addTOCs(fileListNoTOC);
-			} catch (IOException e) {
-				throw new BuildException(e.getLocalizedMessage());
-			}
+				List<String> fileList = DocsUtil.getMarkdownFileList(docDir, dirType);
 
+				addTOCs(docSet, fileList);
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			DocsUtil.writeDocSet(docSet);
 		}
 	}
 
-	private static void addTOCs(List<String> fileListNoTOC) throws IOException {
-
-		for (int i = 0; i < fileListNoTOC.size(); i++) {
-			String filenameNoTOC = fileListNoTOC.get(i);
-			File inFile = new File(filenameNoTOC);
-			File outFile = new File(filenameNoTOC);
-			String outFileTmp = outFile + ".tmp";
+	/**
+	 * Adds the TOC syntax below the title of each article that doesn't have
+	 * it. The articles are all checked before any of them is changed.
+	 *
+	 * @param  docSet the document set containing the articles
+	 * @param  fileList the articles' paths
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void addTOCs(DocSet docSet, List<String> fileList)
+			throws IOException {
 
-			System.out.println("Adding TOC syntax for " + filenameNoTOC);
+		List<DocSet.Article> articlesNoTOC = new ArrayList<DocSet.Article>();
 
-			LineNumberReader in =
-					new LineNumberReader(new FileReader(inFile));
+		for (String filename : fileList) {
+			DocSet.Article article = docSet.getArticle(filename);
 
-			BufferedWriter out =
-					new BufferedWriter(new FileWriter(outFileTmp));
+			if (!hasTOC(filename, article.getLines())) {
+				articlesNoTOC.add(article);
+			}
+		}
 
-			String line;
-			boolean tocAdded = false;
-			while ((line = in.readLine()) != null) {
+		for (DocSet.Article article : articlesNoTOC) {
+			System.out.println("Adding TOC syntax for " + article.getFile().getPath());
 
-				if (line.startsWith("#") && !line.startsWith("##") && !tocAdded) {
-					out.append(line);
-					out.append("\n\n");
-					out.append(tocSyntax);
-					out.append("\n");
+			article.setLines(addTOC(article.getLines()));
+		}
+	}
 
-					tocAdded = true;
-				}
-				else {
-					out.append(line);
-					out.append("\n");
-				}
+	private static List<String> addTOC(List<String> lines) {
 
-			}
+		List<String> newLines = new ArrayList<String>();
 
-			in.close();
+		boolean tocAdded = false;
 
-			out.flush();
-			out.close();
+		for (String line : lines) {
 
-			// Replace original file with modified temp file
+			newLines.add(line);
 
-			FileUtils.copyFile(
-					new File(outFileTmp),
-					new File(filenameNoTOC));
+			if (line.startsWith("#") && !line.startsWith("##") && !tocAdded) {
+				newLines.add("");
+				newLines.add(tocSyntax);
 
-			FileUtils.forceDelete(new File(outFileTmp));
+				tocAdded = true;
+			}
 		}
-	}
-
-	private static List<String> getFilesWithNoTOC(List<String> fileList)
-			throws IOException {
-
-		List<String> fileListNoTOC = new ArrayList<String>();
 
-		for (int i = 0; i < fileList.size(); i++) {
-			String filename = fileList.get(i);
-			File inFile = new File(filename);
+		return newLines;
+	}
 
-			LineNumberReader in =
-					new LineNumberReader(new FileReader(inFile));
+	private static boolean hasTOC(String filename, List<String> lines) {
 
-			String line;
-			boolean tocExists = false;
-			//Integer tocLineNum = null;
-			int tocLineNum = -2;
+		boolean tocExists = false;
+		int tocLineNum = -2;
 
-			while ((line = in.readLine()) != null) {
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			int lineNum = i + 1;
 
-				if (line.startsWith(tocSyntax)) {
+			if (line.startsWith(tocSyntax)) {
 
-					tocExists = true;
-					tocLineNum = in.getLineNumber();
-				}
-				if (in.getLineNumber() == (tocLineNum + 1) && tocExists) {
-					if (!line.equals("")) {
-						in.close();
-						throw new BuildException("Filename: " + filename + ":" +
-								in.getLineNumber() +  "The line following the TOC syntax should " +
-								"be blank.");
-					}
-				}
+				tocExists = true;
+				tocLineNum = lineNum;
 			}
-
-			if (!tocExists) {
-				fileListNoTOC.add(filename);
+			if (lineNum == (tocLineNum + 1) && tocExists) {
+				if (!line.equals("")) {
+					throw new BuildException("Filename: " + filename + ":" +
+							lineNum +  "The line following the TOC syntax should " +
+							"be blank.");
+				}
 			}
-
-			in.close();
 		}
 
-		return fileListNoTOC;
+		return tocExists;
 	}
 
 	public void setDocdir(String docdir) {
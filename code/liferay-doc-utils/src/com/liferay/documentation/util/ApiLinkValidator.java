@@ -0,0 +1,363 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates API (Javadoc) links hosted on a remote site. Links are collected
+ * while the articles are scanned and then validated together: each unique URL
+ * is requested once, no matter how many articles link to it, and the requests
+ * run concurrently with a bounded number of threads and connections per host.
+ *
+ * <p>
+ * A <code>HEAD</code> request is used to fetch the status code. If the server
+ * doesn't support <code>HEAD</code>, the URL is requested with
+ * <code>GET</code>, closing the connection without reading the body.
+ * </p>
+ *
+ * <p>
+ * If a {@link LinkValidationCache} is set, URLs with a fresh cached result
+ * aren't requested at all, and expired results are revalidated with
+ * conditional requests.
+ * </p>
+ */
+public class ApiLinkValidator {
+
+	public ApiLinkValidator(int threads, int connectionsPerHost, int timeout) {
+		_threads = Math.max(1, threads);
+		_connectionsPerHost = Math.max(1, connectionsPerHost);
+		_timeout = timeout;
+	}
+
+	/**
+	 * Adds a link to validate.
+	 *
+	 * @param url the link's URL
+	 * @param article the article containing the link
+	 * @param lineNumber the line number of the line containing the link
+	 * @param line the line containing the link
+	 */
+	public void addLink(String url, File article, int lineNumber, String line) {
+		List<ApiLink> links = _links.get(url);
+
+		if (links == null) {
+			links = new ArrayList<ApiLink>();
+
+			_links.put(url, links);
+		}
+
+		links.add(new ApiLink(url, article, lineNumber, line));
+	}
+
+	public LinkValidationCache getCache() {
+		return _cache;
+	}
+
+	/**
+	 * Returns the number of URLs that were requested from their servers during
+	 * the last validation, rather than answered by the cache.
+	 *
+	 * @return the number of URLs requested from their servers
+	 */
+	public int getRequestedUrlCount() {
+		return _requestedUrlCount.get();
+	}
+
+	/**
+	 * Returns the number of unique URLs collected.
+	 *
+	 * @return the number of unique URLs collected
+	 */
+	public int getUrlCount() {
+		return _links.size();
+	}
+
+	public void setCache(LinkValidationCache cache) {
+		_cache = cache;
+	}
+
+	/**
+	 * Requests each unique URL and returns the links whose URL is broken. A
+	 * URL is broken if it responds with a <code>404</code> status code or
+	 * can't be reached. The links are returned in the order they were added
+	 * for each URL, and the URLs in the order they were first added.
+	 *
+	 * @return the broken links
+	 */
+	public List<ApiLink> validate() {
+		List<ApiLink> brokenLinks = new ArrayList<ApiLink>();
+
+		if (_links.isEmpty()) {
+			return brokenLinks;
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(
+			Math.min(_threads, _links.size()));
+
+		try {
+			Map<String, Future<Integer>> futures =
+				new LinkedHashMap<String, Future<Integer>>();
+
+			for (final String url : _links.keySet()) {
+				futures.put(
+					url,
+					executorService.submit(
+						new Callable<Integer>() {
+
+							@Override
+							public Integer call() {
+								return getStatus(url);
+							}
+
+						}));
+			}
+
+			for (Map.Entry<String, Future<Integer>> entry :
+					futures.entrySet()) {
+
+				int status = getResult(entry.getValue());
+
+				if (isBroken(status)) {
+					for (ApiLink link : _links.get(entry.getKey())) {
+						link.setStatus(status);
+
+						brokenLinks.add(link);
+					}
+				}
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		return brokenLinks;
+	}
+
+	/**
+	 * Returns the URL's status code, or <code>-1</code> if the URL is
+	 * malformed or can't be reached.
+	 *
+	 * @param  url the URL
+	 * @return the URL's status code
+	 */
+	protected int getStatus(String url) {
+		URL urlObject = null;
+
+		try {
+			urlObject = new URL(url);
+		}
+		catch (MalformedURLException e) {
+			return STATUS_UNREACHABLE;
+		}
+
+		if (_cache != null) {
+			Integer cachedStatus = _cache.getFreshStatus(url);
+
+			if (cachedStatus != null) {
+				return cachedStatus;
+			}
+		}
+
+		_requestedUrlCount.incrementAndGet();
+
+		Semaphore semaphore = getHostSemaphore(urlObject.getHost());
+
+		try {
+			semaphore.acquire();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			return STATUS_UNREACHABLE;
+		}
+
+		try {
+			int status = STATUS_UNREACHABLE;
+
+			try {
+				status = request(urlObject, "HEAD");
+			}
+			catch (IOException e) {
+
+				// Fall back to GET below
+
+			}
+
+			if ((status == STATUS_UNREACHABLE) || isFallbackStatus(status)) {
+				status = request(urlObject, "GET");
+			}
+
+			return status;
+		}
+		catch (IOException e) {
+			return STATUS_UNREACHABLE;
+		}
+		finally {
+			semaphore.release();
+		}
+	}
+
+	protected boolean isBroken(int status) {
+		if ((status == STATUS_UNREACHABLE) ||
+			(status == HttpURLConnection.HTTP_NOT_FOUND)) {
+
+			return true;
+		}
+
+		return false;
+	}
+
+	protected int request(URL url, String method) throws IOException {
+		HttpURLConnection urlConnection =
+			(HttpURLConnection)url.openConnection();
+
+		urlConnection.setConnectTimeout(_timeout);
+		urlConnection.setReadTimeout(_timeout);
+		urlConnection.setRequestMethod(method);
+
+		if (_cache != null) {
+			_cache.addConditionalHeaders(url.toString(), urlConnection);
+		}
+
+		int status = urlConnection.getResponseCode();
+
+		if ((_cache != null) && !isFallbackStatus(status)) {
+			status = _cache.put(url.toString(), status, urlConnection);
+		}
+
+		// Closing the stream rather than disconnecting lets the connection be
+		// reused for the next request to the same host. The body of a GET
+		// response is abandoned by disconnecting instead.
+
+		if (method.equals("HEAD")) {
+			InputStream inputStream = null;
+
+			try {
+				inputStream = urlConnection.getInputStream();
+			}
+			catch (IOException e) {
+				inputStream = urlConnection.getErrorStream();
+			}
+
+			if (inputStream != null) {
+				inputStream.close();
+			}
+		}
+		else {
+			urlConnection.disconnect();
+		}
+
+		return status;
+	}
+
+	private Semaphore getHostSemaphore(String host) {
+		Semaphore semaphore = _hostSemaphores.get(host);
+
+		if (semaphore == null) {
+			Semaphore newSemaphore = new Semaphore(_connectionsPerHost);
+
+			semaphore = _hostSemaphores.putIfAbsent(host, newSemaphore);
+
+			if (semaphore == null) {
+				semaphore = newSemaphore;
+			}
+		}
+
+		return semaphore;
+	}
+
+	private int getResult(Future<Integer> future) {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			return STATUS_UNREACHABLE;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			return STATUS_UNREACHABLE;
+		}
+	}
+
+	private boolean isFallbackStatus(int status) {
+		if ((status == HttpURLConnection.HTTP_BAD_METHOD) ||
+			(status == HttpURLConnection.HTTP_NOT_IMPLEMENTED)) {
+
+			return true;
+		}
+
+		return false;
+	}
+
+	public static final int STATUS_UNREACHABLE = -1;
+
+	private LinkValidationCache _cache;
+	private final int _connectionsPerHost;
+	private final ConcurrentHashMap<String, Semaphore> _hostSemaphores =
+		new ConcurrentHashMap<String, Semaphore>();
+	private final Map<String, List<ApiLink>> _links =
+		new LinkedHashMap<String, List<ApiLink>>();
+	private final AtomicInteger _requestedUrlCount = new AtomicInteger();
+	private final int _threads;
+	private final int _timeout;
+
+	/**
+	 * An occurrence of an API link in an article.
+	 */
+	public static class ApiLink {
+
+		public ApiLink(String url, File article, int lineNumber, String line) {
+			_url = url;
+			_article = article;
+			_lineNumber = lineNumber;
+			_line = line;
+		}
+
+		public File getArticle() {
+			return _article;
+		}
+
+		public String getLine() {
+			return _line;
+		}
+
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		public int getStatus() {
+			return _status;
+		}
+
+		public String getUrl() {
+			return _url;
+		}
+
+		public void setStatus(int status) {
+			_status = status;
+		}
+
+		private final File _article;
+		private final String _line;
+		private final int _lineNumber;
+		private int _status;
+		private final String _url;
+	}
+}
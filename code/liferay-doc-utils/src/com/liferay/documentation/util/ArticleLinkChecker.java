@@ -0,0 +1,1121 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import org.htmlparser.Parser;
+import org.htmlparser.filters.NodeClassFilter;
+import org.htmlparser.tags.LinkTag;
+import org.htmlparser.util.NodeList;
+import org.htmlparser.util.ParserException;
+
+/**
+ * Checks the links of a single article. A checker holds no state for the
+ * article being checked: once it's configured, it only reads the header
+ * catalog and shares its LDN URL results, so any number of articles can be
+ * checked on separate threads at the same time.
+ *
+ * <p>
+ * Broken links are returned in the order they occur in the article rather than
+ * being reported right away, so the caller can report the results of articles
+ * checked concurrently in a stable order. API links are returned too, to be
+ * validated together once every article has been checked.
+ * </p>
+ *
+ * @author Cody Hoag
+ */
+public class ArticleLinkChecker {
+
+	public ArticleLinkChecker(
+		HeaderCatalog headerCatalog, LinkValidationCache linkValidationCache) {
+
+		_headerCatalog = headerCatalog;
+		_linkValidationCache = linkValidationCache;
+	}
+
+	/**
+	 * Reads the article and checks its links.
+	 *
+	 * @param  article the article to check
+	 * @return the article's broken links and API links
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Result checkArticle(File article) throws IOException {
+
+		List<String> lines = new ArrayList<String>();
+
+		LineNumberReader in = new LineNumberReader(new FileReader(article));
+
+		try {
+			String line = null;
+
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		return checkArticle(article, lines);
+	}
+
+	/**
+	 * Checks the links of the article's lines.
+	 *
+	 * @param  article the article containing the lines
+	 * @param  lines the article's lines
+	 * @return the article's broken links and API links
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Result checkArticle(File article, List<String> lines)
+			throws IOException {
+
+		HeaderCatalog.ArticleHeaders articleHeaders =
+			_headerCatalog.getArticleHeaders(article, lines);
+
+		Result result = new Result(article);
+
+		for (int i = 0; i < lines.size(); i++) {
+			checkLine(result, articleHeaders, lines.get(i), i + 1);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the dependency still has the outcome it
+	 * had when the article was checked. An article whose dependencies are all
+	 * current would get the same results if it were checked again.
+	 *
+	 * @param  dependency the dependency of an article's results
+	 * @return <code>true</code> if the dependency is current;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isCurrent(Dependency dependency) {
+
+		boolean valid = false;
+
+		if (dependency.getUrl() != null) {
+			valid = isLdnUrlValid(dependency.getUrl());
+		}
+		else if (dependency.getSecondaryHeader() == null) {
+			valid = _headerCatalog.hasPrimaryHeader(
+				dependency.getGuideDir(), dependency.getPrimaryHeader());
+		}
+		else {
+			valid = _headerCatalog.hasSecondaryHeader(
+				dependency.getGuideDir(), dependency.getPrimaryHeader(),
+				dependency.getSecondaryHeader());
+		}
+
+		return valid == dependency.isValid();
+	}
+
+	public void setApiLinks(boolean apiLinks) {
+		_apiLinks = apiLinks;
+	}
+
+	public void setAppReference(String appReferenceSite, String appToken) {
+		_appReferenceSite = appReferenceSite;
+		_appToken = appToken;
+	}
+
+	public void setLegacyLinks(boolean legacyLinks) {
+		_legacyLinks = legacyLinks;
+	}
+
+	/**
+	 * Sets the limits of the LDN URL requests.
+	 *
+	 * @param hostConnections the maximum number of concurrent requests per
+	 *        host
+	 * @param timeout the connect and read timeout, in milliseconds
+	 */
+	public void setLdnLimits(int hostConnections, int timeout) {
+		_ldnHostConnections = hostConnections;
+		_ldnTimeout = timeout;
+	}
+
+	public void setPlatformReference(
+		String platformReferenceSite, String platformToken) {
+
+		_platformReferenceSite = platformReferenceSite;
+		_platformToken = platformToken;
+	}
+
+	/**
+	 * Returns the number of specific strings in the line.
+	 *
+	 * @param  line the line to count the number of specific strings
+	 * @return the number of specific strings in the line
+	 */
+	private static int countStrings(String line) {
+
+		int lastIndex = 0;
+		int count = 0;
+
+		while(lastIndex != -1){
+
+		    lastIndex = line.indexOf(findStr,lastIndex);
+
+		    if(lastIndex != -1){
+		        count ++;
+		        lastIndex += findStr.length();
+		    }
+		}
+		return count;
+	}
+
+	/**
+	 * Returns <code>true</code> if the link's folder and folder starting letter
+	 * match. For example, the link below returns <code>true</code> because the
+	 * <code>reference</code> string matches the second folder prefix
+	 * <code>r</code>.
+	 *
+	 * <p>
+	 * <pre>
+	 * <code>
+	 * /docs/7-2/reference/-/knowledge_base/r/test
+	 * </code>
+	 * </pre>
+	 * </p>
+	 *
+	 * <p>
+	 * If the second folder prefix for the above link was <code>f</code>, this
+	 * method would return <code>false</code>.
+	 * </p>
+	 *
+	 * @param  line the line containing the relative link
+	 * @param  lineIndex the header's index on the line. This is useful when
+	 *         there are multiple relative links on one line.
+	 * @return <code>true</code> if the link's folder and folder starting letter
+	 *         match; <code>false</code> otherwise
+	 */
+	private static boolean doesDocFoldersMatch(String line, int lineIndex) {
+
+		String lineSubstring = line.substring(lineIndex, line.length());
+		boolean foldersMatch = false;
+
+		int begIndex = lineSubstring.indexOf("/docs/") + 10;
+		String folder1 = lineSubstring.substring(begIndex, begIndex + 1);
+
+		int begIndex2 = lineSubstring.indexOf(findStr) + findStr.length();
+
+		String folder2 = lineSubstring.substring(begIndex2, begIndex2 + 1);
+
+		if (folder1.equals(folder2)) {
+			foldersMatch = true;
+		}
+
+		return foldersMatch;
+	}
+
+	/**
+	 * Returns the header ID contained in the given line. For example, the
+	 * following line:
+	 *
+	 * <p>
+	 * <pre>
+	 * <code>
+	 * [here](/docs/7-2/deploy/-/knowledge_base/d/installing-liferay-portal#liferay-home)
+	 * </code>
+	 * </pre>
+	 * </p>
+	 *
+	 * returns
+	 *
+	 * <p>
+	 * <pre>
+	 * <code>
+	 * installing-liferay-portal#liferay-home
+	 * </code>
+	 * </pre>
+	 * </p>
+	 *
+	 * @param  result the article's results
+	 * @param  line the line from which to extract the header
+	 * @param  lineNumber the line number
+	 * @return the header ID
+	 */
+	private static String extractHeader(
+		Result result, String line, int lineNumber) {
+
+		int strIndex = line.indexOf(findStr);
+		int begIndex = strIndex + findStr.length() + 2;
+		int endIndex = line.indexOf(")", begIndex);
+
+		String header = "";
+
+		try {
+			header = line.substring(begIndex, endIndex);
+		} catch(Exception e) {
+			result.addBrokenLink(lineNumber, line, true, null);
+		}
+
+		return header;
+	}
+
+	/**
+	 * Returns the fully qualified LDN URL from the given line.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line from which to extract the URL
+	 * @param  lineNumber the line number
+	 * @return the LDN URL
+	 */
+	private static String extractLdnUrl(
+		Result result, String line, int lineNumber) {
+
+		int begIndex = line.indexOf("](/") + 2;
+		int endIndex = line.indexOf(")", begIndex);
+		String endLdnUrl = null;
+
+		try{
+			endLdnUrl = line.substring(begIndex, endIndex);
+		} catch (StringIndexOutOfBoundsException e) {
+			endLdnUrl = line.substring(begIndex, line.length());
+			result.addBrokenLink(lineNumber, line, true, null);
+		}
+
+		String begLdnUrl = "https://dev.liferay.com";
+
+		String ldnUrl = begLdnUrl.concat(endLdnUrl);
+
+		return ldnUrl;
+	}
+
+	/**
+	 * Returns a map of headers paired with their line indexes. This method is
+	 * used to extract multiple headers (from relative links) that are contained
+	 * on one line.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line from which to extract the header
+	 * @param  lineNumber the line number
+	 * @param  indexCorrection the number used to modify the index used when
+	 *         searching for the next specific string on the line
+	 * @return the multiple headers contained on the line paired with their indexes
+	 */
+	private static LinkedHashMap<String, Integer> extractMultiStrings(
+		Result result, String line, int lineNumber, String searcherString,
+		int indexCorrection) {
+
+		// Find all relevant headers
+		LinkedHashMap<String, Integer> headerMap = new LinkedHashMap<String, Integer>();
+		String originalLine = line;
+
+		while(line.contains(searcherString)){
+
+			int strIndex = line.indexOf(searcherString);
+			int begIndex = strIndex + searcherString.length() + indexCorrection;
+			int endIndex = line.indexOf(")", begIndex);
+			int headerIndex = originalLine.length() - line.length();
+
+			String header = "";
+
+			try {
+				header = line.substring(begIndex, endIndex);
+			} catch(Exception e) {
+				result.addBrokenLink(lineNumber, line, true, null);
+			}
+
+			line = line.substring(endIndex, line.length());
+
+			headerMap.put(header, headerIndex);
+
+		}
+
+		return headerMap;
+	}
+
+	/**
+	 * Returns the sub-header ID contained in the given line. A sub-header is a
+	 * header characterizing a subsection in the article.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line from which to extract the URL
+	 * @param  lineNumber the line number
+	 * @return the sub-header ID
+	 */
+	private static String extractSubHeader(
+		Result result, String line, int lineNumber) {
+
+		int begIndex = line.indexOf("](#") + 3;
+		int endIndex = line.indexOf(")", begIndex);
+
+		String header = "";
+
+		try {
+			header = line.substring(begIndex, endIndex);
+		} catch(Exception e) {
+			result.addBrokenLink(lineNumber, line, true, null);
+		}
+
+		return header;
+	}
+
+	/**
+	 * Returns the folder represented by the link's directory header in the line
+	 * (e.g., <code>developer/frameworks</code>).
+	 *
+	 * @param  line the line containing the relative link
+	 * @param  lineIndex the header's index on the line. This is useful when
+	 *         there are multiple relative links on one line.
+	 * @return the folder represented by the link's directory header
+	 */
+	private static String getHeaderDir(String line, int lineIndex) {
+
+		String lineSubstring = line.substring(lineIndex, line.length());
+		String path = "";
+
+		// The first link in the substring will have its headers applied.
+		if (lineSubstring.contains(userGuideLinkFolder + findStr)) {
+			path = userGuideDir;
+		}
+
+		else if (lineSubstring.contains(deploymentGuideLinkFolder + findStr)) {
+			path = deploymentGuideDir;
+		}
+
+		else if (lineSubstring.contains(distributeGuideLinkFolder + findStr)) {
+			path = distributeGuideDir;
+		}
+
+		else if (lineSubstring.contains(appDevLinkFolder + findStr)) {
+			path = appDevDir;
+		}
+
+		else if (lineSubstring.contains(customizationDevLinkFolder + findStr)) {
+			path = customizationDevDir;
+		}
+
+		else if (lineSubstring.contains(frameworksDevLinkFolder + findStr)) {
+			path = frameworksDevDir;
+		}
+
+		else if (lineSubstring.contains(tutorialsDevLinkFolder + findStr)) {
+			path = tutorialsDir;
+		}
+
+		else if (lineSubstring.contains(referenceDevLinkFolder + findStr)) {
+			path = referenceDevDir;
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns <code>true</code> if the sub-URL is valid. A sub-URL is a link
+	 * to a section existing in the same article.
+	 *
+	 * @param  articleHeaders the indexed headers of the article containing the
+	 *         sub-URL
+	 * @param  secondaryHeader the header ID for the section that is linked
+	 * @return <code>true</code> if the sub-URL is valid; <code>false</code>
+	 *         otherwise
+	 */
+	private static boolean isSubUrlValid(
+			HeaderCatalog.ArticleHeaders articleHeaders, String secondaryHeader) {
+
+		return articleHeaders.hasSubAnchor(secondaryHeader);
+	}
+
+	/**
+	 * Adds the API URL on the line to the article's API links, which are
+	 * validated once all the articles have been checked. This method is used
+	 * to check URLs hosted on docs.liferay.com.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line containing the API URL
+	 * @param  lineNumber the line number
+	 */
+	private void addApiUrl(Result result, String line, int lineNumber) {
+
+		int begIndex = line.indexOf("](") + 2;
+		int endIndex = line.indexOf(")", begIndex);
+
+		if ((begIndex < 2) || (endIndex < 0)) {
+			result.addBrokenLink(lineNumber, line, true, null);
+
+			return;
+		}
+
+		String urlString = line.substring(begIndex, endIndex);
+
+		urlString = urlString.replace("@" + _platformToken + "@", _platformReferenceSite);
+		urlString = urlString.replace("@" + _appToken + "@", _appReferenceSite);
+
+		try {
+			new URL(urlString);
+		} catch (MalformedURLException e) {
+			result.addBrokenLink(lineNumber, line, true, null);
+
+			return;
+		}
+
+		result.addApiLink(urlString, lineNumber, line);
+	}
+
+	/**
+	 * Checks the links on a line of the article.
+	 *
+	 * @param  result the article's results
+	 * @param  articleHeaders the article's indexed headers
+	 * @param  line the line to check
+	 * @param  lineNumber the line number
+	 * @throws IOException if an IO exception occurred
+	 */
+	private void checkLine(
+			Result result, HeaderCatalog.ArticleHeaders articleHeaders,
+			String line, int lineNumber)
+		throws IOException {
+
+		if (line.contains("](/develop/") || line.contains("](/discover/")) {
+			result.addBrokenLink(lineNumber, line, false, null);
+		}
+
+		if (line.contains("](/docs/" + PORTAL_VERSION) ||
+			line.contains("](/docs/" + PORTAL_VERSION_LEGACY_1) ||
+			line.contains("](/docs/" + PORTAL_VERSION_LEGACY_2)) {
+
+			int urlsInLine = countStrings(line);
+
+			if (urlsInLine < 2) {
+
+				String header = extractHeader(result, line, lineNumber);
+
+				String primaryHeader = null;
+				boolean validUrl = true;
+
+				if (header.contains("#")) {
+					String[] splitHeaders = header.split("#");
+
+					primaryHeader = splitHeaders[0];
+					String secondaryHeader = splitHeaders[1];
+
+					validUrl = isUrlValid(result, line, lineNumber, primaryHeader, secondaryHeader, 0, false);
+				}
+				else if (header.equals("")) {
+					return;
+				}
+				else {
+
+					primaryHeader = header;
+					validUrl = isUrlValid(result, line, lineNumber, primaryHeader, null, 0, false);
+				}
+
+				if (!validUrl) {
+					result.addBrokenLink(lineNumber, line, false, null);
+				}
+			}
+
+			else {
+				checkMultiLinks(result, line, lineNumber);
+			}
+		}
+
+		if (line.contains("](#")) {
+
+			String sublinkStart = "](#";
+			int subHeadersInLine = countStrings(line);
+
+			if (subHeadersInLine < 2) {
+				String secondaryHeader = extractSubHeader(result, line, lineNumber);
+
+				if (!isSubUrlValid(articleHeaders, secondaryHeader)) {
+					result.addBrokenLink(lineNumber, line, false, null);
+				}
+			}
+			else {
+				checkMultiSubLinks(result, articleHeaders, line, lineNumber, sublinkStart);
+			}
+
+		}
+		if (_apiLinks && line.contains("/javadocs/")
+				&& line.contains("/com/liferay/")) {
+
+			addApiUrl(result, line, lineNumber);
+		}
+	}
+
+	/**
+	 * Checks the line that contains multiple relative links.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line containing multiple relative links
+	 * @param  lineNumber the line number
+	 * @throws IOException if an IO exception occurred
+	 */
+	private void checkMultiLinks(Result result, String line, int lineNumber)
+			throws IOException {
+
+		// Extract headers into map with <header, index> pairs
+		LinkedHashMap<String, Integer> headerMaps = extractMultiStrings(result, line, lineNumber, findStr, 2);
+
+		// Iterating through header maps, which contain header and index information
+		// used for validating lines with multiple links
+		for (Map.Entry<String, Integer> pair : headerMaps.entrySet()) {
+
+			String header = pair.getKey();
+			int headerIndex = pair.getValue();
+
+			// Find version for each header so we can accurately check them
+			String substringLineStart = line.substring(headerIndex);
+			int headerStart = substringLineStart.indexOf(findStr) + findStr.length();
+			String version = substringLineStart.substring(headerStart, headerStart + 3);
+			boolean differingDefaultVersion = false;
+
+			if (!version.equals(PORTAL_VERSION)) {
+				differingDefaultVersion = true;
+			}
+
+			// end of >1 logic
+
+			String primaryHeader = null;
+			boolean validUrl = true;
+
+			if (header.contains("#")) {
+				String[] splitHeaders = header.split("#");
+
+				primaryHeader = splitHeaders[0];
+				String secondaryHeader = splitHeaders[1];
+
+				validUrl = isUrlValid(result, line, lineNumber, primaryHeader, secondaryHeader, headerIndex, differingDefaultVersion);
+			}
+			else if (header.equals("")) {
+				continue;
+			}
+			else {
+
+				primaryHeader = header;
+				validUrl = isUrlValid(result, line, lineNumber, primaryHeader, null, headerIndex, differingDefaultVersion);
+			}
+
+			if (!validUrl) {
+				result.addBrokenLink(
+					lineNumber, line, false, "Invalid Header: " + header);
+			}
+		}
+
+	}
+
+	/**
+	 * Checks the line that contains multiple subheader relative links.
+	 *
+	 * @param  result the article's results
+	 * @param  articleHeaders the article's indexed headers
+	 * @param  line the line containing multiple subheader relative links
+	 * @param  lineNumber the line number
+	 */
+	private void checkMultiSubLinks(Result result,
+			HeaderCatalog.ArticleHeaders articleHeaders, String line,
+			int lineNumber, String sublinkStart) {
+
+		LinkedHashMap<String, Integer> headerMaps = extractMultiStrings(result, line, lineNumber, sublinkStart, 0);
+
+		// Iterating through header maps, which contain header and index information
+		// used for validating lines with multiple links
+		for (String secondaryHeader : headerMaps.keySet()) {
+
+			if (!isSubUrlValid(articleHeaders, secondaryHeader)) {
+				result.addBrokenLink(
+					lineNumber, line, false,
+					"Invalid Subheader: #" + secondaryHeader);
+			}
+		}
+	}
+
+	private Semaphore getHostSemaphore(String host) {
+		Semaphore semaphore = _hostSemaphores.get(host);
+
+		if (semaphore == null) {
+			Semaphore newSemaphore = new Semaphore(_ldnHostConnections);
+
+			semaphore = _hostSemaphores.putIfAbsent(host, newSemaphore);
+
+			if (semaphore == null) {
+				semaphore = newSemaphore;
+			}
+		}
+
+		return semaphore;
+	}
+
+	/**
+	 * Returns <code>true</code> if the LDN URL is valid. Each URL is requested
+	 * once per checker: articles checked concurrently that link to the same
+	 * URL wait for the first request's result.
+	 *
+	 * @param  url the URL to check
+	 * @return <code>true</code> if the LDN URL is valid; <code>false</code>
+	 *         otherwise
+	 */
+	private boolean isLdnUrlValid(final String url) {
+
+		FutureTask<Boolean> futureTask = _ldnResults.get(url);
+
+		if (futureTask == null) {
+			FutureTask<Boolean> newFutureTask = new FutureTask<Boolean>(
+				new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() {
+						return requestLdnUrl(url);
+					}
+
+				});
+
+			futureTask = _ldnResults.putIfAbsent(url, newFutureTask);
+
+			if (futureTask == null) {
+				futureTask = newFutureTask;
+
+				futureTask.run();
+			}
+		}
+
+		try {
+			return futureTask.get();
+		} catch (ExecutionException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			return false;
+		}
+	}
+
+	/**
+	 * Requests the LDN URL and returns <code>true</code> if it's valid. This
+	 * method is used to check legacy URLs hosted on LDN. An LDN URL is invalid
+	 * if its page can't be parsed or redirects to LDN's search, which is where
+	 * LDN sends requests for missing articles.
+	 *
+	 * <p>
+	 * Results are kept in the link validation cache, if it's enabled. A cached
+	 * result that has expired is revalidated with a conditional request, so an
+	 * unchanged page isn't downloaded and parsed again.
+	 * </p>
+	 *
+	 * <p>
+	 * The request times out after the checker's timeout, and only a limited
+	 * number of requests to a host run at the same time.
+	 * </p>
+	 *
+	 * @param  url the URL to check
+	 * @return <code>true</code> if the LDN URL is valid; <code>false</code>
+	 *         otherwise
+	 */
+	private boolean requestLdnUrl(String url) {
+
+		if (_linkValidationCache != null) {
+			Integer cachedStatus = _linkValidationCache.getFreshStatus(url);
+
+			if (cachedStatus != null) {
+				return cachedStatus == HttpURLConnection.HTTP_OK;
+			}
+		}
+
+		NodeList list = new NodeList();
+		HttpURLConnection urlConnection = null;
+
+		URL urlObject = null;
+
+		try {
+			urlObject = new URL(url);
+		} catch (MalformedURLException e) {
+			return false;
+		}
+
+		Semaphore semaphore = getHostSemaphore(urlObject.getHost());
+
+		try {
+			semaphore.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			return false;
+		}
+
+		try {
+			urlConnection = (HttpURLConnection)urlObject.openConnection();
+
+			urlConnection.setConnectTimeout(_ldnTimeout);
+			urlConnection.setReadTimeout(_ldnTimeout);
+
+			if (_linkValidationCache != null) {
+				_linkValidationCache.addConditionalHeaders(url, urlConnection);
+
+				int status = urlConnection.getResponseCode();
+
+				if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					status = _linkValidationCache.put(url, status, urlConnection);
+
+					return status == HttpURLConnection.HTTP_OK;
+				}
+			}
+
+			Parser htmlParser = new Parser(urlConnection);
+			list = htmlParser.extractAllNodesThatMatch(new NodeClassFilter(LinkTag.class));
+		} catch (IOException e) {
+			return false;
+		} catch (ParserException e) {
+			return false;
+		} finally {
+			semaphore.release();
+		}
+
+		boolean validLDNURL = (list.size() > 0);
+
+		for (int i = 0; i < list.size(); i++) {
+
+			LinkTag link = (LinkTag) list.elementAt(i);
+			String linkString = link.getLink();
+
+			if (linkString.contains("2Fsearch&#x25;2Fsearch&#x26;_3_redirect&#x3d;")) {
+				validLDNURL = false;
+				break;
+			}
+		}
+
+		if (_linkValidationCache != null) {
+			int status = HttpURLConnection.HTTP_NOT_FOUND;
+
+			if (validLDNURL) {
+				status = HttpURLConnection.HTTP_OK;
+			}
+
+			_linkValidationCache.put(url, status, urlConnection);
+		}
+
+		return validLDNURL;
+	}
+
+	/**
+	 * Returns <code>true</code> if the URL is valid. This method is used to
+	 * check the current version of documentation by matching URLs with their
+	 * header IDs contained in the local repo.
+	 *
+	 * @param  result the article's results
+	 * @param  line the line containing the URL
+	 * @param  lineNumber the line number
+	 * @param  primaryHeader the primary header ID
+	 * @param  secondaryHeader the secondary header ID
+	 * @param  lineIndex the header's index on the line. This is useful when
+	 *         there are multiple relative links on one line.
+	 * @param  differingDefaultVersion whether the link version differs from
+	 *         <code>PORTAL_VERSION</code>
+	 * @return <code>true</code> if the URL is valid; <code>false</code>
+	 *         otherwise
+	 */
+	private boolean isUrlValid(Result result, String line, int lineNumber,
+			String primaryHeader, String secondaryHeader, int lineIndex,
+			boolean differingDefaultVersion) {
+
+		boolean validURL = false;
+
+		String linkDir = getHeaderDir(line, lineIndex);
+
+		// Check 7.2 portal and 1.1 commerce links from local liferay-docs repo
+		if ((line.contains("/" + PORTAL_VERSION + "/") || line.contains("/" + COMMERCE_VERSION + "/")) &&
+				!differingDefaultVersion) {
+
+			boolean docFoldersMatch = doesDocFoldersMatch(line, lineIndex);
+
+			// If linkDir is empty, the getHeaderDir method could not match the
+			// relative URL with a guide (e.g., developer/user). This only
+			// happens when the first folder is valid but its subfolder isn't.
+			if (linkDir.isEmpty()) {
+
+				// Allow linking to parent folders of site
+				if (line.contains("/docs/" + PORTAL_VERSION + "/" + userGuideLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + deploymentGuideLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + distributeGuideLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + appDevLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + customizationDevLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + frameworksDevLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + tutorialsDevLinkFolder + ")") ||
+					line.contains("/docs/" + PORTAL_VERSION + "/" + referenceDevLinkFolder + ")")) {
+
+					validURL = true;
+				}
+				// else, invalid link
+			}
+			else if (!docFoldersMatch) {
+				// invalid URL
+			}
+			else if (secondaryHeader == null) {
+				validURL = _headerCatalog.hasPrimaryHeader(linkDir, primaryHeader);
+
+				result.addDependency(
+					new Dependency(
+						lineNumber, linkDir, primaryHeader, null, null, validURL));
+			}
+			else {
+				validURL = _headerCatalog.hasSecondaryHeader(
+					linkDir, primaryHeader, secondaryHeader);
+
+				result.addDependency(
+					new Dependency(
+						lineNumber, linkDir, primaryHeader, secondaryHeader, null,
+						validURL));
+			}
+		}
+
+		// Check legacy URLs by checking remote LDN site. These links must be
+		// published to LDN before this tool can verify them.
+		else if (_legacyLinks && (line.contains("/" + PORTAL_VERSION_LEGACY_1 + "/") ||
+				line.contains("/" + PORTAL_VERSION_LEGACY_2 + "/"))) {
+
+			String ldnUrl = extractLdnUrl(result, line, lineNumber);
+			validURL = isLdnUrlValid(ldnUrl);
+
+			result.addDependency(
+				new Dependency(lineNumber, null, null, null, ldnUrl, validURL));
+		}
+		else {
+			validURL = true;
+		}
+
+		return validURL;
+	}
+
+	// Versions
+
+	private static final String COMMERCE_VERSION = "1-1";
+	private static final String PORTAL_VERSION = "7-2";
+	private static final String PORTAL_VERSION_LEGACY_1 = "7-1";
+	private static final String PORTAL_VERSION_LEGACY_2 = "7-0";
+
+	private static final String findStr = "/-/knowledge_base/";
+
+	// User Guide
+
+	private static final String userGuideDir = "user";
+	private static final String userGuideLinkFolder = "user";
+
+	// Deployment Guide
+
+	private static final String deploymentGuideDir = "deployment";
+	private static final String deploymentGuideLinkFolder = "deploy";
+
+	private static final String distributeGuideDir = "distribute/publish";
+	private static final String distributeGuideLinkFolder = "publish";
+
+	// Dev Guide
+
+	private static final String appDevDir = "developer/appdev";
+	private static final String appDevLinkFolder = "appdev";
+
+	private static final String customizationDevDir = "developer/customization";
+	private static final String customizationDevLinkFolder = "customization";
+
+	private static final String frameworksDevDir = "developer/frameworks";
+	private static final String frameworksDevLinkFolder = "frameworks";
+
+	private static final String tutorialsDir = "developer/tutorials";
+	private static final String tutorialsDevLinkFolder = "tutorials";
+
+	private static final String referenceDevDir = "developer/reference";
+	private static final String referenceDevLinkFolder = "reference";
+
+	/**
+	 * The guides whose headers relative links are validated against.
+	 */
+	public static final String[] GUIDE_DIRS = {appDevDir, customizationDevDir, frameworksDevDir, userGuideDir,
+			deploymentGuideDir, distributeGuideDir, tutorialsDir, referenceDevDir};
+
+	private boolean _apiLinks;
+	private String _appReferenceSite;
+	private String _appToken;
+	private final HeaderCatalog _headerCatalog;
+	private final ConcurrentHashMap<String, Semaphore> _hostSemaphores =
+		new ConcurrentHashMap<String, Semaphore>();
+	private int _ldnHostConnections = 4;
+	private final ConcurrentHashMap<String, FutureTask<Boolean>> _ldnResults =
+		new ConcurrentHashMap<String, FutureTask<Boolean>>();
+	private int _ldnTimeout = 10000;
+	private boolean _legacyLinks;
+	private final LinkValidationCache _linkValidationCache;
+	private String _platformReferenceSite;
+	private String _platformToken;
+
+	/**
+	 * A broken or corrupt link found in an article.
+	 */
+	public static class BrokenLink {
+
+		public BrokenLink(
+			File article, int lineNumber, String line, boolean corrupt,
+			String detail) {
+
+			_article = article;
+			_lineNumber = lineNumber;
+			_line = line;
+			_corrupt = corrupt;
+			_detail = detail;
+		}
+
+		public File getArticle() {
+			return _article;
+		}
+
+		/**
+		 * Returns the message that further explains the broken link (e.g.,
+		 * <code>Invalid Header: ...</code>), or <code>null</code>.
+		 */
+		public String getDetail() {
+			return _detail;
+		}
+
+		public String getLine() {
+			return _line;
+		}
+
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		/**
+		 * Returns <code>true</code> if the link is broken because of corrupt
+		 * formatting rather than a missing target.
+		 */
+		public boolean isCorrupt() {
+			return _corrupt;
+		}
+
+		private final File _article;
+		private final boolean _corrupt;
+		private final String _detail;
+		private final String _line;
+		private final int _lineNumber;
+	}
+
+	/**
+	 * An outcome that an article's results depend on besides the article's
+	 * own content: whether a header exists in another article of the indexed
+	 * guides, or whether a legacy URL is valid.
+	 */
+	public static class Dependency {
+
+		public Dependency(
+			int lineNumber, String guideDir, String primaryHeader,
+			String secondaryHeader, String url, boolean valid) {
+
+			_lineNumber = lineNumber;
+			_guideDir = guideDir;
+			_primaryHeader = primaryHeader;
+			_secondaryHeader = secondaryHeader;
+			_url = url;
+			_valid = valid;
+		}
+
+		public String getGuideDir() {
+			return _guideDir;
+		}
+
+		/**
+		 * Returns the number of the line containing the link.
+		 */
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		public String getPrimaryHeader() {
+			return _primaryHeader;
+		}
+
+		/**
+		 * Returns the secondary header ID, or <code>null</code> if the
+		 * dependency is only on the primary header ID.
+		 */
+		public String getSecondaryHeader() {
+			return _secondaryHeader;
+		}
+
+		/**
+		 * Returns the legacy URL, or <code>null</code> if the dependency is on
+		 * a header.
+		 */
+		public String getUrl() {
+			return _url;
+		}
+
+		public boolean isValid() {
+			return _valid;
+		}
+
+		private final String _guideDir;
+		private final int _lineNumber;
+		private final String _primaryHeader;
+		private final String _secondaryHeader;
+		private final String _url;
+		private final boolean _valid;
+	}
+
+	/**
+	 * The results of checking an article, in the order they occur in the
+	 * article.
+	 */
+	public static class Result {
+
+		public Result(File article) {
+			_article = article;
+		}
+
+		public void addApiLink(String url, int lineNumber, String line) {
+			_apiLinks.add(
+				new ApiLinkValidator.ApiLink(url, _article, lineNumber, line));
+		}
+
+		public void addBrokenLink(
+			int lineNumber, String line, boolean corrupt, String detail) {
+
+			_brokenLinks.add(
+				new BrokenLink(_article, lineNumber, line, corrupt, detail));
+		}
+
+		public void addDependency(Dependency dependency) {
+			_dependencies.add(dependency);
+		}
+
+		public List<ApiLinkValidator.ApiLink> getApiLinks() {
+			return _apiLinks;
+		}
+
+		public File getArticle() {
+			return _article;
+		}
+
+		public List<BrokenLink> getBrokenLinks() {
+			return _brokenLinks;
+		}
+
+		public List<Dependency> getDependencies() {
+			return _dependencies;
+		}
+
+		private final List<ApiLinkValidator.ApiLink> _apiLinks =
+			new ArrayList<ApiLinkValidator.ApiLink>();
+		private final File _article;
+		private final List<BrokenLink> _brokenLinks =
+			new ArrayList<BrokenLink>();
+		private final List<Dependency> _dependencies =
+			new ArrayList<Dependency>();
+	}
+}
@@ -0,0 +1,261 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Runs the checks of the <code>check</code> and <code>check-dxp</code> targets
+ * in one pass over the document set. Instead of each task walking the article
+ * folders and rereading every article, the articles are walked and read once
+ * into a {@link DocSet}, and each check runs over that shared model in the
+ * order the targets run them:
+ *
+ * <ol>
+ * <li>
+ * add the TOC syntax (<code>addtoc</code>)
+ * </li>
+ * <li>
+ * check the image references (<code>checkimgssite</code>)
+ * </li>
+ * <li>
+ * check for intro articles (<code>checkintros</code>)
+ * </li>
+ * <li>
+ * number the headers (<code>numberheaders</code>)
+ * </li>
+ * <li>
+ * number the images (<code>numberimgssite</code>)
+ * </li>
+ * <li>
+ * check the title headers (<code>checkheaders</code>)
+ * </li>
+ * <li>
+ * check the links (<code>checklinks</code>)
+ * </li>
+ * </ol>
+ *
+ * <p>
+ * Articles changed by the numbering and TOC checks are written once, after
+ * all of those checks have run (or one of them has failed).
+ * </p>
+ *
+ * <p>
+ * With <code>incremental</code> set, the header, image, and link checks reuse
+ * the manifests of the standalone tasks' incremental runs (see
+ * {@link CheckManifest}).
+ * </p>
+ */
+public class CheckDocSetTask extends Task {
+
+	@Override
+	public void execute() throws BuildException {
+
+		boolean dxp = _productType.equals("dxp");
+
+		List<String> dirTypes = new ArrayList<String>();
+		dirTypes.add("");
+
+		if (dxp) {
+			dirTypes.add("-dxp");
+		}
+
+		DocSet docSet = new DocSet(_docdir);
+
+		File articlesDir = docSet.getArticlesDir("");
+
+		if (!articlesDir.exists()) {
+			throw new BuildException("FAILURE - no articles directory " + articlesDir);
+		}
+
+		long start = System.currentTimeMillis();
+
+		CheckManifest checkHeadersManifest = null;
+		CheckManifest checkImagesManifest = null;
+
+		if (_incremental) {
+			checkHeadersManifest = DocsUtil.loadCheckManifest(
+				getProject().getBaseDir(), "check-headers", "");
+			checkImagesManifest = DocsUtil.loadCheckManifest(
+				getProject().getBaseDir(), "check-images", "");
+		}
+
+		try {
+			System.out.println("Adding TOC syntax ...");
+
+			for (String dirType : dirTypes) {
+				AddTOCTask.addTOCs(docSet, docSet.getMarkdownFileList(dirType));
+			}
+
+			System.out.println("Checking image sources ...");
+
+			for (String dirType : dirTypes) {
+				if (!docSet.getArticlesDir(dirType).exists()) {
+					continue;
+				}
+
+				CheckImagesTask.checkImages(
+					docSet, _docdir, dirType, docSet.getArticleFiles(dirType),
+					false, checkImagesManifest);
+			}
+
+			checkIntros(docSet, dirTypes);
+
+			List<String> dxpFiles = null;
+
+			if (dxp && docSet.getArticlesDir("-dxp").exists()) {
+				dxpFiles = docSet.getMarkdownFileList("-dxp");
+			}
+
+			NumberHeadersTask.numberHeaders(
+				docSet, _docdir, docSet.getMarkdownFileList(""), dxpFiles);
+
+			for (String dirType : dirTypes) {
+				System.out.println("Numbering images for files in " +
+						docSet.getArticlesDir(dirType).getPath() + " ...");
+
+				NumberImagesTask.numberImages(
+					docSet, docSet.getArticleFiles(dirType));
+			}
+
+			for (String dirType : dirTypes) {
+				if (!docSet.getArticlesDir(dirType).exists()) {
+					continue;
+				}
+
+				CheckHeadersTask.checkHeaders(
+					docSet, docSet.getMarkdownFileList(dirType),
+					checkHeadersManifest);
+
+				System.out.println("Finished checking headers in articles" + dirType);
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			DocsUtil.writeDocSet(docSet);
+
+			DocsUtil.saveCheckManifest(checkHeadersManifest);
+			DocsUtil.saveCheckManifest(checkImagesManifest);
+		}
+
+		System.out.println("Finished article checks in " +
+				(System.currentTimeMillis() - start) + " ms");
+
+		CheckLinksTask checkLinksTask = new CheckLinksTask();
+
+		checkLinksTask.setProject(getProject());
+		checkLinksTask.setTaskName(getTaskName());
+
+		checkLinksTask.setApiLinks(_apiLinks);
+		checkLinksTask.setAppReferenceSite(_appReferenceSite);
+		checkLinksTask.setAppToken(_appToken);
+		checkLinksTask.setDocdir(_docdir);
+		checkLinksTask.setDxpCheck(dxp);
+		checkLinksTask.setIncremental(_incremental);
+		checkLinksTask.setLegacyLinks(_legacyLinks);
+		checkLinksTask.setPlatformReferenceSite(_platformReferenceSite);
+		checkLinksTask.setPlatformToken(_platformToken);
+
+		checkLinksTask.checkLinks(docSet);
+	}
+
+	public void setApiLinks(boolean apiLinks) {
+		_apiLinks = apiLinks;
+	}
+
+	public void setAppReferenceSite(String appReferenceSite) {
+		_appReferenceSite = appReferenceSite;
+	}
+
+	public void setAppToken(String appToken) {
+		_appToken = appToken;
+	}
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	public void setIncremental(boolean incremental) {
+		_incremental = incremental;
+	}
+
+	public void setLegacyLinks(boolean legacyLinks) {
+		_legacyLinks = legacyLinks;
+	}
+
+	public void setPlatformReferenceSite(String platformReferenceSite) {
+		_platformReferenceSite = platformReferenceSite;
+	}
+
+	public void setPlatformToken(String platformToken) {
+		_platformToken = platformToken;
+	}
+
+	public void setProductType(String productType) {
+		_productType = productType;
+	}
+
+	/**
+	 * Checks that every article folder has an intro article. For DXP, the
+	 * <code>articles-dxp</code> folders are merged over the
+	 * <code>articles</code> folders first, like the
+	 * <code>check-intros-dxp</code> target does.
+	 *
+	 * @param docSet the document set
+	 * @param dirTypes the directory types to check
+	 */
+	private static void checkIntros(DocSet docSet, List<String> dirTypes) {
+
+		Map<String, List<String>> folderArticleNames =
+			new LinkedHashMap<String, List<String>>();
+
+		for (String dirType : dirTypes) {
+			for (Map.Entry<String, List<String>> entry :
+					docSet.getFolderArticleNames(dirType).entrySet()) {
+
+				List<String> names = folderArticleNames.get(entry.getKey());
+
+				if (names == null) {
+					names = new ArrayList<String>();
+
+					folderArticleNames.put(entry.getKey(), names);
+				}
+
+				names.addAll(entry.getValue());
+			}
+		}
+
+		List<String> errorDirs = CheckIntrosTask.findFoldersWithoutIntros(
+			folderArticleNames);
+
+		if (!errorDirs.isEmpty()) {
+			System.out.println("ERROR - Missing introduction markdown articles"
+					+ " ...");
+
+			for (String errorDir : errorDirs) {
+				System.out.println(errorDir);
+			}
+			throw new BuildException("Missing introduction markdown articles");
+		}
+
+		System.out.println("Finished checking for introduction markdown "
+				+ "articles.");
+	}
+
+	private boolean _apiLinks;
+	private String _appReferenceSite;
+	private String _appToken;
+	private String _docdir;
+	private boolean _incremental;
+	private boolean _legacyLinks;
+	private String _platformReferenceSite;
+	private String _platformToken;
+	private String _productType = "ce";
+
+}
@@ -1,12 +1,9 @@
 package com.liferay.documentation.util;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -31,6 +28,15 @@ public class CheckHeadersTask extends Task {
 			dirTypes.add("-dxp");
 		}
 
+		DocSet docSet = new DocSet(docDir);
+
+		CheckManifest checkManifest = null;
+
+		if (_incremental) {
+			checkManifest = DocsUtil.loadCheckManifest(
+				getProject().getBaseDir(), "check-headers", "");
+		}
+
 		for (String dirType : dirTypes) {
 
 			File articlesDir = new File("../" + docDir + "/articles" + dirType);
@@ -96,103 +102,122 @@ public class CheckHeadersTask extends Task {
 				}
 			}
 
-			for (int i = 0; i < fileList.size(); i++) {
-				String filename = fileList.get(i);
-				File inFile = new File(filename);
-
-				try {
-					LineNumberReader in = new LineNumberReader(
-							new FileReader(inFile));
-
-					String line;
-					String titleLine = null;
-					String titleLineError1 = null;
-					String titleLineError2 = null;
-					int counter = 0;
-					boolean headerSyntaxExists = false;
-
-					while ((line = in.readLine()) != null) {
-						if (counter == 2) {
-							headerSyntaxExists = true;
-
-							titleLine = Files.readAllLines(Paths.get(filename)).get(in.getLineNumber());
-							titleLineError1 = Files.readAllLines(Paths.get(filename)).get(in.getLineNumber() - 1);
-							titleLineError2 = Files.readAllLines(Paths.get(filename)).get(in.getLineNumber() + 1);
-
-							break;
-						}
-						if (line.startsWith("---")) {
-							counter++;
-						}
-					}
-
-					if (titleLine != null) {
-
-						// Check whether the markdown file starts with the proper single #
-						// header. 
-						// If it doesn't, throw an exception identifying the file
-
-						if (!titleLine.startsWith("# ")) {
+			try {
+				checkHeaders(docSet, fileList, checkManifest);
+			} catch (IOException e) {
+				throw new BuildException(e.getLocalizedMessage());
+			} finally {
+				DocsUtil.saveCheckManifest(checkManifest);
+			}
 
-							String message;
+			System.out.println("Finished checking headers in articles" + dirType);
+		}
+	}
 
-							if (titleLineError1.startsWith("# ") || titleLineError2.startsWith("# ")) {
-								message = "FAILURE - " + filename +
-										": File's single # header is spaced incorrectly.";
-							}
-							else {
-								message = "FAILURE - " + filename +
-										": File does not start with a single # for a header";
-							}
+	/**
+	 * Checks that each article starts with the header ID syntax followed by a
+	 * single <code>#</code> title header.
+	 *
+	 * @param  docSet the document set containing the articles
+	 * @param  fileList the articles' paths
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void checkHeaders(DocSet docSet, List<String> fileList)
+			throws IOException {
+
+		checkHeaders(docSet, fileList, null);
+	}
 
-							if (titleLine.startsWith("<!--")) {
+	/**
+	 * Checks that each article starts with the header ID syntax followed by a
+	 * single <code>#</code> title header. If a manifest is given, an article
+	 * that hasn't changed since its last check gets the same result without
+	 * being checked again.
+	 *
+	 * @param  docSet the document set containing the articles
+	 * @param  fileList the articles' paths
+	 * @param  checkManifest the manifest of the last check's results (may be
+	 *         <code>null</code>)
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void checkHeaders(DocSet docSet, List<String> fileList,
+			CheckManifest checkManifest) throws IOException {
+
+		if (checkManifest == null) {
+			for (String filename : fileList) {
+				checkHeader(filename, docSet.getArticle(filename).getContent());
+			}
 
-								in.close();
+			return;
+		}
 
-								throw new BuildException(message);
-							}
-							else if (titleLine.startsWith("<")) {
+		int reused = 0;
 
-								// Allow non-comment tags
+		for (String filename : fileList) {
+			File article = new File(filename);
 
-								continue;
-	
-							}
+			CheckManifest.Entry entry = checkManifest.getUnchangedEntry(
+				docSet, article);
 
-							in.close();
+			if (entry != null) {
+				reused++;
 
-							throw new BuildException(message);
-						}
-					}
+				// The only record an article can have is its failure message
 
-					if (!headerSyntaxExists) {
-						String message = "FAILURE - " + filename +
-								": File does not start with proper header syntax.";
-						in.close();
-						throw new BuildException(message);
-					}
+				if (!entry.getRecords().isEmpty()) {
+					throw new BuildException(entry.getRecords().get(0)[0]);
+				}
 
-					in.close();
+				continue;
+			}
 
-					// Throw exception
+			entry = checkManifest.putEntry(docSet, article);
 
-				} catch (IOException e) {
-					throw new BuildException(e.getLocalizedMessage());
-				}
+			try {
+				checkHeader(filename, docSet.getArticle(filename).getContent());
 			}
+			catch (BuildException be) {
+				entry.addRecord(be.getMessage());
 
-			System.out.println("Finished checking headers in articles" + dirType);
+				throw be;
+			}
 		}
+
+		System.out.println("Reused the header check results of " + reused +
+				" unchanged articles");
 	}
 
 	public void setDocdir(String docdir) {
 		_docdir = docdir;
 	}
 
+	public void setIncremental(boolean incremental) {
+		_incremental = incremental;
+	}
+
 	public void setProductType(String productType) {
 		_productType = productType;
 	}
 
+	/**
+	 * Checks the article's header ID syntax and title with the lint engine's
+	 * header rules, which read the article once.
+	 */
+	private static void checkHeader(String filename, String content)
+		throws IOException {
+
+		List<MarkdownLint.Problem> problems = _headerLint.lintArticle(
+			new File(filename), new StringReader(content));
+
+		if (!problems.isEmpty()) {
+			throw new BuildException(problems.get(0).getMessage());
+		}
+	}
+
+	private static final MarkdownLint _headerLint = new MarkdownLint(
+		MarkdownLint.getHeaderRules());
+
 	private String _docdir;
+	private boolean _incremental;
 	private String _productType;
 }
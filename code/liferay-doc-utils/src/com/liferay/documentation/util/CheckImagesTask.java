@@ -2,9 +2,6 @@ package com.liferay.documentation.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -48,6 +45,15 @@ public class CheckImagesTask extends Task {
 				" is empty");
 		}
 		
+		DocSet docSet = new DocSet(_docdir);
+
+		CheckManifest checkManifest = null;
+
+		if (_incremental) {
+			checkManifest = DocsUtil.loadCheckManifest(
+				getProject().getBaseDir(), "check-images", "");
+		}
+
 		// Get articles
 		String productType = _productType;
 		List<String> dirTypes = new ArrayList<String>();
@@ -64,78 +70,155 @@ public class CheckImagesTask extends Task {
 			}
 		}
 		
-		for (String dirType : dirTypes) {
+		try {
+			for (String dirType : dirTypes) {
 
-			File articleDir = new File(docDir.getAbsolutePath() + "/articles" + dirType);
-			File[] articleDirFiles = articleDir.listFiles();
-			List<File> articles = new ArrayList<File>();
+				File articleDir = new File(docDir.getAbsolutePath() + "/articles" + dirType);
+				File[] articleDirFiles = articleDir.listFiles();
+				List<File> articles = new ArrayList<File>();
 
-			if (!articleDir.exists()) {
-				if (!dirType.contains("dxp")) {
-					throw new BuildException("FAILURE - no articles directory " + articleDir);
-				}
-				else {
-					continue;
+				if (!articleDir.exists()) {
+					if (!dirType.contains("dxp")) {
+						throw new BuildException("FAILURE - no articles directory " + articleDir);
+					}
+					else {
+						continue;
+					}
 				}
-			}
 		
-			Queue<File> q = new LinkedList<File>();
-			for (File f : articleDirFiles) {
-				q.add(f);
-			}
+				Queue<File> q = new LinkedList<File>();
+				for (File f : articleDirFiles) {
+					q.add(f);
+				}
 		
-			while (!q.isEmpty()) {
-				File f = q.remove(); 
+				while (!q.isEmpty()) {
+					File f = q.remove(); 
 			
-				if (f.isDirectory()) {
-					File[] files = f.listFiles();
+					if (f.isDirectory()) {
+						File[] files = f.listFiles();
 				
-					for (File file : files) {
-						q.add(file);
+						for (File file : files) {
+							q.add(file);
+						}
 					}
-				}
-				else {
-					if (f.getName().endsWith(".markdown")) {
-						articles.add(f);
+					else {
+						if (f.getName().endsWith(".markdown")) {
+							articles.add(f);
+						}
 					}
 				}
-			}
 		
-			// Get a map of articles to lists of referenced images
-			Map<File, List<String>> imagePathsMap = new HashMap<File, List<String>>();
-		
-			for (File article : articles) {
-				List<String> imagePaths = getImagePaths(article);
-			
-				imagePathsMap.put(article, imagePaths);
+				checkImages(docSet, _docdir, dirType, articles, _resolveImages,
+					checkManifest);
 			}
-		
-			// Get list of images
-			File imgDir = new File(docDir.getAbsolutePath() + "/images" + dirType);
-			if (!imgDir.exists()) {
-				if (!dirType.contains("dxp")) {
-					throw new BuildException("imgdir " + imgDir.getAbsolutePath() +
-							" could not be found");
-				}
-				else {
-					continue;
+		} finally {
+			DocsUtil.saveCheckManifest(checkManifest);
+		}
+	}
+
+	/**
+	 * Checks the images referenced by the articles against the images in the
+	 * document directory's images folder for the directory type.
+	 *
+	 * @param docSet the document set containing the articles
+	 * @param docdir the document directory (e.g., <code>user</code>)
+	 * @param dirType the directory type (e.g., <code>-dxp</code>)
+	 * @param articles the articles to check
+	 * @param resolveImages whether to attempt to copy images from the
+	 *        document's <code>images</code> folder into the images destination
+	 *        folder
+	 */
+	public static void checkImages(DocSet docSet, String docdir,
+			String dirType, List<File> articles, boolean resolveImages) {
+
+		checkImages(docSet, docdir, dirType, articles, resolveImages, null);
+	}
+
+	/**
+	 * Checks the images referenced by the articles against the images in the
+	 * document directory's images folder for the directory type. If a
+	 * manifest is given, the image references of an article that hasn't
+	 * changed since its last check are taken from the manifest instead of
+	 * scanning the article again. The references are always checked against
+	 * the current images, so added, removed, or moved images are detected for
+	 * every article.
+	 *
+	 * @param docSet the document set containing the articles
+	 * @param docdir the document directory (e.g., <code>user</code>)
+	 * @param dirType the directory type (e.g., <code>-dxp</code>)
+	 * @param articles the articles to check
+	 * @param resolveImages whether to attempt to copy images from the
+	 *        document's <code>images</code> folder into the images destination
+	 *        folder
+	 * @param checkManifest the manifest of the articles' image references
+	 *        (may be <code>null</code>)
+	 */
+	public static void checkImages(DocSet docSet, String docdir,
+			String dirType, List<File> articles, boolean resolveImages,
+			CheckManifest checkManifest) {
+
+		File docDir = new File("../" + docdir);
+
+		// Get a map of articles to lists of referenced images
+		Map<File, List<String>> imagePathsMap = new HashMap<File, List<String>>();
+
+		int reused = 0;
+
+		for (File article : articles) {
+			List<String> imagePaths = null;
+
+			if (checkManifest != null) {
+				imagePaths = getCachedImagePaths(checkManifest, docSet, article);
+			}
+
+			if (imagePaths != null) {
+				reused++;
+			}
+			else {
+				imagePaths = getImagePaths(docSet, article);
+
+				if (checkManifest != null) {
+					putImagePaths(checkManifest, docSet, article, imagePaths);
 				}
 			}
-			if (!docDir.isDirectory()) {
+
+			imagePathsMap.put(article, imagePaths);
+		}
+
+		if (checkManifest != null) {
+			System.out.println("Reused the image references of " + reused +
+					" unchanged articles");
+		}
+
+		// Get list of images
+		File imgDir = new File(docDir.getAbsolutePath() + "/images" + dirType);
+		if (!imgDir.exists()) {
+			if (!dirType.contains("dxp")) {
 				throw new BuildException("imgdir " + imgDir.getAbsolutePath() +
-						" is not a directory");
+						" could not be found");
 			}
-		
-			File[] imagesArray = imgDir.listFiles();
-		
-			List<File> images = Arrays.asList(imagesArray);
-		
-			String imageDestination = ".." + File.separator + _docdir + File.separator + "images";
+			else {
+				return;
+			}
+		}
+		if (!docDir.isDirectory()) {
+			throw new BuildException("imgdir " + imgDir.getAbsolutePath() +
+					" is not a directory");
+		}
 
-			checkImages(images, imagePathsMap, _resolveImages, imageDestination);
+		File[] imagesArray = imgDir.listFiles();
 
-			System.out.println("Finished checking image sources in articles" + dirType);
-		}
+		List<File> images = Arrays.asList(imagesArray);
+
+		String imageDestination = ".." + File.separator + docdir + File.separator + "images";
+
+		checkImages(images, imagePathsMap, resolveImages, imageDestination);
+
+		System.out.println("Finished checking image sources in articles" + dirType);
+	}
+
+	public void setIncremental(boolean incremental) {
+		_incremental = incremental;
 	}
 
 	public void setResolveImages(boolean resolveImages) {
@@ -168,20 +251,14 @@ public class CheckImagesTask extends Task {
 	private static void checkImages(List<File> images, Map<File,
 			List<String>> imagePathsMap, boolean resolveImages,
 			String imageDestination) {
-		List<String> imagePaths = new ArrayList<String>();
-		
 		Collection<List<String>> imagePathsLists = imagePathsMap.values();
 
-		for (List<String> imagePathsList : imagePathsLists) {
-			imagePaths.addAll(imagePathsList);
-		}
-		
-		List<String> referencedImageNames = new ArrayList<String>();
+		Set<String> referencedImageNames = new HashSet<String>();
 
-		for (String imagePath : imagePaths) {
-			imagePath = getFileName(imagePath);
-			
-			referencedImageNames.add(imagePath);
+		for (List<String> imagePathsList : imagePathsLists) {
+			for (String imagePath : imagePathsList) {
+				referencedImageNames.add(getFileName(imagePath));
+			}
 		}
 		
 		List<String> imageNames = new ArrayList<String>();
@@ -195,6 +272,8 @@ public class CheckImagesTask extends Task {
 
 			imageNames.add(imageName);
 		}
+
+		Set<String> imageNameSet = new HashSet<String>(imageNames);
 		
 		List<String> errors = new ArrayList<String>();
 		List<String> warnings = new ArrayList<String>();
@@ -210,7 +289,7 @@ public class CheckImagesTask extends Task {
 			for (String imagePath : imagePathsList) {
 				String imageFileName = getFileName(imagePath);
 
-				if (!imageNames.contains(imageFileName)) {
+				if (!imageNameSet.contains(imageFileName)) {
 
 					File source = new File("images" + File.separator + imageFileName);
 
@@ -294,6 +373,35 @@ public class CheckImagesTask extends Task {
 		}
 	}
 	
+	/**
+	 * Returns the image references stored in the manifest for the article, or
+	 * <code>null</code> if the article changed since they were stored.
+	 */
+	private static List<String> getCachedImagePaths(
+			CheckManifest checkManifest, DocSet docSet, File article) {
+
+		CheckManifest.Entry entry = null;
+
+		try {
+			entry = checkManifest.getUnchangedEntry(docSet, article);
+		}
+		catch (IOException ioe) {
+			return null;
+		}
+
+		if (entry == null) {
+			return null;
+		}
+
+		List<String> imagePaths = new ArrayList<String>();
+
+		for (String[] record : entry.getRecords()) {
+			imagePaths.add(record[0]);
+		}
+
+		return imagePaths;
+	}
+
 	private static String getFileName(String path) {
 		if (!path.contains("/")) {
 			return path;
@@ -312,11 +420,12 @@ public class CheckImagesTask extends Task {
 	 * Returns a list of the relative paths of the images referenced in a
 	 * Markdown file.
 	 * 
+	 * @param  docSet the document set containing the Markdown file
 	 * @param  article the Markdown file
 	 * @return a list of the relative paths of the images referenced in a
 	 *         Markdown file (may be empty)
 	 */
-	private static List<String> getImagePaths(File article) {
+	private static List<String> getImagePaths(DocSet docSet, File article) {
 		List<String> imagePaths = new ArrayList<String>();
 		
 		if (article.isDirectory()) {
@@ -327,74 +436,35 @@ public class CheckImagesTask extends Task {
 			return imagePaths;
 		}
 		
-		List<String> lines = null;
 		try {
-			lines = Files.readAllLines(Paths.get(article.getCanonicalPath()), StandardCharsets.UTF_8);
+			imagePaths = docSet.getImageIndex().getImagePaths(article);
 		}
 		catch (IOException ioe) {
 			System.err.println(ioe.getLocalizedMessage());
-
-			return imagePaths;
-		}
-		
-		if (lines == null) {
-			return imagePaths;
 		}
 		
-		// Match lines containing expressions of the form ![...](...)
-		String regex = ".*!\\[.*\\]\\(.*\\).*";
-		int lineNumber = 0;
-
-		for (String line : lines) {
-			lineNumber++;
-			line = line.trim();
-			
-			if (line.matches(regex)) {
-				int begin = line.lastIndexOf("(");
-				line = line.substring(begin);
-				int end = line.indexOf(")");
-
-				try {
-					line = line.substring(0, end);
-				}
-				catch (StringIndexOutOfBoundsException e) {
-					throw new BuildException("ERROR: The following article has multiple "
-							+ "opening parentheses on a line. Please move the "
-							+ "last opening parenthesis to a new line.\n"
-							+ "ARTICLE:LINE - " + article.getPath() + ":" + lineNumber);
-				}
-				line = line.replace("(", "");
-				line = line.replace(")", "");
-				
-				imagePaths.add(line);
-			}
-
-			// Check for <img> elements
+		return imagePaths;
+	}
 
-			if (line.contains("<img") && line.contains("../images") && !line.contains("<![CDATA[")) {
-				int begin = line.indexOf("<img");
-				int end = line.indexOf(">", begin);
-				int src = line.indexOf("src", begin);
-				int images = line.indexOf("images");
+	private static void putImagePaths(CheckManifest checkManifest,
+			DocSet docSet, File article, List<String> imagePaths) {
 
-				if (src > 0 &&
-					images > src) {
+		CheckManifest.Entry entry = null;
 
-					if (end < 0 ||
-						(end > 1 && images < end)) {
+		try {
+			entry = checkManifest.putEntry(docSet, article);
+		}
+		catch (IOException ioe) {
 
-						int quote1 = line.indexOf("\"", src);
-						int quote2 = line.indexOf("\"", quote1 +1);
+			// The article couldn't be read, so getImagePaths() found no
+			// references; check it again next time
 
-						String srcImage = line.substring(quote1 + 1, quote2);
+			return;
+		}
 
-						imagePaths.add(srcImage);
-					}
-				}
-			}
+		for (String imagePath : imagePaths) {
+			entry.addRecord(imagePath);
 		}
-		
-		return imagePaths;
 	}
 
 	private void replaceImagePaths(File docDir) throws IOException {
@@ -430,16 +500,30 @@ public class CheckImagesTask extends Task {
 
 			String source = FileUtils.readFileToString(markdownfile);
 			
-			String find = "../images-dxp/";
-			String replace = "../images/";
-			String imagePath = source.replaceAll(find, replace);
+			String imagePath = replaceImageDxpPaths(source);
 			
-			FileUtils.writeStringToFile(markdownfile, imagePath);
+			DocsUtil.writeIfChanged(markdownfile, imagePath);
 		}
 
 	}
 
+	/**
+	 * Returns the article's source with its <code>images-dxp</code> image
+	 * paths pointing to the <code>images</code> folder, which the DXP images
+	 * are merged into for distribution.
+	 *
+	 * @param  source the article's source
+	 * @return the source with the image paths replaced
+	 */
+	public static String replaceImageDxpPaths(String source) {
+		String find = "../images-dxp/";
+		String replace = "../images/";
+
+		return source.replaceAll(find, replace);
+	}
+
 	private String _docdir;
+	private boolean _incremental;
 	private String _productType;
 	private boolean _resolveImages;
 }
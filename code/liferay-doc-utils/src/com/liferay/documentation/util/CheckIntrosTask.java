@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -27,10 +28,22 @@ public class CheckIntrosTask extends Task {
 		    }
 		});
 
+		if (_incremental) {
+			_checkManifest = DocsUtil.loadCheckManifest(
+				getProject().getBaseDir(), "check-intros", "");
+		}
+
 		for (File articleFolder : articleFolders) {
 			checkFolderForIntros(articleFolder);
 		}
 
+		if (_checkManifest != null) {
+			DocsUtil.saveCheckManifest(_checkManifest);
+
+			System.out.println("Reused the listings of " + _reusedFolderCount +
+					" unchanged folders");
+		}
+
 		if (!errorDirs.isEmpty()) {
 			System.out.println("ERROR - Missing introduction markdown articles"
 					+ " ...");
@@ -49,8 +62,56 @@ public class CheckIntrosTask extends Task {
 		_docdir = docdir;
 	}
 
+	public void setIncremental(boolean incremental) {
+		_incremental = incremental;
+	}
+
+	/**
+	 * Returns the folders that don't contain an introduction article.
+	 *
+	 * @param  folderArticleNames the names of the Markdown articles in each
+	 *         folder, keyed by the folder's path
+	 * @return the paths of the folders missing an introduction article
+	 */
+	public static List<String> findFoldersWithoutIntros(
+			Map<String, List<String>> folderArticleNames) {
+
+		List<String> folders = new ArrayList<String>();
+
+		for (Map.Entry<String, List<String>> entry :
+				folderArticleNames.entrySet()) {
+
+			boolean containsIntro = false;
+
+			for (String name : entry.getValue()) {
+				if (isIntro(name)) {
+					containsIntro = true;
+
+					break;
+				}
+			}
+
+			if (!containsIntro) {
+				folders.add(entry.getKey());
+			}
+		}
+
+		return folders;
+	}
+
+	private static boolean isIntro(String fileName) {
+		return fileName.endsWith("introduction.markdown") ||
+				fileName.endsWith("intro.markdown");
+	}
+
 	private void checkFolderForIntros(File folder) {
 
+		if (_checkManifest != null) {
+			checkFolderForIntrosIncrementally(folder);
+
+			return;
+		}
+
 		boolean containsIntro = false;
 
 		for (File fileEntry : folder.listFiles()) {
@@ -59,8 +120,7 @@ public class CheckIntrosTask extends Task {
 			}
 			else if (!containsIntro) {
 
-				if (fileEntry.getName().endsWith("introduction.markdown") ||
-						fileEntry.getName().endsWith("intro.markdown")) {
+				if (isIntro(fileEntry.getName())) {
 
 					containsIntro = true;
 				}
@@ -72,6 +132,74 @@ public class CheckIntrosTask extends Task {
 		}
 	}
 
+	/**
+	 * Checks the folder like {@link #checkFolderForIntros(File)}, but reuses
+	 * the folder's listing from the manifest if the folder's last modified
+	 * time hasn't changed. Adding, removing, or renaming a folder's entries
+	 * changes the folder's last modified time, so an unchanged folder still
+	 * has the same subfolders and the same intro article, if any.
+	 */
+	private void checkFolderForIntrosIncrementally(File folder) {
+
+		long lastModified = folder.lastModified();
+
+		CheckManifest.Entry entry = _checkManifest.getEntry(folder);
+
+		if ((entry == null) || (entry.getLastModified() != lastModified)) {
+			File[] files = folder.listFiles();
+
+			StringBuilder sb = new StringBuilder();
+
+			for (File file : files) {
+				sb.append(file.getName());
+				sb.append('\n');
+			}
+
+			entry = _checkManifest.putEntry(
+				folder, -1, lastModified, CheckManifest.hash(sb.toString()));
+
+			boolean containsIntro = false;
+
+			for (File file : files) {
+				if (file.isDirectory()) {
+					entry.addRecord(FOLDER, file.getName());
+				}
+				else if (!containsIntro && isIntro(file.getName())) {
+					containsIntro = true;
+				}
+			}
+
+			if (containsIntro) {
+				entry.addRecord(INTRO);
+			}
+		}
+		else {
+			_reusedFolderCount++;
+		}
+
+		boolean containsIntro = false;
+
+		for (String[] record : entry.getRecords()) {
+			if (record[0].equals(FOLDER)) {
+				checkFolderForIntros(new File(folder, record[1]));
+			}
+			else if (record[0].equals(INTRO)) {
+				containsIntro = true;
+			}
+		}
+
+		if (!containsIntro) {
+			errorDirs.add(folder);
+		}
+	}
+
+	private static final String FOLDER = "folder";
+
+	private static final String INTRO = "intro";
+
+	private CheckManifest _checkManifest;
 	private String _docdir;
+	private boolean _incremental;
+	private int _reusedFolderCount;
 	private List<File> errorDirs = new ArrayList<File>();
 }
@@ -1,29 +1,22 @@
 package com.liferay.documentation.util;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.lib.ObjectId;
@@ -32,6 +25,7 @@ import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 /**
@@ -77,8 +71,24 @@ public class CheckLatestCommitTask extends Task {
 
 		String lastPublishedCommit = FileUtils.readFileToString(commitFile);
 
+		// A build that runs both dist-diff-ce and dist-diff-dxp advances the
+		// commit file in its first run; the second run compares from the
+		// commit the file held before
+
+		String commitFilePath = commitFile.getCanonicalPath();
+
+		synchronized (_previousCommits) {
+			String previousCommit = _previousCommits.get(commitFilePath);
+
+			if ((previousCommit != null) &&
+				headCommit.equals(lastPublishedCommit)) {
+
+				lastPublishedCommit = previousCommit;
+			}
+		}
+
 		if (!headCommit.equals(lastPublishedCommit)) {
-			List<String> modifiedFiles = getModifiedFiles(lastPublishedCommit, docLanguage, docLocation, docDir, distDir, dxp);
+			List<String> modifiedFiles = getModifiedFiles(lastPublishedCommit, headCommit, docLanguage, docLocation, docDir, distDir, dxp);
 
 			// build out Zip with these new modified file paths
 
@@ -101,55 +111,68 @@ public class CheckLatestCommitTask extends Task {
 				}
 			}
 
-			// Unzip dist Zip
-			unzipFile(docDir, zipName);
-			File unzippedDir = new File("../" + docDir + "/" + zipName);
-			
-			// Find all MD and image files in directory
-			Set<File> allZipArticles = getMarkdownFiles(unzippedDir);
-			Set<File> allZipImages = getImageFiles(unzippedDir);
-			
-			// Convert modified file paths to consistent paths pointing to dist zip files
-			Set<String> modifiedZipArticles = mapModFilesToZipFiles(modifiedArticles, allZipArticles, "articles");
-			Set<String> modifiedZipImages = mapModFilesToZipFiles(modifiedImages, allZipImages, "images");
-			
-			Set<String> articlesWithModifiedImages = getArticlesWithModifiedImages(allZipArticles, modifiedZipImages, docDir);
+			// Read the dist Zip's entries in place, instead of extracting it
+			File distZip = new File("../" + docDir + "/" + zipName + ".zip");
+			RawZipFile zipFile = new RawZipFile(distZip);
 
-			modifiedZipArticles.addAll(articlesWithModifiedImages);
-			
-			// Find and add all modified/new MD files' intro file. A modified file must
-			// be accompanied with hierarchy of parent intros to import correctly.
-			Set<String> introFiles = getIntroFiles(modifiedZipArticles);
-			modifiedZipArticles.addAll(introFiles);
+			try {
+				// Convert modified file paths to the dist Zip's entry names
+				Set<String> modifiedZipArticles = mapModFilesToZipEntries(modifiedArticles, zipFile, "articles");
+				Set<String> modifiedZipImages = mapModFilesToZipEntries(modifiedImages, zipFile, "images");
+
+				// Index the images of the Zip's MD entries once, for finding both
+				// the articles of the modified images and the images of the
+				// articles. The entries are read in memory.
+				ImageIndex imageIndex = indexMarkdownEntries(zipFile);
+
+				Set<String> articlesWithModifiedImages = getArticlesWithModifiedImages(imageIndex, modifiedZipImages);
 
-			// Scan each MD file for remainder of images to include in ZIP file. When
-			// re-importing a new MD file, all of its images must also be re-imported.
-			Set<String> markdownImages = scanMarkdownForAllImages(modifiedZipArticles);
+				modifiedZipArticles.addAll(articlesWithModifiedImages);
 
-			modifiedZipImages.addAll(markdownImages);
+				// Find and add all modified/new MD files' intro file. A modified file must
+				// be accompanied with hierarchy of parent intros to import correctly.
+				Set<String> introFiles = getIntroFiles(zipFile, modifiedZipArticles);
+				modifiedZipArticles.addAll(introFiles);
 
-			String metadataFile = zipPrePath + ".METADATA";
+				// Scan each MD file for remainder of images to include in ZIP file. When
+				// re-importing a new MD file, all of its images must also be re-imported.
+				Set<String> markdownImages = scanMarkdownForAllImages(imageIndex, zipFile, modifiedZipArticles);
 
+				modifiedZipImages.addAll(markdownImages);
+
+				// Copy the entries' compressed data as is; nothing is inflated
+				// or deflated again
 				try {
 					System.out.println("Creating" + zipName + "-diffs-only.zip");
-					FileOutputStream fileOutputStream = new FileOutputStream(zipName + "-diffs-only.zip");
-					ZipOutputStream zipOutputStream = new ZipOutputStream(fileOutputStream);
+					RawZipOutputStream zipOutputStream = new RawZipOutputStream(
+						new BufferedOutputStream(new FileOutputStream(zipName + "-diffs-only.zip"), BUFFER_SIZE));
+
+					try {
+						for (String markdown : modifiedZipArticles) {
+							addToZipFile(markdown, zipFile, zipOutputStream);
+						}
+						for (String image : modifiedZipImages) {
+							addToZipFile(image, zipFile, zipOutputStream);
+						}
 
-					for (String markdown : modifiedZipArticles) {
-						addToZipFile(markdown, zipOutputStream, distDir);
+						if (zipFile.getEntry(METADATA_FILE) != null) {
+							addToZipFile(METADATA_FILE, zipFile, zipOutputStream);
+						}
 					}
-					for (String image : modifiedZipImages) {
-						addToZipFile(image, zipOutputStream, distDir);
+					finally {
+						zipOutputStream.close();
 					}
-
-					addToZipFile(metadataFile, zipOutputStream, distDir);
-
-					zipOutputStream.close();
-					fileOutputStream.close();
-
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
+			}
+			finally {
+				zipFile.close();
+			}
+
+			synchronized (_previousCommits) {
+				_previousCommits.put(commitFilePath, lastPublishedCommit);
+			}
 
 			generateLatestCommitFile(headCommit);
 		}
@@ -183,111 +206,115 @@ public class CheckLatestCommitTask extends Task {
 	}
 
 	/**
-	 * Adds the modified file to a distributable Zip file.
+	 * Copies the dist Zip's entry to the diffs Zip, as it's compressed in the
+	 * dist Zip.
 	 *
-	 * @param  modFile the modified file
-	 * @param  zipOutputStream the output stream used to add files to the Zip
-	 * @param  distDir the folder where the Zip is generated (e.g., {@code dist})
-	 * @throws FileNotFoundException if the modified file was not found
+	 * @param  entryName the entry's name (e.g., {@code images/some-image.png})
+	 * @param  zipFile the dist Zip
+	 * @param  zipOutputStream the output stream used to add entries to the
+	 *         diffs Zip
 	 * @throws IOException if an IO exception occurred
 	 */
-	private static void addToZipFile(String modFile, ZipOutputStream zipOutputStream, String distDir)
-			throws FileNotFoundException, IOException {
-
-		String uniformDistDir = distDir.replaceAll("/", Matcher.quoteReplacement(File.separator));
+	private static void addToZipFile(String entryName, RawZipFile zipFile, RawZipOutputStream zipOutputStream)
+			throws IOException {
 
-		int folderIndex = modFile.indexOf(uniformDistDir) + uniformDistDir.length() + 1;
-		int begIndex = modFile.indexOf(File.separator, folderIndex) + 1;
-		String destModFile = modFile.substring(begIndex, modFile.length());
+		System.out.println("Adding " + entryName + " to zip file");
 
-		System.out.println("Adding " + destModFile + " to zip file");
+		RawZipEntry entry = zipFile.getEntry(entryName);
 
-		File file = new File(modFile);
-		FileInputStream fileInputStream = new FileInputStream(file);
-		ZipEntry zipEntry = new ZipEntry(destModFile);
-		zipOutputStream.putNextEntry(zipEntry);
+		InputStream inputStream = zipFile.getRawInputStream(entry);
 
-		byte[] bytes = new byte[1024];
-		int len;
-		while ((len = fileInputStream.read(bytes)) >= 0) {
-			zipOutputStream.write(bytes, 0, len);
+		try {
+			zipOutputStream.putRawEntry(entry, inputStream);
+		}
+		finally {
+			inputStream.close();
 		}
-
-		zipOutputStream.closeEntry();
-		fileInputStream.close();
 	}
 
 	/**
 	 * Returns the parent intro articles for the given Markdown files.
 	 *
-	 * @param markdownFiles the Markdown files to find intros for
-	 * @return the parent intro articles
+	 * @param zipFile the dist Zip containing the Markdown files
+	 * @param markdownFiles the Markdown files' entry names
+	 * @return the entry names of the parent intro articles
 	 */
-	private static Set<String> getIntroFiles(Set<String> markdownFiles) {
+	private static Set<String> getIntroFiles(RawZipFile zipFile, Set<String> markdownFiles) {
 
-	Set<String> fileList = new HashSet<String>();
-	
-	for (String markdownFile : markdownFiles) {
+		Set<String> fileList = new HashSet<String>();
 
-		
-		File article = new File(markdownFile);
-		File parentDir = article.getParentFile();
+		// Map each of the Zip's folders to the files it contains
 
-		boolean containsIntro = true;
+		Map<String, List<String>> folderFiles = new HashMap<String, List<String>>();
 
-		while (containsIntro) {
-			
-			File[] parentFiles = parentDir.listFiles();
+		for (RawZipEntry entry : zipFile.getEntries()) {
+			if (entry.isDirectory()) {
+				continue;
+			}
 
-			containsIntro = false;
+			String folder = getParentEntryName(entry.getName());
 
-			for (File file : parentFiles) {
-				if (file.getName().endsWith("introduction.markdown") ||
-						file.getName().endsWith("intro.markdown")) {
+			List<String> files = folderFiles.get(folder);
 
-					fileList.add(file.toString());
-					containsIntro = true;
-				}
+			if (files == null) {
+				files = new ArrayList<String>();
+
+				folderFiles.put(folder, files);
 			}
 
-			parentDir = parentDir.getParentFile();
+			files.add(entry.getName());
 		}
-	}
-	
-		return fileList;
-	}
 
-	/**
-	 * Returns all the Markdown files in the given folder.
-	 *
-	 * @param  dir the folder in which to find Markdown files
-	 * @return the Markdown files
-	 */
-	private static Set<File> getMarkdownFiles(File dir) {
+		for (String markdownFile : markdownFiles) {
 
-		Set<File> chFiles = new HashSet<File>();
-		File articleDir = new File(dir.getAbsolutePath() + "/articles");
-		File[] articles = (File[])ArrayUtils.addAll(articleDir.listFiles());
+			String parentDir = getParentEntryName(markdownFile);
 
-		for (File article : articles) {
+			boolean containsIntro = true;
 
-			if (article.getName().contains(".")) {
-				continue;
-			}
+			while (containsIntro && (parentDir != null)) {
 
-			File[] allFiles = article.listFiles();
+				List<String> parentFiles = folderFiles.get(parentDir);
 
-			for (File file : allFiles) {
+				containsIntro = false;
 
-				if (!file.toString().endsWith("markdown") && !file.toString().endsWith("md")) {
-					continue;
+				if (parentFiles != null) {
+					for (String file : parentFiles) {
+						if (file.endsWith("introduction.markdown") ||
+								file.endsWith("intro.markdown")) {
+
+							fileList.add(file);
+							containsIntro = true;
+						}
+					}
 				}
 
-				chFiles.add(file);
+				parentDir = getParentEntryName(parentDir);
 			}
 		}
-		
-		return chFiles;
+
+		return fileList;
+	}
+
+	/**
+	 * Returns the name of the folder containing the Zip entry, or
+	 * {@code null} if the entry is the Zip's root folder ({@code ""}).
+	 *
+	 * @param  entryName the entry's name
+	 * @return the name of the entry's folder
+	 */
+	private static String getParentEntryName(String entryName) {
+
+		if (entryName.isEmpty()) {
+			return null;
+		}
+
+		int index = entryName.lastIndexOf('/');
+
+		if (index < 0) {
+			return "";
+		}
+
+		return entryName.substring(0, index);
 	}
 
 	/**
@@ -309,23 +336,22 @@ public class CheckLatestCommitTask extends Task {
 	/**
 	 * Returns the Markdown articles containing the given modified images.
 	 *
-	 * @param  zipMarkdownFiles the articles to scan for modified images
+	 * @param  imageIndex the image index of the articles to search
 	 * @param  modifiedImages the modified images to search for
-	 * @param  docDir the file's parent folder (e.g., {@code tutorials})
 	 * @return the Markdown articles containing the given modified images
 	 */
-	private static Set<String> getArticlesWithModifiedImages(Set<File> zipMarkdownFiles, Set<String> modifiedImages, String docDir) {
+	private static Set<String> getArticlesWithModifiedImages(ImageIndex imageIndex, Set<String> modifiedImages) {
 
 		Set<String> zipMarkdownFilesWithImageFinal = new HashSet<String>();
 
 		for (String imgPath : modifiedImages) {
 
-			// Scan directory's MD files for modified/new image
-			Set<File> zipMarkdownFilesWithImage = scanMarkdownForImage(imgPath, zipMarkdownFiles);
+			// Look up the directory's MD files containing modified/new image
+			Set<File> zipMarkdownFilesWithImage = scanMarkdownForImage(imgPath, imageIndex);
 
 			// Add the set of MD files that contain the image to a master set
 			for (File file : zipMarkdownFilesWithImage) {
-				zipMarkdownFilesWithImageFinal.add(file.toString());
+				zipMarkdownFilesWithImageFinal.add(file.getPath().replace(File.separatorChar, '/'));
 			}
 		}
 
@@ -351,33 +377,70 @@ public class CheckLatestCommitTask extends Task {
 	}
 
 	/**
-	 * Returns all the images residing in the given folder.
+	 * Returns the changes between the two commits below the document's
+	 * location, with renames detected. The trees are walked with a path
+	 * filter, so renames are only detected among the location's files rather
+	 * than the whole repository's. The changes of each pair of commits and
+	 * location are cached, so the CE and DXP diffs of a build share them.
 	 *
-	 * @param  dir the folder to grab images from
-	 * @return the images residing in the given folder
+	 * @param  repo the Git repository
+	 * @param  oldCommit the last published Git commit
+	 * @param  newCommit the Git commit to compare it with
+	 * @param  docLocation the folder path following {@code liferay-docs} (e.g,
+	 *         {@code en/develop/tutorials}), which includes the document's
+	 *         {@code articles-dxp} and {@code images-dxp} folders
+	 * @return the changes below the document's location
+	 * @throws IOException if an IO exception occurred
 	 */
-	private static Set<File> getImageFiles(File dir) {
+	private static List<DiffEntry> getDiffEntries(Repository repo, String oldCommit, String newCommit, String docLocation)
+			throws IOException {
 
-		Set<File> imageFiles = new HashSet<File>();
-		File imageDir = new File(dir.getAbsolutePath() + "/images");
-		File[] images = (File[])ArrayUtils.addAll(imageDir.listFiles());
-		
-		for (File img : images) {
-			if (img.toString().endsWith(".png") || img.toString().endsWith(".jpg") ||
-					img.toString().endsWith(".gif")) {
-				imageFiles.add(img);
+		String key = oldCommit + ".." + newCommit + ":" + docLocation;
+
+		synchronized (_diffEntries) {
+			List<DiffEntry> entries = _diffEntries.get(key);
+
+			if (entries != null) {
+				return entries;
 			}
-		}
 
-		return imageFiles;
+			ObjectReader reader = repo.newObjectReader();
+
+			DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+
+			try {
+				CanonicalTreeParser oldTreeIter = new CanonicalTreeParser();
+				ObjectId oldTree = repo.resolve(oldCommit + "^{tree}");
+				oldTreeIter.reset(reader, oldTree);
+
+				CanonicalTreeParser newTreeIter = new CanonicalTreeParser();
+				ObjectId newTree = repo.resolve(newCommit + "^{tree}");
+				newTreeIter.reset(reader, newTree);
+
+				diffFormatter.setRepository(repo);
+				diffFormatter.setPathFilter(PathFilter.create(docLocation));
+				diffFormatter.setDetectRenames(true);
+
+				entries = diffFormatter.scan(oldTreeIter, newTreeIter);
+			}
+			finally {
+				diffFormatter.release();
+				reader.release();
+			}
+
+			_diffEntries.put(key, entries);
+
+			return entries;
+		}
 	}
 
 	/**
 	 * Returns the files that were modified since the last published Git commit.
 	 *
 	 * @param  commit the last published Git commit
+	 * @param  headCommit the head commit on the current Git branch
 	 * @param  docLocation the folder path following {@code liferay-docs} (e.g,
-	 *         {@code develop/tutorials}
+	 *         {@code en/develop/tutorials}
 	 * @param  docDir the parent folder of where the Ant task was executed (e.g.,
 	 *         {@code tutorials})
 	 * @param  distDir the folder where the Zip is generated (e.g., {@code dist})
@@ -385,35 +448,29 @@ public class CheckLatestCommitTask extends Task {
 	 * @return the files that were modified since the last published Git commit
 	 * @throws IOException if an IO exception occurred
 	 */
-	private static List<String> getModifiedFiles(String commit, String docLanguage, String docLocation, String docDir, String distDir, boolean dxp)
+	private static List<String> getModifiedFiles(String commit, String headCommit, String docLanguage, String docLocation, String docDir, String distDir, boolean dxp)
 			throws IOException {
 
-		Repository repo = openGitRepository();
-		Git git = new Git(repo);
-		ObjectReader reader = git.getRepository().newObjectReader();
+		// Be sure to convert single nested folders (e.g., user) so they're searchable
+		if (docLocation.equals(docLanguage + "/./" + docDir)) {
+			docLocation = docLanguage + "/" + docDir;
+		}
 
-		CanonicalTreeParser oldTreeIter = new CanonicalTreeParser();
-		ObjectId oldTree = git.getRepository().resolve(commit + "^{tree}");
-		oldTreeIter.reset(reader, oldTree);
+		Repository repo = openGitRepository();
 
-		CanonicalTreeParser newTreeIter = new CanonicalTreeParser();
-		ObjectId newTree = git.getRepository().resolve("HEAD^{tree}");
-		newTreeIter.reset(reader, newTree);
+		List<DiffEntry> entries;
 
-		DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
-		diffFormatter.setRepository(git.getRepository());
-		diffFormatter.setDetectRenames(true);
-		List<DiffEntry> entries = diffFormatter.scan(oldTreeIter, newTreeIter);
+		try {
+			entries = getDiffEntries(repo, commit, headCommit, docLocation);
+		}
+		finally {
+			repo.close();
+		}
 
 		List<String> modifiedFiles = new ArrayList<String> ();
 		List<String> deletedFiles = new ArrayList<String> ();
 		//HashMap<String, String> renamedFiles = new HashMap<String, String> ();
 
-		// Be sure to convert single nested folders (e.g., user) so they're searchable
-		if (docLocation.equals(docLanguage + "/./" + docDir)) {
-			docLocation = docLanguage + "/" + docDir;
-		}
-
 		for (DiffEntry entry : entries) {
 
 			String entryPath = entry.getNewPath();
@@ -457,49 +514,80 @@ public class CheckLatestCommitTask extends Task {
 			writeDeletedTextFile(deletedFiles, distDir);
 		}
 
-		repo.close();
-
 		return modifiedFiles;
 	}
 
 	/**
 	 * Converts the modified file paths as they're stored in the Github repo to
-	 * the regular distributable Zip's file path. This ensures that the articles
-	 * have been overwritten with their DXP counterparts and/or the tokens have
-	 * been applied.
+	 * the regular distributable Zip's entry names. This ensures that the
+	 * articles have been overwritten with their DXP counterparts and/or the
+	 * tokens have been applied. Files the Zip doesn't contain are skipped.
 	 *
 	 * @param  modifiedFiles the modified files to convert
-	 * @param  zipFiles the Zip files, which are used solely to extract its
-	 *         general path
+	 * @param  zipFile the distributable Zip
 	 * @param  fileType the file type (article or image)
-	 * @return the converted file paths
+	 * @return the converted entry names
 	 */
-	private static Set<String> mapModFilesToZipFiles(Set<String> modifiedFiles, Set<File> zipFiles, String fileType) {
+	private static Set<String> mapModFilesToZipEntries(Set<String> modifiedFiles, RawZipFile zipFile, String fileType) {
 		
-		// Zip:
-		// .\dist\lp-ce-7.1-discover-portal\articles\210-setting-up\08-custom-fields.markdown
+		// Zip entry:
+		// articles/210-setting-up/08-custom-fields.markdown
 		
 		// modified
 		// discover/portal/articles/210-setting-up/08-custom-fields.markdown
 		
-		File zipFile = (File) zipFiles.toArray()[0];
-		String zipFileString = zipFile.toString();
-		int endIndex = zipFileString.indexOf(fileType + File.separator);
-		zipPrePath = zipFileString.substring(0, endIndex);
-		
 		Set<String> convertedFiles = new HashSet<String>();
 		
 		for (String modifiedFile : modifiedFiles) {
 			int begIndex = modifiedFile.indexOf("/" + fileType) + 1;
-			String partialPath = modifiedFile.substring(begIndex, modifiedFile.length());
-			String uniformPath = partialPath.replaceAll("/", Matcher.quoteReplacement(File.separator));
+			String entryName = modifiedFile.substring(begIndex, modifiedFile.length());
 
-			convertedFiles.add(zipPrePath + uniformPath);
+			if (zipFile.getEntry(entryName) == null) {
+				System.out.println("Skipping " + modifiedFile + ", which isn't in " + zipFile.getFile().getName());
+
+				continue;
+			}
+
+			convertedFiles.add(entryName);
 		}
 
 		return convertedFiles;
 	}
 
+	/**
+	 * Returns an image index of the dist Zip's Markdown articles. The articles
+	 * are read from the Zip's entries in memory; the index's files are the
+	 * entry names.
+	 *
+	 * @param  zipFile the dist Zip
+	 * @return the image index of the Zip's Markdown articles
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static ImageIndex indexMarkdownEntries(RawZipFile zipFile) throws IOException {
+
+		ImageIndex imageIndex = new ImageIndex();
+
+		for (RawZipEntry entry : zipFile.getEntries()) {
+			String name = entry.getName();
+
+			if (!name.startsWith("articles/") ||
+					(!name.endsWith(".markdown") && !name.endsWith(".md"))) {
+				continue;
+			}
+
+			InputStream inputStream = zipFile.getInputStream(entry);
+
+			try {
+				imageIndex.addArticle(new File(name), IOUtils.toString(inputStream));
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+
+		return imageIndex;
+	}
+
 	/**
 	 * Opens the Git repository connection.
 	 *
@@ -518,61 +606,29 @@ public class CheckLatestCommitTask extends Task {
 	 * Returns the images displayed in the given Markdown articles. When an
 	 * article is republished, its images must also be included.
 	 *
+	 * @param  imageIndex the image index of the dist Zip's articles
+	 * @param  zipFile the dist Zip
 	 * @param  modifiedArticles the modified Markdown articles
-	 * @return the images displayed in the given Markdown articles
+	 * @return the entry names of the images displayed in the given Markdown
+	 *         articles
 	 */
-	private static Set<String> scanMarkdownForAllImages(Set<String> modifiedArticles) {
+	private static Set<String> scanMarkdownForAllImages(ImageIndex imageIndex, RawZipFile zipFile, Set<String> modifiedArticles) {
 		
-		Set<File> markdownImages = new HashSet<File>();
 		Set<String> markdownImagesString = new HashSet<String>();
 		
-		String zipFile = (String) modifiedArticles.toArray()[0];
-
-		int endIndex = zipFile.indexOf("articles" + File.separator);
-		String zipPrePath = zipFile.substring(0, endIndex);
-
 		for (String modifiedArticle : modifiedArticles) {
 
-			Scanner scanner = null;
-			File file = new File(modifiedArticle);
-			
 			try {
-				scanner = new Scanner(file);
-
-				while (scanner.hasNextLine()) {
-					String lineFromFile = scanner.nextLine();
-
-					// Match lines containing expressions of the form ![...](...)
-					String regex = ".*!\\[.*\\]\\(.*\\).*";
-
-					lineFromFile = lineFromFile.trim();
-
-					if (lineFromFile.matches(regex)) {
-						int begin = lineFromFile.indexOf("../images");
-
-						if (begin < 0) {
-							continue;
-						}
-
-						begin = begin + 3;
-						int end = lineFromFile.indexOf(")", begin);
-
-						String img = lineFromFile.substring(begin, end);
-
-						File markdownImage = new File(img);
-
-						markdownImages.add(markdownImage);
+				for (String img : imageIndex.getMentionedImages(new File(modifiedArticle))) {
+					if (zipFile.getEntry(img) != null) {
+						markdownImagesString.add(img);
 					}
 				}
 			}
-			catch (FileNotFoundException e) {
+			catch (IOException e) {
 				e.printStackTrace();
 			}
 		}
-		
-		for (File markdownImage : markdownImages) {
-			markdownImagesString.add(zipPrePath + markdownImage.toString());
-		}
 
 		return markdownImagesString;
 	}
@@ -581,83 +637,27 @@ public class CheckLatestCommitTask extends Task {
 	 * Returns the Markdown articles that reference the given image.
 	 *
 	 * @param  imgPath the image's path to search for
-	 * @param  files the files in which to search for the image
+	 * @param  imageIndex the image index of the articles to search
 	 * @return the Markdown articles that reference the given image
 	 */
-	private static Set<File> scanMarkdownForImage(String imgPath, Set<File> files) {
+	private static Set<File> scanMarkdownForImage(String imgPath, ImageIndex imageIndex) {
 
-		int imgStart = imgPath.lastIndexOf(File.separator) + 1;
-		String img = imgPath.substring(imgStart, imgPath.length());
+		File image = new File(imgPath);
 
 		Set<File> filesWithImage = new HashSet<File>();
 
-		for (File file : files) {
-
-			Scanner scanner = null;
-			try {
-				scanner = new Scanner(file);
-
-				while (scanner.hasNextLine()) {
-					String lineFromFile = scanner.nextLine();
+		if (image.getParentFile() == null) {
+			return filesWithImage;
+		}
 
-					if (lineFromFile.contains(img)) { 
-						filesWithImage.add(file);
-						System.out.println("New image " + img + " found in file " + file.getName());
-					}
-				}
-			}
-			catch (FileNotFoundException e) {
-				e.printStackTrace();
-			}
+		for (File file : imageIndex.getArticles(image.getParentFile().getName(), image.getName())) {
+			filesWithImage.add(file);
+			System.out.println("New image " + image.getName() + " found in file " + file.getName());
 		}
 		
 		return filesWithImage;
 	}
 
-	/**
-	 * Unzips the Zip file. This is used to unzip the generated distributable
-	 * Zip to extract already parsed (DXP overrides and token generations
-	 * applied) Markdown articles and images.
-	 *
-	 * @param  docDir the parent folder of where the Ant task was executed (e.g.,
-	 *         {@code tutorials})
-	 * @param  zipName the Zip file to unzip
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static void unzipFile(String docDir, String zipName)
-			throws IOException {
-
-		byte[] buffer = new byte[1024];
-		int bytesRead = 0;
-
-		File zipFile = new File("../" + docDir + "/" + zipName + ".zip");
-		File destinationDir = new File("../" + docDir + "/" + zipName);
-		ZipFile zip = new ZipFile(zipFile);
-		Enumeration<? extends ZipEntry> zipEntries = zip.entries();
-
-		while (zipEntries.hasMoreElements()) {
-			ZipEntry entry = zipEntries.nextElement();
-
-			if (entry.isDirectory()) {
-				File newDir = new File(destinationDir, entry.getName());
-				newDir.mkdirs();
-			} else {
-				BufferedInputStream inputStream = new BufferedInputStream(zip.getInputStream(entry));
-				File outputFile = new File(destinationDir, entry.getName());
-				BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile));
-
-				while ((bytesRead = inputStream.read(buffer)) != -1) {
-					outputStream.write(buffer, 0, bytesRead);
-				}
-
-				inputStream.close();
-				outputStream.close();
-			}
-		}
-		zip.close();
-		//zipFile.delete();
-	}
-
 	/**
 	 * Writes deleted files to a {@code .txt} file. This is useful to notify the
 	 * publisher of the files that must be manually deleted from the Knowledge
@@ -689,7 +689,14 @@ public class CheckLatestCommitTask extends Task {
 		writer.close();
 	}
 
-	private static String zipPrePath;
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final String METADATA_FILE = ".METADATA";
+
+	private static final Map<String, List<DiffEntry>> _diffEntries =
+		new HashMap<String, List<DiffEntry>>();
+	private static final Map<String, String> _previousCommits =
+		new HashMap<String, String>();
 
 	private String _distDir;
 	private String _docDir;
@@ -1,27 +1,23 @@
 package com.liferay.documentation.util;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
-import org.htmlparser.Parser;
-import org.htmlparser.filters.NodeClassFilter;
-import org.htmlparser.tags.LinkTag;
-import org.htmlparser.util.NodeList;
-import org.htmlparser.util.ParserException;
 
 /**
  * @author Cody Hoag
@@ -30,145 +26,165 @@ public class CheckLinksTask extends Task {
 
 	@Override
 	public void execute() throws BuildException {
+		checkLinks(new DocSet(_docdir));
+	}
 
-		checkApiLinks = _apiLinks;
-		checkDxpLinks = _dxpCheck;
-		checkLegacyLinks = _legacyLinks;
+	/**
+	 * Checks the links of the document set's articles. The articles are read
+	 * through the document set, so articles it has already read, or changed,
+	 * aren't read from disk again.
+	 *
+	 * @param docSet the document set
+	 */
+	public void checkLinks(DocSet docSet) throws BuildException {
 
 		String docDir = _docdir;
 
-		appToken = _appToken;
-		platformToken = _platformToken;
+		_brokenLinkCount = 0;
+
+		ApiLinkValidator apiLinkValidator = new ApiLinkValidator(
+			_apiThreads, _apiHostConnections, _apiTimeout);
+
+		LinkValidationCache linkValidationCache = null;
 
-		platformReferenceSite = _platformReferenceSite;
-		appReferenceSite = _appReferenceSite;
+		if (_linkCache && (_apiLinks || _legacyLinks)) {
+			linkValidationCache = loadLinkValidationCache(docDir);
+
+			apiLinkValidator.setCache(linkValidationCache);
+		}
 
 		// e.g., docDir = tutorials
 		File currentArticleDir = new File("../" + docDir + "/articles");
 		List<File> currentArticles = findCurrentDirArticles(currentArticleDir);
 
-		if (checkDxpLinks) {
+		if (_dxpCheck) {
 			currentArticles = addDxpOnlyArticles(currentArticles, docDir);
 		}
 
-		assignReferencedDirArticles(articleDirs);
-
-		try {
-		userGuideHeaders = findHeaders(userGuideArticles);
-		deploymentGuideHeaders = findHeaders(deploymentGuideArticles);
-		distributeGuideHeaders = findHeaders(distributeGuideArticles);
-		appDevHeaders = findHeaders(appDevArticles);
-		frameworksDevHeaders = findHeaders(frameworksDevArticles);
-		customizationDevHeaders = findHeaders(customizationDevArticles);
-		tutorialsHeaders = findHeaders(tutorialsArticles);
-		referenceDevHeaders = findHeaders(referenceDevArticles);
-
-		for (File article : currentArticles) {
-
-			LineNumberReader in = new LineNumberReader(new FileReader(article));
-			String line = null;
+		CheckManifest checkManifest = null;
+		CheckManifest linkIndexManifest = null;
 
-			while ((line = in.readLine()) != null) {
+		if (_incremental) {
+			checkManifest = loadCheckManifest();
+			linkIndexManifest = loadLinkIndexManifest();
+		}
 
-				if (line.contains("](/develop/") || line.contains("](/discover/")) {
-					logInvalidUrl(article, in.getLineNumber(), line, false);
-				}
+		ExecutorService executorService = Executors.newFixedThreadPool(
+			Math.max(1, _threads));
 
-				if (line.contains("](/docs/" + PORTAL_VERSION) ||
-					line.contains("](/docs/" + PORTAL_VERSION_LEGACY_1) ||
-					line.contains("](/docs/" + PORTAL_VERSION_LEGACY_2)) {
+		try {
+			List<List<File>> guideArticles = findGuideArticles(
+				ArticleLinkChecker.GUIDE_DIRS, _dxpCheck);
 
-					int urlsInLine = countStrings(line);
+			HeaderCatalog headerCatalog = buildHeaderCatalog(
+				executorService, docSet, ArticleLinkChecker.GUIDE_DIRS,
+				guideArticles);
 
-					if (urlsInLine < 2) {
+			Set<String> changedTargets = null;
 
-						String header = extractHeader(line, article, in);
+			if (linkIndexManifest != null) {
+				changedTargets = updateLinkIndex(
+					new LinkIndex(linkIndexManifest), docSet, guideArticles,
+					headerCatalog);
+			}
 
-						String primaryHeader = null;
-						validUrl = true;
+			ArticleLinkChecker articleLinkChecker = new ArticleLinkChecker(
+				headerCatalog, linkValidationCache);
 
-						if (header.contains("#")) {
-							String[] splitHeaders = header.split("#");
+			articleLinkChecker.setApiLinks(_apiLinks);
+			articleLinkChecker.setAppReference(_appReferenceSite, _appToken);
+			articleLinkChecker.setLegacyLinks(_legacyLinks);
+			articleLinkChecker.setLdnLimits(_apiHostConnections, _apiTimeout);
+			articleLinkChecker.setPlatformReference(
+				_platformReferenceSite, _platformToken);
 
-							primaryHeader = splitHeaders[0];
-							String secondaryHeader = splitHeaders[1];
+			List<ArticleLinkChecker.Result> results = checkArticles(
+				executorService, docSet, articleLinkChecker, currentArticles,
+				checkManifest, changedTargets);
 
-							validUrl = isUrlValid(line, article, in, primaryHeader, secondaryHeader, 0, false);
-						}
-						else if (header.equals("")) {
-							continue;
-						}
-						else {
-
-							primaryHeader = header;
-							validUrl = isUrlValid(line, article, in, primaryHeader, null, 0, false);
-						}
-
-						if (!validUrl) {
-							logInvalidUrl(article, in.getLineNumber(), line, false);
-						}
-					}
+			for (ArticleLinkChecker.Result result : results) {
+				for (ArticleLinkChecker.BrokenLink brokenLink :
+						result.getBrokenLinks()) {
 
-					else {
-						checkMultiLinks(article, line, in);
-					}
+					logBrokenLink(brokenLink);
 				}
 
-				if (line.contains("](#")) {
-
-					String sublinkStart = "](#";
-					int subHeadersInLine = countStrings(line);
-
-					if (subHeadersInLine < 2) {
-						String secondaryHeader = extractSubHeader(line, article, in);
-
-						validUrl = isSubUrlValid(article, secondaryHeader);
-
-						if (!validUrl) {
-							logInvalidUrl(article, in.getLineNumber(), line, false);
-						}
-					}
-					else {
-						checkMultiSubLinks(article, line, in, sublinkStart);
-					}
-
+				for (ApiLinkValidator.ApiLink apiLink : result.getApiLinks()) {
+					apiLinkValidator.addLink(
+						apiLink.getUrl(), apiLink.getArticle(),
+						apiLink.getLineNumber(), apiLink.getLine());
 				}
-				if (checkApiLinks && line.contains("/javadocs/")
-						&& line.contains("/com/liferay/")) {
+			}
 
-					validUrl = isApiUrlValid(article, in, line);
+			validateApiUrls(apiLinkValidator);
 
-					if (!validUrl) {
-						logInvalidUrl(article, in.getLineNumber(), line, false);
-					}
-				}
+			if (linkValidationCache != null) {
+				saveLinkValidationCache(linkValidationCache);
 			}
-
-			in.close();
-		}
 		} catch (IOException e) {
 			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			executorService.shutdownNow();
+
+			saveCheckManifests(checkManifest, linkIndexManifest);
 		}
-		if (resultsNumber > 0) {
-			throw new BuildException("\n\n**Total Broken Links: " + resultsNumber + "**\n");
+
+		if (_brokenLinkCount > 0) {
+			throw new BuildException("\n\n**Total Broken Links: " + _brokenLinkCount + "**\n");
 		}
 		else {
 			System.out.println("\nNo Broken Links!");
 		}
 	}
 
+	public void setApiHostConnections(int apiHostConnections) {
+		_apiHostConnections = apiHostConnections;
+	}
+
 	public void setApiLinks(boolean apiLinks) {
 		_apiLinks = apiLinks;
 	}
 
+	public void setApiThreads(int apiThreads) {
+		_apiThreads = apiThreads;
+	}
+
+	public void setApiTimeout(int apiTimeout) {
+		_apiTimeout = apiTimeout;
+	}
+
 	public void setDocdir(String docdir) {
 		_docdir = docdir;
 	}
 
+	public void setIncremental(boolean incremental) {
+		_incremental = incremental;
+	}
+
 	public void setLegacyLinks(boolean legacyLinks) {
 		_legacyLinks = legacyLinks;
 	}
 
+	public void setLinkCache(boolean linkCache) {
+		_linkCache = linkCache;
+	}
+
+	public void setLinkCacheFile(String linkCacheFile) {
+		_linkCacheFile = linkCacheFile;
+	}
+
+	public void setLinkCacheTtl(int linkCacheTtl) {
+		_linkCacheTtl = linkCacheTtl;
+	}
+
+	public void setPruneLinkCache(boolean pruneLinkCache) {
+		_pruneLinkCache = pruneLinkCache;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
 	public void setAppReferenceSite(String appReferenceSite) {
 		_appReferenceSite = appReferenceSite;
 	}
@@ -201,9 +217,10 @@ public class CheckLinksTask extends Task {
 	 */
 	private static List<File> addDxpOnlyArticles(List<File> articles, String path) {
 
+		List<File> fileOverrides = new ArrayList<File>();
 		List<File> dxpArticles = getDxpArticles(path);
 
-		articles = includeDxpOverrides(articles, dxpArticles);
+		articles = includeDxpOverrides(articles, dxpArticles, fileOverrides);
 
 		List<File> dxpArticlesToDelete = new ArrayList<File>();
 
@@ -227,516 +244,171 @@ public class CheckLinksTask extends Task {
 	}
 
 	/**
-	 * Assembles the header ID for the given heading. This is used for secondary
-	 * headers since their header IDs do not exist in the Markdown article.
-	 *
-	 * @param  heading the heading to assemble an ID for
-	 * @param  idCount the number of matching header IDs found. This is added to
-	 *         the end of a header ID to differentiate it from other matching
-	 *         headers (e.g., liferay-home-2).
-	 * @return the header ID for the given heading
-	 */
-	private static String assembleId(String heading, int idCount) {
-
-		String count = "";
-		if (idCount > 0) {
-			count = "-" + idCount;
-		}
-
-		StringBuffer sb = new StringBuffer(heading);
-		sb.append(count);
-
-		String finalHeaderId = sb.toString();
-
-		if (finalHeaderId.contains("--")) {
-			finalHeaderId = finalHeaderId.replaceAll("--", "-");
-		}
-
-		return finalHeaderId;
-	}
-
-	/**
-	 * Returns all the possible referenced headers. This method scans the
-	 * current line and assigns it to the appropriate header list.
-	 *
-	 * @param  line the line containing a relative URL
-	 * @param  lineIndex the header's index on the line. This is useful when
-	 *         there are multiple relative links on one line.
-	 * @return the referenced headers
-	 */
-	private static ArrayList<List<String>> assignDirHeaders(String line, int lineIndex) {
-
-		ArrayList<List<String>> headers = new ArrayList<List<String>>();
-
-		String lineSubstring = line.substring(lineIndex, line.length());		
-
-		// The first link in the substring will have its headers applied.
-		if (lineSubstring.contains(userGuideLinkFolder + findStr)) {
-			headers = userGuideHeaders;
-		}
-
-		else if (lineSubstring.contains(deploymentGuideLinkFolder + findStr)) {
-			headers = deploymentGuideHeaders;
-		}
-
-		else if (lineSubstring.contains(distributeGuideLinkFolder + findStr)) {
-			headers = distributeGuideHeaders;
-		}
-
-		else if (lineSubstring.contains(appDevLinkFolder + findStr)) {
-			headers = appDevHeaders;
-		}
-
-		else if (lineSubstring.contains(customizationDevLinkFolder + findStr)) {
-			headers = customizationDevHeaders;
-		}
-
-		else if (lineSubstring.contains(frameworksDevLinkFolder + findStr)) {
-			headers = frameworksDevHeaders;
-		}
-
-		else if (lineSubstring.contains(tutorialsDevLinkFolder + findStr)) {
-			headers = tutorialsHeaders;
-		}
-
-		else if (lineSubstring.contains(referenceDevLinkFolder + findStr)) {
-			headers = referenceDevHeaders;
-		}
-
-		return headers;
-	}
-
-	/**
-	 * Finds the articles from other possible referenced directories and sets
-	 * them to the appropriate local variables.
-	 * 
-	 * @param dirs the popular directories residing in the
-	 *        <code>liferay-docs</code> repository
-	 */
-	private static void assignReferencedDirArticles(String[] dirs) {
-
-		for (String articleDir : articleDirs) {
-
-			if (articleDir.equals(userGuideDir)) {
-				userGuideArticles = findArticles(userGuideDir);
-			}
-
-			if (articleDir.equals(deploymentGuideDir)) {
-				deploymentGuideArticles = findArticles(deploymentGuideDir);
-			}
-
-			if (articleDir.equals(distributeGuideDir)) {
-				distributeGuideArticles = findArticles(distributeGuideDir);
-			}
-
-			if (articleDir.equals(appDevDir)) {
-				appDevArticles = findArticles(appDevDir);
-			}
-
-			if (articleDir.equals(customizationDevDir)) {
-				customizationDevArticles = findArticles(customizationDevDir);
-			}
-
-			if (articleDir.equals(frameworksDevDir)) {
-				frameworksDevArticles = findArticles(frameworksDevDir);
-			}
-
-			if (articleDir.equals(tutorialsDir)) {
-				tutorialsArticles = findArticles(tutorialsDir);
-			}
-
-			if (articleDir.equals(referenceDevDir)) {
-				referenceDevArticles = findArticles(referenceDevDir);
-			}
-		}
-	}
-
-	/**
-	 * Checks the line that contains multiple relative links.
+	 * Returns the header catalog for the popular directories residing in the
+	 * <code>liferay-docs</code> repository. Each directory's articles are read
+	 * once here, so validating a relative link doesn't have to reread them.
+	 * The articles are indexed concurrently before the catalog is assembled.
 	 *
-	 * @param  article the article containing the line
-	 * @param  line the line containing multiple relative links
-	 * @param  in the line number reader
+	 * @param  executorService the executor service to index the articles with
+	 * @param  docSet the document set, whose articles are indexed from the
+	 *         lines it has read
+	 * @param  dirs the popular directories residing in the
+	 *         <code>liferay-docs</code> repository
+	 * @param  guideArticles each directory's articles
+	 * @return the header catalog
 	 * @throws IOException if an IO exception occurred
 	 */
-	private static void checkMultiLinks(File article, String line, LineNumberReader in)
-			throws IOException {
-
-		// Extract headers into map with <header, index> pairs
-		LinkedHashMap<String, Integer> headerMaps = extractMultiStrings(line, article, in, findStr, 2);
-
-		Iterator<?> it = headerMaps.entrySet().iterator();
-
-		// Iterating through header maps, which contain header and index information
-		// used for validating lines with multiple links
-	    while (it.hasNext()) {
-
-	    	@SuppressWarnings("rawtypes")
-			Map.Entry pair = (Map.Entry)it.next();
-	        it.remove();
-
-			String header = pair.getKey().toString();
-			String headerValue = pair.getValue().toString();
-			int headerIndex = Integer.parseInt(headerValue);
-
-			// Find version for each header so we can accurately check them
-			String substringLineStart = line.substring(headerIndex);
-			int headerStart = substringLineStart.indexOf(findStr) + findStr.length();
-			String version = substringLineStart.substring(headerStart, headerStart + 3);
-			boolean differingDefaultVersion = false;
-
-			if (!version.equals(PORTAL_VERSION)) {
-				differingDefaultVersion = true;
-			}
-
-			// end of >1 logic
+	private static HeaderCatalog buildHeaderCatalog(
+			ExecutorService executorService, final DocSet docSet, String[] dirs,
+			List<List<File>> guideArticles)
+		throws IOException {
 
-			String primaryHeader = null;
-			validUrl = true;
+		final HeaderCatalog catalog = new HeaderCatalog();
 
-			if (header.contains("#")) {
-				String[] splitHeaders = header.split("#");
+		Set<File> articles = new LinkedHashSet<File>();
 
-				primaryHeader = splitHeaders[0];
-				String secondaryHeader = splitHeaders[1];
-
-				validUrl = isUrlValid(line, article, in, primaryHeader, secondaryHeader, headerIndex, differingDefaultVersion);
-			}
-			else if (header.equals("")) {
-				continue;
-			}
-			else {
-
-				primaryHeader = header;
-				validUrl = isUrlValid(line, article, in, primaryHeader, null, headerIndex, differingDefaultVersion);
-			}
-
-			if (!validUrl) {
-				logInvalidUrl(article, in.getLineNumber(), line, false);
-				System.out.println("Invalid Header: " + header + "\n");
-			}
+		for (List<File> dirArticles : guideArticles) {
+			articles.addAll(dirArticles);
 		}
 
-	}
-
-	/**
-	 * Checks the line that contains multiple subheader relative links.
-	 *
-	 * @param  article the article containing the line
-	 * @param  line the line containing multiple subheader relative links
-	 * @param  in the line number reader
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static void checkMultiSubLinks(File article, String line, LineNumberReader in,
-			String sublinkStart) throws IOException {
-
-		LinkedHashMap<String, Integer> headerMaps = extractMultiStrings(line, article, in, sublinkStart, 0);
-
-		Iterator<?> it = headerMaps.entrySet().iterator();
-
-		// Iterating through header maps, which contain header and index information
-		// used for validating lines with multiple links
-	    while (it.hasNext()) {
+		List<Future<HeaderCatalog.ArticleHeaders>> futures =
+			new ArrayList<Future<HeaderCatalog.ArticleHeaders>>();
 
-	    	@SuppressWarnings("rawtypes")
-			Map.Entry pair = (Map.Entry)it.next();
-	        it.remove();
+		for (final File article : articles) {
+			futures.add(
+				executorService.submit(
+					new Callable<HeaderCatalog.ArticleHeaders>() {
 
-			String secondaryHeader = pair.getKey().toString();
+						@Override
+						public HeaderCatalog.ArticleHeaders call()
+							throws IOException {
 
-			validUrl = isSubUrlValid(article, secondaryHeader);
+							if (docSet.contains(article)) {
+								return catalog.getArticleHeaders(
+									article,
+									docSet.getArticle(article).getLines());
+							}
 
-			if (!validUrl) {
-				logInvalidUrl(article, in.getLineNumber(), line, false);
-				System.out.println("Invalid Subheader: #" + secondaryHeader + "\n");
-			}
-	    }
-	}
-
-	/**
-	 * Returns the number of specific strings in the line.
-	 *
-	 * @param  line the line to count the number of specific strings
-	 * @return the number of specific strings in the line
-	 */
-	private static int countStrings(String line) {
-
-		int lastIndex = 0;
-		int count = 0;
-
-		while(lastIndex != -1){
-
-		    lastIndex = line.indexOf(findStr,lastIndex);
+							return catalog.getArticleHeaders(article);
+						}
 
-		    if(lastIndex != -1){
-		        count ++;
-		        lastIndex += findStr.length();
-		    }
+					}));
 		}
-		return count;
-	}
 
-	/**
-	 * Returns <code>true</code> if the link's folder and folder starting letter
-	 * match. For example, the link below returns <code>true</code> because the
-	 * <code>reference</code> string matches the second folder prefix
-	 * <code>r</code>.
-	 * 
-	 * <p>
-	 * <pre>
-	 * <code>
-	 * /docs/7-2/reference/-/knowledge_base/r/test
-	 * </code>
-	 * </pre>
-	 * </p>
-	 *
-	 * <p>
-	 * If the second folder prefix for the above link was <code>f</code>, this
-	 * method would return <code>false</code>.
-	 * </p>
-	 *
-	 * @param  line the line containing the relative link
-	 * @param  lineIndex the header's index on the line. This is useful when
-	 *         there are multiple relative links on one line.
-	 * @return <code>true</code> if the link's folder and folder starting letter
-	 *         match; <code>false</code> otherwise
-	 */
-	private static boolean doesDocFoldersMatch(String line, int lineIndex) {
-		
-		String lineSubstring = line.substring(lineIndex, line.length());
-		boolean foldersMatch = false;
-		
-		int begIndex = lineSubstring.indexOf("/docs/") + 10;
-		//int endIndex = lineSubstring.indexOf("/", begIndex);
-		String folder1 = lineSubstring.substring(begIndex, begIndex + 1);
-		
-		int begIndex2 = lineSubstring.indexOf(findStr) + findStr.length();
-		
-		String folder2 = lineSubstring.substring(begIndex2, begIndex2 + 1);
-		
-		if (folder1.equals(folder2)) {
-			foldersMatch = true;
+		for (Future<HeaderCatalog.ArticleHeaders> future : futures) {
+			getResult(future);
 		}
 
-		return foldersMatch;
-	}
+		// The articles are indexed now, so adding the guides only assembles
+		// the catalog
 
-	/**
-	 * Returns the header ID contained in the given line. For example, the
-	 * following line:
-	 * 
-	 * <p>
-	 * <pre>
-	 * <code>
-	 * [here](/docs/7-2/deploy/-/knowledge_base/d/installing-liferay-portal#liferay-home)
-	 * </code>
-	 * </pre>
-	 * </p>
-	 *
-	 * returns
-	 *
-	 * <p>
-	 * <pre>
-	 * <code>
-	 * installing-liferay-portal#liferay-home
-	 * </code>
-	 * </pre>
-	 * </p>
-	 *
-	 * @param  line the line from which to extract the header
-	 * @param  article the article containing the line
-	 * @param  in the line number reader
-	 * @return the header ID
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static String extractHeader(String line, File article, LineNumberReader in)
-			throws IOException {
-
-		int strIndex = line.indexOf(findStr);
-		int begIndex = strIndex + findStr.length() + 2;
-		int endIndex = line.indexOf(")", begIndex);
-
-		String header = "";
-
-		try {
-			header = line.substring(begIndex, endIndex);
-		} catch(Exception e) {
-			logInvalidUrl(article, in.getLineNumber(), line, true);
+		for (int i = 0; i < dirs.length; i++) {
+			catalog.addGuide(dirs[i], guideArticles.get(i));
 		}
 
-		return header;
+		return catalog;
 	}
 
 	/**
-	 * Returns the article's heading found on the line.
+	 * Checks the articles concurrently and returns their results in the
+	 * articles' order, so the report doesn't depend on which thread finishes
+	 * first. If a manifest is given, an article that hasn't changed since its
+	 * last check, and whose link targets haven't changed either, gets its
+	 * results from the manifest instead of being checked again.
 	 *
-	 * @param  line the line to extract the heading from
-	 * @return the article's heading
+	 * @param  executorService the executor service to check the articles with
+	 * @param  docSet the document set containing the articles
+	 * @param  articleLinkChecker the article link checker
+	 * @param  articles the articles to check
+	 * @param  checkManifest the manifest of the last check's results (may be
+	 *         <code>null</code>)
+	 * @param  changedTargets the keys of the header IDs whose articles changed
+	 *         since the last check, or <code>null</code> if they're unknown
+	 * @return the articles' results, in the articles' order
+	 * @throws IOException if an IO exception occurred
 	 */
-	private static String extractHeading(String line) {
-
-		int indexOfFirstHeaderChar = line.indexOf("# ") + 2;
+	private static List<ArticleLinkChecker.Result> checkArticles(
+			ExecutorService executorService, final DocSet docSet,
+			final ArticleLinkChecker articleLinkChecker, List<File> articles,
+			final CheckManifest checkManifest, final Set<String> changedTargets)
+		throws IOException {
 
-		String heading = line.substring(indexOfFirstHeaderChar);
-		heading = heading.trim();
+		final AtomicInteger reused = new AtomicInteger();
 
-		// Replace each spaced dash, space, dot, and slash with a dash
+		List<Future<ArticleLinkChecker.Result>> futures =
+			new ArrayList<Future<ArticleLinkChecker.Result>>();
 
-		heading = heading.replace(" - ", "-");
-		heading = heading.replace(' ', '-');
-		heading = heading.replace('_', '-');
-		heading = heading.toLowerCase();
+		for (final File article : articles) {
+			futures.add(
+				executorService.submit(
+					new Callable<ArticleLinkChecker.Result>() {
 
-		// Filter out characters other than dashes, letters, and digits
+						@Override
+						public ArticleLinkChecker.Result call()
+							throws IOException {
 
-		StringBuffer headingSb = new StringBuffer();
-		for (int i = 0; i < heading.length(); i++) {
-			char ch = heading.charAt(i);
+							if (checkManifest == null) {
+								return articleLinkChecker.checkArticle(
+									article,
+									docSet.getArticle(article).getLines());
+							}
 
-			if (ch == '-' || Character.isLetterOrDigit(ch)) {
-				headingSb.append(ch);
-			}
-		}
-		heading = headingSb.toString();
-		return heading;
-	}
+							ArticleLinkChecker.Result result = getCachedResult(
+								checkManifest, docSet, articleLinkChecker,
+								article, changedTargets);
 
-	/**
-	 * Returns a map of headers paired with their line indexes. This method is
-	 * used to extract multiple headers (from relative links) that are contained
-	 * on one line.
-	 *
-	 * @param  line the line from which to extract the header
-	 * @param  article the article containing the line
-	 * @param  in the line number reader
-	 * @param  indexCorrection the number used to modify the index used when
-	 *         searching for the next specific string on the line
-	 * @return the multiple headers contained on the line paired with their indexes
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static LinkedHashMap<String, Integer> extractMultiStrings(String line, File article, LineNumberReader in,
-			String searcherString, int indexCorrection) throws IOException {
-
-		// Find all relevant headers
-		LinkedHashMap<String, Integer> headerMap = new LinkedHashMap<String, Integer>();
-		String originalLine = line;
-
-		while(line.contains(searcherString)){
+							if (result != null) {
+								reused.incrementAndGet();
 
-			int strIndex = line.indexOf(searcherString);
-			int begIndex = strIndex + searcherString.length() + indexCorrection;
-			int endIndex = line.indexOf(")", begIndex);
-			int headerIndex = originalLine.length() - line.length();
+								return result;
+							}
 
-			String header = "";
-
-			try {
-				header = line.substring(begIndex, endIndex);
-			} catch(Exception e) {
-				logInvalidUrl(article, in.getLineNumber(), line, true);
-			}
+							result = articleLinkChecker.checkArticle(
+								article, docSet.getArticle(article).getLines());
 
-			line = line.substring(endIndex, line.length());
+							putResult(checkManifest, docSet, result);
 
-			headerMap.put(header, headerIndex);
+							return result;
+						}
 
+					}));
 		}
 
-		return headerMap;
-	}
+		List<ArticleLinkChecker.Result> results =
+			new ArrayList<ArticleLinkChecker.Result>();
 
-	/**
-	 * Returns the fully qualified LDN URL from the given line.
-	 *
-	 * @param  line the line from which to extract the URL
-	 * @param  lineNumber the line number
-	 * @param  fileName the article's name
-	 * @return the LDN URL
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static String extractLdnUrl(String line, int lineNumber, File article)
-			throws IOException {
-
-		int begIndex = line.indexOf("](/") + 2;
-		int endIndex = line.indexOf(")", begIndex);
-		String endLdnUrl = null;
-
-		try{
-			endLdnUrl = line.substring(begIndex, endIndex);
-		} catch (StringIndexOutOfBoundsException e) {
-			endLdnUrl = line.substring(begIndex, line.length());
-			logInvalidUrl(article, lineNumber, line, true);
+		for (Future<ArticleLinkChecker.Result> future : futures) {
+			results.add(getResult(future));
 		}
 
-		ldnArticle = endLdnUrl;
-
-		String begLdnUrl = "https://dev.liferay.com";
-
-		String ldnUrl = begLdnUrl.concat(endLdnUrl);
-
-		return ldnUrl;
-	}
-
-	/**
-	 * Returns the sub-header ID contained in the given line. A sub-header is a
-	 * header characterizing a subsection in the article.
-	 *
-	 * @param  line the line from which to extract the URL
-	 * @param  article the article containing the line
-	 * @param  in the line number reader
-	 * @return the sub-header ID
-	 * @throws IOException if an IO exception occurred
-	 */
-	private static String extractSubHeader(String line, File article, LineNumberReader in)
-			throws IOException {
-
-		int begIndex = line.indexOf("](#") + 3;
-		int endIndex = line.indexOf(")", begIndex);
-
-		String header = "";
-
-		try {
-			header = line.substring(begIndex, endIndex);
-		} catch(Exception e) {
-			logInvalidUrl(article, in.getLineNumber(), line, true);
+		if (checkManifest != null) {
+			System.out.println("Reused the link check results of " +
+					reused.get() + " unchanged articles");
 		}
 
-		return header;
+		return results;
 	}
 
 	/**
-	 * Returns the article characterized by the primary header.
+	 * Returns the Markdown articles of each guide, in the order the link
+	 * checker indexes them. For DXP, each guide's DXP articles are added and
+	 * its DXP overrides applied.
 	 *
-	 * @param  articles the articles to search for the primary header
-	 * @param  primaryHeader the header to search the articles for
-	 * @return the article characterized by the primary header
-	 * @throws IOException if an IO exception occurred
+	 * @param  dirs the guides' partial paths (e.g.,
+	 *         <code>developer/tutorials</code>)
+	 * @param  dxpCheck whether to include the guides' DXP articles
+	 * @return each guide's Markdown articles
 	 */
-	private static File findArticleMatchingLink(List<File> articles, String primaryHeader)
-			throws IOException {
-
-		File matchingArticle = null;
-
-		for (File article: articles) {
-
-			LineNumberReader in = new LineNumberReader(new FileReader(article));
-			String line = null;
+	public static List<List<File>> findGuideArticles(
+			String[] dirs, boolean dxpCheck) {
 
-			while ((line = in.readLine()) != null) {
+		List<List<File>> guideArticles = new ArrayList<List<File>>();
 
-				if (line.startsWith(headerSyntax + primaryHeader)) {
-					matchingArticle = article;
-					break;
-				}
-			}
-			in.close();
-
-			if (matchingArticle != null) {
-				break;
-			}
+		for (String dir : dirs) {
+			guideArticles.add(findArticles(dir, dxpCheck));
 		}
 
-		return matchingArticle;	
+		return guideArticles;
 	}
 
 	/**
@@ -744,9 +416,10 @@ public class CheckLinksTask extends Task {
 	 *
 	 * @param  path the partial path for the articles (e.g.,
 	 *         <code>developer/tutorials</code>
+	 * @param  dxpCheck whether to include the DXP articles
 	 * @return the Markdown articles
 	 */
-	private static List<File> findArticles(String path) {
+	private static List<File> findArticles(String path, boolean dxpCheck) {
 
 		File dir = new File("../" + path + "/articles");
 
@@ -790,7 +463,7 @@ public class CheckLinksTask extends Task {
 			}
 		}
 
-		if (checkDxpLinks) {
+		if (dxpCheck) {
 			articles = addDxpOnlyArticles(articles, path);
 		}
 
@@ -835,96 +508,74 @@ public class CheckLinksTask extends Task {
 	}
 
 	/**
-	 * Returns the headers (primary and secondary) of the given articles. The
-	 * headers are returned as an array list: primary headers contained in index
-	 * <code>0</code> and secondary headers contained in index <code>1</code>.
+	 * Returns the article's results from the manifest, or <code>null</code> if
+	 * the article must be checked again. That's the case if the article
+	 * changed or if any of the outcomes its results depend on (e.g., whether
+	 * a linked header exists) changed since it was checked. If the changed
+	 * header IDs are known, only the article's links to those header IDs are
+	 * validated again.
 	 *
-	 * @param  articles the articles for which to find headers
-	 * @return the primary and secondary headers
+	 * @param  checkManifest the manifest of the last check's results
+	 * @param  docSet the document set containing the article
+	 * @param  articleLinkChecker the article link checker
+	 * @param  article the article
+	 * @param  changedTargets the keys of the header IDs whose articles changed
+	 *         since the last check, or <code>null</code> if they're unknown
+	 * @return the article's results, or <code>null</code>
 	 * @throws IOException if an IO exception occurred
 	 */
-	private static ArrayList<List<String>> findHeaders(List<File> articles) throws IOException {
-
-		List<String> primaryHeaders = new ArrayList<String>();
-		List<String> secondaryHeaders = new ArrayList<String>();
-
-		for (File article : articles) {
+	private static ArticleLinkChecker.Result getCachedResult(
+			CheckManifest checkManifest, DocSet docSet,
+			ArticleLinkChecker articleLinkChecker, File article,
+			Set<String> changedTargets)
+		throws IOException {
 
-			LineNumberReader in = new LineNumberReader(new FileReader(article));
-			String line = null;
-			String header;
+		CheckManifest.Entry entry = checkManifest.getUnchangedEntry(
+			docSet, article);
 
-			while ((line = in.readLine()) != null) {
-
-				if (line.startsWith(headerSyntax)) {
+		if (entry == null) {
+			return null;
+		}
 
-					int begIndex = headerSyntax.length();
-					int endIndex = line.length();
+		ArticleLinkChecker.Result result = new ArticleLinkChecker.Result(
+			article);
 
-					header = line.substring(begIndex, endIndex);
+		try {
+			for (String[] record : entry.getRecords()) {
+				String type = record[0];
 
-					primaryHeaders.add(header);
+				if (type.equals(API_LINK)) {
+					result.addApiLink(
+						record[1], Integer.parseInt(record[2]), record[3]);
 				}
-				else if (line.startsWith("## ") || line.startsWith("### ") ||
-						line.startsWith("#### ") || line.startsWith("##### ")) {
-
-					String headerKeyValue = generateVirtualSecondaryHeader(line, article.getCanonicalPath());
-					secondaryHeaders.add(headerKeyValue);
+				else if (type.equals(BROKEN_LINK)) {
+					result.addBrokenLink(
+						Integer.parseInt(record[1]), record[2],
+						Boolean.parseBoolean(record[3]), record[4]);
 				}
-				else if (line.contains("<a name=" + quotation)) {
+				else if (type.equals(DEPENDENCY)) {
+					ArticleLinkChecker.Dependency dependency =
+						new ArticleLinkChecker.Dependency(
+							Integer.parseInt(record[1]), record[2], record[3],
+							record[4], record[5], Boolean.parseBoolean(record[6]));
 
-					int begIndex = line.indexOf("<a name=");
-					int quotStart = line.indexOf(quotation, begIndex);
-					int quotClose = line.indexOf(quotation, quotStart + 1);
+					if (isAffected(dependency, changedTargets) &&
+						!articleLinkChecker.isCurrent(dependency)) {
 
-					String htmlHeaderAnchor = line.substring(quotStart + 1, quotClose);
+						return null;
+					}
 
-					secondaryHeaders.add(htmlHeaderAnchor + article.getCanonicalPath());
+					result.addDependency(dependency);
 				}
 			}
-			in.close();
-		}
-
-		ArrayList<List<String>> headers = new ArrayList<List<String>>();
-		headers.add(primaryHeaders);
-		headers.add(secondaryHeaders);
-
-		return headers;
-	}
-
-	/**
-	 * Returns the generated virtual secondary header ID for the line's
-	 * sub-header.
-	 *
-	 * @param  line the line containing the sub-header
-	 * @param  filename the article name
-	 * @return the generated virtual secondary header ID
-	 */
-	private static String generateVirtualSecondaryHeader(String line, String filename) {
-
-		String heading = extractHeading(line);
-
-		int idCount = 0;
-		String generatedSecondaryHeader = null;
-		while (true) {
-
-			generatedSecondaryHeader = assembleId(heading, idCount);
+		} catch (RuntimeException e) {
 
-				if (!secondaryKeyValues.contains(generatedSecondaryHeader + filename)) {
+			// A malformed record; check the article again
 
-					// Heading is unique for the document set. Map the ID to
-					// the filename.
-
-					//Easiest way to check/track unique key-value pairs
-					secondaryKeyValues.add(generatedSecondaryHeader + filename);
-
-					break;
-				}
-
-			idCount++;
+			return null;
 		}
 
-		 return generatedSecondaryHeader + filename;
+		return result;
 	}
 
 	/**
@@ -960,53 +611,30 @@ public class CheckLinksTask extends Task {
 	}
 
 	/**
-	 * Returns the folder represented by the link's directory header in the line
-	 * (e.g., <code>developer/frameworks</code>).
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
 	 *
-	 * @param  line the line containing the relative link
-	 * @param  lineIndex the header's index on the line. This is useful when
-	 *         there are multiple relative links on one line.
-	 * @return the folder represented by the link's directory header
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
 	 */
-	private static String getHeaderDir(String line, int lineIndex) {
-
-		String lineSubstring = line.substring(lineIndex, line.length());
-		String path = "";
-
-		// The first link in the substring will have its headers applied.
-		if (lineSubstring.contains(userGuideLinkFolder + findStr)) {
-			path = userGuideDir;
-		}
-
-		else if (lineSubstring.contains(deploymentGuideLinkFolder + findStr)) {
-			path = deploymentGuideDir;
-		}
-
-		else if (lineSubstring.contains(distributeGuideLinkFolder + findStr)) {
-			path = distributeGuideDir;
-		}
+	private static <T> T getResult(Future<T> future) throws IOException {
 
-		else if (lineSubstring.contains(appDevLinkFolder + findStr)) {
-			path = appDevDir;
-		}
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
 
-		else if (lineSubstring.contains(customizationDevLinkFolder + findStr)) {
-			path = customizationDevDir;
-		}
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
 
-		else if (lineSubstring.contains(frameworksDevLinkFolder + findStr)) {
-			path = frameworksDevDir;
-		}
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 
-		else if (lineSubstring.contains(tutorialsDevLinkFolder + findStr)) {
-			path = tutorialsDir;
+			throw new BuildException(e);
 		}
-
-		else if (lineSubstring.contains(referenceDevLinkFolder + findStr)) {
-			path = referenceDevDir;
-		}
-
-		return path;
 	}
 
 	/**
@@ -1014,9 +642,11 @@ public class CheckLinksTask extends Task {
 	 *
 	 * @param  articles the CE articles
 	 * @param  dxpArticles the DXP articles
+	 * @param  fileOverrides the list to add the applied DXP overrides to
 	 * @return the new list of articles containing the DXP article overrides
 	 */
-	private static List<File> includeDxpOverrides(List<File> articles, List<File> dxpArticles) {
+	private static List<File> includeDxpOverrides(List<File> articles, List<File> dxpArticles,
+			List<File> fileOverrides) {
 
 		if (dxpArticles != null) {
 
@@ -1072,220 +702,122 @@ public class CheckLinksTask extends Task {
 	}
 
 	/**
-	 * Returns <code>true</code> if the API URL is valid. This method is used to
-	 * check URLs hosted on docs.liferay.com.
-	 *
-	 * @param  article the article containing the API URL
-	 * @param  in the line number reader
-	 * @param  line the line containing the API URL
-	 * @return <code>true</code> if the API URL is valid; <code>false</code>
-	 *         otherwise
-	 * @throws IOException if an IO exception occurred
+	 * Returns <code>true</code> if the dependency's outcome may have changed
+	 * since the last check. Legacy URLs are always validated again; a header
+	 * link only if its header ID changed.
 	 */
-	private static boolean isApiUrlValid(File article, LineNumberReader in, String line)
-			throws IOException {
-
-		boolean validAPIURL = true;
+	private static boolean isAffected(
+			ArticleLinkChecker.Dependency dependency,
+			Set<String> changedTargets) {
 
-		int begIndex = line.indexOf("](") + 2;
-		int endIndex = line.indexOf(")", begIndex);
-
-		String urlString = line.substring(begIndex, endIndex);
-
-		urlString = urlString.replace("@" + platformToken + "@", platformReferenceSite);
-		urlString = urlString.replace("@" + appToken + "@", appReferenceSite);
-
-		URL url = null;
-
-		try {
-			url = new URL(urlString);
-		} catch (MalformedURLException e) {
-			// ignore this because docs.liferay.com creates many URLs that work
-			// but throw the MalformedURLException
+		if ((dependency.getUrl() != null) || (changedTargets == null)) {
+			return true;
 		}
 
-		try {
-			HttpURLConnection urlConnection = (HttpURLConnection)url.openConnection();
-			urlConnection.setRequestMethod("GET");
-			urlConnection.connect() ; 
-			int code = urlConnection.getResponseCode();
-
-			if (code == 404) {
-				validAPIURL = false;
-			}
-		} catch (NullPointerException e) {
-			logInvalidUrl(article, in.getLineNumber(), line, true);
-		}
-
-		return validAPIURL;
+		return changedTargets.contains(
+			LinkIndex.getTargetKey(
+				dependency.getGuideDir(), dependency.getPrimaryHeader()));
 	}
 
 	/**
-	 * Returns <code>true</code> if the LDN URL is valid. This method is used to
-	 * check legacy URLs hosted on LDN.
+	 * Returns the link checker's manifest. The manifest is kept separately for
+	 * CE and DXP checks, and it's only reused if the links are checked with
+	 * the same settings.
 	 *
-	 * @param  url the URL to check
-	 * @param  fileName the article's name
-	 * @param  lineNumber the line number
-	 * @return <code>true</code> if the LDN URL is valid; <code>false</code>
-	 *         otherwise
-	 * @throws IOException if an IO exception occurred
+	 * @return the link checker's manifest
 	 */
-	private static boolean isLdnUrlValid(String url, File article, int lineNumber)
-			throws IOException {
+	private CheckManifest loadCheckManifest() {
 
-		NodeList list = new NodeList();
-		boolean validLDNURL = false;
+		String name = "check-links";
 
-		try {
-			Parser htmlParser = new Parser(url);
-			list = htmlParser.extractAllNodesThatMatch(new NodeClassFilter(LinkTag.class));
-		} catch (ParserException e) {
-			logInvalidUrl(article, lineNumber, ldnArticle, false);
+		if (_dxpCheck) {
+			name = "check-links-dxp";
 		}
 
-		List<String> results = new LinkedList<String>();
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("apilinks=");
+		sb.append(_apiLinks);
+		sb.append(" legacylinks=");
+		sb.append(_legacyLinks);
+		sb.append(" appreferencesite=");
+		sb.append(_appReferenceSite);
+		sb.append(" apptoken=");
+		sb.append(_appToken);
+		sb.append(" platformreferencesite=");
+		sb.append(_platformReferenceSite);
+		sb.append(" platformtoken=");
+		sb.append(_platformToken);
+
+		return DocsUtil.loadCheckManifest(
+			getProject().getBaseDir(), name, sb.toString());
+	}
 
-		for (int i = 0; i < list.size(); i++) {
+	/**
+	 * Returns the manifest of the link checker's reverse link index. Like the
+	 * link checker's manifest, it's kept separately for CE and DXP checks.
+	 * The index's previous state is always the state of the last check, so
+	 * the header IDs that changed since then can be told apart.
+	 *
+	 * @return the manifest of the link checker's reverse link index
+	 */
+	private CheckManifest loadLinkIndexManifest() {
 
-			LinkTag link = (LinkTag) list.elementAt(i);
-			String linkString = link.getLink();
-			results.add(linkString);
-		}
+		String name = "link-index-check-links";
 
-		for (String x : results) {
-			if (x.contains("2Fsearch&#x25;2Fsearch&#x26;_3_redirect&#x3d;")) {
-				logInvalidUrl(article, lineNumber, ldnArticle, false);
-			}
-			else {
-				validLDNURL = true;
-			}
+		if (_dxpCheck) {
+			name = "link-index-check-links-dxp";
 		}
 
-		return validLDNURL;
+		return DocsUtil.loadCheckManifest(getProject().getBaseDir(), name, "");
 	}
 
 	/**
-	 * Returns <code>true</code> if the sub-URL is valid. A sub-URL is a link
-	 * to a section existing in the same article.
+	 * Returns the link validation cache, loaded from the cache file. The cache
+	 * file defaults to <code>build/link-validation-cache.txt</code> in the
+	 * document directory.
 	 *
-	 * @param  article the article containing the sub-URL
-	 * @param  secondaryHeader the header ID for the section that is linked
-	 * @return <code>true</code> if the sub-URL is valid; <code>false</code>
-	 *         otherwise
-	 * @throws IOException if an IO exception occurred
+	 * @param  docDir the document directory (e.g., <code>tutorials</code>)
+	 * @return the link validation cache
 	 */
-	private static boolean isSubUrlValid(File article, String secondaryHeader)
-			throws IOException {
+	private LinkValidationCache loadLinkValidationCache(String docDir) {
 
-		boolean validUrl = false;
-		LineNumberReader in = new LineNumberReader(new FileReader(article));
-		String line = null;
+		File cacheFile = null;
 
-		if (secondaryKeyValues.contains(secondaryHeader + article.getCanonicalPath())) {
-			validUrl = true;
+		if (_linkCacheFile != null) {
+			cacheFile = new File(_linkCacheFile);
+		}
+		else {
+			cacheFile = new File("../" + docDir + "/build/link-validation-cache.txt");
 		}
 
-		while ((line = in.readLine()) != null) {
+		LinkValidationCache cache = new LinkValidationCache(
+			cacheFile, TimeUnit.HOURS.toMillis(_linkCacheTtl));
 
-			if (line.contains("<a name=" + quotation + secondaryHeader + quotation + ">")) {
-				validUrl = true;
-			}
-			else if (line.contains("<div") && line.contains("id=" + quotation + secondaryHeader + quotation + ">")) {
-				validUrl = true;
-			}
+		try {
+			cache.load();
+		} catch (IOException e) {
+			System.out.println("Warning: Could not read link validation cache " +
+					cacheFile.getPath() + ": " + e.getLocalizedMessage());
 		}
 
-		in.close();
-
-		return validUrl;
+		return cache;
 	}
 
 	/**
-	 * Returns <code>true</code> if the URL is valid. This method is used to
-	 * check the current version of documentation by matching URLs with their
-	 * header IDs contained in the local repo.
+	 * Writes a message to the console for the broken link, followed by the
+	 * link's detail message, if it has one.
 	 *
-	 * @param  line the line containing the URL
-	 * @param  article the article containing the URL
-	 * @param  in the line number reader
-	 * @param  primaryHeader the primary header ID
-	 * @param  secondaryHeader the secondary header ID
-	 * @param  lineIndex the header's index on the line. This is useful when
-	 *         there are multiple relative links on one line.
-	 * @param  differingDefaultVersion whether the link version differs from
-	 *         <code>PORTAL_VERSION</code>
-	 * @return <code>true</code> if the URL is valid; <code>false</code>
-	 *         otherwise
-	 * @throws IOException if an IO exception occurred
+	 * @param brokenLink the broken link
 	 */
-	private static boolean isUrlValid(String line, File article, LineNumberReader in,
-			String primaryHeader, String secondaryHeader, int lineIndex,
-			boolean differingDefaultVersion) throws IOException {
-
-		boolean validURL = false;
-		ArrayList<List<String>> headers = new ArrayList<List<String>>();
-
-		headers = assignDirHeaders(line, lineIndex);
-
-		// Check 7.2 portal and 1.1 commerce links from local liferay-docs repo
-		if ((line.contains("/" + PORTAL_VERSION + "/") || line.contains("/" + COMMERCE_VERSION + "/")) &&
-				!differingDefaultVersion) {
-
-			boolean docFoldersMatch = doesDocFoldersMatch(line, lineIndex);
-
-			// If headers is empty, the assignDirHeaders method could not match the
-			// relative URL with the header list (e.g., developer/user). This only
-			// happens when the first folder is valid but its subfolder isn't.
-			if (headers.isEmpty()) {
+	private void logBrokenLink(ArticleLinkChecker.BrokenLink brokenLink) {
 
-				// Allow linking to parent folders of site
-				if (line.contains("/docs/" + PORTAL_VERSION + "/" + userGuideLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + deploymentGuideLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + distributeGuideLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + appDevLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + customizationDevLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + frameworksDevLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + tutorialsDevLinkFolder + ")") ||
-					line.contains("/docs/" + PORTAL_VERSION + "/" + referenceDevLinkFolder + ")")) {
+		logInvalidUrl(brokenLink.getArticle(), brokenLink.getLineNumber(),
+				brokenLink.getLine(), brokenLink.isCorrupt());
 
-					validURL = true;
-				}
-				// else, invalid link
-			}
-			else if (!docFoldersMatch) {
-				// invalid URL
-			}
-			else if (secondaryHeader == null) {
-				if (headers.get(0).contains(primaryHeader)) {
-					validURL = true;
-				}
-			}
-			else {
-
-				String linkDir = getHeaderDir(line, lineIndex);
-				List<File> articles = findArticles(linkDir);
-				File matchingArticle = findArticleMatchingLink(articles, primaryHeader);
-				if (headers.get(0).contains(primaryHeader) &&
-						headers.get(1).contains(secondaryHeader + matchingArticle.getCanonicalPath())) {
-					validURL = true;
-				}
-			}
+		if (brokenLink.getDetail() != null) {
+			System.out.println(brokenLink.getDetail() + "\n");
 		}
-
-		// Check legacy URLs by checking remote LDN site. These links must be
-		// published to LDN before this tool can verify them.
-		else if (checkLegacyLinks && (line.contains("/" + PORTAL_VERSION_LEGACY_1 + "/") ||
-				line.contains("/" + PORTAL_VERSION_LEGACY_2 + "/"))) {
-
-			String ldnUrl = extractLdnUrl(line, in.getLineNumber(), article);
-			validURL = isLdnUrlValid(ldnUrl, article, in.getLineNumber());
-		}
-		else {
-			validURL = true;
-		}
-
-		return validURL;
 	}
 
 	/**
@@ -1299,7 +831,7 @@ public class CheckLinksTask extends Task {
 	 * @param corruptUrlFormat whether the reported URL is caused by corrupt
 	 *        formatting
 	 */
-	private static void logInvalidUrl(File article, int lineNumber, String line,
+	private void logInvalidUrl(File article, int lineNumber, String line,
 			boolean corruptUrlFormat) {
 
 		String message = null;
@@ -1311,92 +843,191 @@ public class CheckLinksTask extends Task {
 			message = "INVALID URL";
 		}
 
-		resultsNumber = resultsNumber + 1;
+		_brokenLinkCount = _brokenLinkCount + 1;
 
-		System.out.println(resultsNumber + ". " + "**" + message + "**\n File: " +
+		System.out.println(_brokenLinkCount + ". " + "**" + message + "**\n File: " +
 				article.getPath() + ":" + lineNumber + "\n" +
 				" Line: " + line + "\n");
 
 	}
 
+	/**
+	 * Stores the article's results in the manifest, along with the outcomes
+	 * they depend on.
+	 *
+	 * @param  checkManifest the manifest of the check's results
+	 * @param  docSet the document set containing the article
+	 * @param  result the article's results
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static void putResult(
+			CheckManifest checkManifest, DocSet docSet,
+			ArticleLinkChecker.Result result)
+		throws IOException {
+
+		CheckManifest.Entry entry = checkManifest.putEntry(
+			docSet, result.getArticle());
+
+		for (ApiLinkValidator.ApiLink apiLink : result.getApiLinks()) {
+			entry.addRecord(
+				API_LINK, apiLink.getUrl(),
+				String.valueOf(apiLink.getLineNumber()), apiLink.getLine());
+		}
+
+		for (ArticleLinkChecker.BrokenLink brokenLink :
+				result.getBrokenLinks()) {
+
+			entry.addRecord(
+				BROKEN_LINK, String.valueOf(brokenLink.getLineNumber()),
+				brokenLink.getLine(), String.valueOf(brokenLink.isCorrupt()),
+				brokenLink.getDetail());
+		}
+
+		for (ArticleLinkChecker.Dependency dependency :
+				result.getDependencies()) {
+
+			entry.addRecord(
+				DEPENDENCY, String.valueOf(dependency.getLineNumber()),
+				dependency.getGuideDir(), dependency.getPrimaryHeader(),
+				dependency.getSecondaryHeader(), dependency.getUrl(),
+				String.valueOf(dependency.isValid()));
+		}
+	}
+
+	/**
+	 * Writes the link checker's manifest and then the manifest of its reverse
+	 * link index. The index is only kept if the link checker's manifest was
+	 * written; otherwise the next check couldn't tell which header IDs
+	 * changed since the results it reuses were stored.
+	 *
+	 * @param checkManifest the link checker's manifest (may be
+	 *        <code>null</code>)
+	 * @param linkIndexManifest the manifest of the reverse link index (may be
+	 *        <code>null</code>)
+	 */
+	private static void saveCheckManifests(
+			CheckManifest checkManifest, CheckManifest linkIndexManifest) {
+
+		if (checkManifest == null) {
+			return;
+		}
+
+		if (DocsUtil.saveCheckManifest(checkManifest)) {
+			DocsUtil.saveCheckManifest(linkIndexManifest);
+		}
+		else {
+			linkIndexManifest.getFile().delete();
+		}
+	}
+
+	/**
+	 * Prunes the link validation cache, if requested, and writes it to the
+	 * cache file.
+	 *
+	 * @param linkValidationCache the link validation cache
+	 */
+	private void saveLinkValidationCache(
+			LinkValidationCache linkValidationCache) {
+
+		if (_pruneLinkCache) {
+			System.out.println("Pruned " + linkValidationCache.prune() +
+					" entries from the link validation cache");
+		}
+
+		try {
+			linkValidationCache.save();
+		} catch (IOException e) {
+			System.out.println("Warning: Could not write link validation cache " +
+					linkValidationCache.getFile().getPath() + ": " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Updates the reverse link index with the guides' articles and returns the
+	 * header IDs that changed since the last check.
+	 *
+	 * @param  linkIndex the reverse link index
+	 * @param  docSet the document set
+	 * @param  guideArticles each guide's articles
+	 * @param  headerCatalog the header catalog of the guides' articles
+	 * @return the keys of the changed header IDs, or <code>null</code> if
+	 *         there's no previous index to compare with
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static Set<String> updateLinkIndex(
+			LinkIndex linkIndex, DocSet docSet, List<List<File>> guideArticles,
+			HeaderCatalog headerCatalog)
+		throws IOException {
+
+		linkIndex.update(
+			docSet, ArticleLinkChecker.GUIDE_DIRS, guideArticles, headerCatalog);
+
+		Set<String> changedTargets = linkIndex.getChangedTargets();
+
+		if (changedTargets != null) {
+			System.out.println("Indexed the links of " +
+					linkIndex.getUpdatedCount() + " changed articles; " +
+					changedTargets.size() + " changed header IDs affect " +
+					linkIndex.getInboundLinkCount(changedTargets) + " links");
+		}
+
+		return changedTargets;
+	}
+
+	/**
+	 * Requests each unique API URL collected from the articles and reports
+	 * every line linking to a broken URL.
+	 *
+	 * @param apiLinkValidator the validator holding the collected API URLs
+	 */
+	private void validateApiUrls(ApiLinkValidator apiLinkValidator) {
+
+		if (apiLinkValidator.getUrlCount() == 0) {
+			return;
+		}
+
+		System.out.println("Checking " + apiLinkValidator.getUrlCount() +
+				" unique API URLs ...\n");
+
+		for (ApiLinkValidator.ApiLink apiLink : apiLinkValidator.validate()) {
+			logInvalidUrl(apiLink.getArticle(), apiLink.getLineNumber(),
+					apiLink.getLine(), false);
+
+			if (apiLink.getStatus() == ApiLinkValidator.STATUS_UNREACHABLE) {
+				System.out.println("Unreachable URL: " + apiLink.getUrl() + "\n");
+			}
+		}
+
+		if (apiLinkValidator.getCache() != null) {
+			System.out.println("Requested " + apiLinkValidator.getRequestedUrlCount() +
+					" of " + apiLinkValidator.getUrlCount() +
+					" unique API URLs; the rest were found in the link validation cache.\n");
+		}
+	}
+
+	private static final String API_LINK = "api";
+
+	private static final String BROKEN_LINK = "broken";
+
+	private static final String DEPENDENCY = "dependency";
+
+	private int _apiHostConnections = 4;
 	private boolean _apiLinks;
+	private int _apiThreads = 16;
+	private int _apiTimeout = 10000;
 	private String _docdir;
+	private boolean _incremental;
 	private boolean _legacyLinks;
+	private boolean _linkCache = true;
+	private String _linkCacheFile;
+	private int _linkCacheTtl = 72;
+	private boolean _pruneLinkCache;
+	private int _threads = Runtime.getRuntime().availableProcessors();
 	private String _appReferenceSite;
 	private String _platformReferenceSite;
 	private String _appToken;
 	private String _platformToken;
 	private boolean _dxpCheck;
 
-	private static String appReferenceSite;
-	private static String appToken;
-	private static boolean checkApiLinks;
-	private static boolean checkDxpLinks;
-	private static boolean checkLegacyLinks;
-	private static List<File> fileOverrides = new ArrayList<File>();
-	private static String findStr = "/-/knowledge_base/";
-	private static String headerSyntax = "header-id: ";
-	private static List<String> secondaryKeyValues = new ArrayList<String>();
-	private static String ldnArticle;
-	private static String platformReferenceSite;
-	private static String platformToken;
-	private static char quotation = '"';
-	private static int resultsNumber = 0;
-	private static boolean validUrl;
-
-	// Versions
-
-	private static String COMMERCE_VERSION = "1-1";
-	private static String PORTAL_VERSION = "7-2";
-	private static String PORTAL_VERSION_LEGACY_1 = "7-1";
-	private static String PORTAL_VERSION_LEGACY_2 = "7-0";
-
-	// User Guide
-
-	private static String userGuideDir = "user";
-	private static String userGuideLinkFolder = "user";
-	private static List<File> userGuideArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> userGuideHeaders = new ArrayList<List<String>>();
-
-	// Deployment Guide
-
-	private static String deploymentGuideDir = "deployment";
-	private static String deploymentGuideLinkFolder = "deploy";
-	private static List<File> deploymentGuideArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> deploymentGuideHeaders = new ArrayList<List<String>>();
-
-	private static String distributeGuideDir = "distribute/publish";
-	private static String distributeGuideLinkFolder = "publish";
-	private static List<File> distributeGuideArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> distributeGuideHeaders = new ArrayList<List<String>>();
-
-	// Dev Guide
-
-	private static String appDevDir = "developer/appdev";
-	private static String appDevLinkFolder = "appdev";
-	private static List<File> appDevArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> appDevHeaders = new ArrayList<List<String>>();
-
-	private static String customizationDevDir = "developer/customization";
-	private static String customizationDevLinkFolder = "customization";
-	private static List<File> customizationDevArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> customizationDevHeaders = new ArrayList<List<String>>();
-
-	private static String frameworksDevDir = "developer/frameworks";
-	private static String frameworksDevLinkFolder = "frameworks";
-	private static List<File> frameworksDevArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> frameworksDevHeaders = new ArrayList<List<String>>();
-
-	private static String tutorialsDir = "developer/tutorials";
-	private static String tutorialsDevLinkFolder = "tutorials";
-	private static List<File> tutorialsArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> tutorialsHeaders = new ArrayList<List<String>>();
-
-	private static String referenceDevDir = "developer/reference";
-	private static String referenceDevLinkFolder = "reference";
-	private static List<File> referenceDevArticles = new ArrayList<File>();
-	private static ArrayList<List<String>> referenceDevHeaders = new ArrayList<List<String>>();
-
-	private static String[] articleDirs = {appDevDir, customizationDevDir, frameworksDevDir, userGuideDir,
-			deploymentGuideDir, distributeGuideDir, tutorialsDir, referenceDevDir};
+	private int _brokenLinkCount;
 }
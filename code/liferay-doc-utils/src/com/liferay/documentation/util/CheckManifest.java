@@ -0,0 +1,508 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers what a check task found in each article (or folder) during its
+ * last run, so an incremental run only rechecks what changed since then.
+ *
+ * <p>
+ * Each entry is keyed by the file's absolute path and stamped with the file's
+ * length, last modified time, and content hash. A file whose length and last
+ * modified time still match is unchanged without being read. Otherwise, the
+ * content hash decides, so a file that was only touched (e.g., by switching
+ * branches) keeps its entry. The entry's records are whatever the check needs
+ * to reproduce its findings for the file; their meaning is up to the check.
+ * </p>
+ *
+ * <p>
+ * The manifest is written with the check's settings. If the settings differ
+ * on the next run (e.g., link checking is configured for another site), the
+ * manifest is discarded and everything is checked again. Only the entries
+ * used during a run are written, so files that were removed drop out.
+ * </p>
+ */
+public class CheckManifest {
+
+	/**
+	 * Creates a manifest for the check task.
+	 *
+	 * @param file the manifest file
+	 * @param settings the check's settings that affect its findings
+	 */
+	public CheckManifest(File file, String settings) {
+		_file = file;
+		_settings = settings;
+	}
+
+	/**
+	 * Returns the manifest file for the check, in the
+	 * <code>build/check-manifest</code> folder of the document set the Ant
+	 * project was run from.
+	 *
+	 * @param  baseDir the Ant project's base directory
+	 * @param  name the check's name (e.g., <code>check-links-dxp</code>)
+	 * @return the manifest file
+	 */
+	public static File getManifestFile(File baseDir, String name) {
+		return new File(baseDir, "build/check-manifest/" + name + ".txt");
+	}
+
+	/**
+	 * Returns the SHA-1 hash of the text's UTF-8 bytes, as a hex string.
+	 *
+	 * @param  text the text
+	 * @return the text's hash
+	 */
+	public static String hash(String text) {
+		MessageDigest messageDigest = null;
+
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+
+			// Every Java platform supports SHA-1
+
+			throw new IllegalStateException(e);
+		}
+
+		byte[] bytes = messageDigest.digest(
+			text.getBytes(StandardCharsets.UTF_8));
+
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the file's entry, or <code>null</code> if the file has no
+	 * entry. The entry is kept when the manifest is saved.
+	 *
+	 * @param  file the file
+	 * @return the file's entry, or <code>null</code>
+	 */
+	public Entry getEntry(File file) {
+		String key = getKey(file);
+
+		Entry entry = _entries.get(key);
+
+		if (entry != null) {
+			_usedKeys.add(key);
+		}
+
+		return entry;
+	}
+
+	public File getFile() {
+		return _file;
+	}
+
+	/**
+	 * Returns the article's entry if the article hasn't changed since the
+	 * entry was stored, or <code>null</code> if the article must be checked.
+	 * The article is only read if its length or last modified time changed.
+	 *
+	 * @param  docSet the document set containing the article
+	 * @param  article the article
+	 * @return the article's entry, or <code>null</code>
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Entry getUnchangedEntry(DocSet docSet, File article)
+		throws IOException {
+
+		String key = getKey(article);
+
+		Entry entry = _entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		long length = article.length();
+		long lastModified = article.lastModified();
+
+		if (!docSet.isModified(article) && (entry.getLength() == length) &&
+			(entry.getLastModified() == lastModified)) {
+
+			_usedKeys.add(key);
+
+			return entry;
+		}
+
+		DocSet.Article docSetArticle = docSet.getArticle(article);
+
+		if (!entry.getHash().equals(hash(docSetArticle.getContent()))) {
+			return null;
+		}
+
+		// Restamp the entry so the next run can skip reading the article
+
+		if (docSetArticle.isModified()) {
+			length = -1;
+			lastModified = -1;
+		}
+
+		Entry restampedEntry = new Entry(
+			length, lastModified, entry.getHash(), entry.getRecords());
+
+		_entries.put(key, restampedEntry);
+		_usedKeys.add(key);
+
+		return restampedEntry;
+	}
+
+	/**
+	 * Returns the entries that haven't been used during this run, keyed by
+	 * their files' keys. After a check has visited all of its files, these
+	 * are the entries of files that no longer exist or are no longer checked.
+	 *
+	 * @return the unused entries
+	 */
+	public Map<String, Entry> getUnusedEntries() {
+		Map<String, Entry> unusedEntries = new TreeMap<String, Entry>();
+
+		for (Map.Entry<String, Entry> mapEntry : _entries.entrySet()) {
+			if (!_usedKeys.contains(mapEntry.getKey())) {
+				unusedEntries.put(mapEntry.getKey(), mapEntry.getValue());
+			}
+		}
+
+		return unusedEntries;
+	}
+
+	/**
+	 * Loads the manifest file, if it exists and was written with the same
+	 * settings. Malformed lines are skipped.
+	 *
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void load() throws IOException {
+		if (!_file.exists()) {
+			return;
+		}
+
+		BufferedReader in = new BufferedReader(
+			new InputStreamReader(
+				new FileInputStream(_file), StandardCharsets.UTF_8));
+
+		try {
+			String line = in.readLine();
+
+			if ((line == null) || !line.equals(getHeader())) {
+				return;
+			}
+
+			Entry entry = null;
+
+			while ((line = in.readLine()) != null) {
+				String[] fields = unescape(line.split("\t", -1));
+
+				if (fields[0].equals(ENTRY) && (fields.length == 5)) {
+					try {
+						entry = new Entry(
+							Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+							fields[4], new ArrayList<String[]>());
+
+						_entries.put(fields[1], entry);
+					}
+					catch (NumberFormatException e) {
+						entry = null;
+					}
+				}
+				else if (fields[0].equals(RECORD) && (entry != null)) {
+					String[] record = new String[fields.length - 1];
+
+					System.arraycopy(fields, 1, record, 0, record.length);
+
+					entry.addRecord(record);
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Stores a new, empty entry for the article, stamped with the content the
+	 * check is about to check. The check adds its findings to the entry.
+	 *
+	 * @param  docSet the document set containing the article
+	 * @param  article the article
+	 * @return the article's new entry
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Entry putEntry(DocSet docSet, File article) throws IOException {
+		long length = article.length();
+		long lastModified = article.lastModified();
+
+		DocSet.Article docSetArticle = docSet.getArticle(article);
+
+		// An article changed by an earlier check hasn't been written yet, so
+		// only its hash describes the content that's checked
+
+		if (docSetArticle.isModified()) {
+			length = -1;
+			lastModified = -1;
+		}
+
+		return putEntry(
+			article, length, lastModified, hash(docSetArticle.getContent()));
+	}
+
+	/**
+	 * Stores a new, empty entry for the file.
+	 *
+	 * @param  file the file
+	 * @param  length the file's length
+	 * @param  lastModified the file's last modified time
+	 * @param  hash the hash of the file's content
+	 * @return the file's new entry
+	 */
+	public Entry putEntry(
+		File file, long length, long lastModified, String hash) {
+
+		String key = getKey(file);
+
+		Entry entry = new Entry(
+			length, lastModified, hash, new ArrayList<String[]>());
+
+		_entries.put(key, entry);
+		_usedKeys.add(key);
+
+		return entry;
+	}
+
+	/**
+	 * Writes the entries used during this run to the manifest file. The file
+	 * is replaced in one step so an interrupted run can't leave it half
+	 * written.
+	 *
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void save() throws IOException {
+		File dir = _file.getAbsoluteFile().getParentFile();
+
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+
+		List<String> keys = new ArrayList<String>(_usedKeys);
+
+		Collections.sort(keys);
+
+		File tmpFile = new File(dir, _file.getName() + ".tmp");
+
+		BufferedWriter out = new BufferedWriter(
+			new OutputStreamWriter(
+				new FileOutputStream(tmpFile), StandardCharsets.UTF_8));
+
+		try {
+			out.append(getHeader());
+			out.append('\n');
+
+			for (String key : keys) {
+				Entry entry = _entries.get(key);
+
+				writeLine(
+					out, ENTRY, key, String.valueOf(entry.getLength()),
+					String.valueOf(entry.getLastModified()), entry.getHash());
+
+				for (String[] record : entry.getRecords()) {
+					String[] fields = new String[record.length + 1];
+
+					fields[0] = RECORD;
+
+					System.arraycopy(record, 0, fields, 1, record.length);
+
+					writeLine(out, fields);
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		Files.move(
+			tmpFile.toPath(), _file.toPath(),
+			StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public int size() {
+		return _entries.size();
+	}
+
+	private static String escape(String field) {
+		if (field == null) {
+			return "\\N";
+		}
+
+		StringBuilder sb = new StringBuilder(field.length());
+
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+
+			if (c == '\\') {
+				sb.append("\\\\");
+			}
+			else if (c == '\t') {
+				sb.append("\\t");
+			}
+			else if (c == '\n') {
+				sb.append("\\n");
+			}
+			else if (c == '\r') {
+				sb.append("\\r");
+			}
+			else {
+				sb.append(c);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private static String getKey(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	private static String unescape(String field) {
+		if (field.equals("\\N")) {
+			return null;
+		}
+
+		if (field.indexOf('\\') < 0) {
+			return field;
+		}
+
+		StringBuilder sb = new StringBuilder(field.length());
+
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+
+			if ((c == '\\') && ((i + 1) < field.length())) {
+				c = field.charAt(++i);
+
+				if (c == 't') {
+					c = '\t';
+				}
+				else if (c == 'n') {
+					c = '\n';
+				}
+				else if (c == 'r') {
+					c = '\r';
+				}
+			}
+
+			sb.append(c);
+		}
+
+		return sb.toString();
+	}
+
+	private static String[] unescape(String[] fields) {
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = unescape(fields[i]);
+		}
+
+		return fields;
+	}
+
+	private static void writeLine(BufferedWriter out, String... fields)
+		throws IOException {
+
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				out.append('\t');
+			}
+
+			out.append(escape(fields[i]));
+		}
+
+		out.append('\n');
+	}
+
+	private String getHeader() {
+		return "#\t" + FORMAT_VERSION + "\t" + escape(_settings);
+	}
+
+	private static final String ENTRY = "E";
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String RECORD = "R";
+
+	private final Map<String, Entry> _entries =
+		new ConcurrentHashMap<String, Entry>();
+	private final File _file;
+	private final String _settings;
+	private final Set<String> _usedKeys = Collections.newSetFromMap(
+		new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * A file's stamp and the check's findings for it. An entry is only
+	 * modified by the thread checking its file.
+	 */
+	public static class Entry {
+
+		public Entry(
+			long length, long lastModified, String hash,
+			List<String[]> records) {
+
+			_length = length;
+			_lastModified = lastModified;
+			_hash = hash;
+			_records = records;
+		}
+
+		public void addRecord(String... fields) {
+			_records.add(fields);
+		}
+
+		public String getHash() {
+			return _hash;
+		}
+
+		public long getLastModified() {
+			return _lastModified;
+		}
+
+		public long getLength() {
+			return _length;
+		}
+
+		public List<String[]> getRecords() {
+			return _records;
+		}
+
+		private final String _hash;
+		private final long _lastModified;
+		private final long _length;
+		private final List<String[]> _records;
+	}
+}
@@ -1,12 +1,7 @@
 package com.liferay.documentation.util;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.LineNumberReader;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.Set;
 
 public class CleanImages {
 
@@ -18,82 +13,30 @@ public class CleanImages {
 
 		String[] dirTypes = {"", "-dxp"};
 
-		for (String dirType : dirTypes) {
-
-			File articleDir = new File("../" + docDir + "/articles" + dirType);
-
-			ArrayList<String> imageNames = new ArrayList<String>();
-
-			File[] articleDirFiles = articleDir.listFiles();
-			List<File> articles = new ArrayList<File>();
-
-			Queue<File> q = new LinkedList<File>();
-			for (File f : articleDirFiles) {
-				q.add(f);
-			}
-
-			while (!q.isEmpty()) {
-				File f = q.remove(); 
-
-				if (f.isDirectory()) {
-					File[] files = f.listFiles();
-
-					for (File file : files) {
-						q.add(file);
-					}
-				}
-				else {
-					if (f.getName().endsWith(".markdown")) {
-						articles.add(f);
-					}
-				}
-			}
-
-			for (File mkdFile : articles) {
-
-				if (!mkdFile.getName().endsWith(".markdown")) {
-					continue;
-				}
-
-				//Useful for debugging:
-				//System.out.println(" " + mkdFile.getName());
-
-				LineNumberReader in = new LineNumberReader(new FileReader(
-						mkdFile));
-				String line = null;
-				String imageString = "../../images";
-				int imageClosingChar;
+		// Index the image mentions of the articles in both article folders
+		// once. An image is kept if any article mentions it, since DXP
+		// articles also display the CE images.
 
-				while ((line = in.readLine()) != null) {
-					if (line.contains(imageString)) {
-						
-						// Check each line for images; if more than one image on
-						// line, check each image
-						while (line.contains(imageString)) {
+		DocSet docSet = new DocSet(docDir);
 
-							int imageIndex = line.indexOf(imageString);
-							
-							if (line.contains("<img src=")) {
-								imageClosingChar = line.indexOf("\"", imageIndex);
-							}
-							else {
-								imageClosingChar = line.indexOf(")", imageIndex);
-							}
+		ImageIndex imageIndex = docSet.getImageIndex();
 
-							String lineSubstring = line.substring(0, imageClosingChar);
+		for (String dirType : dirTypes) {
+			imageIndex.addArticles(docSet.getArticleFiles(dirType));
+		}
 
-							imageNames.add(extractImageName(lineSubstring, dirType));
+		for (String dirType : dirTypes) {
 
-							line = line.substring(lineSubstring.length());
-						}
-					}
-				}
-				in.close();
-			}
+			Set<String> imageNames = imageIndex.getImageNames(
+				"images" + dirType);
 
 			File imagesDir = new File("../" + docDir + "/images" + dirType);
 			File[] imageFiles = imagesDir.listFiles();
 
+			if (imageFiles == null) {
+				continue;
+			}
+
 			for (File imageFile : imageFiles) {
 				
 				if (imageFile.getName().endsWith(".markdown") || 
@@ -109,26 +52,4 @@ public class CleanImages {
 			}
 		}
 	}
-
-	private static String extractImageName(String line, String dirType) {
-
-		int imageBegIndex;
-
-		if (dirType.equals("")) {
-
-			// "../../images/" length
-			imageBegIndex = 13;
-		}
-		else {
-
-			// "../../images-dxp/" length
-			imageBegIndex = 17;
-		}
-
-		String imageName = line.substring(
-				line.lastIndexOf("../../images") + imageBegIndex, line.length());
-		
-		return imageName;
-	}
 }
-
@@ -1,123 +1,96 @@
 package com.liferay.documentation.util;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.LineNumberReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
+/**
+ * Concatenates a document set's articles into <code>book.markdown</code>, in
+ * the sorted order of their paths. Each article's headers are demoted one
+ * level (except in <code>00</code> articles), its sidebar markers are
+ * replaced, its figures are numbered by chapter, and its header IDs are
+ * stripped, all in one pass over its lines.
+ *
+ * <p>
+ * The articles are prepared on a number of threads and written in order
+ * through one buffered UTF-8 writer, so the book is never held in memory as
+ * a whole. Only a few articles per thread are prepared ahead of the writer.
+ * </p>
+ */
 public class ConcatMarkdownTask extends Task {
-	
+
 	public void execute() throws BuildException {
-		
+
 		File docDir = new File("../" + _docdir + "/articles");
-		
-		String book = ""; 
-		int chapter = 0;
-		int count=1;
-		
+
+		int threads = Math.max(1, _threads);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		File fullBook = new File("book.markdown");
+
+		Writer writer = null;
+
+		boolean complete = false;
+
 		try {
-			
+
 			List<File>files = collectFiles(docDir);
-			
-			for (File file : files) {
-				
-				if (file.isDirectory()) {
-					
-					// save the chapter number
-					chapter = Integer.parseInt(file.getName().substring(0,2));
-					System.out.println("Chapter " + chapter);
-					
-				} else {
-					LineNumberReader in =
-							new LineNumberReader(new FileReader(file));
-					
-					String line;
-					
-							;
-					while ((line = in.readLine()) != null) {
-
-						if (line.startsWith("#")) {
-							
-							if (!file.getName().startsWith("00")) {
-								
-								line = "#" + line;
-							}
-								
-						}
-						
-						if (line.contains("+$")) {
-							
-							line = "+sidebar";
-						}
-						
-						if (line.contains("$$")) {
-							
-							line = "-sidebar";
-						}
-						
-						if (line.startsWith("![Figure")) {
-							
-							line = numberImage(line, chapter, count);
-							count = count + 1;
-						}
-						
-						book = book + line + "\n";
-						
-					}
-					
-					in.close();
-					count = 1;
-					
-					//book = book + FileUtils.readFileToString(file);
-					book = book + "\n";
-				}
-				
-			}
-			
-			File fullBook = new File("book.markdown");
-			
-			FileUtils.writeStringToFile(fullBook, book);
-			
-			stripHeaderIds(fullBook.getAbsolutePath());
-			
-		
+
+			writer = new BufferedWriter(
+				new OutputStreamWriter(
+					new FileOutputStream(fullBook), UTF_8),
+				BUFFER_SIZE);
+
+			writeArticles(executorService, threads, writer, files);
+
+			writer.close();
+
+			complete = true;
 		} catch (IOException e) {
-		
+
 			System.out.println("Error: " + e.getMessage());
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException ioe) {
+				}
+
+				// Don't leave a partial book behind
+
+				if (!complete) {
+					fullBook.delete();
+				}
+			}
+
+			executorService.shutdownNow();
 		}
-		
-		
-	}
-	
-	private String numberImage (String line, int chapter, int imageNum) {
-		
-		//find the colon
-		//int colon = line.indexOf(":");
-		//find the e
-		int e = line.indexOf("e");
-		//find the period
-		int period = line.indexOf(".");
-		
-		String prefix = line.substring(0, e+1);
-		System.out.println(prefix);
-		String suffix = line.substring(period, line.length());
-		System.out.println(suffix);
-		line = prefix + " " + chapter + suffix;
-	
-		return line;
 	}
-	
+
 	public List<File> collectFiles(File dir) throws FileNotFoundException, IOException {
 		validateDirectory(dir);
 		List<File> result = getFileListingNoSort(dir);
@@ -134,7 +107,176 @@ public class ConcatMarkdownTask extends Task {
 		return results;
 
 	}
-	
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	/**
+	 * Returns the figure line with its number replaced by the chapter number.
+	 */
+	private static String numberImage(String line, int chapter) {
+
+		//find the e
+		int e = line.indexOf("e");
+		//find the period
+		int period = line.indexOf(".");
+
+		String prefix = line.substring(0, e+1);
+		String suffix = line.substring(period, line.length());
+		line = prefix + " " + chapter + suffix;
+
+		return line;
+	}
+
+	/**
+	 * Returns the article's lines as they appear in the book, followed by the
+	 * blank line that separates the article from the next one.
+	 *
+	 * @param  file the article
+	 * @param  chapter the number of the article's chapter
+	 * @return the article's part of the book
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static String prepareArticle(File file, int chapter)
+		throws IOException {
+
+		boolean demoteHeaders = !file.getName().startsWith("00");
+
+		StringBuilder sb = new StringBuilder((int)file.length() + 64);
+
+		BufferedReader in = new BufferedReader(
+			new InputStreamReader(new FileInputStream(file), UTF_8));
+
+		try {
+			String line;
+
+			while ((line = in.readLine()) != null) {
+
+				if (line.startsWith("#") && demoteHeaders) {
+					line = "#" + line;
+				}
+
+				if (line.contains("+$")) {
+					line = "+sidebar";
+				}
+
+				if (line.contains("$$")) {
+					line = "-sidebar";
+				}
+
+				if (line.startsWith("![Figure")) {
+					line = numberImage(line, chapter);
+				}
+
+				// Header IDs never span lines, so they're stripped line by
+				// line
+
+				if (line.contains("](id=")) {
+					line = _headerIdPattern.matcher(line).replaceAll("");
+				}
+
+				sb.append(line);
+				sb.append("\n");
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		sb.append("\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new BuildException(e);
+		}
+	}
+
+	/**
+	 * Prepares the articles on the executor's threads and writes them in
+	 * order. A folder starts a new chapter, numbered by the first two
+	 * characters of its name.
+	 *
+	 * @param  executorService the executor preparing the articles
+	 * @param  threads the number of threads the executor runs
+	 * @param  writer the book's writer
+	 * @param  files the articles and their folders, in order
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static void writeArticles(
+			ExecutorService executorService, int threads, Writer writer,
+			List<File> files)
+		throws IOException {
+
+		Queue<Future<String>> futures = new LinkedList<Future<String>>();
+
+		int chapter = 0;
+		int next = 0;
+
+		while ((next < files.size()) || !futures.isEmpty()) {
+			while ((next < files.size()) &&
+				   (futures.size() < (threads * PENDING_ARTICLES_PER_THREAD))) {
+
+				final File file = files.get(next);
+
+				next++;
+
+				if (file.isDirectory()) {
+
+					// save the chapter number
+
+					chapter = Integer.parseInt(file.getName().substring(0,2));
+					System.out.println("Chapter " + chapter);
+
+					continue;
+				}
+
+				final int articleChapter = chapter;
+
+				futures.add(executorService.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws IOException {
+						return prepareArticle(file, articleChapter);
+					}
+
+				}));
+			}
+
+			if (!futures.isEmpty()) {
+				writer.write(getResult(futures.remove()));
+			}
+		}
+	}
+
 	private List<File> getFileListingNoSort(
 			File aStartingDir) throws FileNotFoundException {
 		List<File> result = new ArrayList<File>();
@@ -152,21 +294,6 @@ public class ConcatMarkdownTask extends Task {
 		return result;
 	}
 
-	private void stripHeaderIds(String markdownFilePath) throws IOException {
-		File markdownFile = new File(markdownFilePath);
-		String source = FileUtils.readFileToString(markdownFile);
-
-		String find = "\\[\\]\\(id=[^\\s]+?\\)";
-		System.out.println("find: " + find);
-		String replace = "";
-
-		Pattern pattern = Pattern.compile(find);
-		Matcher matcher = pattern.matcher(source);
-		String output = matcher.replaceAll(replace);
-
-		FileUtils.writeStringToFile(markdownFile, output);
-	}
-
 	private void validateDirectory(
 			File aDirectory) throws FileNotFoundException {
 		if (aDirectory == null) {
@@ -182,11 +309,17 @@ public class ConcatMarkdownTask extends Task {
 			throw new IllegalArgumentException("Directory cannot be read: " + aDirectory);
 		}
 	}
-	
-	public void setDocdir(String docdir) {
-		_docdir = docdir;
-	}
-	
-	private String _docdir; 
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final int PENDING_ARTICLES_PER_THREAD = 4;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Pattern _headerIdPattern = Pattern.compile(
+		"\\[\\]\\(id=[^\\s]+?\\)");
+
+	private String _docdir;
+	private int _threads = Runtime.getRuntime().availableProcessors();
 
 }
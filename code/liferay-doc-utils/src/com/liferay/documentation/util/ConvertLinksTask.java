@@ -1,15 +1,12 @@
 package com.liferay.documentation.util;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
@@ -30,13 +27,11 @@ public class ConvertLinksTask  extends Task {
 			String filename = fileList.get(i);
 			File inFile = new File(filename);
 			File outFile = new File(filename);
-			String outFileTmp = outFile + ".tmp";
 			
 			try {
 				LineNumberReader in =
 						new LineNumberReader(new FileReader(inFile));
-				BufferedWriter out =
-						new BufferedWriter(new FileWriter(outFileTmp));
+				StringBuilder out = new StringBuilder();
 			
 				String line;
 				String findStr = "/-/knowledge_base/";
@@ -253,16 +248,7 @@ public class ConvertLinksTask  extends Task {
 
 				in.close();
 
-				out.flush();
-				out.close();
-
-				// Replace original file with modified temp file
-
-				FileUtils.copyFile(
-						new File(outFileTmp),
-						new File(filename));
-
-				FileUtils.forceDelete(new File(outFileTmp));
+				DocsUtil.writeIfChanged(outFile, out.toString());
 
 			} catch (IOException e) {
 				throw new BuildException(e.getLocalizedMessage());
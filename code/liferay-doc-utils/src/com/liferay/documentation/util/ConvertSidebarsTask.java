@@ -1,9 +1,7 @@
 package com.liferay.documentation.util;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
@@ -11,7 +9,6 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -33,7 +30,6 @@ public class ConvertSidebarsTask extends Task {
 			String filename = fileList.get(i);
 			File inFile = new File(filename);
 			File outFile = new File(filename);
-			String outFileTmp = outFile + ".tmp";
 
 			try {
 				LineNumberReader in =
@@ -69,8 +65,7 @@ public class ConvertSidebarsTask extends Task {
 					LineNumberReader in2 =
 							new LineNumberReader(new FileReader(inFile));
 
-					BufferedWriter out =
-							new BufferedWriter(new FileWriter(outFileTmp));
+					StringBuilder out = new StringBuilder();
 
 					while ((line = in2.readLine()) != null) {
 
@@ -147,16 +142,7 @@ public class ConvertSidebarsTask extends Task {
 
 					in2.close();
 
-					out.flush();
-					out.close();
-
-					// Replace original file with modified temp file
-
-					FileUtils.copyFile(
-							new File(outFileTmp),
-							new File(filename));
-
-					FileUtils.forceDelete(new File(outFileTmp));
+					DocsUtil.writeIfChanged(outFile, out.toString());
 				}
 			} catch (IOException e) {
 				throw new BuildException(e.getLocalizedMessage());
@@ -0,0 +1,214 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Removes the duplicate images of a document set that's prepared for
+ * distribution. Images with the same content are kept once, under the name
+ * that sorts first, and the articles' references to the other copies are
+ * rewritten to that name. The dist targets merge the <code>images-dxp</code>
+ * folder into the <code>images</code> folder first, so DXP screenshots that
+ * copy CE screenshots under a different name are removed too.
+ *
+ * <p>
+ * The images are grouped by the SHA-1 hash of their content, and compared
+ * byte by byte before a copy is removed. The task reports each removed copy
+ * and the bytes saved.
+ * </p>
+ */
+public class DedupeImagesTask extends Task {
+
+	@Override
+	public void execute() throws BuildException {
+
+		DocSet docSet = new DocSet(_docdir);
+
+		File imagesDir = new File(docSet.getDocSetDir(), "images");
+
+		File[] imageFiles = imagesDir.listFiles();
+
+		if (imageFiles == null) {
+			System.out.println("No images to deduplicate in " +
+					imagesDir.getPath());
+
+			return;
+		}
+
+		Arrays.sort(imageFiles);
+
+		Map<String, String> duplicateNames;
+
+		long savedBytes = 0;
+
+		try {
+			duplicateNames = findDuplicates(imageFiles);
+
+			if (duplicateNames.isEmpty()) {
+				System.out.println("No duplicate images in " +
+						imagesDir.getPath());
+
+				return;
+			}
+
+			replaceImageReferences(
+				docSet, docSet.getArticleFiles(""), duplicateNames);
+
+			docSet.write();
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
+		for (Map.Entry<String, String> entry : duplicateNames.entrySet()) {
+			File imageFile = new File(imagesDir, entry.getKey());
+
+			long length = imageFile.length();
+
+			if (!imageFile.delete()) {
+				throw new BuildException("Unable to delete " +
+						imageFile.getPath());
+			}
+
+			savedBytes += length;
+
+			System.out.println("Replaced duplicate image " + entry.getKey() +
+					" with " + entry.getValue() + " (" + length + " bytes)");
+		}
+
+		System.out.println("Removed " + duplicateNames.size() +
+				" duplicate images of " + imageFiles.length + ", saving " +
+				savedBytes + " bytes");
+	}
+
+	/**
+	 * Rewrites the articles' references to the duplicate images, in the
+	 * document set, to the images they duplicate.
+	 *
+	 * @param  docSet the document set containing the articles
+	 * @param  articles the articles
+	 * @param  duplicateNames the duplicate image names, mapped to the names of
+	 *         the images they duplicate
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void replaceImageReferences(
+			DocSet docSet, List<File> articles,
+			Map<String, String> duplicateNames)
+		throws IOException {
+
+		ImageIndex imageIndex = docSet.getImageIndex();
+
+		imageIndex.addArticles(articles);
+
+		Set<File> duplicateArticles = new LinkedHashSet<File>();
+
+		for (String duplicateName : duplicateNames.keySet()) {
+			duplicateArticles.addAll(
+				imageIndex.getArticles("images", duplicateName));
+		}
+
+		for (File article : duplicateArticles) {
+			DocSet.Article docSetArticle = docSet.getArticle(article);
+
+			docSetArticle.setContent(
+				ImageIndex.replaceImageNames(
+					docSetArticle.getContent(), "images", duplicateNames));
+		}
+	}
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	/**
+	 * Returns the names of the images whose content matches an image that
+	 * sorts before them, mapped to the name of that image.
+	 *
+	 * @param  imageFiles the images, sorted by name
+	 * @return the duplicate image names, mapped to the names of the images
+	 *         they duplicate
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static Map<String, String> findDuplicates(File[] imageFiles)
+		throws IOException {
+
+		Map<String, List<File>> hashImageFiles =
+			new LinkedHashMap<String, List<File>>();
+
+		for (File imageFile : imageFiles) {
+			String name = imageFile.getName();
+
+			if (imageFile.isDirectory() || name.endsWith(".markdown") ||
+				name.endsWith(".txt")) {
+
+				continue;
+			}
+
+			String hash = hash(FileUtils.readFileToByteArray(imageFile));
+
+			List<File> files = hashImageFiles.get(hash);
+
+			if (files == null) {
+				files = new ArrayList<File>();
+
+				hashImageFiles.put(hash, files);
+			}
+
+			files.add(imageFile);
+		}
+
+		Map<String, String> duplicateNames =
+			new LinkedHashMap<String, String>();
+
+		for (List<File> files : hashImageFiles.values()) {
+			File imageFile = files.get(0);
+
+			for (int i = 1; i < files.size(); i++) {
+				File duplicateFile = files.get(i);
+
+				if (FileUtils.contentEquals(imageFile, duplicateFile)) {
+					duplicateNames.put(
+						duplicateFile.getName(), imageFile.getName());
+				}
+			}
+		}
+
+		return duplicateNames;
+	}
+
+	private static String hash(byte[] bytes) {
+		MessageDigest messageDigest = null;
+
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new BuildException(e);
+		}
+
+		byte[] digest = messageDigest.digest(bytes);
+
+		StringBuilder sb = new StringBuilder(digest.length * 2);
+
+		for (byte b : digest) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return sb.toString();
+	}
+
+	private String _docdir;
+
+}
@@ -8,17 +8,15 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
+import org.eclipse.jgit.diff.DiffEntry;
 
 public class DistDiffTask extends Task {
 
@@ -32,47 +30,28 @@ public class DistDiffTask extends Task {
 		}
 
 		String absDir = dir.getAbsolutePath();
-		List<String> diffs = null;
+		List<GitDiffManifest.Entry> diffs = null;
 		File modifiedList = new File(absDir + "/git-modified-list.txt");
 
 		try {
-			diffs = FileUtils.readLines(modifiedList, "UTF-8");
+			diffs = GitDiffManifest.read(modifiedList);
 		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		String txtPath;
-		
-		if (System.getProperty("user.dir").contains(_purposedir + "\\learning-paths") ||
-				System.getProperty("user.dir").contains(_purposedir + "/learning-paths")) {
-			txtPath = _purposedir + "/learning-paths/" + _docdir + "/";
-		}
-
-		else {
-			txtPath = _purposedir + "/" + _docdir + "/";
+			throw new BuildException(
+				"Unable to read " + modifiedList.getPath() +
+					"; run compare-with-older-branch first",
+				e);
 		}
 
 		Set<String> files = new HashSet<String>();
-		Iterator<String> it = diffs.iterator();
 
-		// Remove lines in the .txt file that are not related to diff entries,
-		// or are diff entry deletions
-		while (it.hasNext()) {
-			String s = it.next();
-
-			if (!s.contains("DiffEntry") || s.contains("DiffEntry[DELETE")) {
-				it.remove();
+		// The manifest's paths are already relative to the document
+		// directory. Deleted files have nothing to zip up.
+		for (GitDiffManifest.Entry diff : diffs) {
+			if (diff.getChangeType() == DiffEntry.ChangeType.DELETE) {
+				continue;
 			}
-		}
-
-		// Grab readable directory paths and add them to list of strings
-		for (String diff : diffs) {
-			int x = diff.indexOf(txtPath);
-			int y = x + txtPath.length();
-			int z = diff.indexOf("]", x);
-			String fileDir = diff.substring(y, z);
 
-			files.add(fileDir);
+			files.add(diff.getNewPath());
 		}
 
 		Set<String> images = new HashSet<String>();
@@ -99,11 +78,21 @@ public class DistDiffTask extends Task {
 		// Find all MD files in directory
 		findMarkdownFiles(dir, chFiles);
 
+		// Index the images of the directory's MD files once, instead of
+		// rescanning the MD files for each modified/new image
+		ImageIndex imageIndex = new ImageIndex();
+
+		try {
+			imageIndex.addArticles(chFiles);
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
 		for (String img : images) {
 
-			// Scan directory's MD files for modified/new image
+			// Look up the directory's MD files containing modified/new image
 			Set<File> filesWithImage = new HashSet<File>();
-			scanMarkdownForImage(img, chFiles, filesWithImage);
+			scanMarkdownForImage(img, imageIndex, filesWithImage);
 
 			// Add the set of MD files that contain the image to a master set
 			for (File file : filesWithImage) {
@@ -151,7 +140,7 @@ public class DistDiffTask extends Task {
 
 		// Scan each MD file for remainder of images to include in ZIP file. When
 		// re-importing a new MD file, all of its images must also be re-imported.
-		scanMarkdownForAllImages(markdownFiles, markdownImages);
+		scanMarkdownForAllImages(markdownFiles, imageIndex, markdownImages);
 
 		for (File markdownImage : markdownImages) {
 			markdownImagesString.add(markdownImage.toString());
@@ -198,10 +187,6 @@ public class DistDiffTask extends Task {
 		_docdir = docdir;
 	}
 
-	public void setPurposedir(String purposedir) {
-		_purposedir = purposedir;
-	}
-
 	private static void addToZipFile(String modFile, ZipOutputStream zipOutputStream)
 			throws FileNotFoundException, IOException {
 
@@ -274,61 +259,32 @@ public class DistDiffTask extends Task {
 		}
 	}
 
-	private static void scanMarkdownForAllImages(Set<File> modifiedMarkdownFiles, Set<File> markdownImages) {
+	private static void scanMarkdownForAllImages(Set<File> modifiedMarkdownFiles, ImageIndex imageIndex, Set<File> markdownImages) {
 		for (File file : modifiedMarkdownFiles) {
 
-			Scanner scanner = null;
 			try {
-				scanner = new Scanner(file);
-
-				while (scanner.hasNextLine()) {
-					String lineFromFile = scanner.nextLine();
-
-					if (lineFromFile.contains(".png")) { 
-						int w = lineFromFile.indexOf(".png");
-						int x = w + 4;
-						int y = lineFromFile.indexOf("../../images");
-
-						if (y < 0) {
-							continue;
-						}
-
-						int z = y + 6;
-						String img = lineFromFile.substring(z, x);
-
-						File markdownImage = new File(img);
-
-						markdownImages.add(markdownImage);
+				for (String img : imageIndex.getMentionedImages(file)) {
+					if (img.endsWith(".png")) {
+						markdownImages.add(new File(img));
 					}
 				}
 			}
-			catch (FileNotFoundException e) {
+			catch (IOException e) {
 				e.printStackTrace();
 			}
 		}
 	}
 
-	private static void scanMarkdownForImage(String img, Set<File> chFiles, Set<File> filesWithImage) {
-		for (File file : chFiles) {
-
-			Scanner scanner = null;
-			try {
-				scanner = new Scanner(file);
-
-				while (scanner.hasNextLine()) {
-					String lineFromFile = scanner.nextLine();
+	private static void scanMarkdownForImage(String img, ImageIndex imageIndex, Set<File> filesWithImage) {
+		File image = new File(img);
 
-					if (lineFromFile.contains(img)) { 
-						filesWithImage.add(file);
-					}
-				}
-			}
-			catch (FileNotFoundException e) {
-				e.printStackTrace();
-			}
+		if (image.getParentFile() == null) {
+			return;
 		}
+
+		filesWithImage.addAll(
+			imageIndex.getArticles(image.getParentFile().getName(), image.getName()));
 	}
 
 	private String _docdir;
-	private String _purposedir;
 }
\ No newline at end of file
@@ -0,0 +1,478 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * An in-memory model of a document set's Markdown articles. Each article is
+ * read once, the first time it's requested, and its lines are shared by every
+ * check that runs over it. Checks that rewrite an article update the model;
+ * the modified articles are written back in one step by {@link #write()}.
+ *
+ * <p>
+ * The article folders (<code>articles</code>, <code>articles-dxp</code>) are
+ * walked once each. The file lists the check tasks expect, in the orders they
+ * expect them, are derived from that walk.
+ * </p>
+ */
+public class DocSet {
+
+	/**
+	 * Creates a model of the document set. The document set's folder is
+	 * resolved like the check tasks resolve it (e.g., <code>../user</code>).
+	 *
+	 * @param docDir the document directory (e.g., <code>user</code>)
+	 */
+	public DocSet(String docDir) {
+		_docSetDir = new File("../" + docDir);
+	}
+
+	/**
+	 * Adds an article whose content doesn't come from its file (e.g., an
+	 * article read from a Git commit). The article replaces any article of
+	 * the same file that was read before.
+	 *
+	 * @param  file the article's file, which needn't exist
+	 * @param  content the article's content
+	 * @return the article
+	 */
+	public Article addArticle(File file, String content) {
+		Article article = new Article(file, content);
+
+		_articles.put(getKey(file), article);
+
+		return article;
+	}
+
+	/**
+	 * Returns <code>true</code> if the file is part of the document set.
+	 *
+	 * @param  file the file
+	 * @return <code>true</code> if the file is part of the document set;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean contains(File file) {
+		return getKey(file).startsWith(getKey(_docSetDir) + File.separator);
+	}
+
+	/**
+	 * Returns the article, reading it if it hasn't been read yet. This method
+	 * is safe to call from multiple threads.
+	 *
+	 * @param  file the article's file
+	 * @return the article
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Article getArticle(File file) throws IOException {
+		String key = getKey(file);
+
+		Article article = _articles.get(key);
+
+		if (article == null) {
+			article = new Article(file, FileUtils.readFileToString(file));
+
+			Article previousArticle = _articles.putIfAbsent(key, article);
+
+			if (previousArticle != null) {
+				article = previousArticle;
+			}
+		}
+
+		return article;
+	}
+
+	public Article getArticle(String fileName) throws IOException {
+		return getArticle(new File(fileName));
+	}
+
+	/**
+	 * Returns the Markdown articles in the articles folder and its
+	 * subfolders, in the breadth-first order the link and image checks use.
+	 *
+	 * @param  dirType the articles folder's suffix (e.g., <code>-dxp</code>)
+	 * @return the Markdown articles, or an empty list if the articles folder
+	 *         doesn't exist
+	 */
+	public List<File> getArticleFiles(String dirType) {
+		return getArticleFolder(dirType).getArticleFiles();
+	}
+
+	/**
+	 * Returns the articles folder, e.g., <code>../user/articles-dxp</code>.
+	 *
+	 * @param  dirType the articles folder's suffix (e.g., <code>-dxp</code>)
+	 * @return the articles folder
+	 */
+	public File getArticlesDir(String dirType) {
+		return new File(_docSetDir, "articles" + dirType);
+	}
+
+	public File getDocSetDir() {
+		return _docSetDir;
+	}
+
+	/**
+	 * Returns the index of the images the document set's articles reference.
+	 * The index reads the articles through the document set and is shared by
+	 * every check that looks up image references.
+	 *
+	 * @return the image index
+	 */
+	public synchronized ImageIndex getImageIndex() {
+		if (_imageIndex == null) {
+			_imageIndex = new ImageIndex(this);
+		}
+
+		return _imageIndex;
+	}
+
+	/**
+	 * Returns the names of the Markdown articles in each folder below the
+	 * articles folder, keyed by the folder's path relative to the articles
+	 * folder. The articles folder itself isn't included.
+	 *
+	 * @param  dirType the articles folder's suffix (e.g., <code>-dxp</code>)
+	 * @return the names of the Markdown articles in each folder
+	 */
+	public Map<String, List<String>> getFolderArticleNames(String dirType) {
+		return getArticleFolder(dirType).getFolderArticleNames();
+	}
+
+	/**
+	 * Returns the paths of the Markdown articles in the articles folder, its
+	 * subfolders, and the document set folder, in the order
+	 * {@link DocsUtil#getMarkdownFileList(String, String)} returns them.
+	 *
+	 * @param  dirType the articles folder's suffix (e.g., <code>-dxp</code>)
+	 * @return the paths of the Markdown articles, or an empty list if the
+	 *         articles folder doesn't exist
+	 */
+	public List<String> getMarkdownFileList(String dirType) {
+		return getArticleFolder(dirType).getMarkdownFileList();
+	}
+
+	/**
+	 * Returns <code>true</code> if the article has been read and changed but
+	 * not written yet. The article isn't read by this method.
+	 *
+	 * @param  file the article's file
+	 * @return <code>true</code> if the article has unwritten changes;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isModified(File file) {
+		Article article = _articles.get(getKey(file));
+
+		if (article == null) {
+			return false;
+		}
+
+		return article.isModified();
+	}
+
+	/**
+	 * Writes the articles whose content changed since they were read.
+	 *
+	 * @return the number of articles written
+	 * @throws IOException if an IO exception occurred
+	 */
+	public int write() throws IOException {
+		int count = 0;
+
+		for (Article article : _articles.values()) {
+			if (article.write()) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the lines of the text, split like
+	 * {@link java.io.BufferedReader#readLine()} splits them.
+	 *
+	 * @param  text the text
+	 * @return the lines of the text
+	 */
+	public static List<String> splitLines(String text) {
+		List<String> lines = new ArrayList<String>();
+
+		BufferedReader in = new BufferedReader(new StringReader(text));
+
+		try {
+			String line = null;
+
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		catch (IOException e) {
+
+			// A StringReader doesn't throw IO exceptions
+
+		}
+
+		return lines;
+	}
+
+	private static String getKey(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	private synchronized ArticleFolder getArticleFolder(String dirType) {
+		ArticleFolder articleFolder = _articleFolders.get(dirType);
+
+		if (articleFolder == null) {
+			articleFolder = new ArticleFolder(getArticlesDir(dirType));
+
+			_articleFolders.put(dirType, articleFolder);
+		}
+
+		return articleFolder;
+	}
+
+	private static final Pattern _markdownFileNamePattern = Pattern.compile(
+		"([^\\\\\\[\\]\\|:;%<>]+).markdown");
+
+	private final Map<String, ArticleFolder> _articleFolders =
+		new LinkedHashMap<String, ArticleFolder>();
+	private final ConcurrentMap<String, Article> _articles =
+		new ConcurrentHashMap<String, Article>();
+	private final File _docSetDir;
+	private ImageIndex _imageIndex;
+
+	/**
+	 * A Markdown article of the document set.
+	 */
+	public static class Article {
+
+		public Article(File file, String content) {
+			_file = file;
+			_originalContent = content;
+			_content = content;
+		}
+
+		public synchronized String getContent() {
+			return _content;
+		}
+
+		public File getFile() {
+			return _file;
+		}
+
+		/**
+		 * Returns the article's <code>header-id:</code> line, trimmed, or
+		 * <code>null</code> if the article doesn't have one.
+		 */
+		public synchronized String getHeaderIdLine() {
+			if (_headerIdLine == null) {
+				_headerIdLine = "";
+
+				for (String line : getLines()) {
+					if (line.startsWith(HEADER_ID_PREFIX)) {
+						_headerIdLine = line.trim();
+
+						break;
+					}
+				}
+			}
+
+			if (_headerIdLine.isEmpty()) {
+				return null;
+			}
+
+			return _headerIdLine;
+		}
+
+		/**
+		 * Returns the article's lines. The list must not be modified; use
+		 * {@link #setLines(List)} to change the article.
+		 */
+		public synchronized List<String> getLines() {
+			if (_lines == null) {
+				_lines = Collections.unmodifiableList(splitLines(_content));
+			}
+
+			return _lines;
+		}
+
+		public synchronized boolean isModified() {
+			return !_content.equals(_originalContent);
+		}
+
+		public synchronized void setContent(String content) {
+			if (content.equals(_content)) {
+				return;
+			}
+
+			_content = content;
+
+			_headerIdLine = null;
+			_lines = null;
+		}
+
+		/**
+		 * Replaces the article's content with the lines, each terminated by a
+		 * line feed, which is how the check tasks have always written
+		 * articles.
+		 */
+		public synchronized void setLines(List<String> lines) {
+			StringBuilder sb = new StringBuilder();
+
+			for (String line : lines) {
+				sb.append(line);
+				sb.append("\n");
+			}
+
+			setContent(sb.toString());
+		}
+
+		private synchronized boolean write() throws IOException {
+			if (!isModified()) {
+				return false;
+			}
+
+			boolean written = DocsUtil.writeIfChanged(_file, _content);
+
+			_originalContent = _content;
+
+			return written;
+		}
+
+		private static final String HEADER_ID_PREFIX = "header-id: ";
+
+		private String _content;
+		private final File _file;
+		private String _headerIdLine;
+		private List<String> _lines;
+		private String _originalContent;
+	}
+
+	/**
+	 * The listing of an articles folder, made with one walk of the folder.
+	 */
+	private class ArticleFolder {
+
+		public ArticleFolder(File articlesDir) {
+			_articlesDir = articlesDir;
+
+			if (articlesDir.isDirectory()) {
+				walk();
+			}
+		}
+
+		public List<File> getArticleFiles() {
+			return _articleFiles;
+		}
+
+		public Map<String, List<String>> getFolderArticleNames() {
+			return _folderArticleNames;
+		}
+
+		public List<String> getMarkdownFileList() {
+			return _markdownFileList;
+		}
+
+		private List<String> getMarkdownNames(File[] files) {
+			List<String> names = new ArrayList<String>();
+
+			for (File file : files) {
+				if (!file.isDirectory() &&
+					_markdownFileNamePattern.matcher(file.getName()).matches()) {
+
+					names.add(file.getName());
+				}
+			}
+
+			return names;
+		}
+
+		private String getRelativePath(File dir) {
+			String articlesDirPath = _articlesDir.getPath();
+
+			return dir.getPath().substring(articlesDirPath.length() + 1);
+		}
+
+		private void walk() {
+
+			// Walk the entries breadth first, like the link and image checks
+			// do, and keep each folder's listing for the folder based lists
+
+			Map<File, File[]> listings = new LinkedHashMap<File, File[]>();
+			List<File> folders = new ArrayList<File>();
+
+			File[] rootFiles = _articlesDir.listFiles();
+
+			listings.put(_articlesDir, rootFiles);
+
+			Queue<File> q = new LinkedList<File>();
+			for (File f : rootFiles) {
+				q.add(f);
+			}
+
+			while (!q.isEmpty()) {
+				File f = q.remove();
+
+				if (f.isDirectory()) {
+					File[] files = f.listFiles();
+
+					listings.put(f, files);
+					folders.add(f);
+
+					for (File file : files) {
+						q.add(file);
+					}
+				}
+				else if (f.getName().endsWith(".markdown")) {
+					_articleFiles.add(f);
+				}
+			}
+
+			// DocsUtil lists the subfolders breadth first, then the articles
+			// folder, then the document set folder. The walk above visits the
+			// folders in the same order.
+
+			for (File folder : folders) {
+				List<String> names = getMarkdownNames(listings.get(folder));
+
+				for (String name : names) {
+					_markdownFileList.add(new File(folder, name).getPath());
+				}
+
+				_folderArticleNames.put(getRelativePath(folder), names);
+			}
+
+			for (String name : getMarkdownNames(rootFiles)) {
+				_markdownFileList.add(new File(_articlesDir, name).getPath());
+			}
+
+			File[] docSetDirFiles = _docSetDir.listFiles();
+
+			if (docSetDirFiles != null) {
+				for (String name : getMarkdownNames(docSetDirFiles)) {
+					_markdownFileList.add(new File(_docSetDir, name).getPath());
+				}
+			}
+		}
+
+		private final List<File> _articleFiles = new ArrayList<File>();
+		private final File _articlesDir;
+		private final Map<String, List<String>> _folderArticleNames =
+			new LinkedHashMap<String, List<String>>();
+		private final List<String> _markdownFileList = new ArrayList<String>();
+	}
+}
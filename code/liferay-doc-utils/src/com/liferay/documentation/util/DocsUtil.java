@@ -2,7 +2,14 @@ package com.liferay.documentation.util;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -72,4 +79,144 @@ public class DocsUtil {
 		
 		return fileList;
 	}
+
+	/**
+	 * Returns the check's manifest, loaded from the manifest file in the
+	 * document set's <code>build/check-manifest</code> folder. A manifest that
+	 * can't be read is reported and replaced.
+	 *
+	 * @param  baseDir the Ant project's base directory
+	 * @param  name the check's name (e.g., <code>check-headers</code>)
+	 * @param  settings the check's settings that affect its findings
+	 * @return the check's manifest
+	 */
+	public static CheckManifest loadCheckManifest(
+			File baseDir, String name, String settings) {
+
+		CheckManifest checkManifest = new CheckManifest(
+			CheckManifest.getManifestFile(baseDir, name), settings);
+
+		try {
+			checkManifest.load();
+		} catch (IOException e) {
+			System.out.println("Warning: Could not read check manifest " +
+					checkManifest.getFile().getPath() + ": " + e.getLocalizedMessage());
+		}
+
+		return checkManifest;
+	}
+
+	/**
+	 * Writes the check's manifest. A manifest that can't be written is only
+	 * reported, since the next run then checks everything again.
+	 *
+	 * @param  checkManifest the check's manifest (may be <code>null</code>)
+	 * @return <code>true</code> if the manifest was written;
+	 *         <code>false</code> otherwise
+	 */
+	public static boolean saveCheckManifest(CheckManifest checkManifest) {
+
+		if (checkManifest == null) {
+			return false;
+		}
+
+		try {
+			checkManifest.save();
+
+			return true;
+		} catch (IOException e) {
+			System.out.println("Warning: Could not write check manifest " +
+					checkManifest.getFile().getPath() + ": " + e.getLocalizedMessage());
+
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the document set's modified articles, reporting how many were
+	 * updated.
+	 *
+	 * @param docSet the document set
+	 */
+	public static void writeDocSet(DocSet docSet) {
+
+		try {
+			int count = docSet.write();
+
+			if (count > 0) {
+				System.out.println("Updated " + count + " articles");
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Writes the content to the file, in the platform's default encoding,
+	 * unless the file already has that content. A file that's unchanged keeps
+	 * its last modified time, so incremental steps that compare times skip
+	 * it.
+	 *
+	 * <p>
+	 * The content is written to a temporary file in the file's folder, which
+	 * then replaces the file in one step. An interrupted run can't leave the
+	 * file half written.
+	 * </p>
+	 *
+	 * @param  file the file
+	 * @param  content the file's new content
+	 * @return <code>true</code> if the file was written; <code>false</code> if
+	 *         it already had the content
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static boolean writeIfChanged(File file, String content)
+		throws IOException {
+
+		byte[] bytes = content.getBytes(Charset.defaultCharset());
+
+		Path path = file.getAbsoluteFile().toPath();
+
+		if (Files.isRegularFile(path) && (Files.size(path) == bytes.length) &&
+			Arrays.equals(Files.readAllBytes(path), bytes)) {
+
+			return false;
+		}
+
+		Path dir = path.getParent();
+
+		Files.createDirectories(dir);
+
+		Path tmpPath = dir.resolve(path.getFileName() + ".tmp");
+
+		try {
+			Files.write(tmpPath, bytes);
+
+			if (Files.exists(path)) {
+
+				// Keep the file's permissions (e.g., an executable script's)
+
+				try {
+					Files.setPosixFilePermissions(
+						tmpPath, Files.getPosixFilePermissions(path));
+				}
+				catch (UnsupportedOperationException uoe) {
+				}
+			}
+
+			try {
+				Files.move(
+					tmpPath, path, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(
+					tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(tmpPath);
+		}
+
+		return true;
+	}
 }
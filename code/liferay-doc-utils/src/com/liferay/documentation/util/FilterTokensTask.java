@@ -0,0 +1,287 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.filters.ReplaceTokens;
+import org.apache.tools.ant.types.FileSet;
+
+/**
+ * Copies the files of nested <code>fileset</code> elements to a folder,
+ * replacing their <code>@key@</code> tokens with the values of the nested
+ * <code>token</code> elements. It replaces a <code>copy</code> with a
+ * <code>ReplaceTokens</code> filter: each file is streamed through a
+ * {@link TokenReplacer}, which replaces all the tokens in one pass, and the
+ * files are filtered on a number of threads.
+ *
+ * <p>
+ * Text between two <code>@</code> characters that looks like a token but
+ * isn't one of the nested tokens (e.g., a misspelled token, or a token that's
+ * missing from <code>release-site.properties</code>) is left as is, like the
+ * filter leaves it, and is reported with the files it's in. Set the
+ * <code>failonunknowntoken</code> attribute to fail the build on unknown
+ * tokens.
+ * </p>
+ */
+public class FilterTokensTask extends Task {
+
+	public void addConfiguredToken(ReplaceTokens.Token token) {
+		_tokens.add(token);
+	}
+
+	public void addFileset(FileSet fileSet) {
+		_fileSets.add(fileSet);
+	}
+
+	@Override
+	public void execute() throws BuildException {
+
+		if (_toDir == null) {
+			throw new BuildException("Specify the todir to copy the files to");
+		}
+
+		List<File> sourceFiles = new ArrayList<File>();
+		List<File> targetFiles = new ArrayList<File>();
+
+		try {
+			for (FileSet fileSet : _fileSets) {
+				DirectoryScanner directoryScanner =
+					fileSet.getDirectoryScanner(getProject());
+
+				File baseDir = directoryScanner.getBasedir();
+
+				for (String includedDir :
+						directoryScanner.getIncludedDirectories()) {
+
+					Files.createDirectories(
+						new File(_toDir, includedDir).toPath());
+				}
+
+				for (String includedFile :
+						directoryScanner.getIncludedFiles()) {
+
+					sourceFiles.add(new File(baseDir, includedFile));
+					targetFiles.add(new File(_toDir, includedFile));
+				}
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
+		long start = System.currentTimeMillis();
+
+		int threads = Math.max(1, _threads);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		TokenReplacer tokenReplacer = new TokenReplacer(_tokens);
+
+		int replaced = 0;
+		Set<String> unknownKeys = new TreeSet<String>();
+
+		try {
+			Queue<Future<FilterResult>> futures =
+				new LinkedList<Future<FilterResult>>();
+
+			int next = 0;
+			int filtered = 0;
+
+			while (filtered < sourceFiles.size()) {
+				while ((next < sourceFiles.size()) &&
+					   (futures.size() < (threads * PENDING_FILES_PER_THREAD))) {
+
+					futures.add(
+						executorService.submit(
+							new FilterCallable(
+								tokenReplacer, sourceFiles.get(next),
+								targetFiles.get(next))));
+
+					next++;
+				}
+
+				FilterResult filterResult = getResult(futures.remove());
+
+				replaced += filterResult._replaced;
+
+				for (String unknownKey : filterResult._unknownKeys) {
+					System.out.println("Unknown token @" + unknownKey +
+							"@ in " + sourceFiles.get(filtered).getPath());
+				}
+
+				unknownKeys.addAll(filterResult._unknownKeys);
+
+				filtered++;
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		System.out.println("Replaced " + replaced + " tokens in " +
+				sourceFiles.size() + " files on " + threads + " threads in " +
+					(System.currentTimeMillis() - start) + " ms");
+
+		if (!unknownKeys.isEmpty()) {
+			String message = "Found " + unknownKeys.size() +
+				" unknown tokens: " + unknownKeys;
+
+			if (_failOnUnknownToken) {
+				throw new BuildException("FAILURE - " + message);
+			}
+
+			System.out.println("WARNING - " + message);
+		}
+	}
+
+	public void setFailonunknowntoken(boolean failOnUnknownToken) {
+		_failOnUnknownToken = failOnUnknownToken;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	public void setTodir(File toDir) {
+		_toDir = toDir;
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new BuildException(e);
+		}
+	}
+
+	private static final int PENDING_FILES_PER_THREAD = 4;
+
+	// Read and write the files like the copy task does, in the platform's
+	// encoding
+
+	private static final Charset _charset = Charset.defaultCharset();
+
+	private boolean _failOnUnknownToken;
+	private final List<FileSet> _fileSets = new ArrayList<FileSet>();
+	private int _threads = Runtime.getRuntime().availableProcessors();
+	private File _toDir;
+	private final List<ReplaceTokens.Token> _tokens =
+		new ArrayList<ReplaceTokens.Token>();
+
+	/**
+	 * Copies a file to its target, replacing its tokens.
+	 */
+	private static class FilterCallable implements Callable<FilterResult> {
+
+		public FilterCallable(
+			TokenReplacer tokenReplacer, File sourceFile, File targetFile) {
+
+			_tokenReplacer = tokenReplacer;
+			_sourceFile = sourceFile;
+			_targetFile = targetFile;
+		}
+
+		@Override
+		public FilterResult call() throws IOException {
+			Path targetPath = _targetFile.toPath();
+
+			// Delete the target rather than writing over it, which would
+			// write through a link to another file (e.g., a staged file)
+
+			Files.deleteIfExists(targetPath);
+
+			Files.createDirectories(targetPath.getParent());
+
+			Set<String> unknownKeys = new TreeSet<String>();
+
+			// Decode the files leniently, like the copy task does
+
+			Reader reader = new InputStreamReader(
+				new FileInputStream(_sourceFile), _charset);
+
+			try {
+				Writer writer = new BufferedWriter(
+					new OutputStreamWriter(
+						new FileOutputStream(_targetFile), _charset));
+
+				try {
+					int replaced = _tokenReplacer.replace(
+						reader, writer, unknownKeys);
+
+					return new FilterResult(replaced, unknownKeys);
+				}
+				finally {
+					writer.close();
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+
+		private final File _sourceFile;
+		private final File _targetFile;
+		private final TokenReplacer _tokenReplacer;
+
+	}
+
+	/**
+	 * The number of tokens replaced in a file and the keys of its unknown
+	 * tokens.
+	 */
+	private static class FilterResult {
+
+		public FilterResult(int replaced, Set<String> unknownKeys) {
+			_replaced = replaced;
+			_unknownKeys = unknownKeys;
+		}
+
+		private final int _replaced;
+		private final Set<String> _unknownKeys;
+
+	}
+
+}
@@ -1,10 +1,13 @@
 package com.liferay.documentation.util;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 
+import org.eclipse.jgit.api.DiffCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
@@ -17,13 +20,16 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
 
 public class GitCompare {
 
 	public static void main(String[] args) throws GitAPIException, IOException  {
 
 		String docdir = args[0];
-		String purposedir = args[1];
+		// The document folder is the working directory, so the purpose folder
+		// (args[1]) isn't needed to find it
+
 		String olderBranch = args[2];
 		
 		Repository repo = openGitRepository();
@@ -31,50 +37,88 @@ public class GitCompare {
 		AbstractTreeIterator oldTreeParser = gitTreeParser(repo, "refs/heads/" + olderBranch);
 		AbstractTreeIterator importTreeParser = gitTreeParser(repo, "refs/heads/" + importBranch);
 
-		List<DiffEntry> diff = new Git(repo).diff().setOldTree(oldTreeParser).setNewTree(importTreeParser).call();
+		// Only compare the document folder's subtree, so the rest of the
+		// repository's trees are never walked
+
+		String docPath = getDocPath(repo);
+
+		DiffCommand diffCommand = new Git(repo).diff().setOldTree(
+			oldTreeParser).setNewTree(importTreeParser);
+
+		if (!docPath.isEmpty()) {
+			diffCommand.setPathFilter(PathFilter.create(docPath));
+		}
+
+		List<DiffEntry> diff = diffCommand.call();
 
 		System.out.println("Creating ../git-modified-list.txt file");
-		PrintWriter writer = new PrintWriter("git-modified-list.txt", "UTF-8");
-		addTimeStamp("Comparing your " + importBranch + " branch to your older branch "
-				+ olderBranch + " .\nGenerated on", writer);
 		System.out.println("Comparing your " + importBranch + " branch to your older branch "+ olderBranch);
 
-		boolean newDiff = false;
-		String baseFilePath;
-		
-		if (System.getProperty("user.dir").contains(purposedir + "\\learning-paths") ||
-				System.getProperty("user.dir").contains(purposedir + "/learning-paths")) {
-			baseFilePath = purposedir + "/learning-paths/" + docdir;
-		}
-		
-		else {
-			baseFilePath = purposedir + "/" + docdir + "/";
-		}
+		List<String> comments = new ArrayList<String>();
+
+		comments.add(
+			String.format(
+				"Comparing your %s branch to your older branch %s .",
+				importBranch, olderBranch));
+		comments.add(
+			String.format("Generated on %tc", Calendar.getInstance()));
+		comments.add("Paths are relative to " + docPath + "/");
+
+		List<GitDiffManifest.Entry> entries =
+			new ArrayList<GitDiffManifest.Entry>();
 
 		for (DiffEntry entry : diff) {
-			String stringEntry = entry.toString();
+			GitDiffManifest.Entry manifestEntry = new GitDiffManifest.Entry(
+				entry.getChangeType(),
+				getDocRelativePath(entry.getOldPath(), docPath),
+				getDocRelativePath(entry.getNewPath(), docPath),
+				entry.getOldId().name(), entry.getNewId().name());
+
+			entries.add(manifestEntry);
 
-			if (stringEntry.contains(baseFilePath)) {
-				writer.println(stringEntry);
-				System.out.println(stringEntry);
-				newDiff = true;
-			}
+			System.out.println(manifestEntry);
 		}
-		
-		if (!newDiff) {
-			System.out.println("There are no additions/modifications in ../" + baseFilePath);
-			writer.println("There are no new additions/modifications to report");
+
+		if (entries.isEmpty()) {
+			System.out.println("There are no additions/modifications in " + docdir);
+			comments.add("There are no new additions/modifications to report");
 		}
 
-		writer.close();
+		GitDiffManifest.write(
+			new File("git-modified-list.txt"), comments, entries);
+
 		repo.close();
 	}
 
-	private static void addTimeStamp(String message, PrintWriter writer) {
+	/**
+	 * Returns the path of the document folder (the working directory)
+	 * relative to the repository's work tree, with forward slashes (e.g.,
+	 * <code>en/developer/tutorials</code>).
+	 */
+	private static String getDocPath(Repository repo) throws IOException {
+		Path workTree = repo.getWorkTree().getCanonicalFile().toPath();
+		Path docDir = new File(
+			System.getProperty("user.dir")).getCanonicalFile().toPath();
+
+		if (!docDir.startsWith(workTree)) {
+			throw new IOException(
+				docDir + " is not in the repository's work tree " + workTree);
+		}
 
-	    Calendar calendar = Calendar.getInstance();
-	    writer.printf("%s %tc\n\n", message, calendar);
-	  }
+		return workTree.relativize(docDir).toString().replace('\\', '/');
+	}
+
+	/**
+	 * Returns the repository path relative to the document folder. Paths
+	 * outside the folder, like <code>/dev/null</code>, are returned as is.
+	 */
+	private static String getDocRelativePath(String path, String docPath) {
+		if (docPath.isEmpty() || !path.startsWith(docPath + "/")) {
+			return path;
+		}
+
+		return path.substring(docPath.length() + 1);
+	}
 
 	private static AbstractTreeIterator gitTreeParser(Repository repo, String ref)
 			throws IOException {
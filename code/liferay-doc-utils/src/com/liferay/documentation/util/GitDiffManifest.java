@@ -0,0 +1,203 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.diff.DiffEntry;
+
+/**
+ * The changes between two Git trees below a document folder, written by
+ * {@link GitCompare} and read by {@link DistDiffTask}. Each change is a tab
+ * separated line with the change type, the old and new paths, and the old and
+ * new blob IDs:
+ *
+ * <pre>
+ * MODIFY	articles/01-intro/01-intro.markdown	articles/01-intro/01-intro.markdown	1a2b...	3c4d...
+ * </pre>
+ *
+ * <p>
+ * Paths are relative to the document folder. An added file's old path and a
+ * deleted file's new path are <code>/dev/null</code>. Lines starting with
+ * <code>#</code> are comments.
+ * </p>
+ */
+public class GitDiffManifest {
+
+	/**
+	 * Returns the manifest's changes, read from the file.
+	 *
+	 * @param  file the manifest file
+	 * @return the changes
+	 * @throws IOException if an IO exception occurred, or a line of the file
+	 *         isn't a change
+	 */
+	public static List<Entry> read(File file) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+
+		int lineNumber = 0;
+
+		for (String line : FileUtils.readLines(file, "UTF-8")) {
+			lineNumber++;
+
+			if (line.isEmpty() || line.startsWith(COMMENT)) {
+				continue;
+			}
+
+			String[] fields = line.split("\t", -1);
+
+			if (fields.length != 5) {
+				throw new IOException(
+					"Invalid change at " + file.getPath() + ":" + lineNumber);
+			}
+
+			DiffEntry.ChangeType changeType;
+
+			try {
+				changeType = DiffEntry.ChangeType.valueOf(fields[0]);
+			}
+			catch (IllegalArgumentException iae) {
+				throw new IOException(
+					"Invalid change type at " + file.getPath() + ":" +
+						lineNumber);
+			}
+
+			entries.add(
+				new Entry(
+					changeType, fields[1], fields[2], fields[3], fields[4]));
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Writes the changes to the file, after the comment lines.
+	 *
+	 * @param  file the manifest file
+	 * @param  comments the comment lines (e.g., when and how the changes were
+	 *         found)
+	 * @param  entries the changes
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void write(
+			File file, List<String> comments, List<Entry> entries)
+		throws IOException {
+
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+
+		try {
+			for (String comment : comments) {
+				writer.print(COMMENT);
+				writer.print(" ");
+				writer.print(comment);
+				writer.print("\n");
+			}
+
+			for (Entry entry : entries) {
+				writer.print(entry.getChangeType().name());
+				writer.print("\t");
+				writer.print(entry.getOldPath());
+				writer.print("\t");
+				writer.print(entry.getNewPath());
+				writer.print("\t");
+				writer.print(entry.getOldId());
+				writer.print("\t");
+				writer.print(entry.getNewId());
+				writer.print("\n");
+			}
+		}
+		finally {
+			writer.close();
+		}
+
+		if (writer.checkError()) {
+			throw new IOException("Unable to write " + file.getPath());
+		}
+	}
+
+	/**
+	 * A change to a file below the document folder.
+	 */
+	public static class Entry {
+
+		public Entry(
+			DiffEntry.ChangeType changeType, String oldPath, String newPath,
+			String oldId, String newId) {
+
+			_changeType = changeType;
+			_oldPath = oldPath;
+			_newPath = newPath;
+			_oldId = oldId;
+			_newId = newId;
+		}
+
+		public DiffEntry.ChangeType getChangeType() {
+			return _changeType;
+		}
+
+		/**
+		 * Returns the blob ID of the file's new content.
+		 *
+		 * @return the new blob ID, or a zero ID if the file was deleted
+		 */
+		public String getNewId() {
+			return _newId;
+		}
+
+		/**
+		 * Returns the file's new path, relative to the document folder.
+		 *
+		 * @return the new path, or <code>/dev/null</code> if the file was
+		 *         deleted
+		 */
+		public String getNewPath() {
+			return _newPath;
+		}
+
+		/**
+		 * Returns the blob ID of the file's old content.
+		 *
+		 * @return the old blob ID, or a zero ID if the file was added
+		 */
+		public String getOldId() {
+			return _oldId;
+		}
+
+		/**
+		 * Returns the file's old path, relative to the document folder.
+		 *
+		 * @return the old path, or <code>/dev/null</code> if the file was
+		 *         added
+		 */
+		public String getOldPath() {
+			return _oldPath;
+		}
+
+		@Override
+		public String toString() {
+			if (_changeType == DiffEntry.ChangeType.ADD) {
+				return _changeType + " " + _newPath;
+			}
+
+			if ((_changeType == DiffEntry.ChangeType.DELETE) ||
+				_oldPath.equals(_newPath)) {
+
+				return _changeType + " " + _oldPath;
+			}
+
+			return _changeType + " " + _oldPath + " -> " + _newPath;
+		}
+
+		private final DiffEntry.ChangeType _changeType;
+		private final String _newId;
+		private final String _newPath;
+		private final String _oldId;
+		private final String _oldPath;
+	}
+
+	public static final String COMMENT = "#";
+
+}
@@ -0,0 +1,685 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.filters.ReplaceTokens;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+/**
+ * Builds a document set's dist Zip straight from a Git commit, without
+ * checking the commit out or staging the articles in <code>temp/</code>. The
+ * articles and images are read from the commit's blobs, and the articles are
+ * processed in memory the way the <code>dist-ce</code> and
+ * <code>dist-dxp</code> targets process them in <code>temp/</code>:
+ *
+ * <ol>
+ * <li>
+ * The nested <code>token</code> elements are replaced by a
+ * {@link TokenReplacer}, like {@link FilterTokensTask} replaces them.
+ * </li>
+ * <li>
+ * For DXP, the <code>articles-dxp</code> and <code>images-dxp</code> files
+ * replace the CE files of the same paths.
+ * </li>
+ * <li>
+ * The TOC syntax is added, <code>images-dxp</code> image paths are pointed
+ * to <code>images</code>, duplicate images are removed, and the headers and
+ * figures are numbered, with the tasks' own logic.
+ * </li>
+ * </ol>
+ *
+ * <p>
+ * The entries are compressed on a number of threads and written in order, as
+ * {@link ParallelZipTask} writes them, each with the commit's time. The
+ * articles are read on the same threads. The checks of the dist targets
+ * (e.g., the image and header checks) aren't run; they check a working tree.
+ * </p>
+ */
+public class GitDistTask extends Task {
+
+	public void addConfiguredToken(ReplaceTokens.Token token) {
+		_tokens.add(token);
+	}
+
+	@Override
+	public void execute() throws BuildException {
+
+		if (_destFile == null) {
+			throw new BuildException("Specify the destfile of the Zip");
+		}
+
+		boolean dxp = "dxp".equals(_productType);
+
+		String docLocation = new File(_docLocation).toPath().normalize(
+			).toString().replace(File.separatorChar, '/');
+
+		int threads = Math.max(1, _threads);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		Repository repo = null;
+
+		boolean complete = false;
+
+		try {
+			repo = new FileRepositoryBuilder().readEnvironment(
+				).findGitDir().build();
+
+			ObjectId commitId = repo.resolve(_commit);
+
+			if (commitId == null) {
+				throw new BuildException("Unable to resolve " + _commit);
+			}
+
+			RevWalk revWalk = new RevWalk(repo);
+
+			RevCommit commit;
+
+			try {
+				commit = revWalk.parseCommit(commitId);
+			}
+			finally {
+				revWalk.release();
+			}
+
+			System.out.println("Packaging " + docLocation + " at commit " +
+					commit.name());
+
+			Map<String, ObjectId> articleIds = new TreeMap<String, ObjectId>();
+			Map<String, ObjectId> imageIds = new TreeMap<String, ObjectId>();
+
+			walkDocLocation(
+				repo, commit, docLocation, dxp, articleIds, imageIds);
+
+			if (articleIds.isEmpty()) {
+				throw new BuildException(
+					"FAILURE - No articles in " + docLocation + " at " +
+						commit.name());
+			}
+
+			// Articles of the in-memory document set are named like the
+			// articles of temp/, but below a folder named after the commit
+
+			String docDir = _docdir + "/" + commit.abbreviate(7).name();
+
+			DocSet docSet = new DocSet(docDir);
+
+			readArticles(
+				executorService, threads, repo, docSet, articleIds,
+				new TokenReplacer(_tokens));
+
+			List<String> fileList = getMarkdownFileList(
+				docSet, articleIds.keySet());
+
+			List<File> articles = new ArrayList<File>();
+
+			for (String fileName : fileList) {
+				articles.add(new File(fileName));
+			}
+
+			AddTOCTask.addTOCs(docSet, fileList);
+
+			for (File article : articles) {
+				DocSet.Article docSetArticle = docSet.getArticle(article);
+
+				docSetArticle.setContent(
+					CheckImagesTask.replaceImageDxpPaths(
+						docSetArticle.getContent()));
+			}
+
+			Map<String, String> duplicateNames = findDuplicateImages(imageIds);
+
+			if (!duplicateNames.isEmpty()) {
+				DedupeImagesTask.replaceImageReferences(
+					docSet, articles, duplicateNames);
+
+				for (Map.Entry<String, String> entry :
+						duplicateNames.entrySet()) {
+
+					imageIds.remove("images/" + entry.getKey());
+
+					System.out.println("Replaced duplicate image " +
+							entry.getKey() + " with " + entry.getValue());
+				}
+			}
+
+			NumberHeadersTask.numberHeaders(docSet, docDir, fileList, null);
+
+			NumberImagesTask.numberImages(docSet, articles);
+
+			writeZip(
+				executorService, threads, repo, docSet, articleIds, imageIds,
+				RawZipEntry.toDosTime(commit.getCommitTime() * 1000L));
+
+			complete = true;
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			executorService.shutdownNow();
+
+			if (repo != null) {
+				repo.close();
+			}
+
+			if (!complete) {
+				_destFile.delete();
+			}
+		}
+	}
+
+	public void setCommit(String commit) {
+		_commit = commit;
+	}
+
+	public void setDestfile(File destFile) {
+		_destFile = destFile;
+	}
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	public void setDocLocation(String docLocation) {
+		_docLocation = docLocation;
+	}
+
+	public void setMetadataFile(File metadataFile) {
+		_metadataFile = metadataFile;
+	}
+
+	public void setProductType(String productType) {
+		_productType = productType;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	/**
+	 * Returns the names of the images directly in the <code>images</code>
+	 * folder whose content matches an image that sorts before them, mapped to
+	 * the name of that image. Git names a blob by the hash of its content, so
+	 * images with the same content have the same blob ID.
+	 *
+	 * @param  imageIds the blob IDs of the images, keyed by path
+	 * @return the duplicate image names, mapped to the names of the images
+	 *         they duplicate
+	 */
+	private static Map<String, String> findDuplicateImages(
+		Map<String, ObjectId> imageIds) {
+
+		Map<ObjectId, String> blobNames = new LinkedHashMap<ObjectId, String>();
+
+		Map<String, String> duplicateNames =
+			new LinkedHashMap<String, String>();
+
+		for (Map.Entry<String, ObjectId> entry : imageIds.entrySet()) {
+			String name = entry.getKey().substring("images/".length());
+
+			if ((name.indexOf('/') >= 0) || name.endsWith(".markdown") ||
+				name.endsWith(".txt")) {
+
+				continue;
+			}
+
+			String imageName = blobNames.get(entry.getValue());
+
+			if (imageName == null) {
+				blobNames.put(entry.getValue(), name);
+			}
+			else {
+				duplicateNames.put(name, imageName);
+			}
+		}
+
+		return duplicateNames;
+	}
+
+	/**
+	 * Returns the paths of the articles, in the order
+	 * {@link DocsUtil#getMarkdownFileList(String, String)} lists the articles
+	 * of <code>temp/</code>: the subfolders' articles breadth first, then the
+	 * articles folder's articles. Each folder's articles and subfolders are
+	 * taken in name order.
+	 *
+	 * @param  docSet the in-memory document set
+	 * @param  articlePaths the articles' paths, relative to the document set
+	 *         folder
+	 * @return the articles' paths
+	 */
+	private static List<String> getMarkdownFileList(
+		DocSet docSet, Iterable<String> articlePaths) {
+
+		Map<String, SortedSet<String>> folderNames =
+			new TreeMap<String, SortedSet<String>>();
+		Map<String, SortedSet<String>> folderArticles =
+			new TreeMap<String, SortedSet<String>>();
+
+		for (String articlePath : articlePaths) {
+			String folder = articlePath.substring(
+				0, articlePath.lastIndexOf('/'));
+
+			getNames(folderArticles, folder).add(articlePath);
+
+			while (folder.indexOf('/') >= 0) {
+				int index = folder.lastIndexOf('/');
+
+				getNames(folderNames, folder.substring(0, index)).add(
+					folder.substring(index + 1));
+
+				folder = folder.substring(0, index);
+			}
+		}
+
+		List<String> folders = new ArrayList<String>();
+
+		Queue<String> q = new LinkedList<String>();
+
+		q.add("articles");
+
+		while (!q.isEmpty()) {
+			String folder = q.remove();
+
+			if (!folder.equals("articles")) {
+				folders.add(folder);
+			}
+
+			for (String name : getNames(folderNames, folder)) {
+				q.add(folder + "/" + name);
+			}
+		}
+
+		folders.add("articles");
+
+		List<String> fileList = new ArrayList<String>();
+
+		for (String folder : folders) {
+			for (String articlePath : getNames(folderArticles, folder)) {
+				fileList.add(
+					new File(docSet.getDocSetDir(), articlePath).getPath());
+			}
+		}
+
+		return fileList;
+	}
+
+	private static SortedSet<String> getNames(
+		Map<String, SortedSet<String>> names, String folder) {
+
+		SortedSet<String> folderNames = names.get(folder);
+
+		if (folderNames == null) {
+			folderNames = new TreeSet<String>();
+
+			names.put(folder, folderNames);
+		}
+
+		return folderNames;
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			if (cause instanceof BuildException) {
+				throw (BuildException)cause;
+			}
+
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new BuildException(e);
+		}
+	}
+
+	private static byte[] readBlob(Repository repo, ObjectId blobId)
+		throws IOException {
+
+		return repo.open(blobId, Constants.OBJ_BLOB).getCachedBytes(
+			Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Reads the articles' blobs on the executor's threads, replaces their
+	 * tokens, and adds them to the document set in path order.
+	 *
+	 * @param  executorService the executor reading the articles
+	 * @param  threads the number of threads the executor runs
+	 * @param  repo the Git repository
+	 * @param  docSet the in-memory document set
+	 * @param  articleIds the blob IDs of the articles, keyed by path
+	 * @param  tokenReplacer the replacer of the tokens
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static void readArticles(
+			ExecutorService executorService, int threads, final Repository repo,
+			DocSet docSet, Map<String, ObjectId> articleIds,
+			final TokenReplacer tokenReplacer)
+		throws IOException {
+
+		List<String> paths = new ArrayList<String>(articleIds.keySet());
+
+		Queue<Future<String>> futures = new LinkedList<Future<String>>();
+
+		int next = 0;
+		int read = 0;
+
+		while (read < paths.size()) {
+			while ((next < paths.size()) &&
+				   (futures.size() < (threads * PENDING_ENTRIES_PER_THREAD))) {
+
+				final ObjectId blobId = articleIds.get(paths.get(next));
+
+				futures.add(executorService.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws IOException {
+						return tokenReplacer.replace(
+							new String(readBlob(repo, blobId), _charset));
+					}
+
+				}));
+
+				next++;
+			}
+
+			String content = getResult(futures.remove());
+
+			docSet.addArticle(
+				new File(docSet.getDocSetDir(), paths.get(read)), content);
+
+			read++;
+		}
+	}
+
+	/**
+	 * Collects the blob IDs of the articles and images below the document
+	 * location in the commit's tree, keyed by their paths in
+	 * <code>temp/</code> (e.g., <code>articles/01-intro/01-intro.markdown</code>).
+	 * For DXP, the <code>articles-dxp</code> and <code>images-dxp</code> files
+	 * replace the CE files of the same paths.
+	 *
+	 * @param  repo the Git repository
+	 * @param  commit the commit
+	 * @param  docLocation the document set's path in the repository (e.g.,
+	 *         <code>en/developer/tutorials</code>)
+	 * @param  dxp whether to include the DXP files
+	 * @param  articleIds the map to add the articles' blob IDs to
+	 * @param  imageIds the map to add the images' blob IDs to
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static void walkDocLocation(
+			Repository repo, RevCommit commit, String docLocation, boolean dxp,
+			Map<String, ObjectId> articleIds, Map<String, ObjectId> imageIds)
+		throws IOException {
+
+		Map<String, ObjectId> dxpArticleIds = new TreeMap<String, ObjectId>();
+		Map<String, ObjectId> dxpImageIds = new TreeMap<String, ObjectId>();
+
+		TreeWalk treeWalk = new TreeWalk(repo);
+
+		try {
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setFilter(PathFilter.create(docLocation));
+			treeWalk.setRecursive(true);
+
+			String prefix = docLocation + "/";
+
+			while (treeWalk.next()) {
+				FileMode fileMode = treeWalk.getFileMode(0);
+
+				if ((fileMode != FileMode.REGULAR_FILE) &&
+					(fileMode != FileMode.EXECUTABLE_FILE)) {
+
+					continue;
+				}
+
+				String path = treeWalk.getPathString().substring(
+					prefix.length());
+
+				ObjectId blobId = treeWalk.getObjectId(0);
+
+				if (path.startsWith("articles/")) {
+					if (path.endsWith(".markdown")) {
+						articleIds.put(path, blobId);
+					}
+				}
+				else if (path.startsWith("images/")) {
+					imageIds.put(path, blobId);
+				}
+				else if (dxp && path.startsWith("articles-dxp/")) {
+					if (path.endsWith(".markdown")) {
+						dxpArticleIds.put(
+							"articles/" +
+								path.substring("articles-dxp/".length()),
+							blobId);
+					}
+				}
+				else if (dxp && path.startsWith("images-dxp/")) {
+					dxpImageIds.put(
+						"images/" + path.substring("images-dxp/".length()),
+						blobId);
+				}
+			}
+		}
+		finally {
+			treeWalk.release();
+		}
+
+		articleIds.putAll(dxpArticleIds);
+		imageIds.putAll(dxpImageIds);
+	}
+
+	/**
+	 * Writes the Zip: the folder entries, then the articles, the images, and
+	 * the metadata file, each in path order. The entries are compressed on
+	 * the executor's threads, and the images are read on them too.
+	 *
+	 * @param  executorService the executor compressing the entries
+	 * @param  threads the number of threads the executor runs
+	 * @param  repo the Git repository
+	 * @param  docSet the in-memory document set
+	 * @param  articleIds the blob IDs of the articles, keyed by path
+	 * @param  imageIds the blob IDs of the images, keyed by path
+	 * @param  dosTime the entries' modification time
+	 * @throws IOException if an IO exception occurred
+	 */
+	private void writeZip(
+			ExecutorService executorService, int threads,
+			final Repository repo, final DocSet docSet,
+			Map<String, ObjectId> articleIds, Map<String, ObjectId> imageIds,
+			final long dosTime)
+		throws IOException {
+
+		SortedSet<String> dirNames = new TreeSet<String>();
+
+		dirNames.add("articles");
+		dirNames.add("images");
+
+		List<Callable<ParallelZipTask.CompressedEntry>> entries =
+			new ArrayList<Callable<ParallelZipTask.CompressedEntry>>();
+
+		for (final String path : articleIds.keySet()) {
+			addDirNames(dirNames, path);
+
+			entries.add(new Callable<ParallelZipTask.CompressedEntry>() {
+
+				@Override
+				public ParallelZipTask.CompressedEntry call()
+					throws IOException {
+
+					DocSet.Article article = docSet.getArticle(
+						new File(docSet.getDocSetDir(), path));
+
+					return ParallelZipTask.compress(
+						path, article.getContent().getBytes(_charset),
+						dosTime);
+				}
+
+			});
+		}
+
+		for (Map.Entry<String, ObjectId> entry : imageIds.entrySet()) {
+			final String path = entry.getKey();
+			final ObjectId blobId = entry.getValue();
+
+			addDirNames(dirNames, path);
+
+			entries.add(new Callable<ParallelZipTask.CompressedEntry>() {
+
+				@Override
+				public ParallelZipTask.CompressedEntry call()
+					throws IOException {
+
+					return ParallelZipTask.compress(
+						path, readBlob(repo, blobId), dosTime);
+				}
+
+			});
+		}
+
+		if ((_metadataFile != null) && _metadataFile.exists()) {
+			final File metadataFile = _metadataFile;
+
+			entries.add(new Callable<ParallelZipTask.CompressedEntry>() {
+
+				@Override
+				public ParallelZipTask.CompressedEntry call()
+					throws IOException {
+
+					return ParallelZipTask.compress(
+						metadataFile.getName(),
+						FileUtils.readFileToByteArray(metadataFile),
+						RawZipEntry.toDosTime(metadataFile.lastModified()));
+				}
+
+			});
+		}
+
+		File parentDir = _destFile.getAbsoluteFile().getParentFile();
+
+		if (!parentDir.exists() && !parentDir.mkdirs()) {
+			throw new BuildException("Unable to create " + parentDir.getPath());
+		}
+
+		System.out.println("Building zip: " + _destFile.getAbsolutePath());
+
+		RawZipOutputStream rawZipOutputStream = new RawZipOutputStream(
+			new BufferedOutputStream(
+				new FileOutputStream(_destFile), BUFFER_SIZE));
+
+		try {
+			for (String dirName : dirNames) {
+				rawZipOutputStream.putRawEntry(
+					new RawZipEntry(
+						dirName + "/", RawZipEntry.STORED, dosTime, 0, 0, 0),
+					new ByteArrayInputStream(new byte[0]));
+			}
+
+			Queue<Future<ParallelZipTask.CompressedEntry>> futures =
+				new LinkedList<Future<ParallelZipTask.CompressedEntry>>();
+
+			int next = 0;
+
+			while ((next < entries.size()) || !futures.isEmpty()) {
+				while ((next < entries.size()) &&
+					   (futures.size() <
+						   (threads * PENDING_ENTRIES_PER_THREAD))) {
+
+					futures.add(executorService.submit(entries.get(next)));
+
+					next++;
+				}
+
+				ParallelZipTask.CompressedEntry compressedEntry = getResult(
+					futures.remove());
+
+				rawZipOutputStream.putRawEntry(
+					compressedEntry.getEntry(),
+					new ByteArrayInputStream(compressedEntry.getData()));
+			}
+		}
+		finally {
+			rawZipOutputStream.close();
+		}
+
+		System.out.println("Zipped " + articleIds.size() + " articles and " +
+				imageIds.size() + " images");
+	}
+
+	/**
+	 * Adds the paths of the path's parent folders to the folder names.
+	 */
+	private static void addDirNames(SortedSet<String> dirNames, String path) {
+		int index = path.indexOf('/');
+
+		while (index >= 0) {
+			dirNames.add(path.substring(0, index));
+
+			index = path.indexOf('/', index + 1);
+		}
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final int PENDING_ENTRIES_PER_THREAD = 4;
+
+	private static final Charset _charset = Charset.defaultCharset();
+
+	private String _commit = Constants.HEAD;
+	private File _destFile;
+	private String _docdir;
+	private String _docLocation;
+	private File _metadataFile;
+	private String _productType = "ce";
+	private int _threads = Runtime.getRuntime().availableProcessors();
+	private final List<ReplaceTokens.Token> _tokens =
+		new ArrayList<ReplaceTokens.Token>();
+
+}
@@ -0,0 +1,372 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Indexes the header IDs of a set of guides so relative links can be validated
+ * without rereading articles. Each guide maps its primary header IDs (the
+ * <code>header-id:</code> values) to the article declaring them, and each
+ * article keeps the set of secondary anchors that can follow the
+ * <code>#</code> in a link: the IDs generated from its sub-headings and any
+ * <code>&lt;a name="..."&gt;</code> anchors.
+ *
+ * <p>
+ * The catalog is built once per run. All lookups after that are hash lookups;
+ * the only file access is for an article outside the indexed guides, which is
+ * indexed the first time it's requested. Once the guides have been added, the
+ * catalog can be read from multiple threads.
+ * </p>
+ */
+public class HeaderCatalog {
+
+	/**
+	 * Indexes the articles of a guide.
+	 *
+	 * @param  guideDir the guide's partial path (e.g.,
+	 *         <code>developer/tutorials</code>)
+	 * @param  articles the guide's Markdown articles
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void addGuide(String guideDir, List<File> articles)
+			throws IOException {
+
+		Map<String, ArticleHeaders> primaryHeaders = _guides.get(guideDir);
+
+		if (primaryHeaders == null) {
+			primaryHeaders = new HashMap<String, ArticleHeaders>();
+
+			_guides.put(guideDir, primaryHeaders);
+		}
+
+		for (File article : articles) {
+			ArticleHeaders articleHeaders = getArticleHeaders(article);
+
+			if (articleHeaders.getPrimaryHeader() == null) {
+				continue;
+			}
+
+			// The first article declaring an ID wins, matching the order in
+			// which the guide's articles were found
+
+			if (!primaryHeaders.containsKey(articleHeaders.getPrimaryHeader())) {
+				primaryHeaders.put(
+					articleHeaders.getPrimaryHeader(), articleHeaders);
+			}
+		}
+	}
+
+	/**
+	 * Returns the indexed headers of the article, indexing the article first
+	 * if it isn't part of the catalog yet. This method is safe to call from
+	 * multiple threads.
+	 *
+	 * @param  article the article
+	 * @return the article's headers
+	 * @throws IOException if an IO exception occurred
+	 */
+	public ArticleHeaders getArticleHeaders(File article) throws IOException {
+		return getArticleHeaders(article, null);
+	}
+
+	/**
+	 * Returns the indexed headers of the article, indexing the given lines if
+	 * the article isn't part of the catalog yet. This lets a caller that has
+	 * already read the article avoid reading it again.
+	 *
+	 * @param  article the article
+	 * @param  lines the article's lines, or <code>null</code> to read them
+	 *         from the article if needed
+	 * @return the article's headers
+	 * @throws IOException if an IO exception occurred
+	 */
+	public ArticleHeaders getArticleHeaders(File article, List<String> lines)
+			throws IOException {
+
+		String path = article.getCanonicalPath().intern();
+
+		ArticleHeaders articleHeaders = _articles.get(path);
+
+		if (articleHeaders == null) {
+			if (lines == null) {
+				lines = readLines(article);
+			}
+
+			articleHeaders = indexArticle(path, lines);
+
+			// Another thread may have indexed the same article meanwhile; keep
+			// the first index so every thread sees the same instance
+
+			ArticleHeaders previousArticleHeaders = _articles.putIfAbsent(
+				path, articleHeaders);
+
+			if (previousArticleHeaders != null) {
+				articleHeaders = previousArticleHeaders;
+			}
+		}
+
+		return articleHeaders;
+	}
+
+	/**
+	 * Returns <code>true</code> if the guide contains an article with the
+	 * primary header ID.
+	 *
+	 * @param  guideDir the guide's partial path
+	 * @param  primaryHeader the primary header ID
+	 * @return <code>true</code> if the guide contains an article with the
+	 *         primary header ID; <code>false</code> otherwise
+	 */
+	public boolean hasPrimaryHeader(String guideDir, String primaryHeader) {
+		Map<String, ArticleHeaders> primaryHeaders = _guides.get(guideDir);
+
+		if (primaryHeaders == null) {
+			return false;
+		}
+
+		return primaryHeaders.containsKey(primaryHeader);
+	}
+
+	/**
+	 * Returns <code>true</code> if the guide's article with the primary header
+	 * ID contains the secondary header ID.
+	 *
+	 * @param  guideDir the guide's partial path
+	 * @param  primaryHeader the primary header ID
+	 * @param  secondaryHeader the secondary header ID
+	 * @return <code>true</code> if the article with the primary header ID
+	 *         contains the secondary header ID; <code>false</code> otherwise
+	 */
+	public boolean hasSecondaryHeader(
+		String guideDir, String primaryHeader, String secondaryHeader) {
+
+		Map<String, ArticleHeaders> primaryHeaders = _guides.get(guideDir);
+
+		if (primaryHeaders == null) {
+			return false;
+		}
+
+		ArticleHeaders articleHeaders = primaryHeaders.get(primaryHeader);
+
+		if (articleHeaders == null) {
+			return false;
+		}
+
+		return articleHeaders.hasAnchor(secondaryHeader);
+	}
+
+	/**
+	 * Returns the heading's ID, as generated for sub-headings that don't
+	 * declare an ID in the Markdown article.
+	 *
+	 * @param  line the line containing the heading
+	 * @return the heading's ID
+	 */
+	private static String extractHeading(String line) {
+
+		int indexOfFirstHeaderChar = line.indexOf("# ") + 2;
+
+		String heading = line.substring(indexOfFirstHeaderChar);
+		heading = heading.trim();
+
+		// Replace each spaced dash, space, dot, and slash with a dash
+
+		heading = heading.replace(" - ", "-");
+		heading = heading.replace(' ', '-');
+		heading = heading.replace('_', '-');
+		heading = heading.toLowerCase();
+
+		// Filter out characters other than dashes, letters, and digits
+
+		StringBuilder headingSb = new StringBuilder();
+		for (int i = 0; i < heading.length(); i++) {
+			char ch = heading.charAt(i);
+
+			if (ch == '-' || Character.isLetterOrDigit(ch)) {
+				headingSb.append(ch);
+			}
+		}
+		heading = headingSb.toString();
+		return heading;
+	}
+
+	/**
+	 * Assembles the header ID for the given heading. The ID count is added to
+	 * the end of the ID to differentiate it from other matching headings in
+	 * the same article (e.g., <code>liferay-home-2</code>).
+	 *
+	 * @param  heading the heading to assemble an ID for
+	 * @param  idCount the number of matching header IDs found
+	 * @return the header ID for the given heading
+	 */
+	private static String assembleId(String heading, int idCount) {
+
+		String count = "";
+		if (idCount > 0) {
+			count = "-" + idCount;
+		}
+
+		String finalHeaderId = heading + count;
+
+		if (finalHeaderId.contains("--")) {
+			finalHeaderId = finalHeaderId.replaceAll("--", "-");
+		}
+
+		return finalHeaderId;
+	}
+
+	/**
+	 * Adds the values of the attribute occurrences on the line to the set
+	 * (e.g., every <code>name</code> value of <code>&lt;a name="..."</code>).
+	 */
+	private static void extractAttributeValues(
+		String line, String attributeStart, Set<String> values) {
+
+		int index = line.indexOf(attributeStart);
+
+		while (index >= 0) {
+			int quotStart = index + attributeStart.length();
+			int quotClose = line.indexOf(QUOTATION, quotStart);
+
+			if (quotClose < 0) {
+				break;
+			}
+
+			values.add(line.substring(quotStart, quotClose));
+
+			index = line.indexOf(attributeStart, quotClose);
+		}
+	}
+
+	private static ArticleHeaders indexArticle(
+		String path, List<String> lines) {
+
+		String primaryHeader = null;
+		Set<String> anchors = new HashSet<String>();
+		Set<String> headingIds = new HashSet<String>();
+		Set<String> elementIds = new HashSet<String>();
+
+		for (String line : lines) {
+			if (line.startsWith(HEADER_SYNTAX)) {
+				if (primaryHeader == null) {
+					primaryHeader = line.substring(HEADER_SYNTAX.length());
+				}
+			}
+			else if (line.startsWith("## ") || line.startsWith("### ") ||
+					line.startsWith("#### ") || line.startsWith("##### ")) {
+
+				String heading = extractHeading(line);
+
+				int idCount = 0;
+
+				while (!headingIds.add(assembleId(heading, idCount))) {
+					idCount++;
+				}
+			}
+			else if (line.contains("<a name=" + QUOTATION)) {
+				extractAttributeValues(
+					line, "<a name=" + QUOTATION, anchors);
+			}
+
+			if (line.contains("<div")) {
+				extractAttributeValues(line, "id=" + QUOTATION, elementIds);
+			}
+		}
+
+		anchors.addAll(headingIds);
+
+		return new ArticleHeaders(path, primaryHeader, anchors, elementIds);
+	}
+
+	private static List<String> readLines(File article) throws IOException {
+		List<String> lines = new ArrayList<String>();
+
+		LineNumberReader in = new LineNumberReader(new FileReader(article));
+
+		try {
+			String line = null;
+
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		return lines;
+	}
+
+	private static final String HEADER_SYNTAX = "header-id: ";
+
+	private static final char QUOTATION = '"';
+
+	private final ConcurrentMap<String, ArticleHeaders> _articles =
+		new ConcurrentHashMap<String, ArticleHeaders>();
+	private final Map<String, Map<String, ArticleHeaders>> _guides =
+		new HashMap<String, Map<String, ArticleHeaders>>();
+
+	/**
+	 * The header IDs of a single article.
+	 */
+	public static class ArticleHeaders {
+
+		public ArticleHeaders(
+			String path, String primaryHeader, Set<String> anchors,
+			Set<String> elementIds) {
+
+			_path = path;
+			_primaryHeader = primaryHeader;
+			_anchors = anchors;
+			_elementIds = elementIds;
+		}
+
+		/**
+		 * Returns the anchors another article can link to.
+		 */
+		public Set<String> getAnchors() {
+			return Collections.unmodifiableSet(_anchors);
+		}
+
+		public String getPath() {
+			return _path;
+		}
+
+		public String getPrimaryHeader() {
+			return _primaryHeader;
+		}
+
+		/**
+		 * Returns <code>true</code> if another article can link to the anchor
+		 * (e.g., <code>installing-liferay-portal#liferay-home</code>).
+		 */
+		public boolean hasAnchor(String anchor) {
+			return _anchors.contains(anchor);
+		}
+
+		/**
+		 * Returns <code>true</code> if a link within the article can target
+		 * the anchor. Besides the sub-heading and named anchors, this includes
+		 * <code>&lt;div&gt;</code> element IDs.
+		 */
+		public boolean hasSubAnchor(String anchor) {
+			return _anchors.contains(anchor) || _elementIds.contains(anchor);
+		}
+
+		private final Set<String> _anchors;
+		private final Set<String> _elementIds;
+		private final String _path;
+		private final String _primaryHeader;
+	}
+}
@@ -0,0 +1,408 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.BuildException;
+
+/**
+ * An index of the images the articles reference, in both directions: the
+ * images each article references, and the articles that reference each
+ * image. Each article is scanned once, with precompiled patterns, no matter
+ * how many images are looked up.
+ *
+ * <p>
+ * Two kinds of references are kept for each article:
+ * </p>
+ *
+ * <ul>
+ * <li>
+ * The image paths of its <code>![...](...)</code> and <code>&lt;img&gt;</code>
+ * elements, exactly as written. The image check validates these paths.
+ * </li>
+ * <li>
+ * The image names it mentions in any folder named <code>images</code> or
+ * <code>images-dxp</code>, wherever they appear in the article. Looking up
+ * the articles of an image, or deciding whether an image is used at all, is
+ * based on these mentions.
+ * </li>
+ * </ul>
+ *
+ * <p>
+ * If the index reads its articles through a {@link DocSet}, an article that's
+ * changed in the document set is scanned again the next time it's looked up.
+ * </p>
+ */
+public class ImageIndex {
+
+	/**
+	 * Creates an index that reads its articles from disk.
+	 */
+	public ImageIndex() {
+		this(null);
+	}
+
+	/**
+	 * Creates an index that reads its articles through the document set.
+	 *
+	 * @param docSet the document set (may be <code>null</code>)
+	 */
+	public ImageIndex(DocSet docSet) {
+		_docSet = docSet;
+	}
+
+	/**
+	 * Scans the articles that haven't been indexed yet.
+	 *
+	 * @param  articles the articles
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void addArticles(Collection<File> articles) throws IOException {
+		for (File article : articles) {
+			getArticleImages(article);
+		}
+	}
+
+	/**
+	 * Scans the article's content, e.g., of an article read from a Zip
+	 * entry, replacing the article's previous scan. An index that reads its
+	 * articles through a document set scans a document set's article again
+	 * the next time it's looked up.
+	 *
+	 * @param article the article
+	 * @param content the article's content
+	 */
+	public void addArticle(File article, String content) {
+		String key = getKey(article);
+
+		ArticleImages articleImages = _articleImages.get(key);
+
+		if (articleImages != null) {
+			removeMentions(articleImages);
+		}
+
+		articleImages = scan(article, content);
+
+		_articleImages.put(key, articleImages);
+
+		addMentions(articleImages);
+	}
+
+	/**
+	 * Returns the indexed articles that mention the image.
+	 *
+	 * @param  imagesDir the name of the image's folder (e.g.,
+	 *         <code>images-dxp</code>)
+	 * @param  imageName the image's file name
+	 * @return the articles mentioning the image, in the order they were
+	 *         indexed
+	 */
+	public Set<File> getArticles(String imagesDir, String imageName) {
+		Set<File> articles = _imageArticles.get(
+			getImageKey(imagesDir, imageName));
+
+		if (articles == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(articles);
+	}
+
+	/**
+	 * Returns the image paths of the article's <code>![...](...)</code> and
+	 * <code>&lt;img&gt;</code> elements, in the order they appear. The article
+	 * is indexed if it hasn't been yet.
+	 *
+	 * @param  article the article
+	 * @return the image paths
+	 * @throws IOException if an IO exception occurred
+	 * @throws BuildException if a line of the article has an image element
+	 *         the path can't be extracted from
+	 */
+	public List<String> getImagePaths(File article) throws IOException {
+		ArticleImages articleImages = getArticleImages(article);
+
+		if (articleImages._error != null) {
+			throw new BuildException(articleImages._error);
+		}
+
+		return Collections.unmodifiableList(articleImages._imagePaths);
+	}
+
+	/**
+	 * Returns the names of the images the indexed articles mention in the
+	 * image folder.
+	 *
+	 * @param  imagesDir the name of the image folder (e.g.,
+	 *         <code>images</code>)
+	 * @return the names of the mentioned images
+	 */
+	public Set<String> getImageNames(String imagesDir) {
+		Set<String> imageNames = _imageNames.get(imagesDir);
+
+		if (imageNames == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(imageNames);
+	}
+
+	/**
+	 * Returns the images the article mentions, as paths relative to the
+	 * document folder (e.g., <code>images/some-image.png</code>). The article
+	 * is indexed if it hasn't been yet.
+	 *
+	 * @param  article the article
+	 * @return the mentioned images, in the order they appear
+	 * @throws IOException if an IO exception occurred
+	 */
+	public Set<String> getMentionedImages(File article) throws IOException {
+		return Collections.unmodifiableSet(
+			getArticleImages(article)._mentionedImages);
+	}
+
+	/**
+	 * Returns the content with the images it mentions in the image folder
+	 * renamed. Images are matched the same way the index matches mentions, so
+	 * every mention the index finds is renamed.
+	 *
+	 * @param  content the article's content
+	 * @param  imagesDir the name of the image folder (e.g.,
+	 *         <code>images</code>)
+	 * @param  imageNames the new image names, keyed by the old names
+	 * @return the content with the images renamed
+	 */
+	public static String replaceImageNames(
+		String content, String imagesDir, Map<String, String> imageNames) {
+
+		Matcher matcher = _imageMentionPattern.matcher(content);
+
+		StringBuffer sb = null;
+
+		while (matcher.find()) {
+			if (!imagesDir.equals(matcher.group(1))) {
+				continue;
+			}
+
+			String imageName = imageNames.get(matcher.group(2));
+
+			if (imageName == null) {
+				continue;
+			}
+
+			if (sb == null) {
+				sb = new StringBuffer(content.length());
+			}
+
+			matcher.appendReplacement(
+				sb,
+				Matcher.quoteReplacement(getImageKey(imagesDir, imageName)));
+		}
+
+		if (sb == null) {
+			return content;
+		}
+
+		matcher.appendTail(sb);
+
+		return sb.toString();
+	}
+
+	private static String getImageKey(String imagesDir, String imageName) {
+		return imagesDir + "/" + imageName;
+	}
+
+	private static String getKey(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	private ArticleImages getArticleImages(File article) throws IOException {
+		String key = getKey(article);
+
+		ArticleImages articleImages = _articleImages.get(key);
+
+		String content = null;
+
+		if (_docSet != null) {
+			content = _docSet.getArticle(article).getContent();
+
+			if ((articleImages != null) &&
+				(articleImages._content == content)) {
+
+				return articleImages;
+			}
+		}
+		else if (articleImages != null) {
+			return articleImages;
+		}
+		else {
+			content = FileUtils.readFileToString(article);
+		}
+
+		addArticle(article, content);
+
+		return _articleImages.get(key);
+	}
+
+	private void addMentions(ArticleImages articleImages) {
+		for (String mentionedImage : articleImages._mentionedImages) {
+			Set<File> articles = _imageArticles.get(mentionedImage);
+
+			if (articles == null) {
+				articles = new LinkedHashSet<File>();
+
+				_imageArticles.put(mentionedImage, articles);
+			}
+
+			articles.add(articleImages._article);
+
+			int index = mentionedImage.indexOf('/');
+
+			String imagesDir = mentionedImage.substring(0, index);
+
+			Set<String> imageNames = _imageNames.get(imagesDir);
+
+			if (imageNames == null) {
+				imageNames = new LinkedHashSet<String>();
+
+				_imageNames.put(imagesDir, imageNames);
+			}
+
+			imageNames.add(mentionedImage.substring(index + 1));
+		}
+	}
+
+	private void removeMentions(ArticleImages articleImages) {
+		for (String mentionedImage : articleImages._mentionedImages) {
+			Set<File> articles = _imageArticles.get(mentionedImage);
+
+			articles.remove(articleImages._article);
+
+			if (!articles.isEmpty()) {
+				continue;
+			}
+
+			_imageArticles.remove(mentionedImage);
+
+			int index = mentionedImage.indexOf('/');
+
+			_imageNames.get(mentionedImage.substring(0, index)).remove(
+				mentionedImage.substring(index + 1));
+		}
+	}
+
+	private ArticleImages scan(File article, String content) {
+		ArticleImages articleImages = new ArticleImages(article, content);
+
+		int lineNumber = 0;
+
+		for (String line : DocSet.splitLines(content)) {
+			lineNumber++;
+
+			Matcher matcher = _imageMentionPattern.matcher(line);
+
+			while (matcher.find()) {
+				articleImages._mentionedImages.add(
+					getImageKey(matcher.group(1), matcher.group(2)));
+			}
+
+			if (articleImages._error != null) {
+				continue;
+			}
+
+			line = line.trim();
+
+			// Match lines containing expressions of the form ![...](...)
+
+			if (_markdownImagePattern.matcher(line).matches()) {
+				int begin = line.lastIndexOf("(");
+				line = line.substring(begin);
+				int end = line.indexOf(")");
+
+				if (end < 0) {
+					articleImages._error = "ERROR: The following article has " +
+						"multiple opening parentheses on a line. Please move " +
+						"the last opening parenthesis to a new line.\n" +
+						"ARTICLE:LINE - " + article.getPath() + ":" + lineNumber;
+
+					continue;
+				}
+
+				line = line.substring(0, end);
+				line = line.replace("(", "");
+				line = line.replace(")", "");
+
+				articleImages._imagePaths.add(line);
+			}
+
+			// Check for <img> elements
+
+			if (line.contains("<img") && line.contains("../images") && !line.contains("<![CDATA[")) {
+				int begin = line.indexOf("<img");
+				int end = line.indexOf(">", begin);
+				int src = line.indexOf("src", begin);
+				int images = line.indexOf("images");
+
+				if (src > 0 &&
+					images > src) {
+
+					if (end < 0 ||
+						(end > 1 && images < end)) {
+
+						int quote1 = line.indexOf("\"", src);
+						int quote2 = line.indexOf("\"", quote1 +1);
+
+						String srcImage = line.substring(quote1 + 1, quote2);
+
+						articleImages._imagePaths.add(srcImage);
+					}
+				}
+			}
+		}
+
+		return articleImages;
+	}
+
+	private static final Pattern _imageMentionPattern = Pattern.compile(
+		"\\b(images(?:-dxp)?)/([^\\s/()\\[\\]<>\"']+)");
+	private static final Pattern _markdownImagePattern = Pattern.compile(
+		".*!\\[.*\\]\\(.*\\).*");
+
+	private final Map<String, ArticleImages> _articleImages =
+		new HashMap<String, ArticleImages>();
+	private final DocSet _docSet;
+	private final Map<String, Set<File>> _imageArticles =
+		new HashMap<String, Set<File>>();
+	private final Map<String, Set<String>> _imageNames =
+		new HashMap<String, Set<String>>();
+
+	/**
+	 * The images found in one version of an article.
+	 */
+	private static class ArticleImages {
+
+		public ArticleImages(File article, String content) {
+			_article = article;
+			_content = content;
+		}
+
+		private final File _article;
+		private final String _content;
+		private String _error;
+		private final List<String> _imagePaths = new ArrayList<String>();
+		private final Set<String> _mentionedImages =
+			new LinkedHashSet<String>();
+	}
+
+}
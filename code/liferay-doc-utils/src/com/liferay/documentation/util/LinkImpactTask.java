@@ -0,0 +1,137 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Reports the links that break if a header ID changes. The links are looked
+ * up in a reverse link index of all the guides (see {@link LinkIndex}), which
+ * is kept in the project's <code>build</code> folder and only rescans the
+ * articles that changed since the last report.
+ *
+ * <p>
+ * The header ID is given as <code>header-id</code> for the links to an
+ * article, or as <code>header-id#anchor</code> for the links to one of its
+ * anchors. It's looked up in the guide of the <code>docdir</code>, unless a
+ * <code>guide</code> (e.g., <code>developer/tutorials</code>) is given.
+ * </p>
+ */
+public class LinkImpactTask extends Task {
+
+	@Override
+	public void execute() throws BuildException {
+
+		if ((_headerId == null) || _headerId.isEmpty()) {
+			throw new BuildException("Specify a header ID (e.g., " +
+					"-Dheader.id=liferay-home or " +
+					"-Dheader.id=liferay-home#configuring)");
+		}
+
+		String primaryHeader = _headerId;
+		String secondaryHeader = null;
+
+		int index = _headerId.indexOf('#');
+
+		if (index != -1) {
+			primaryHeader = _headerId.substring(0, index);
+			secondaryHeader = _headerId.substring(index + 1);
+		}
+
+		String guideDir = getGuideDir();
+
+		long start = System.currentTimeMillis();
+
+		String name = "link-index";
+
+		if (_dxpCheck) {
+			name = "link-index-dxp";
+		}
+
+		CheckManifest checkManifest = DocsUtil.loadCheckManifest(
+			getProject().getBaseDir(), name, "");
+
+		LinkIndex linkIndex = new LinkIndex(checkManifest);
+
+		try {
+			linkIndex.update(
+				new DocSet(_docdir), ArticleLinkChecker.GUIDE_DIRS,
+				CheckLinksTask.findGuideArticles(
+					ArticleLinkChecker.GUIDE_DIRS, _dxpCheck),
+				new HeaderCatalog());
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
+		DocsUtil.saveCheckManifest(checkManifest);
+
+		List<LinkIndex.InboundLink> inboundLinks = linkIndex.getInboundLinks(
+			guideDir, primaryHeader, secondaryHeader);
+
+		Set<File> articles = new LinkedHashSet<File>();
+
+		for (int i = 0; i < inboundLinks.size(); i++) {
+			LinkIndex.InboundLink inboundLink = inboundLinks.get(i);
+
+			articles.add(inboundLink.getArticle());
+
+			System.out.println((i + 1) + ". File: " +
+					inboundLink.getArticle().getPath() + ":" +
+					inboundLink.getLineNumber());
+			System.out.println("   Line: " + inboundLink.getLine().trim());
+		}
+
+		System.out.println(inboundLinks.size() + " links in " +
+				articles.size() + " articles depend on " + guideDir + "#" +
+				_headerId + " (reindexed " + linkIndex.getUpdatedCount() +
+				" articles in " + (System.currentTimeMillis() - start) +
+				" ms)");
+	}
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	public void setDxpCheck(boolean dxpCheck) {
+		_dxpCheck = dxpCheck;
+	}
+
+	public void setGuide(String guide) {
+		_guide = guide;
+	}
+
+	public void setHeaderId(String headerId) {
+		_headerId = headerId;
+	}
+
+	/**
+	 * Returns the guide to look the header ID up in: the given guide, or
+	 * else the guide of the document directory.
+	 */
+	private String getGuideDir() {
+
+		if ((_guide != null) && !_guide.isEmpty()) {
+			return _guide;
+		}
+
+		for (String guideDir : ArticleLinkChecker.GUIDE_DIRS) {
+			if (guideDir.equals(_docdir) || guideDir.endsWith("/" + _docdir)) {
+				return guideDir;
+			}
+		}
+
+		throw new BuildException("No guide found for docdir " + _docdir +
+				"; specify the guide (e.g., developer/tutorials)");
+	}
+
+	private String _docdir;
+	private boolean _dxpCheck;
+	private String _guide;
+	private String _headerId;
+
+}
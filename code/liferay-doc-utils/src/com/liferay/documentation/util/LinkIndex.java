@@ -0,0 +1,398 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reverse index of the relative links between the guides' articles. For
+ * each header ID (the <code>header-id:</code> value of an article in a guide),
+ * the index lists the lines of every article that link to it, so the links
+ * that break when a header ID changes can be found without checking every
+ * guide again.
+ *
+ * <p>
+ * The index is persisted in a {@link CheckManifest}. Each article's entry
+ * holds the header ID and anchors the article declares and the header links
+ * it contains. Updating the index only rescans the articles that changed
+ * since the last update, and the header IDs whose declaring articles changed
+ * are reported as changed targets.
+ * </p>
+ */
+public class LinkIndex {
+
+	public LinkIndex(CheckManifest checkManifest) {
+		_checkManifest = checkManifest;
+	}
+
+	/**
+	 * Returns the key identifying a guide's header ID as a link target.
+	 *
+	 * @param  guideDir the guide's partial path (e.g.,
+	 *         <code>developer/tutorials</code>)
+	 * @param  primaryHeader the header ID
+	 * @return the target's key
+	 */
+	public static String getTargetKey(String guideDir, String primaryHeader) {
+		return guideDir + "#" + primaryHeader;
+	}
+
+	/**
+	 * Returns the targets whose declaring articles were added, removed, or
+	 * changed their header IDs or anchors since the last update, or
+	 * <code>null</code> if there was no previous index to compare with.
+	 *
+	 * @return the keys of the changed targets, or <code>null</code>
+	 */
+	public Set<String> getChangedTargets() {
+		return _changedTargets;
+	}
+
+	/**
+	 * Returns the lines linking to the guide's header ID, in the order the
+	 * guides and their articles were indexed.
+	 *
+	 * @param  guideDir the guide's partial path
+	 * @param  primaryHeader the header ID
+	 * @param  secondaryHeader the anchor following the header ID, or
+	 *         <code>null</code> to return the links to any of the article's
+	 *         anchors as well as the links to the article itself
+	 * @return the lines linking to the header ID
+	 */
+	public List<InboundLink> getInboundLinks(
+		String guideDir, String primaryHeader, String secondaryHeader) {
+
+		List<InboundLink> inboundLinks = _inboundLinks.get(
+			getTargetKey(guideDir, primaryHeader));
+
+		if (inboundLinks == null) {
+			return Collections.emptyList();
+		}
+
+		if (secondaryHeader == null) {
+			return inboundLinks;
+		}
+
+		List<InboundLink> anchorLinks = new ArrayList<InboundLink>();
+
+		for (InboundLink inboundLink : inboundLinks) {
+			if (secondaryHeader.equals(inboundLink.getSecondaryHeader())) {
+				anchorLinks.add(inboundLink);
+			}
+		}
+
+		return anchorLinks;
+	}
+
+	/**
+	 * Returns the number of lines linking to any of the targets.
+	 *
+	 * @param  targets the keys of the targets
+	 * @return the number of lines linking to the targets
+	 */
+	public int getInboundLinkCount(Set<String> targets) {
+		int count = 0;
+
+		for (String target : targets) {
+			List<InboundLink> inboundLinks = _inboundLinks.get(target);
+
+			if (inboundLinks != null) {
+				count += inboundLinks.size();
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of articles rescanned by the last update.
+	 *
+	 * @return the number of articles rescanned
+	 */
+	public int getUpdatedCount() {
+		return _updatedCount;
+	}
+
+	/**
+	 * Updates the index with the guides' articles. Articles that haven't
+	 * changed since they were indexed are taken from the manifest; the others
+	 * are read through the document set and scanned for header IDs and links.
+	 *
+	 * @param  docSet the document set, through which articles are read
+	 * @param  guideDirs the guides' partial paths
+	 * @param  guideArticles each guide's articles
+	 * @param  headerCatalog the catalog to take the articles' headers from
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void update(
+			DocSet docSet, String[] guideDirs, List<List<File>> guideArticles,
+			HeaderCatalog headerCatalog)
+		throws IOException {
+
+		boolean previousIndex = _checkManifest.size() > 0;
+
+		Set<String> changedTargets = new HashSet<String>();
+
+		_inboundLinks.clear();
+		_updatedCount = 0;
+
+		for (int i = 0; i < guideDirs.length; i++) {
+			String guideDir = guideDirs[i];
+
+			for (File article : guideArticles.get(i)) {
+				CheckManifest.Entry entry = _checkManifest.getUnchangedEntry(
+					docSet, article);
+
+				if ((entry == null) ||
+					!guideDir.equals(getDeclaration(entry)[1])) {
+
+					CheckManifest.Entry previousEntry = _checkManifest.getEntry(
+						article);
+
+					entry = indexArticle(
+						docSet, guideDir, article, headerCatalog);
+
+					addChangedTargets(previousEntry, entry, changedTargets);
+
+					_updatedCount++;
+				}
+
+				addInboundLinks(article, entry);
+			}
+		}
+
+		// The remaining entries are of articles that were removed
+
+		for (CheckManifest.Entry entry :
+				_checkManifest.getUnusedEntries().values()) {
+
+			addChangedTargets(entry, null, changedTargets);
+		}
+
+		if (previousIndex) {
+			_changedTargets = changedTargets;
+		}
+		else {
+			_changedTargets = null;
+		}
+	}
+
+	private static void addChangedTarget(
+		String[] declaration, Set<String> changedTargets) {
+
+		if (declaration[2] != null) {
+			changedTargets.add(getTargetKey(declaration[1], declaration[2]));
+		}
+	}
+
+	private static void addChangedTargets(
+		CheckManifest.Entry previousEntry, CheckManifest.Entry entry,
+		Set<String> changedTargets) {
+
+		String[] previousDeclaration = null;
+
+		if (previousEntry != null) {
+			previousDeclaration = getDeclaration(previousEntry);
+		}
+
+		String[] declaration = null;
+
+		if (entry != null) {
+			declaration = getDeclaration(entry);
+		}
+
+		if ((previousDeclaration != null) && (declaration != null) &&
+			isSameDeclaration(previousDeclaration, declaration)) {
+
+			return;
+		}
+
+		if (previousDeclaration != null) {
+			addChangedTarget(previousDeclaration, changedTargets);
+		}
+
+		if (declaration != null) {
+			addChangedTarget(declaration, changedTargets);
+		}
+	}
+
+	private static boolean isSameDeclaration(
+		String[] declaration1, String[] declaration2) {
+
+		for (int i = 0; i < declaration1.length; i++) {
+			if ((declaration1[i] == null) ? (declaration2[i] != null) :
+					!declaration1[i].equals(declaration2[i])) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the entry's declaration record: the record type, the guide, the
+	 * header ID (may be <code>null</code>), and the hash of the anchors.
+	 */
+	private static String[] getDeclaration(CheckManifest.Entry entry) {
+		for (String[] record : entry.getRecords()) {
+			if (record[0].equals(DECLARATION) && (record.length == 4)) {
+				return record;
+			}
+		}
+
+		return new String[] {DECLARATION, null, null, null};
+	}
+
+	private static String hashAnchors(
+		HeaderCatalog.ArticleHeaders articleHeaders) {
+
+		List<String> anchors = new ArrayList<String>(
+			articleHeaders.getAnchors());
+
+		Collections.sort(anchors);
+
+		StringBuilder sb = new StringBuilder();
+
+		for (String anchor : anchors) {
+			sb.append(anchor);
+			sb.append('\n');
+		}
+
+		return CheckManifest.hash(sb.toString());
+	}
+
+	private void addInboundLinks(File article, CheckManifest.Entry entry) {
+		for (String[] record : entry.getRecords()) {
+			if (!record[0].equals(LINK) || (record.length != 6)) {
+				continue;
+			}
+
+			InboundLink inboundLink = new InboundLink(
+				article, Integer.parseInt(record[1]), record[5], record[2],
+				record[3], record[4]);
+
+			String target = getTargetKey(record[2], record[3]);
+
+			List<InboundLink> inboundLinks = _inboundLinks.get(target);
+
+			if (inboundLinks == null) {
+				inboundLinks = new ArrayList<InboundLink>();
+
+				_inboundLinks.put(target, inboundLinks);
+			}
+
+			inboundLinks.add(inboundLink);
+		}
+	}
+
+	private CheckManifest.Entry indexArticle(
+			DocSet docSet, String guideDir, File article,
+			HeaderCatalog headerCatalog)
+		throws IOException {
+
+		List<String> lines = docSet.getArticle(article).getLines();
+
+		HeaderCatalog.ArticleHeaders articleHeaders =
+			headerCatalog.getArticleHeaders(article, lines);
+
+		// Checking the article against an empty catalog finds its header
+		// links the same way the link checker does
+
+		ArticleLinkChecker.Result result = _linkExtractor.checkArticle(
+			article, lines);
+
+		CheckManifest.Entry entry = _checkManifest.putEntry(docSet, article);
+
+		entry.addRecord(
+			DECLARATION, guideDir, articleHeaders.getPrimaryHeader(),
+			hashAnchors(articleHeaders));
+
+		for (ArticleLinkChecker.Dependency dependency :
+				result.getDependencies()) {
+
+			if (dependency.getUrl() != null) {
+				continue;
+			}
+
+			entry.addRecord(
+				LINK, String.valueOf(dependency.getLineNumber()),
+				dependency.getGuideDir(), dependency.getPrimaryHeader(),
+				dependency.getSecondaryHeader(),
+				lines.get(dependency.getLineNumber() - 1));
+		}
+
+		return entry;
+	}
+
+	private static final String DECLARATION = "declares";
+
+	private static final String LINK = "link";
+
+	private Set<String> _changedTargets;
+	private final CheckManifest _checkManifest;
+	private final Map<String, List<InboundLink>> _inboundLinks =
+		new HashMap<String, List<InboundLink>>();
+	private final ArticleLinkChecker _linkExtractor = new ArticleLinkChecker(
+		new HeaderCatalog(), null);
+	private int _updatedCount;
+
+	/**
+	 * A line linking to a header ID.
+	 */
+	public static class InboundLink {
+
+		public InboundLink(
+			File article, int lineNumber, String line, String guideDir,
+			String primaryHeader, String secondaryHeader) {
+
+			_article = article;
+			_lineNumber = lineNumber;
+			_line = line;
+			_guideDir = guideDir;
+			_primaryHeader = primaryHeader;
+			_secondaryHeader = secondaryHeader;
+		}
+
+		public File getArticle() {
+			return _article;
+		}
+
+		public String getGuideDir() {
+			return _guideDir;
+		}
+
+		public String getLine() {
+			return _line;
+		}
+
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		public String getPrimaryHeader() {
+			return _primaryHeader;
+		}
+
+		/**
+		 * Returns the anchor following the header ID in the link, or
+		 * <code>null</code> if the link targets the article itself.
+		 */
+		public String getSecondaryHeader() {
+			return _secondaryHeader;
+		}
+
+		private final File _article;
+		private final String _guideDir;
+		private final String _line;
+		private final int _lineNumber;
+		private final String _primaryHeader;
+		private final String _secondaryHeader;
+	}
+}
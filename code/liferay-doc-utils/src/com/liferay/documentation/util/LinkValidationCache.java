@@ -0,0 +1,346 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the results of validating remote links between runs of the link
+ * checker. Each entry holds the URL's status code, the <code>ETag</code> and
+ * <code>Last-Modified</code> values the server returned, and when the URL was
+ * last checked.
+ *
+ * <p>
+ * An entry younger than the cache's time to live is trusted without contacting
+ * the server. An older entry is revalidated with a conditional request, so an
+ * unchanged target costs a <code>304 Not Modified</code> response instead of a
+ * full download. Only valid results are trusted: a URL that was broken (e.g.,
+ * a javadoc page that wasn't published yet) is requested again on every run.
+ * </p>
+ *
+ * <p>
+ * The cache file is plain text with one tab-separated entry per line:
+ * <code>url status checkedTime eTag lastModified</code>.
+ * </p>
+ */
+public class LinkValidationCache {
+
+	public LinkValidationCache(File file, long ttl) {
+		_file = file;
+		_ttl = ttl;
+	}
+
+	/**
+	 * Adds the conditional request headers for the URL's cached entry, if
+	 * there is a valid one, to the connection.
+	 *
+	 * @param url the URL being requested
+	 * @param urlConnection the connection to the URL
+	 */
+	public void addConditionalHeaders(
+		String url, HttpURLConnection urlConnection) {
+
+		Entry entry = _entries.get(url);
+
+		if ((entry == null) || !isValid(entry)) {
+			return;
+		}
+
+		if (entry.getETag() != null) {
+			urlConnection.setRequestProperty("If-None-Match", entry.getETag());
+		}
+
+		if (entry.getLastModified() != null) {
+			urlConnection.setRequestProperty(
+				"If-Modified-Since", entry.getLastModified());
+		}
+	}
+
+	public File getFile() {
+		return _file;
+	}
+
+	/**
+	 * Returns the URL's cached status code if its entry is valid and hasn't
+	 * expired, or <code>null</code> if the URL must be requested.
+	 *
+	 * @param  url the URL
+	 * @return the URL's cached status code, or <code>null</code>
+	 */
+	public Integer getFreshStatus(String url) {
+		_usedUrls.add(url);
+
+		Entry entry = _entries.get(url);
+
+		if ((entry == null) || !isValid(entry) ||
+			((System.currentTimeMillis() - entry.getChecked()) > _ttl)) {
+
+			return null;
+		}
+
+		return entry.getStatus();
+	}
+
+	/**
+	 * Loads the cache file, if it exists. Malformed lines are skipped.
+	 *
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void load() throws IOException {
+		if (!_file.exists()) {
+			return;
+		}
+
+		BufferedReader in = new BufferedReader(
+			new InputStreamReader(
+				new FileInputStream(_file), StandardCharsets.UTF_8));
+
+		try {
+			String line = null;
+
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+
+				if (fields.length != 5) {
+					continue;
+				}
+
+				try {
+					Entry entry = new Entry(
+						Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+						emptyToNull(fields[3]), emptyToNull(fields[4]));
+
+					_entries.put(fields[0], entry);
+				}
+				catch (NumberFormatException e) {
+					continue;
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Removes the entries that have expired and the entries for URLs that
+	 * weren't looked up during this run.
+	 *
+	 * @return the number of entries removed
+	 */
+	public int prune() {
+		int count = 0;
+		long now = System.currentTimeMillis();
+
+		Iterator<Map.Entry<String, Entry>> iterator =
+			_entries.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+			Map.Entry<String, Entry> mapEntry = iterator.next();
+
+			if (!_usedUrls.contains(mapEntry.getKey()) ||
+				((now - mapEntry.getValue().getChecked()) > _ttl)) {
+
+				iterator.remove();
+
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Stores the response to a request for the URL. A
+	 * <code>304 Not Modified</code> response renews the URL's existing entry
+	 * and returns its cached status code.
+	 *
+	 * @param  url the requested URL
+	 * @param  status the response's status code
+	 * @param  urlConnection the connection the response was read from
+	 * @return the URL's status code
+	 */
+	public int put(String url, int status, HttpURLConnection urlConnection) {
+		Entry entry = _entries.get(url);
+
+		if ((status == HttpURLConnection.HTTP_NOT_MODIFIED) && (entry != null)) {
+			_entries.put(
+				url,
+				new Entry(
+					entry.getStatus(), System.currentTimeMillis(),
+					entry.getETag(), entry.getLastModified()));
+
+			return entry.getStatus();
+		}
+
+		put(
+			url, status, urlConnection.getHeaderField("ETag"),
+			urlConnection.getHeaderField("Last-Modified"));
+
+		return status;
+	}
+
+	/**
+	 * Stores the URL's status code.
+	 *
+	 * @param url the URL
+	 * @param status the URL's status code
+	 * @param eTag the <code>ETag</code> the server returned for the URL (may
+	 *        be <code>null</code>)
+	 * @param lastModified the <code>Last-Modified</code> date the server
+	 *        returned for the URL (may be <code>null</code>)
+	 */
+	public void put(String url, int status, String eTag, String lastModified) {
+		_usedUrls.add(url);
+
+		_entries.put(
+			url,
+			new Entry(status, System.currentTimeMillis(), eTag, lastModified));
+	}
+
+	/**
+	 * Writes the cache file. The file is replaced in one step so an
+	 * interrupted run can't leave it half written.
+	 *
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void save() throws IOException {
+		File dir = _file.getAbsoluteFile().getParentFile();
+
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+
+		List<String> urls = new ArrayList<String>(_entries.keySet());
+
+		Collections.sort(urls);
+
+		File tmpFile = new File(dir, _file.getName() + ".tmp");
+
+		BufferedWriter out = new BufferedWriter(
+			new OutputStreamWriter(
+				new FileOutputStream(tmpFile), StandardCharsets.UTF_8));
+
+		try {
+			for (String url : urls) {
+				Entry entry = _entries.get(url);
+
+				out.append(url);
+				out.append('\t');
+				out.append(String.valueOf(entry.getStatus()));
+				out.append('\t');
+				out.append(String.valueOf(entry.getChecked()));
+				out.append('\t');
+				out.append(nullToEmpty(entry.getETag()));
+				out.append('\t');
+				out.append(nullToEmpty(entry.getLastModified()));
+				out.append('\n');
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		Files.move(
+			tmpFile.toPath(), _file.toPath(),
+			StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public int size() {
+		return _entries.size();
+	}
+
+	private static String emptyToNull(String value) {
+		if (value.isEmpty()) {
+			return null;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns <code>true</code> if the entry's status code is a success or a
+	 * redirect. Broken results, like a <code>404</code> status code or an
+	 * unreachable URL, are never served from the cache.
+	 */
+	private static boolean isValid(Entry entry) {
+		int status = entry.getStatus();
+
+		if ((status >= HttpURLConnection.HTTP_OK) &&
+			(status < HttpURLConnection.HTTP_BAD_REQUEST)) {
+
+			return true;
+		}
+
+		return false;
+	}
+
+	private static String nullToEmpty(String value) {
+		if (value == null) {
+			return "";
+		}
+
+		// Keep the file's format intact
+
+		return value.replace('\t', ' ').replace('\n', ' ');
+	}
+
+	private final Map<String, Entry> _entries =
+		new ConcurrentHashMap<String, Entry>();
+	private final File _file;
+	private final long _ttl;
+	private final Set<String> _usedUrls = Collections.newSetFromMap(
+		new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * A cached link validation result.
+	 */
+	public static class Entry {
+
+		public Entry(
+			int status, long checked, String eTag, String lastModified) {
+
+			_status = status;
+			_checked = checked;
+			_eTag = eTag;
+			_lastModified = lastModified;
+		}
+
+		public long getChecked() {
+			return _checked;
+		}
+
+		public String getETag() {
+			return _eTag;
+		}
+
+		public String getLastModified() {
+			return _lastModified;
+		}
+
+		public int getStatus() {
+			return _status;
+		}
+
+		private final long _checked;
+		private final String _eTag;
+		private final String _lastModified;
+		private final int _status;
+	}
+}
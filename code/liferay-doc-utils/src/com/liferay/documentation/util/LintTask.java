@@ -0,0 +1,116 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Lints a document set's Markdown articles with the {@link MarkdownLint}
+ * engine's default rules, in one pass over each article, and writes the
+ * problems found to a JSON report. For DXP, the <code>articles-dxp</code>
+ * folder is linted too.
+ *
+ * <p>
+ * The task fails if any problems are found, unless
+ * <code>failonerror</code> is <code>false</code>.
+ * </p>
+ */
+public class LintTask extends Task {
+
+	@Override
+	public void execute() throws BuildException {
+
+		List<String> dirTypes = new ArrayList<String>();
+		dirTypes.add("");
+
+		if (_productType.equals("dxp")) {
+			dirTypes.add("-dxp");
+		}
+
+		DocSet docSet = new DocSet(_docdir);
+
+		File articlesDir = docSet.getArticlesDir("");
+
+		if (!articlesDir.exists()) {
+			throw new BuildException("FAILURE - no articles directory " + articlesDir);
+		}
+
+		int articleCount = 0;
+
+		for (String dirType : dirTypes) {
+			articleCount += docSet.getArticleFiles(dirType).size();
+		}
+
+		long start = System.currentTimeMillis();
+
+		MarkdownLint markdownLint = new MarkdownLint(
+			MarkdownLint.getDefaultRules());
+
+		List<MarkdownLint.Problem> problems;
+
+		try {
+			problems = markdownLint.lint(docSet, dirTypes, _threads);
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
+		long time = System.currentTimeMillis() - start;
+
+		for (MarkdownLint.Problem problem : problems) {
+			System.out.println(problem);
+		}
+
+		if (_reportFile != null) {
+			try {
+				DocsUtil.writeIfChanged(
+					_reportFile,
+					MarkdownLint.toJSON(_docdir, articleCount, time, problems));
+			} catch (IOException e) {
+				throw new BuildException(e.getLocalizedMessage());
+			}
+
+			System.out.println("Wrote the lint report " +
+					_reportFile.getPath());
+		}
+
+		System.out.println("Linted " + articleCount + " articles on " +
+				Math.max(1, _threads) + " threads in " + time + " ms; found " +
+				problems.size() + " problems");
+
+		if (!problems.isEmpty() && _failOnError) {
+			throw new BuildException("Found " + problems.size() +
+					" lint problems");
+		}
+	}
+
+	public void setDocdir(String docdir) {
+		_docdir = docdir;
+	}
+
+	public void setFailonerror(boolean failOnError) {
+		_failOnError = failOnError;
+	}
+
+	public void setProductType(String productType) {
+		_productType = productType;
+	}
+
+	public void setReportfile(File reportFile) {
+		_reportFile = reportFile;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	private String _docdir;
+	private boolean _failOnError = true;
+	private String _productType = "ce";
+	private File _reportFile;
+	private int _threads = Runtime.getRuntime().availableProcessors();
+
+}
@@ -0,0 +1,846 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Runs lint rules over a document set's Markdown articles. Each article is
+ * read once, line by line, and every rule sees each line along with a small
+ * window of the lines around it, so no rule needs to read the article again
+ * to look behind or ahead. The articles are linted in parallel; the problems
+ * are reported in the order of the articles, and of the lines within each
+ * article.
+ *
+ * <p>
+ * The default rules are:
+ * </p>
+ *
+ * <ul>
+ * <li>
+ * <code>header</code>: the article starts with the header ID syntax
+ * </li>
+ * <li>
+ * <code>title</code>: a single <code>#</code> title header follows the header
+ * ID syntax, after a blank line
+ * </li>
+ * <li>
+ * <code>toc</code>: the article has the TOC syntax, followed by a blank line
+ * </li>
+ * <li>
+ * <code>intro</code>: every article folder has an intro article
+ * </li>
+ * </ul>
+ *
+ * <p>
+ * The header and title rules report the same failures as
+ * {@link CheckHeadersTask}, the TOC rule the failures {@link AddTOCTask}
+ * reports and the articles it would add the TOC syntax to, and the intro rule
+ * the folders {@link CheckIntrosTask} reports.
+ * </p>
+ */
+public class MarkdownLint {
+
+	/**
+	 * Creates a lint engine running the rules.
+	 *
+	 * @param rules the rules
+	 */
+	public MarkdownLint(List<Rule> rules) {
+		_rules = rules;
+	}
+
+	/**
+	 * Returns the header, title, TOC, and intro rules.
+	 *
+	 * @return the default rules
+	 */
+	public static List<Rule> getDefaultRules() {
+		List<Rule> rules = new ArrayList<Rule>();
+
+		rules.addAll(getHeaderRules());
+		rules.add(new TOCRule());
+		rules.add(new IntroRule());
+
+		return rules;
+	}
+
+	/**
+	 * Returns the header and title rules, which check the start of an article
+	 * like {@link CheckHeadersTask} does.
+	 *
+	 * @return the header and title rules
+	 */
+	public static List<Rule> getHeaderRules() {
+		return Arrays.<Rule>asList(new HeaderRule(), new TitleRule());
+	}
+
+	/**
+	 * Returns the problems as a JSON report.
+	 *
+	 * @param  docDir the linted document folder
+	 * @param  articleCount the number of articles linted
+	 * @param  time the time linting took, in milliseconds
+	 * @param  problems the problems
+	 * @return the JSON report
+	 */
+	public static String toJSON(
+		String docDir, int articleCount, long time, List<Problem> problems) {
+
+		Map<String, Integer> ruleCounts = new LinkedHashMap<String, Integer>();
+
+		for (Problem problem : problems) {
+			Integer count = ruleCounts.get(problem.getRule());
+
+			if (count == null) {
+				count = 0;
+			}
+
+			ruleCounts.put(problem.getRule(), count + 1);
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("{\n");
+		sb.append("\t\"docDir\": ");
+		appendJSONString(sb, docDir);
+		sb.append(",\n");
+		sb.append("\t\"articles\": ");
+		sb.append(articleCount);
+		sb.append(",\n");
+		sb.append("\t\"time\": ");
+		sb.append(time);
+		sb.append(",\n");
+		sb.append("\t\"counts\": {");
+
+		boolean first = true;
+
+		for (Map.Entry<String, Integer> entry : ruleCounts.entrySet()) {
+			if (!first) {
+				sb.append(",");
+			}
+
+			sb.append("\n\t\t");
+			appendJSONString(sb, entry.getKey());
+			sb.append(": ");
+			sb.append(entry.getValue());
+
+			first = false;
+		}
+
+		if (!first) {
+			sb.append("\n\t");
+		}
+
+		sb.append("},\n");
+		sb.append("\t\"problems\": [");
+
+		first = true;
+
+		for (Problem problem : problems) {
+			if (!first) {
+				sb.append(",");
+			}
+
+			sb.append("\n\t\t{\"rule\": ");
+			appendJSONString(sb, problem.getRule());
+			sb.append(", \"file\": ");
+			appendJSONString(sb, problem.getFile().getPath());
+			sb.append(", \"line\": ");
+			sb.append(problem.getLineNumber());
+			sb.append(", \"message\": ");
+			appendJSONString(sb, problem.getMessage());
+			sb.append("}");
+
+			first = false;
+		}
+
+		if (!first) {
+			sb.append("\n\t");
+		}
+
+		sb.append("]\n");
+		sb.append("}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Lints the articles of the document set's articles folders, on a number
+	 * of threads. The articles are streamed from disk, except for the articles
+	 * other checks have changed in the document set but not written yet, which
+	 * are linted as changed.
+	 *
+	 * @param  docSet the document set
+	 * @param  dirTypes the articles folders' suffixes (e.g.,
+	 *         <code>-dxp</code>)
+	 * @param  threads the number of threads to lint the articles on
+	 * @return the problems found
+	 * @throws IOException if an IO exception occurred
+	 */
+	public List<Problem> lint(
+			final DocSet docSet, List<String> dirTypes, int threads)
+		throws IOException {
+
+		List<File> articles = new ArrayList<File>();
+
+		for (String dirType : dirTypes) {
+			articles.addAll(docSet.getArticleFiles(dirType));
+		}
+
+		List<Problem> problems = new ArrayList<Problem>();
+
+		ExecutorService executorService = Executors.newFixedThreadPool(
+			Math.max(1, threads));
+
+		try {
+			List<Future<List<Problem>>> futures =
+				new ArrayList<Future<List<Problem>>>();
+
+			for (final File article : articles) {
+				futures.add(executorService.submit(
+					new Callable<List<Problem>>() {
+
+						@Override
+						public List<Problem> call() throws IOException {
+							if (docSet.isModified(article)) {
+								return lintArticle(
+									article,
+									new StringReader(
+										docSet.getArticle(article).getContent()));
+							}
+
+							return lintArticle(article);
+						}
+
+					}));
+			}
+
+			for (Future<List<Problem>> future : futures) {
+				problems.addAll(getResult(future));
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		for (Rule rule : _rules) {
+			rule.checkDocSet(docSet, dirTypes, problems);
+		}
+
+		return problems;
+	}
+
+	/**
+	 * Lints the article, reading it line by line from the reader.
+	 *
+	 * @param  article the article
+	 * @param  reader the reader of the article's content
+	 * @return the problems found
+	 * @throws IOException if an IO exception occurred
+	 */
+	public List<Problem> lintArticle(File article, Reader reader)
+		throws IOException {
+
+		BufferedReader bufferedReader = new BufferedReader(reader);
+
+		try {
+			return lintArticle(article, new LineWindow(bufferedReader));
+		}
+		finally {
+			bufferedReader.close();
+		}
+	}
+
+	/**
+	 * Lints the article, streaming it from its file.
+	 *
+	 * @param  article the article
+	 * @return the problems found
+	 * @throws IOException if an IO exception occurred
+	 */
+	public List<Problem> lintArticle(File article) throws IOException {
+		return lintArticle(article, new FileReader(article));
+	}
+
+	private static void appendJSONString(StringBuilder sb, String s) {
+		sb.append('"');
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+
+			if ((c == '"') || (c == '\\')) {
+				sb.append('\\');
+				sb.append(c);
+			}
+			else if (c == '\n') {
+				sb.append("\\n");
+			}
+			else if (c == '\r') {
+				sb.append("\\r");
+			}
+			else if (c == '\t') {
+				sb.append("\\t");
+			}
+			else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int)c));
+			}
+			else {
+				sb.append(c);
+			}
+		}
+
+		sb.append('"');
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			if (cause instanceof BuildException) {
+				throw (BuildException)cause;
+			}
+
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new BuildException(e);
+		}
+	}
+
+	private List<Problem> lintArticle(File article, LineWindow lineWindow)
+		throws IOException {
+
+		List<Problem> problems = new ArrayList<Problem>();
+
+		List<LineChecker> lineCheckers = new ArrayList<LineChecker>();
+
+		for (Rule rule : _rules) {
+			LineChecker lineChecker = rule.createLineChecker(article);
+
+			if (lineChecker != null) {
+				lineCheckers.add(lineChecker);
+			}
+		}
+
+		if (lineCheckers.isEmpty()) {
+			return problems;
+		}
+
+		while (lineWindow.next()) {
+			for (LineChecker lineChecker : lineCheckers) {
+				lineChecker.checkLine(lineWindow, problems);
+			}
+		}
+
+		for (LineChecker lineChecker : lineCheckers) {
+			lineChecker.finish(lineWindow, problems);
+		}
+
+		return problems;
+	}
+
+	private static boolean isTitle(String line) {
+		return (line != null) && line.startsWith("# ");
+	}
+
+	private static final String TOC_SYNTAX = "[TOC levels=1-4]";
+
+	private final List<Rule> _rules;
+
+	/**
+	 * Checks the lines of one article, in order, keeping whatever state it
+	 * needs between lines.
+	 */
+	public interface LineChecker {
+
+		/**
+		 * Checks the window's current line.
+		 *
+		 * @param lineWindow the window of the article's lines
+		 * @param problems the problems to add this line's problems to
+		 */
+		public void checkLine(LineWindow lineWindow, List<Problem> problems);
+
+		/**
+		 * Checks the article after its last line has been checked.
+		 *
+		 * @param lineWindow the window, past the article's last line
+		 * @param problems the problems to add the article's problems to
+		 */
+		public void finish(LineWindow lineWindow, List<Problem> problems);
+
+	}
+
+	/**
+	 * A window over an article's lines, holding the current line along with
+	 * the lines just before and after it.
+	 */
+	public static class LineWindow {
+
+		public static final int SIZE = 2;
+
+		public LineWindow(BufferedReader bufferedReader) throws IOException {
+			_bufferedReader = bufferedReader;
+
+			readAhead();
+		}
+
+		/**
+		 * Returns the line at the offset from the current line, e.g.,
+		 * <code>-1</code> for the previous line and <code>1</code> for the
+		 * next line.
+		 *
+		 * @param  offset the offset, from <code>-SIZE</code> to
+		 *         <code>SIZE</code>
+		 * @return the line, or <code>null</code> if the article has no line
+		 *         there
+		 */
+		public String get(int offset) {
+			if (offset == 0) {
+				return _line;
+			}
+
+			if (offset > 0) {
+				if (offset > _ahead.size()) {
+					return null;
+				}
+
+				return _ahead.get(offset - 1);
+			}
+
+			if (-offset > _behind.size()) {
+				return null;
+			}
+
+			return _behind.get(_behind.size() + offset);
+		}
+
+		public String getLine() {
+			return _line;
+		}
+
+		/**
+		 * Returns the current line's number, starting at <code>1</code>.
+		 *
+		 * @return the current line's number
+		 */
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		/**
+		 * Moves to the next line.
+		 *
+		 * @return <code>true</code> if there's a next line;
+		 *         <code>false</code> otherwise
+		 * @throws IOException if an IO exception occurred
+		 */
+		public boolean next() throws IOException {
+			if (_line != null) {
+				_behind.add(_line);
+
+				if (_behind.size() > SIZE) {
+					_behind.remove(0);
+				}
+			}
+
+			if (_ahead.isEmpty()) {
+				_line = null;
+
+				return false;
+			}
+
+			_line = _ahead.remove(0);
+			_lineNumber++;
+
+			readAhead();
+
+			return true;
+		}
+
+		private void readAhead() throws IOException {
+			while (_ahead.size() < SIZE) {
+				String line = _bufferedReader.readLine();
+
+				if (line == null) {
+					return;
+				}
+
+				_ahead.add(line);
+			}
+		}
+
+		private final List<String> _ahead = new ArrayList<String>(SIZE);
+		private final List<String> _behind = new ArrayList<String>(SIZE + 1);
+		private final BufferedReader _bufferedReader;
+		private String _line;
+		private int _lineNumber;
+	}
+
+	/**
+	 * A problem a rule found in an article.
+	 */
+	public static class Problem {
+
+		public Problem(
+			String rule, File file, int lineNumber, String message) {
+
+			_rule = rule;
+			_file = file;
+			_lineNumber = lineNumber;
+			_message = message;
+		}
+
+		public File getFile() {
+			return _file;
+		}
+
+		/**
+		 * Returns the number of the line the problem is on, or <code>0</code>
+		 * if the problem isn't on a particular line.
+		 *
+		 * @return the line number
+		 */
+		public int getLineNumber() {
+			return _lineNumber;
+		}
+
+		public String getMessage() {
+			return _message;
+		}
+
+		public String getRule() {
+			return _rule;
+		}
+
+		@Override
+		public String toString() {
+			if (_lineNumber > 0) {
+				return _rule + ": " + _file.getPath() + ":" + _lineNumber +
+					": " + _message;
+			}
+
+			return _rule + ": " + _file.getPath() + ": " + _message;
+		}
+
+		private final File _file;
+		private final int _lineNumber;
+		private final String _message;
+		private final String _rule;
+	}
+
+	/**
+	 * A lint rule. A rule checks each article's lines with a line checker of
+	 * its own, and can check the document set as a whole once all the
+	 * articles have been checked.
+	 */
+	public abstract static class Rule {
+
+		/**
+		 * Returns the rule's name, which identifies its problems in reports.
+		 *
+		 * @return the rule's name
+		 */
+		public abstract String getName();
+
+		/**
+		 * Returns a new line checker for the article.
+		 *
+		 * @param  article the article
+		 * @return the line checker, or <code>null</code> if the rule doesn't
+		 *         check the articles' lines
+		 */
+		public LineChecker createLineChecker(File article) {
+			return null;
+		}
+
+		/**
+		 * Checks the document set as a whole.
+		 *
+		 * @param docSet the document set
+		 * @param dirTypes the linted articles folders' suffixes
+		 * @param problems the problems to add the document set's problems to
+		 */
+		public void checkDocSet(
+			DocSet docSet, List<String> dirTypes, List<Problem> problems) {
+		}
+
+	}
+
+	/**
+	 * Reports an article that doesn't start with the header ID syntax, i.e.,
+	 * with a block enclosed by two <code>---</code> lines.
+	 */
+	private static class HeaderRule extends Rule {
+
+		@Override
+		public LineChecker createLineChecker(final File article) {
+			return new LineChecker() {
+
+				@Override
+				public void checkLine(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					if (_separators == 2) {
+						_headerExists = true;
+					}
+					else if (lineWindow.getLine().startsWith("---")) {
+						_separators++;
+					}
+				}
+
+				@Override
+				public void finish(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					// The header ID syntax is only complete if a line follows
+					// its closing separator
+
+					if (!_headerExists) {
+						problems.add(new Problem(
+							getName(), article, 0,
+							"FAILURE - " + article.getPath() +
+								": File does not start with proper header " +
+									"syntax."));
+					}
+				}
+
+				private boolean _headerExists;
+				private int _separators;
+
+			};
+		}
+
+		@Override
+		public String getName() {
+			return "header";
+		}
+
+	}
+
+	/**
+	 * Reports an article whose header ID syntax isn't followed by a blank
+	 * line and a single <code>#</code> title header. A title that's on the
+	 * line right after the header ID syntax, or one line too far down, is
+	 * reported as spaced incorrectly. Any other HTML element than a comment
+	 * is accepted in place of the title.
+	 */
+	private static class TitleRule extends Rule {
+
+		@Override
+		public LineChecker createLineChecker(final File article) {
+			return new LineChecker() {
+
+				@Override
+				public void checkLine(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					if (_separators == 2) {
+						_separators++;
+
+						checkTitle(lineWindow, problems);
+
+						return;
+					}
+
+					if ((_separators < 2) &&
+						lineWindow.getLine().startsWith("---")) {
+
+						_separators++;
+					}
+				}
+
+				@Override
+				public void finish(
+					LineWindow lineWindow, List<Problem> problems) {
+				}
+
+				/**
+				 * Checks the title, two lines after the header ID syntax,
+				 * from the first line after the header ID syntax.
+				 */
+				private void checkTitle(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					String titleLine = lineWindow.get(1);
+
+					if (isTitle(titleLine)) {
+						return;
+					}
+
+					if ((titleLine != null) && titleLine.startsWith("<") &&
+						!titleLine.startsWith("<!--")) {
+
+						// Allow non-comment tags
+
+						return;
+					}
+
+					String message;
+
+					if (isTitle(lineWindow.getLine()) ||
+						isTitle(lineWindow.get(2))) {
+
+						message = "FAILURE - " + article.getPath() +
+							": File's single # header is spaced incorrectly.";
+					}
+					else {
+						message = "FAILURE - " + article.getPath() +
+							": File does not start with a single # for a " +
+								"header";
+					}
+
+					problems.add(new Problem(
+						getName(), article, lineWindow.getLineNumber() + 1,
+						message));
+				}
+
+				private int _separators;
+
+			};
+		}
+
+		@Override
+		public String getName() {
+			return "title";
+		}
+
+	}
+
+	/**
+	 * Reports an article that doesn't have the TOC syntax, or whose TOC syntax
+	 * isn't followed by a blank line.
+	 */
+	private static class TOCRule extends Rule {
+
+		@Override
+		public LineChecker createLineChecker(final File article) {
+			return new LineChecker() {
+
+				@Override
+				public void checkLine(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					if (!lineWindow.getLine().startsWith(TOC_SYNTAX)) {
+						return;
+					}
+
+					_tocExists = true;
+
+					String nextLine = lineWindow.get(1);
+
+					if ((nextLine != null) && !nextLine.equals("")) {
+						problems.add(new Problem(
+							getName(), article, lineWindow.getLineNumber() + 1,
+							"The line following the TOC syntax should be " +
+								"blank."));
+					}
+				}
+
+				@Override
+				public void finish(
+					LineWindow lineWindow, List<Problem> problems) {
+
+					if (!_tocExists) {
+						problems.add(new Problem(
+							getName(), article, 0,
+							"The article is missing the TOC syntax " +
+								TOC_SYNTAX));
+					}
+				}
+
+				private boolean _tocExists;
+
+			};
+		}
+
+		@Override
+		public String getName() {
+			return "toc";
+		}
+
+	}
+
+	/**
+	 * Reports the article folders without an intro article. For DXP, the
+	 * <code>articles-dxp</code> folders are merged over the
+	 * <code>articles</code> folders first.
+	 */
+	private static class IntroRule extends Rule {
+
+		@Override
+		public void checkDocSet(
+			DocSet docSet, List<String> dirTypes, List<Problem> problems) {
+
+			Map<String, List<String>> folderArticleNames =
+				new LinkedHashMap<String, List<String>>();
+
+			for (String dirType : dirTypes) {
+				for (Map.Entry<String, List<String>> entry :
+						docSet.getFolderArticleNames(dirType).entrySet()) {
+
+					List<String> names = folderArticleNames.get(
+						entry.getKey());
+
+					if (names == null) {
+						names = new ArrayList<String>();
+
+						folderArticleNames.put(entry.getKey(), names);
+					}
+
+					names.addAll(entry.getValue());
+				}
+			}
+
+			File articlesDir = docSet.getArticlesDir("");
+
+			for (String folder :
+					CheckIntrosTask.findFoldersWithoutIntros(
+						folderArticleNames)) {
+
+				problems.add(new Problem(
+					getName(), new File(articlesDir, folder), 0,
+					"The folder is missing an introduction article"));
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "intro";
+		}
+
+	}
+
+}
@@ -14,52 +14,369 @@
 
 package com.liferay.documentation.util;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
 
 import com.liferay.knowledge.base.markdown.converter.MarkdownConverter;
 import com.liferay.knowledge.base.markdown.converter.internal.flexmark.LiferayFlexmarkConverter;
 
-
-
+/**
+ * Converts Markdown articles to HTML files with the Knowledge Base's Markdown
+ * converter.
+ *
+ * <p>
+ * Converts a single article:
+ * </p>
+ *
+ * <pre>
+ * MarkdownToHtml markdownFile htmlFile
+ * </pre>
+ *
+ * <p>
+ * Converts all the articles of a document set (e.g., <code>user</code>) in
+ * one JVM, on a number of threads, to a folder that mirrors the document
+ * set's folder, with <code>.html</code> appended to each article's name
+ * (e.g., <code>build/articles/01-intro/01-intro.markdown.html</code>):
+ * </p>
+ *
+ * <pre>
+ * MarkdownToHtml -docset docDir htmlDir [threads]
+ * </pre>
+ *
+ * <p>
+ * The document set's conversions are cached in the manifest
+ * <code>build/check-manifest/markdown-to-html.txt</code>. An article is only
+ * converted again if its content, the converter's jar, or the HTML folder
+ * changed, or its HTML file is missing. The HTML files of articles that were
+ * removed are deleted.
+ * </p>
+ *
+ * <p>
+ * The converter keeps the article it parsed, so each thread uses a converter
+ * of its own, which it creates once and reuses for all its articles.
+ * </p>
+ */
 public class MarkdownToHtml {
 
 	public static void main(String[] args) throws IOException {
+		if (args != null && args.length >= 3 && args[0].equals(DOC_SET_OPTION)) {
+			int threads = Runtime.getRuntime().availableProcessors();
+
+			if (args.length >= 4) {
+				threads = Integer.parseInt(args[3]);
+			}
+
+			DocSet docSet = new DocSet(args[1]);
+			File htmlDir = new File(args[2]);
+
+			CheckManifest checkManifest = DocsUtil.loadCheckManifest(
+				docSet.getDocSetDir(), CACHE_NAME,
+				getConverterVersion() + "\t" + htmlDir.getAbsolutePath());
+
+			try {
+				convertDocSet(docSet, htmlDir, threads, checkManifest);
+			}
+			finally {
+				DocsUtil.saveCheckManifest(checkManifest);
+			}
+
+			return;
+		}
+
 		if (args == null || args.length < 2) {
-			throw new IllegalArgumentException("Requires 2 arguments: markdownFile htmlFile");
+			throw new IllegalArgumentException("Requires 2 arguments: markdownFile htmlFile, " +
+					"or 3 arguments: " + DOC_SET_OPTION + " docDir htmlDir");
 		}
 
 		String markdownFile = args[0];
 		String htmlFile = args[1];
 
-        StringBuilder sb = new StringBuilder();
+		String html = convert(FileUtils.readFileToString(new File(markdownFile)));
 
-	    BufferedReader br = new BufferedReader(new FileReader(markdownFile));
+		writeHtml(new File(htmlFile), html);
+	}
 
-	    String line = br.readLine();
+	/**
+	 * Returns the Markdown converted to HTML, using the calling thread's
+	 * converter. The Markdown's lines are terminated by line feeds first, like
+	 * they are when an article is read line by line.
+	 *
+	 * @param  markdown the Markdown
+	 * @return the HTML
+	 * @throws IOException if the Markdown couldn't be converted (e.g., it
+	 *         doesn't start with a <code>header-id</code> YAML header)
+	 */
+	public static String convert(String markdown) throws IOException {
+		StringBuilder sb = new StringBuilder(markdown.length() + 1);
 
-	    while (line != null) {
-	    	sb.append(line);
-	    	sb.append("\n");
-	    	line = br.readLine();
+		for (String line : DocSet.splitLines(markdown)) {
+			sb.append(line);
+			sb.append("\n");
 		}
 
-	    br.close();
+		MarkdownConverter converter = _converter.get();
+
+		converter.parse(sb.toString());
+
+		return converter.convert(sb.toString());
+	}
+
+	/**
+	 * Converts the document set's articles, in its <code>articles</code> and
+	 * <code>articles-dxp</code> folders, to HTML files in the HTML folder.
+	 * Each article's HTML file has the same path relative to the HTML folder
+	 * as the article has relative to the document set's folder, with the
+	 * <code>.html</code> extension added. The conversion time of each article
+	 * is reported.
+	 *
+	 * <p>
+	 * If a manifest of the previous conversions is given, the articles that
+	 * haven't changed since they were converted, and whose HTML files still
+	 * exist, are skipped. The HTML files of the manifest's articles that are
+	 * gone are deleted.
+	 * </p>
+	 *
+	 * @param  docSet the document set
+	 * @param  htmlDir the HTML folder (e.g., <code>build</code>)
+	 * @param  threads the number of threads to convert the articles on
+	 * @param  checkManifest the manifest of the previous conversions (may be
+	 *         <code>null</code>)
+	 * @throws IOException if an IO exception occurred, or an article couldn't
+	 *         be converted
+	 */
+	public static void convertDocSet(
+			final DocSet docSet, final File htmlDir, int threads,
+			final CheckManifest checkManifest)
+		throws IOException {
 
-	    MarkdownConverter converter = new LiferayFlexmarkConverter();
+		long start = System.currentTimeMillis();
 
-	    String html = converter.convert(sb.toString());
+		List<File> articles = new ArrayList<File>();
 
-		BufferedWriter out =
-			new BufferedWriter(new FileWriter(htmlFile));
+		articles.addAll(docSet.getArticleFiles(""));
+		articles.addAll(docSet.getArticleFiles("-dxp"));
 
-		out.append(html);
-		out.append("\n");
-		out.flush();
-		out.close();
+		threads = Math.max(1, threads);
+
+		int converted = 0;
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+
+			for (final File article : articles) {
+				futures.add(executorService.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws IOException {
+						return convertArticle(
+							docSet, article, htmlDir, checkManifest);
+					}
+
+				}));
+			}
+
+			for (Future<String> future : futures) {
+				String result = getResult(future);
+
+				if (result != null) {
+					System.out.println(result);
+
+					converted++;
+				}
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+
+		int removed = 0;
+
+		if (checkManifest != null) {
+			removed = deleteStaleHtmlFiles(checkManifest);
+		}
+
+		System.out.println("Converted " + converted + " of " +
+				articles.size() + " articles on " + threads + " threads in " +
+				(System.currentTimeMillis() - start) + " ms; " +
+				(articles.size() - converted) + " were unchanged and " +
+				removed + " stale HTML files were removed");
 	}
 
+	/**
+	 * Returns the HTML file of the document set's article. It has the same
+	 * path relative to the HTML folder as the article has relative to the
+	 * document set's folder, with the <code>.html</code> extension added.
+	 *
+	 * @param  docSet the document set
+	 * @param  article the article
+	 * @param  htmlDir the HTML folder
+	 * @return the article's HTML file
+	 */
+	public static File getHtmlFile(DocSet docSet, File article, File htmlDir) {
+		String docSetPath = docSet.getDocSetDir().getAbsoluteFile().toPath(
+			).normalize().toString();
+		String articlePath = article.getAbsoluteFile().toPath().normalize(
+			).toString();
+
+		return new File(
+			htmlDir, articlePath.substring(docSetPath.length() + 1) + ".html");
+	}
+
+	/**
+	 * Converts the article to its HTML file, and returns a line reporting the
+	 * conversion time, or <code>null</code> if the article's HTML file is up
+	 * to date.
+	 */
+	private static String convertArticle(
+			DocSet docSet, File article, File htmlDir,
+			CheckManifest checkManifest)
+		throws IOException {
+
+		long start = System.currentTimeMillis();
+
+		File htmlFile = getHtmlFile(docSet, article, htmlDir);
+
+		if ((checkManifest != null) &&
+			(checkManifest.getUnchangedEntry(docSet, article) != null) &&
+			htmlFile.exists()) {
+
+			return null;
+		}
+
+		String html = null;
+
+		try {
+			html = convert(docSet.getArticle(article).getContent());
+		}
+		catch (IOException ioe) {
+			throw new IOException(
+				"Unable to convert " + article.getPath() + ": " +
+					ioe.getMessage(), ioe);
+		}
+
+		writeHtml(htmlFile, html);
+
+		if (checkManifest != null) {
+			CheckManifest.Entry entry = checkManifest.putEntry(docSet, article);
+
+			entry.addRecord(htmlFile.getAbsolutePath());
+		}
+
+		return "Converted " + article.getPath() + " in " +
+			(System.currentTimeMillis() - start) + " ms";
+	}
+
+	/**
+	 * Deletes the HTML files of the manifest's articles that weren't visited
+	 * during this run, i.e., the articles that were removed or renamed.
+	 *
+	 * @param  checkManifest the manifest of the conversions
+	 * @return the number of HTML files deleted
+	 */
+	private static int deleteStaleHtmlFiles(CheckManifest checkManifest) {
+		int count = 0;
+
+		for (CheckManifest.Entry entry :
+				checkManifest.getUnusedEntries().values()) {
+
+			for (String[] record : entry.getRecords()) {
+				File htmlFile = new File(record[0]);
+
+				if (htmlFile.delete()) {
+					System.out.println("Removed stale " + htmlFile.getPath());
+
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the identity of the converter's jar, which changes when the
+	 * converter is updated.
+	 */
+	private static String getConverterVersion() {
+		CodeSource codeSource =
+			LiferayFlexmarkConverter.class.getProtectionDomain(
+				).getCodeSource();
+
+		if (codeSource == null) {
+			return "unknown";
+		}
+
+		File file = null;
+
+		try {
+			file = new File(codeSource.getLocation().toURI());
+		}
+		catch (URISyntaxException urise) {
+			return codeSource.getLocation().toString();
+		}
+
+		return file.getName() + ":" + file.length() + ":" +
+			file.lastModified();
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new RuntimeException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new IOException(e);
+		}
+	}
+
+	private static void writeHtml(File htmlFile, String html)
+		throws IOException {
+
+		DocsUtil.writeIfChanged(htmlFile, html + "\n");
+	}
+
+	private static final String CACHE_NAME = "markdown-to-html";
+
+	private static final String DOC_SET_OPTION = "-docset";
+
+	private static final ThreadLocal<MarkdownConverter> _converter =
+		new ThreadLocal<MarkdownConverter>() {
+
+			@Override
+			protected MarkdownConverter initialValue() {
+				return new LiferayFlexmarkConverter();
+			}
+
+		};
+
 }
@@ -1,12 +1,8 @@
 package com.liferay.documentation.util;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -14,7 +10,6 @@ import java.util.List;
 import java.util.Queue;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
@@ -26,24 +21,55 @@ public class NumberHeadersTask extends Task {
 		String docDir = _docdir;
 		String productType = _productType;
 
-		boolean dxpBuild = false;
-
-		ceFileList = getFileList(docDir, "");
-		
-		List<String> dirTypes = new ArrayList<String>();
-		dirTypes.add("");
+		List<String> ceFiles = getFileList(docDir, "");
+		List<String> dxpFiles = null;
 
 		if (productType.equals("dxp")) {
 			File articlesDxpDir = new File("../" + docDir + "/articles-dxp");
 			
 			if (articlesDxpDir.exists()) {
-				dirTypes.add("-dxp");
-				dxpBuild = true;
-			
-				dxpFileList = getFileList(docDir, "-dxp");
+				dxpFiles = getFileList(docDir, "-dxp");
 			}
 
 		}
+
+		DocSet docSet = new DocSet(docDir);
+
+		try {
+			numberHeaders(docSet, docDir, ceFiles, dxpFiles);
+		} finally {
+			DocsUtil.writeDocSet(docSet);
+		}
+	}
+
+	/**
+	 * Validates the header ID of each article and generates a header ID for
+	 * each article missing one. DXP articles overriding CE articles are given
+	 * the same header IDs as the CE articles.
+	 *
+	 * @param docSet the document set containing the articles
+	 * @param docDir the document directory (e.g., <code>user</code>)
+	 * @param ceFiles the CE articles' paths
+	 * @param dxpFiles the DXP articles' paths, or <code>null</code> if DXP
+	 *        articles aren't numbered
+	 */
+	public static void numberHeaders(DocSet docSet, String docDir,
+			List<String> ceFiles, List<String> dxpFiles) {
+
+		boolean dxpBuild = false;
+
+		ceFileList = ceFiles;
+		dxpFileList = new ArrayList<String>();
+		
+		List<String> dirTypes = new ArrayList<String>();
+		dirTypes.add("");
+
+		if (dxpFiles != null) {
+			dirTypes.add("-dxp");
+			dxpBuild = true;
+
+			dxpFileList = dxpFiles;
+		}
 		
 		if (ceFileList.size() == 0 && dxpFileList.size() == 0) {
 			throw new BuildException(
@@ -56,124 +82,70 @@ public class NumberHeadersTask extends Task {
 			duplicateFiles = getDuplicateFiles(docDir, dirTypes);
 		}
 
-		for (String dirType : dirTypes) {
-			
-			System.out.println(
-					"Numbering headers for files in ../" + docDir + "/articles" +
-							dirType + " ...");
-			
-			List<String> fileList = new ArrayList<String>();
-			
-			if (dirType.contains("dxp")) {
-				fileList = dxpFileList;
-			}
-			else {
-				fileList = ceFileList;
-			}
+		try {
+			for (String dirType : dirTypes) {
+
+				System.out.println(
+						"Numbering headers for files in ../" + docDir + "/articles" +
+								dirType + " ...");
+
+				List<String> fileList = new ArrayList<String>();
 
-			for (int i = 0; i < fileList.size(); i++) {
-				String filename = fileList.get(i);
-				File inFile = new File(filename);
-				File outFile = new File(filename);
-				String outFileTmp = outFile + ".tmp";
-				
-				foundDuplicateIds = false;
-				
 				if (dirType.contains("dxp")) {
-					overrideFile = isOverrideFile(filename, duplicateFiles);
+					fileList = dxpFileList;
+				}
+				else {
+					fileList = ceFileList;
 				}
 
-				try {
-					LineNumberReader in =
-							new LineNumberReader(new FileReader(inFile));
-					BufferedWriter out =
-							new BufferedWriter(new FileWriter(outFileTmp));
-
-					String line;
-					int titleHeaderLineNum = -2;
-					boolean headerValidated = false;
-					while ((line = in.readLine()) != null) {
-
-						int lineNum = in.getLineNumber();
-
-						if (line.startsWith("#") && !line.startsWith("##") && !headerValidated) {
-						
-							titleHeaderLineNum = in.getLineNumber();
-							line = line.trim();
-							
-							// search for header ID; if header DNE, generate header
-							String headerIdLine = getHeaderIdLine(inFile);
-								
-							if (headerIdLine == null) {
-								String headerId = generateNewHeader(filename, line, in.getLineNumber());
-								out.append("---\n");
-								out.append(headerIdPrefix + headerId + "\n");
-								out.append("---\n\n");
-							}
-							// validate existing header
-							else {
-								validateHeaderId(filename, headerIdLine, in.getLineNumber(), true);
-							}
-
-							headerValidated = true;
-						}
-						if (lineNum == titleHeaderLineNum + 1) {
-							if (!line.equals("")) {
-								throw new BuildException("Filename: " + filename +
-										" Line following main title header must be blank.");
-							}
-						}
-						
-						out.append(line);
-						out.append("\n");
-					}
-					in.close();
-				
-					out.flush();
-					out.close();
+				for (int i = 0; i < fileList.size(); i++) {
+					String filename = fileList.get(i);
 
-					// Replace original file with modified temp file
+					foundDuplicateIds = false;
 
-					FileUtils.copyFile(
-							new File(outFileTmp),
-							new File(filename));
+					if (dirType.contains("dxp")) {
+						overrideFile = isOverrideFile(filename, duplicateFiles);
+					}
 
-					FileUtils.forceDelete(new File(outFileTmp));
-				} catch (IOException e) {
-					throw new BuildException(e.getLocalizedMessage());
-				}
+					try {
+						numberHeaders(docSet.getArticle(filename), filename);
+					} catch (IOException e) {
+						throw new BuildException(e.getLocalizedMessage());
+					}
 
-				if (foundDuplicateIds && !overrideFile) {
-					throw new BuildException("FAILURE - Duplicate header IDs exist");
+					if (foundDuplicateIds && !overrideFile) {
+						throw new BuildException("FAILURE - Duplicate header IDs exist");
+					}
 				}
+
 			}
 
-		}
-		
-		// Make sure override files have same header IDs as original
-		
-		if(!duplicateFiles.isEmpty()) {
-			for(String duplicateFile : duplicateFiles) {
-				String duplicateFileDxp = duplicateFile;
-				duplicateFileDxp = duplicateFileDxp.replace(
-						"\\articles\\", "\\articles-dxp\\");
-				duplicateFileDxp = duplicateFileDxp.replace(
-						"/articles/", "/articles-dxp/");
-				
-				try {
-					checkOverrideHeaders(duplicateFile, duplicateFileDxp);
-					if (foundDuplicateIds) {
-						throw new BuildException("FAILURE - Duplicate header IDs exist");
+			// Make sure override files have same header IDs as original
+
+			if(!duplicateFiles.isEmpty()) {
+				for(String duplicateFile : duplicateFiles) {
+					String duplicateFileDxp = duplicateFile;
+					duplicateFileDxp = duplicateFileDxp.replace(
+							"\\articles\\", "\\articles-dxp\\");
+					duplicateFileDxp = duplicateFileDxp.replace(
+							"/articles/", "/articles-dxp/");
+
+					try {
+						checkOverrideHeaders(docSet, duplicateFile, duplicateFileDxp);
+						if (foundDuplicateIds) {
+							throw new BuildException("FAILURE - Duplicate header IDs exist");
+						}
+					} catch (IOException e) {
+						e.printStackTrace();
 					}
-				} catch (IOException e) {
-					e.printStackTrace();
 				}
 			}
-		}
+		} finally {
 
-		// This clears the header IDs stored; this avoids false reports of
-		// duplicated IDs if the task is run again during the same process.
-		IDS.clear();
+			// This clears the header IDs stored; this avoids false reports of
+			// duplicated IDs if the task is run again during the same process.
+			IDS.clear();
+		}
 	}
 
 	private static String assembleId(String heading, int idCount) {
@@ -202,29 +174,14 @@ public class NumberHeadersTask extends Task {
 		return finalHeaderId;
 	}
 	
-	private static void checkOverrideHeaders(String duplicateFile, String duplicateFile2) 
-			throws IOException {
-		
-		File inFile = new File(duplicateFile);
-		File outFile = new File(duplicateFile);
-		File inFile2 = new File(duplicateFile2);
-		File outFile2 = new File(duplicateFile2);
-		String outFileTmp = outFile + ".tmp";
-		String outFileTmp2 = outFile2 + ".tmp";
-		File outFileTmpFile = new File(outFileTmp);
-		File outFileTmpFile2 = new File(outFileTmp2);
+	private static void checkOverrideHeaders(DocSet docSet,
+			String duplicateFile, String duplicateFile2) throws IOException {
 		
-		LineNumberReader in =
-				new LineNumberReader(new FileReader(inFile));
-		BufferedWriter out =
-				new BufferedWriter(new FileWriter(outFileTmp));
-		LineNumberReader in2 =
-				new LineNumberReader(new FileReader(inFile2));
-		BufferedWriter out2 =
-				new BufferedWriter(new FileWriter(outFileTmp2));
-		
-		String headerIdLineCe = getHeaderIdLine(inFile);
-		String headerIdLineDxp = getHeaderIdLine(inFile2);
+		DocSet.Article article = docSet.getArticle(duplicateFile);
+		DocSet.Article article2 = docSet.getArticle(duplicateFile2);
+
+		String headerIdLineCe = article.getHeaderIdLine();
+		String headerIdLineDxp = article2.getHeaderIdLine();
 
 		boolean equalHeaders = false;
 		
@@ -252,74 +209,20 @@ public class NumberHeadersTask extends Task {
 			// Check cases where there are two DXP override files with matching
 			// header IDs. This case is not checked with the general validation
 			// logic. Add new CE header to ID list and validate it.
-			IDS.put(getHeaderId(headerIdLineCe), inFile.getName());
+			IDS.put(getHeaderId(headerIdLineCe), article.getFile().getName());
 
 			// Disable overrideFile flag, so validation for the new header ID can
 			// process.
 			overrideFile = false;
-			validateHeaderId(inFile.getName(), headerIdLineCe, in.getLineNumber(), false);
+			validateHeaderId(article.getFile().getName(), headerIdLineCe, 0, false);
 		}
 		else {
 			headerIdLineDxp = headerIdLineCe;
 		}
 		
 		if (!equalHeaders) {
-			String line;
-			
-			while ((line = in.readLine()) != null) {
-				if (line.startsWith(headerIdPrefix)) {
-					out.append(headerIdLineCe);
-					out.append("\n");
-				}
-				else {
-					out.append(line);
-					out.append("\n");
-				}
-			}
-
-			in.close();	
-			out.flush();
-			out.close();
-
-			FileUtils.copyFile(
-					outFileTmpFile,
-					new File(duplicateFile));
-
-			FileUtils.forceDelete(outFileTmpFile);
-
-			while ((line = in2.readLine()) != null) {
-				if (line.startsWith(headerIdPrefix)) {
-					out2.append(headerIdLineDxp);
-					out2.append("\n");
-				}
-				else {
-					out2.append(line);
-					out2.append("\n");
-				}
-			}
-
-			in2.close();
-			out2.flush();
-			out2.close();
-
-			FileUtils.copyFile(
-					outFileTmpFile2,
-					new File(duplicateFile2));
-
-			FileUtils.forceDelete(outFileTmpFile2);
-		}
-		else {
-			in.close();	
-			out.flush();
-			out.close();
-			
-			FileUtils.forceDelete(outFileTmpFile);
-			
-			in2.close();	
-			out2.flush();
-			out2.close();
-			
-			FileUtils.forceDelete(outFileTmpFile2);
+			article.setLines(replaceHeaderIdLine(article.getLines(), headerIdLineCe));
+			article2.setLines(replaceHeaderIdLine(article2.getLines(), headerIdLineDxp));
 		}
 	}
 
@@ -507,26 +410,6 @@ public class NumberHeadersTask extends Task {
 		return id;
 	}
 
-	private static String getHeaderIdLine(File file) throws IOException {
-
-		String headerIdLine;
-
-		LineNumberReader in = new LineNumberReader(new FileReader(file));
-
-		while ((headerIdLine = in.readLine()) != null) {
-			if (headerIdLine.startsWith(headerIdPrefix)) {
-				break;
-			}
-		}
-		in.close();
-
-		if (headerIdLine != null) {
-			headerIdLine = headerIdLine.trim();
-		}
-
-		return headerIdLine;
-	}
-
 	private static boolean isOverrideFile(String filename, List<String> duplicateFiles) {
 		
 		overrideFile = false;
@@ -542,6 +425,70 @@ public class NumberHeadersTask extends Task {
 		return overrideFile;
 	}
 	
+	private static void numberHeaders(DocSet.Article article, String filename) {
+
+		List<String> lines = article.getLines();
+		List<String> out = new ArrayList<String>();
+
+		int titleHeaderLineNum = -2;
+		boolean headerValidated = false;
+
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			int lineNum = i + 1;
+
+			if (line.startsWith("#") && !line.startsWith("##") && !headerValidated) {
+
+				titleHeaderLineNum = lineNum;
+				line = line.trim();
+
+				// search for header ID; if header DNE, generate header
+				String headerIdLine = article.getHeaderIdLine();
+
+				if (headerIdLine == null) {
+					String headerId = generateNewHeader(filename, line, lineNum);
+					out.add("---");
+					out.add(headerIdPrefix + headerId);
+					out.add("---");
+					out.add("");
+				}
+				// validate existing header
+				else {
+					validateHeaderId(filename, headerIdLine, lineNum, true);
+				}
+
+				headerValidated = true;
+			}
+			if (lineNum == titleHeaderLineNum + 1) {
+				if (!line.equals("")) {
+					throw new BuildException("Filename: " + filename +
+							" Line following main title header must be blank.");
+				}
+			}
+
+			out.add(line);
+		}
+
+		article.setLines(out);
+	}
+
+	private static List<String> replaceHeaderIdLine(List<String> lines,
+			String headerIdLine) {
+
+		List<String> newLines = new ArrayList<String>();
+
+		for (String line : lines) {
+			if (line.startsWith(headerIdPrefix)) {
+				newLines.add(headerIdLine);
+			}
+			else {
+				newLines.add(line);
+			}
+		}
+
+		return newLines;
+	}
+
 	private static void validateHeaderId(String filename, String headerIdLine, int lineNum, boolean presetHeader) {
 
 		if (presetHeader) {
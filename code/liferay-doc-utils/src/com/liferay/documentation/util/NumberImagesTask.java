@@ -9,7 +9,6 @@ import java.util.Queue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
@@ -17,8 +16,8 @@ public class NumberImagesTask extends Task {
 	
 	@Override
 	public void execute() throws BuildException {
-		
-String productType = _productType;
+
+		String productType = _productType;
 
 		List<String> dirTypes = new ArrayList<String>();
 		dirTypes.add("");
@@ -27,58 +26,78 @@ String productType = _productType;
 			dirTypes.add("-dxp");
 		}
 
-		for (String dirType : dirTypes) {
+		DocSet docSet = new DocSet(_docDir);
 
-			File docDir = new File("../" + _docDir);
-			File articleDir = new File(docDir.getAbsolutePath() + "/articles" + dirType);
-			System.out.println("Numbering images for files in "
-					+ articleDir.getPath() + " ...");
+		try {
+			for (String dirType : dirTypes) {
 
-			if (!articleDir.exists()) {
-				if (!dirType.contains("dxp")) {
-					throw new BuildException("FAILURE - no articles directory " + articleDir);
-				}
-				else {
-					continue;
+				File docDir = new File("../" + _docDir);
+				File articleDir = new File(docDir.getAbsolutePath() + "/articles" + dirType);
+				System.out.println("Numbering images for files in "
+						+ articleDir.getPath() + " ...");
+
+				if (!articleDir.exists()) {
+					if (!dirType.contains("dxp")) {
+						throw new BuildException("FAILURE - no articles directory " + articleDir);
+					}
+					else {
+						continue;
+					}
 				}
-			}
 
-			File[] articleDirFiles = articleDir.listFiles();
-			List<File> articles = new ArrayList<File>();
+				File[] articleDirFiles = articleDir.listFiles();
+				List<File> articles = new ArrayList<File>();
 
-			Queue<File> q = new LinkedList<File>();
-			for (File f : articleDirFiles) {
-				q.add(f);
-			}
+				Queue<File> q = new LinkedList<File>();
+				for (File f : articleDirFiles) {
+					q.add(f);
+				}
 
-			while (!q.isEmpty()) {
-				File f = q.remove(); 
+				while (!q.isEmpty()) {
+					File f = q.remove(); 
 
-				if (f.isDirectory()) {
-					File[] files = f.listFiles();
+					if (f.isDirectory()) {
+						File[] files = f.listFiles();
 
-					for (File file : files) {
-						q.add(file);
+						for (File file : files) {
+							q.add(file);
+						}
 					}
-				}
-				else {
-					if (f.getName().endsWith(".markdown")) {
-						articles.add(f);
+					else {
+						if (f.getName().endsWith(".markdown")) {
+							articles.add(f);
+						}
 					}
 				}
-			}
-
-			for (File article : articles) {
-				String articlePath = article.getAbsolutePath();
 
 				try {
-					resetImages(articlePath);
-					numberImages(articlePath);
+					numberImages(docSet, articles);
 				}
 				catch (IOException ie) {
 					throw new BuildException(ie.getLocalizedMessage());
 				}
 			}
+		} finally {
+			DocsUtil.writeDocSet(docSet);
+		}
+	}
+
+	/**
+	 * Renumbers the figures of each article, starting from 1.
+	 *
+	 * @param  docSet the document set containing the articles
+	 * @param  articles the articles to number
+	 * @throws IOException if an IO exception occurred
+	 */
+	public static void numberImages(DocSet docSet, List<File> articles)
+			throws IOException {
+
+		for (File article : articles) {
+			DocSet.Article docSetArticle = docSet.getArticle(article);
+
+			String source = docSetArticle.getContent();
+
+			docSetArticle.setContent(numberImages(source));
 		}
 	}
 
@@ -90,81 +109,38 @@ String productType = _productType;
 		_productType = productType;
 	}
 
-	private void numberImages(String markdownFilePath) throws IOException {
-		File markdownfile = new File(markdownFilePath);
-
-		String source = FileUtils.readFileToString(markdownfile);
-		String find = "\\!\\[Figure [x|X]:";
-		int fignum = 1;
-		String replace = "\\!\\[Figure " + fignum + ":";
-
-		//
-		// Compiles the given regular expression into a pattern
-		//
-		Pattern pattern = Pattern.compile(find);
-
-		//
-		// Creates a matcher that will match the given input against the pattern
-		//
-		Matcher matcher = pattern.matcher(source);
-
-		//
-		// Replaces the first subsequence of the input sequence that matches the
-		// pattern with the given replacement string
-		//
-		String output = matcher.replaceFirst(replace);
-
-		//
-		// Loops through file replacing all remaining matching subsequences of
-		// the input sequence with the appropriate figure numbers
-		//
-		while (matcher.find()) {
-			matcher = pattern.matcher(output);
-			fignum++;
-			replace = "\\!\\[Figure " + fignum + ":";
-			output = matcher.replaceFirst(replace);
+	/**
+	 * Returns the source with its figures numbered from 1, in one pass. A
+	 * figure's number is replaced, whether it's a placeholder
+	 * (<code>![Figure x:</code>) or a number of one or two digits left by an
+	 * earlier run.
+	 */
+	private static String numberImages(String source) {
+		Matcher matcher = _figurePattern.matcher(source);
+
+		if (!matcher.find()) {
+			return source;
 		}
 
-		//
-		// Saves the updated file, replaces the original
-		//
-		FileUtils.writeStringToFile(markdownfile, output);
-	}
-
-	private void resetImages(String markdownFilePath) throws IOException {
-		// Linux example: "/home/$USER/workspace/01-example-chapter.markdown"
-		// Windows example: "E:\liferay-docs\discover\portal\articles\01-what-is-liferay\00-what-is-liferay-intro.markdown"
-		File markdownfile = new File(markdownFilePath); // example: "/home/$USER/workspace/01-example-chapter.markdown"
-
-		String source = FileUtils.readFileToString(markdownfile);
+		StringBuffer sb = new StringBuffer(source.length() + 16);
 
-		String find = "\\!\\[Figure " + "[0-9]:";
-		String replace = "\\!\\[Figure " + "x:";
-
-		Pattern pattern = Pattern.compile(find);
-		Matcher matcher = pattern.matcher(source);
-		String output = matcher.replaceAll(replace);
-
-		find = "\\!\\[Figure " + "[0-9][0-9]:";
-
-		pattern = Pattern.compile(find);
-		matcher = pattern.matcher(output);
-		output = matcher.replaceAll(replace);
+		int fignum = 1;
 
-		//
-		// Saves the updated file, replaces the original
-		//
-		FileUtils.writeStringToFile(markdownfile, output);
+		do {
+			matcher.appendReplacement(sb, "![Figure " + fignum + ":");
 
-		/* This code is for saving the output to a new file so the original is not overwritten; useful for debugging
+			fignum++;
+		}
+		while (matcher.find());
 
-		String markdownfileoutputpath = args[1];
-		File markdownfileoutput = new File(markdownfileoutputpath);
-		FileUtils.writeStringToFile(markdownfileoutput, output);
+		matcher.appendTail(sb);
 
-		 */
+		return sb.toString();
 	}
 
+	private static final Pattern _figurePattern = Pattern.compile(
+		"!\\[Figure (?:[x|X]|[0-9]{1,2}):");
+
 	private String _docDir;
 	private String _productType;
 }
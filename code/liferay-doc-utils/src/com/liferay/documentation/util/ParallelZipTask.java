@@ -0,0 +1,356 @@
+package com.liferay.documentation.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+
+/**
+ * Zips up the files of nested <code>fileset</code> elements like Ant's
+ * <code>zip</code> task, but compresses the files on all the cores. Each file
+ * is deflated on a worker thread and the compressed entries are written in
+ * order, by one writer, so the Zip's layout doesn't depend on the number of
+ * threads.
+ *
+ * <p>
+ * Each file set's folders are added as folder entries and its files as file
+ * entries, named by their paths relative to the file set's folder. Images
+ * that are already compressed (GIF, JPEG, and PNG images), and files that
+ * deflating doesn't make any smaller, are stored rather than deflated.
+ * </p>
+ */
+public class ParallelZipTask extends Task {
+
+	public void addFileset(FileSet fileSet) {
+		_fileSets.add(fileSet);
+	}
+
+	@Override
+	public void execute() throws BuildException {
+
+		if (_destFile == null) {
+			throw new BuildException("Specify the destfile of the Zip");
+		}
+
+		List<String> dirNames = new ArrayList<String>();
+		List<File> dirs = new ArrayList<File>();
+		List<String> fileNames = new ArrayList<String>();
+		List<File> files = new ArrayList<File>();
+
+		for (FileSet fileSet : _fileSets) {
+			DirectoryScanner directoryScanner = fileSet.getDirectoryScanner(
+				getProject());
+
+			File baseDir = directoryScanner.getBasedir();
+
+			String[] includedDirs = directoryScanner.getIncludedDirectories();
+
+			Arrays.sort(includedDirs);
+
+			for (String includedDir : includedDirs) {
+				if (!includedDir.isEmpty()) {
+					dirNames.add(getEntryName(includedDir) + "/");
+					dirs.add(new File(baseDir, includedDir));
+				}
+			}
+
+			String[] includedFiles = directoryScanner.getIncludedFiles();
+
+			Arrays.sort(includedFiles);
+
+			for (String includedFile : includedFiles) {
+				fileNames.add(getEntryName(includedFile));
+				files.add(new File(baseDir, includedFile));
+			}
+		}
+
+		File parentDir = _destFile.getAbsoluteFile().getParentFile();
+
+		if (!parentDir.exists() && !parentDir.mkdirs()) {
+			throw new BuildException("Unable to create " + parentDir.getPath());
+		}
+
+		System.out.println("Building zip: " + _destFile.getAbsolutePath());
+
+		long start = System.currentTimeMillis();
+
+		int threads = Math.max(1, _threads);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+		RawZipOutputStream rawZipOutputStream = null;
+
+		try {
+			rawZipOutputStream = new RawZipOutputStream(
+				new BufferedOutputStream(
+					new FileOutputStream(_destFile), BUFFER_SIZE));
+
+			for (int i = 0; i < dirNames.size(); i++) {
+				File dir = dirs.get(i);
+
+				rawZipOutputStream.putRawEntry(
+					new RawZipEntry(
+						dirNames.get(i), RawZipEntry.STORED,
+						RawZipEntry.toDosTime(dir.lastModified()), 0, 0, 0),
+					new ByteArrayInputStream(new byte[0]));
+			}
+
+			writeFileEntries(
+				executorService, threads, rawZipOutputStream, fileNames, files);
+
+			rawZipOutputStream.close();
+		} catch (IOException e) {
+			if (rawZipOutputStream != null) {
+				try {
+					rawZipOutputStream.close();
+				} catch (IOException ioe) {
+				}
+			}
+
+			_destFile.delete();
+
+			throw new BuildException(e.getLocalizedMessage());
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		System.out.println("Zipped " + files.size() + " files on " +
+				threads + " threads in " +
+				(System.currentTimeMillis() - start) + " ms");
+	}
+
+	public void setDestfile(File destFile) {
+		_destFile = destFile;
+	}
+
+	public void setThreads(int threads) {
+		_threads = threads;
+	}
+
+	/**
+	 * Returns the file's entry, along with its data compressed the way it's
+	 * stored in the Zip.
+	 *
+	 * @param  entryName the entry's name
+	 * @param  file the file
+	 * @return the entry and its compressed data
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static CompressedEntry compress(String entryName, File file)
+		throws IOException {
+
+		return compress(
+			entryName, FileUtils.readFileToByteArray(file),
+			RawZipEntry.toDosTime(file.lastModified()));
+	}
+
+	/**
+	 * Returns the entry of the data, along with the data compressed the way
+	 * it's stored in the Zip. Data that's already compressed, or that
+	 * deflating doesn't make any smaller, is stored.
+	 *
+	 * @param  entryName the entry's name
+	 * @param  bytes the entry's data
+	 * @param  dosTime the entry's modification time, as returned by
+	 *         {@link RawZipEntry#toDosTime(long)}
+	 * @return the entry and its compressed data
+	 */
+	static CompressedEntry compress(
+		String entryName, byte[] bytes, long dosTime) {
+
+		CRC32 crc32 = new CRC32();
+
+		crc32.update(bytes);
+
+		if (!isCompressed(entryName)) {
+			byte[] deflatedBytes = deflate(bytes);
+
+			if (deflatedBytes.length < bytes.length) {
+				return new CompressedEntry(
+					new RawZipEntry(
+						entryName, RawZipEntry.DEFLATED, dosTime,
+						crc32.getValue(), deflatedBytes.length, bytes.length),
+					deflatedBytes);
+			}
+		}
+
+		return new CompressedEntry(
+			new RawZipEntry(
+				entryName, RawZipEntry.STORED, dosTime, crc32.getValue(),
+				bytes.length, bytes.length),
+			bytes);
+	}
+
+	private static byte[] deflate(byte[] bytes) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+
+			ByteArrayOutputStream byteArrayOutputStream =
+				new ByteArrayOutputStream(bytes.length / 2 + 64);
+
+			byte[] buffer = new byte[BUFFER_SIZE];
+
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+
+				byteArrayOutputStream.write(buffer, 0, count);
+			}
+
+			return byteArrayOutputStream.toByteArray();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	private static String getEntryName(String path) {
+		return path.replace(File.separatorChar, '/');
+	}
+
+	private static boolean isCompressed(String entryName) {
+		String lowerCaseName = entryName.toLowerCase();
+
+		for (String extension : COMPRESSED_EXTENSIONS) {
+			if (lowerCaseName.endsWith(extension)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compresses the files on the executor's threads and writes their entries
+	 * in order. Only a few files per thread are compressed ahead of the
+	 * writer, so the compressed data waiting to be written stays small.
+	 *
+	 * @param  executorService the executor compressing the files
+	 * @param  threads the number of threads the executor runs
+	 * @param  rawZipOutputStream the Zip to write the entries to
+	 * @param  entryNames the files' entry names
+	 * @param  files the files
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static void writeFileEntries(
+			ExecutorService executorService, int threads,
+			RawZipOutputStream rawZipOutputStream, List<String> entryNames,
+			List<File> files)
+		throws IOException {
+
+		Queue<Future<CompressedEntry>> futures =
+			new LinkedList<Future<CompressedEntry>>();
+
+		int next = 0;
+
+		while ((next < files.size()) || !futures.isEmpty()) {
+			while ((next < files.size()) &&
+				   (futures.size() < (threads * PENDING_ENTRIES_PER_THREAD))) {
+
+				final String entryName = entryNames.get(next);
+				final File file = files.get(next);
+
+				futures.add(executorService.submit(
+					new Callable<CompressedEntry>() {
+
+						@Override
+						public CompressedEntry call() throws IOException {
+							return compress(entryName, file);
+						}
+
+					}));
+
+				next++;
+			}
+
+			CompressedEntry compressedEntry = getResult(futures.remove());
+
+			rawZipOutputStream.putRawEntry(
+				compressedEntry._entry,
+				new ByteArrayInputStream(compressedEntry._data));
+		}
+	}
+
+	/**
+	 * Returns the future's result, rethrowing the exception of a task that
+	 * failed.
+	 *
+	 * @param  future the future
+	 * @return the future's result
+	 * @throws IOException if an IO exception occurred
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+
+			throw new BuildException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new BuildException(e);
+		}
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final String[] COMPRESSED_EXTENSIONS =
+		{".gif", ".jpeg", ".jpg", ".png"};
+
+	private static final int PENDING_ENTRIES_PER_THREAD = 4;
+
+	private File _destFile;
+	private final List<FileSet> _fileSets = new ArrayList<FileSet>();
+	private int _threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * A Zip entry and its data, compressed the way it's stored in the Zip.
+	 */
+	static class CompressedEntry {
+
+		public CompressedEntry(RawZipEntry entry, byte[] data) {
+			_entry = entry;
+			_data = data;
+		}
+
+		public byte[] getData() {
+			return _data;
+		}
+
+		public RawZipEntry getEntry() {
+			return _entry;
+		}
+
+		private final byte[] _data;
+		private final RawZipEntry _entry;
+	}
+
+}
@@ -0,0 +1,499 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a live HTML preview of a document set's articles on a local port:
+ *
+ * <pre>
+ * PreviewServer docDir [port]
+ * </pre>
+ *
+ * <p>
+ * The articles are converted with {@link MarkdownToHtml#convert(String)} the
+ * first time they're requested, and kept in memory. The article folders are
+ * watched, so an article that's saved is converted again right away, and an
+ * open preview page reloads itself when its article's conversion changes. The
+ * images are served straight from the document set's image folders.
+ * </p>
+ *
+ * <p>
+ * The URLs mirror the document set's folder, like the HTML files
+ * <code>MarkdownToHtml</code> writes (e.g.,
+ * <code>/articles/01-intro/01-intro.markdown.html</code>), so the articles'
+ * relative image paths resolve. The root URL lists the articles.
+ * </p>
+ */
+public class PreviewServer {
+
+	public static void main(String[] args) throws IOException {
+		if (args == null || args.length < 1) {
+			throw new IllegalArgumentException("Requires 1 argument: docDir [port]");
+		}
+
+		int port = DEFAULT_PORT;
+
+		if (args.length >= 2) {
+			port = Integer.parseInt(args[1]);
+		}
+
+		PreviewServer previewServer = new PreviewServer(args[0]);
+
+		previewServer.start(port);
+	}
+
+	/**
+	 * Creates a preview server for the document set. The document set's
+	 * folder is resolved like the check tasks resolve it (e.g.,
+	 * <code>../user</code>).
+	 *
+	 * @param docDir the document directory (e.g., <code>user</code>)
+	 */
+	public PreviewServer(String docDir) {
+		_docDir = docDir;
+		_docSetDir = new DocSet(docDir).getDocSetDir().getAbsoluteFile(
+			).toPath().normalize();
+	}
+
+	/**
+	 * Starts watching the article folders and serving the previews on the
+	 * local port. The server runs until the JVM is stopped.
+	 *
+	 * @param  port the port
+	 * @throws IOException if an IO exception occurred
+	 */
+	public void start(int port) throws IOException {
+		_watchService = FileSystems.getDefault().newWatchService();
+
+		for (String dirName : ARTICLE_DIR_NAMES) {
+			Path dir = _docSetDir.resolve(dirName);
+
+			if (Files.isDirectory(dir)) {
+				registerAll(dir.toFile());
+			}
+		}
+
+		Thread watchThread = new Thread(
+			new Runnable() {
+
+				@Override
+				public void run() {
+					watch();
+				}
+
+			},
+			"preview-watcher");
+
+		watchThread.setDaemon(true);
+		watchThread.start();
+
+		HttpServer httpServer = HttpServer.create(
+			new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+		httpServer.createContext(
+			"/",
+			new HttpHandler() {
+
+				@Override
+				public void handle(HttpExchange httpExchange)
+					throws IOException {
+
+					try {
+						serve(httpExchange);
+					}
+					finally {
+						httpExchange.close();
+					}
+				}
+
+			});
+
+		httpServer.setExecutor(
+			Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors()));
+
+		httpServer.start();
+
+		System.out.println("Previewing " + _docSetDir + " at http://localhost:" +
+				port + "/");
+	}
+
+	private static String escapeHtml(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(
+			">", "&gt;").replace("\"", "&quot;");
+	}
+
+	private static String getContentType(String fileName) {
+		String lowerCaseName = fileName.toLowerCase();
+
+		if (lowerCaseName.endsWith(".gif")) {
+			return "image/gif";
+		}
+		else if (lowerCaseName.endsWith(".jpg") ||
+				 lowerCaseName.endsWith(".jpeg")) {
+
+			return "image/jpeg";
+		}
+		else if (lowerCaseName.endsWith(".png")) {
+			return "image/png";
+		}
+		else if (lowerCaseName.endsWith(".svg")) {
+			return "image/svg+xml";
+		}
+
+		return "application/octet-stream";
+	}
+
+	private static boolean isArticle(Path path) {
+		String fileName = path.getFileName().toString();
+
+		return fileName.endsWith(".markdown") || fileName.endsWith(".md");
+	}
+
+	private static void send(
+			HttpExchange httpExchange, int status, String contentType,
+			byte[] bytes)
+		throws IOException {
+
+		httpExchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		httpExchange.getResponseHeaders().set("Content-Type", contentType);
+		httpExchange.sendResponseHeaders(status, bytes.length);
+
+		OutputStream outputStream = httpExchange.getResponseBody();
+
+		outputStream.write(bytes);
+		outputStream.close();
+	}
+
+	private static void sendHtml(
+			HttpExchange httpExchange, int status, String html)
+		throws IOException {
+
+		send(
+			httpExchange, status, "text/html; charset=UTF-8",
+			html.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the article's preview, converting the article if it hasn't been
+	 * converted since it last changed.
+	 */
+	private Preview getPreview(Path article) {
+		Preview preview = _previews.get(article);
+
+		if (preview == null) {
+			preview = render(article);
+		}
+
+		return preview;
+	}
+
+	private String getRelativePath(Path path) {
+		return _docSetDir.relativize(path).toString().replace(
+			File.separatorChar, '/');
+	}
+
+	private void registerAll(File dir) throws IOException {
+		dir.toPath().register(
+			_watchService, StandardWatchEventKinds.ENTRY_CREATE,
+			StandardWatchEventKinds.ENTRY_DELETE,
+			StandardWatchEventKinds.ENTRY_MODIFY);
+
+		File[] files = dir.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			if (file.isDirectory()) {
+				registerAll(file);
+			}
+		}
+	}
+
+	/**
+	 * Converts the article and caches its preview. A conversion that fails is
+	 * cached as an error page, so the writer sees what to fix.
+	 */
+	private Preview render(Path article) {
+		long start = System.currentTimeMillis();
+
+		String body = null;
+
+		try {
+			body = MarkdownToHtml.convert(
+				FileUtils.readFileToString(article.toFile()));
+		}
+		catch (IOException ioe) {
+			body = "<p><strong>Unable to convert " +
+				escapeHtml(getRelativePath(article)) + ":</strong> " +
+				escapeHtml(String.valueOf(ioe.getMessage())) + "</p>";
+		}
+
+		Preview preview = new Preview(body, _versionCounter.incrementAndGet());
+
+		_previews.put(article, preview);
+
+		System.out.println("Rendered " + getRelativePath(article) + " in " +
+				(System.currentTimeMillis() - start) + " ms");
+
+		return preview;
+	}
+
+	private void serve(HttpExchange httpExchange) throws IOException {
+		String uriPath = httpExchange.getRequestURI().getPath();
+
+		if (uriPath.equals("/")) {
+			serveIndex(httpExchange);
+
+			return;
+		}
+
+		boolean versionRequest = uriPath.startsWith(VERSION_PATH + "/");
+
+		if (versionRequest) {
+			uriPath = uriPath.substring(VERSION_PATH.length());
+		}
+
+		Path path = _docSetDir.resolve(uriPath.substring(1)).normalize();
+
+		if (!path.startsWith(_docSetDir)) {
+			sendHtml(httpExchange, 403, "Forbidden");
+
+			return;
+		}
+
+		String fileName = path.getFileName().toString();
+
+		if (fileName.endsWith(".html")) {
+			Path article = path.resolveSibling(
+				fileName.substring(0, fileName.length() - 5));
+
+			if (!Files.isRegularFile(article) || !isArticle(article)) {
+				sendHtml(httpExchange, 404, "Not found");
+
+				return;
+			}
+
+			Preview preview = getPreview(article);
+
+			if (versionRequest) {
+				send(
+					httpExchange, 200, "text/plain; charset=UTF-8",
+					String.valueOf(preview._version).getBytes(
+						StandardCharsets.UTF_8));
+
+				return;
+			}
+
+			sendHtml(
+				httpExchange, 200,
+				"<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n" +
+					"<title>" + escapeHtml(fileName) + "</title>\n" +
+					"</head>\n<body>\n" + preview._html + "\n<script>\n" +
+					"var version = '" + preview._version + "';\n" +
+					"setInterval(function() {\n" +
+					"  var request = new XMLHttpRequest();\n" +
+					"  request.onload = function() {\n" +
+					"    if (request.status == 200 && " +
+					"request.responseText != version) {\n" +
+					"      location.reload();\n" +
+					"    }\n" +
+					"  };\n" +
+					"  request.open('GET', '" + VERSION_PATH +
+					"' + location.pathname);\n" +
+					"  request.send();\n" +
+					"}, " + POLL_INTERVAL + ");\n" +
+					"</script>\n</body>\n</html>\n");
+
+			return;
+		}
+
+		String topDirName = getRelativePath(path);
+
+		int index = topDirName.indexOf('/');
+
+		if (index != -1) {
+			topDirName = topDirName.substring(0, index);
+		}
+
+		if (!topDirName.startsWith("images") || !Files.isRegularFile(path)) {
+			sendHtml(httpExchange, 404, "Not found");
+
+			return;
+		}
+
+		send(
+			httpExchange, 200, getContentType(fileName),
+			Files.readAllBytes(path));
+	}
+
+	private void serveIndex(HttpExchange httpExchange) throws IOException {
+		DocSet docSet = new DocSet(_docDir);
+
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n");
+		sb.append("<title>");
+		sb.append(escapeHtml(_docSetDir.getFileName().toString()));
+		sb.append("</title>\n</head>\n<body>\n");
+
+		for (String dirName : ARTICLE_DIR_NAMES) {
+			List<String> paths = new ArrayList<String>();
+
+			for (File article : docSet.getArticleFiles(
+					dirName.substring("articles".length()))) {
+
+				paths.add(
+					getRelativePath(
+						article.getAbsoluteFile().toPath().normalize()));
+			}
+
+			if (paths.isEmpty()) {
+				continue;
+			}
+
+			Collections.sort(paths);
+
+			sb.append("<h2>");
+			sb.append(dirName);
+			sb.append("</h2>\n<ul>\n");
+
+			for (String path : paths) {
+				sb.append("<li><a href=\"/");
+				sb.append(escapeHtml(path));
+				sb.append(".html\">");
+				sb.append(escapeHtml(path));
+				sb.append("</a></li>\n");
+			}
+
+			sb.append("</ul>\n");
+		}
+
+		sb.append("</body>\n</html>\n");
+
+		sendHtml(httpExchange, 200, sb.toString());
+	}
+
+	/**
+	 * Converts the articles that change again, and watches the folders that
+	 * are created. The previews of deleted articles are dropped.
+	 */
+	private void watch() {
+		while (true) {
+			WatchKey watchKey = null;
+
+			try {
+				watchKey = _watchService.take();
+			}
+			catch (ClosedWatchServiceException cwse) {
+				return;
+			}
+			catch (InterruptedException ie) {
+				return;
+			}
+
+			Path dir = (Path)watchKey.watchable();
+
+			for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+				if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+					// Events were lost, so convert everything on request
+
+					_previews.clear();
+
+					continue;
+				}
+
+				Path path = dir.resolve((Path)watchEvent.context());
+
+				if (Files.isDirectory(path)) {
+					if (watchEvent.kind() ==
+							StandardWatchEventKinds.ENTRY_CREATE) {
+
+						try {
+							registerAll(path.toFile());
+						}
+						catch (IOException ioe) {
+							System.out.println("Unable to watch " + path +
+									": " + ioe.getMessage());
+						}
+					}
+
+					continue;
+				}
+
+				if (!isArticle(path)) {
+					continue;
+				}
+
+				if (Files.isRegularFile(path)) {
+					render(path);
+				}
+				else {
+					_previews.remove(path);
+				}
+			}
+
+			watchKey.reset();
+		}
+	}
+
+	private static final String[] ARTICLE_DIR_NAMES =
+		{"articles", "articles-dxp"};
+
+	private static final int DEFAULT_PORT = 8000;
+
+	private static final int POLL_INTERVAL = 500;
+
+	private static final String VERSION_PATH = "/_version";
+
+	private final String _docDir;
+	private final Path _docSetDir;
+	private final Map<Path, Preview> _previews =
+		new ConcurrentHashMap<Path, Preview>();
+	private final AtomicLong _versionCounter = new AtomicLong();
+	private WatchService _watchService;
+
+	/**
+	 * An article's HTML and the version of its conversion.
+	 */
+	private static class Preview {
+
+		public Preview(String html, long version) {
+			_html = html;
+			_version = version;
+		}
+
+		private final String _html;
+		private final long _version;
+	}
+
+}
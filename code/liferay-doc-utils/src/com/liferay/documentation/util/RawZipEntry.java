@@ -0,0 +1,122 @@
+package com.liferay.documentation.util;
+
+import java.util.Calendar;
+
+/**
+ * A Zip entry as it's stored in the archive: its name, compression method,
+ * and the sizes and CRC of its data. Entries read by {@link RawZipFile} also
+ * know where they're stored in the archive, so they can be copied to a
+ * {@link RawZipOutputStream} without being inflated and deflated again.
+ */
+public class RawZipEntry {
+
+	public static final int DEFLATED = 8;
+
+	public static final int STORED = 0;
+
+	/**
+	 * Creates an entry.
+	 *
+	 * @param name the entry's name (e.g., <code>articles/01-intro.markdown</code>)
+	 * @param method the compression method ({@link #STORED} or
+	 *        {@link #DEFLATED})
+	 * @param dosTime the modification time, as the MS-DOS date in the upper
+	 *        and the MS-DOS time in the lower 16 bits
+	 * @param crc the CRC-32 of the uncompressed data
+	 * @param compressedSize the size of the compressed data
+	 * @param size the size of the uncompressed data
+	 */
+	public RawZipEntry(
+		String name, int method, long dosTime, long crc, long compressedSize,
+		long size) {
+
+		this(name, method, dosTime, crc, compressedSize, size, -1);
+	}
+
+	public long getCompressedSize() {
+		return _compressedSize;
+	}
+
+	public long getCrc() {
+		return _crc;
+	}
+
+	/**
+	 * Returns the modification time, as the MS-DOS date in the upper and the
+	 * MS-DOS time in the lower 16 bits.
+	 */
+	public long getDosTime() {
+		return _dosTime;
+	}
+
+	public int getMethod() {
+		return _method;
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	public long getSize() {
+		return _size;
+	}
+
+	public boolean isDirectory() {
+		return _name.endsWith("/");
+	}
+
+	/**
+	 * Returns the time as an MS-DOS date and time, in the local time zone.
+	 * MS-DOS times count every other second, so the time is rounded up to the
+	 * next even second, like Ant's <code>zip</code> task does. Times before
+	 * 1980 are stored as 1980-01-01.
+	 *
+	 * @param  time the time, in milliseconds since the epoch
+	 * @return the MS-DOS date in the upper and the MS-DOS time in the lower 16
+	 *         bits
+	 */
+	public static long toDosTime(long time) {
+		Calendar calendar = Calendar.getInstance();
+
+		calendar.setTimeInMillis(time + 1999);
+
+		int year = calendar.get(Calendar.YEAR);
+
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+
+		return ((long)(year - 1980) << 25) |
+			((calendar.get(Calendar.MONTH) + 1) << 21) |
+			(calendar.get(Calendar.DAY_OF_MONTH) << 16) |
+			(calendar.get(Calendar.HOUR_OF_DAY) << 11) |
+			(calendar.get(Calendar.MINUTE) << 5) |
+			(calendar.get(Calendar.SECOND) >> 1);
+	}
+
+	RawZipEntry(
+		String name, int method, long dosTime, long crc, long compressedSize,
+		long size, long localHeaderOffset) {
+
+		_name = name;
+		_method = method;
+		_dosTime = dosTime;
+		_crc = crc;
+		_compressedSize = compressedSize;
+		_size = size;
+		_localHeaderOffset = localHeaderOffset;
+	}
+
+	long getLocalHeaderOffset() {
+		return _localHeaderOffset;
+	}
+
+	private final long _compressedSize;
+	private final long _crc;
+	private final long _dosTime;
+	private final long _localHeaderOffset;
+	private final int _method;
+	private final String _name;
+	private final long _size;
+
+}
@@ -0,0 +1,315 @@
+package com.liferay.documentation.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A Zip file whose entries can be read either inflated, like with
+ * {@link java.util.zip.ZipFile}, or as the compressed bytes they're stored
+ * as. Copying the compressed bytes to a {@link RawZipOutputStream} builds a
+ * Zip from another Zip's entries without extracting or recompressing them.
+ *
+ * <p>
+ * Only the entries' central directory is read when the file is opened. Zip64
+ * archives aren't supported; the document Zips are far below their limits.
+ * </p>
+ */
+public class RawZipFile implements Closeable {
+
+	/**
+	 * Opens the Zip file and reads its central directory.
+	 *
+	 * @param  file the Zip file
+	 * @throws IOException if an IO exception occurred or the file isn't a Zip
+	 *         file
+	 */
+	public RawZipFile(File file) throws IOException {
+		_file = file;
+		_channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+			readCentralDirectory();
+		}
+		catch (IOException ioe) {
+			_channel.close();
+
+			throw ioe;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		_channel.close();
+	}
+
+	/**
+	 * Returns the entries, in the order of the central directory.
+	 */
+	public List<RawZipEntry> getEntries() {
+		return Collections.unmodifiableList(
+			new ArrayList<RawZipEntry>(_entries.values()));
+	}
+
+	/**
+	 * Returns the entry with the name, or <code>null</code> if there's no such
+	 * entry.
+	 */
+	public RawZipEntry getEntry(String name) {
+		return _entries.get(name);
+	}
+
+	public File getFile() {
+		return _file;
+	}
+
+	/**
+	 * Returns a stream of the entry's inflated data.
+	 *
+	 * @param  entry the entry
+	 * @return the stream of the entry's data
+	 * @throws IOException if an IO exception occurred or the entry's
+	 *         compression method isn't supported
+	 */
+	public InputStream getInputStream(RawZipEntry entry) throws IOException {
+		InputStream inputStream = getRawInputStream(entry);
+
+		if (entry.getMethod() == RawZipEntry.STORED) {
+			return inputStream;
+		}
+
+		if (entry.getMethod() != RawZipEntry.DEFLATED) {
+			inputStream.close();
+
+			throw new ZipException("Unsupported compression method " +
+					entry.getMethod() + " of entry " + entry.getName());
+		}
+
+		final Inflater inflater = new Inflater(true);
+
+		// An inflater without the zlib wrapper may need a dummy byte after the
+		// compressed data
+
+		inputStream = new SequenceInputStream(
+			inputStream, new ByteArrayInputStream(new byte[1]));
+
+		return new InflaterInputStream(inputStream, inflater, BUFFER_SIZE) {
+
+			@Override
+			public void close() throws IOException {
+				inflater.end();
+
+				super.close();
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a stream of the entry's data as it's stored in the Zip file,
+	 * i.e., compressed with the entry's compression method.
+	 *
+	 * @param  entry the entry
+	 * @return the stream of the entry's stored data
+	 * @throws IOException if an IO exception occurred
+	 */
+	public InputStream getRawInputStream(RawZipEntry entry) throws IOException {
+		ByteBuffer localHeader = read(
+			entry.getLocalHeaderOffset(), LOCAL_HEADER_SIZE);
+
+		if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header of entry " +
+					entry.getName() + " in " + _file.getPath());
+		}
+
+		long dataOffset = entry.getLocalHeaderOffset() + LOCAL_HEADER_SIZE +
+			getUnsignedShort(localHeader, 26) + getUnsignedShort(localHeader, 28);
+
+		return new EntryInputStream(dataOffset, entry.getCompressedSize());
+	}
+
+	private static int getUnsignedShort(ByteBuffer buffer, int index) {
+		return buffer.getShort(index) & 0xffff;
+	}
+
+	private static long getUnsignedInt(ByteBuffer buffer, int index) {
+		return buffer.getInt(index) & 0xffffffffL;
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (_channel.read(buffer, position + buffer.position()) < 0) {
+				throw new ZipException("Unexpected end of " + _file.getPath());
+			}
+		}
+
+		buffer.flip();
+
+		return buffer;
+	}
+
+	private void readCentralDirectory() throws IOException {
+		long size = _channel.size();
+
+		// The end of central directory record is followed by a comment of up
+		// to 64 KB
+
+		int tailLength = (int)Math.min(size, END_SIZE + 0xffff);
+
+		ByteBuffer tail = read(size - tailLength, tailLength);
+
+		int endIndex = -1;
+
+		for (int i = tailLength - END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIGNATURE) {
+				endIndex = i;
+
+				break;
+			}
+		}
+
+		if (endIndex < 0) {
+			throw new ZipException(_file.getPath() + " isn't a Zip file");
+		}
+
+		int count = getUnsignedShort(tail, endIndex + 10);
+		long directorySize = getUnsignedInt(tail, endIndex + 12);
+		long directoryOffset = getUnsignedInt(tail, endIndex + 16);
+
+		if ((count == 0xffff) || (directoryOffset == 0xffffffffL)) {
+			throw new ZipException(
+				"Zip64 archives aren't supported: " + _file.getPath());
+		}
+
+		ByteBuffer directory = read(directoryOffset, (int)directorySize);
+
+		int index = 0;
+
+		for (int i = 0; i < count; i++) {
+			if (directory.getInt(index) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException(
+					"Invalid central directory in " + _file.getPath());
+			}
+
+			int method = getUnsignedShort(directory, index + 10);
+			long dosTime = getUnsignedInt(directory, index + 12);
+			long crc = getUnsignedInt(directory, index + 16);
+			long compressedSize = getUnsignedInt(directory, index + 20);
+			long entrySize = getUnsignedInt(directory, index + 24);
+			int nameLength = getUnsignedShort(directory, index + 28);
+			int extraLength = getUnsignedShort(directory, index + 30);
+			int commentLength = getUnsignedShort(directory, index + 32);
+			long localHeaderOffset = getUnsignedInt(directory, index + 42);
+
+			byte[] nameBytes = new byte[nameLength];
+
+			directory.position(index + CENTRAL_HEADER_SIZE);
+			directory.get(nameBytes);
+
+			String name = new String(nameBytes, UTF_8);
+
+			_entries.put(
+				name,
+				new RawZipEntry(
+					name, method, dosTime, crc, compressedSize, entrySize,
+					localHeaderOffset));
+
+			index += CENTRAL_HEADER_SIZE + nameLength + extraLength +
+				commentLength;
+		}
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int END_SIZE = 22;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final FileChannel _channel;
+	private final Map<String, RawZipEntry> _entries =
+		new LinkedHashMap<String, RawZipEntry>();
+	private final File _file;
+
+	/**
+	 * A stream of a range of the Zip file. Each stream reads at its own
+	 * position, so several entries can be read at once.
+	 */
+	private class EntryInputStream extends InputStream {
+
+		public EntryInputStream(long position, long length) {
+			_position = position;
+			_remaining = length;
+		}
+
+		@Override
+		public int available() {
+			return (int)Math.min(_remaining, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+
+			if (read(b, 0, 1) < 0) {
+				return -1;
+			}
+
+			return b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (_remaining <= 0) {
+				return -1;
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(
+				b, off, (int)Math.min(len, _remaining));
+
+			int count = _channel.read(buffer, _position);
+
+			if (count < 0) {
+				throw new ZipException("Unexpected end of " + _file.getPath());
+			}
+
+			_position += count;
+			_remaining -= count;
+
+			return count;
+		}
+
+		private long _position;
+		private long _remaining;
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.liferay.documentation.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a Zip file from entries whose data is already compressed, e.g., the
+ * entries of another Zip file read with
+ * {@link RawZipFile#getRawInputStream(RawZipEntry)}. The data is written as
+ * is; each entry must give the sizes and CRC of its data up front, so no data
+ * descriptors are written.
+ *
+ * <p>
+ * Like {@link RawZipFile}, the stream doesn't write Zip64 archives.
+ * </p>
+ */
+public class RawZipOutputStream implements Closeable {
+
+	public RawZipOutputStream(OutputStream outputStream) {
+		_outputStream = outputStream;
+	}
+
+	/**
+	 * Writes the central directory and closes the underlying stream.
+	 *
+	 * @throws IOException if an IO exception occurred
+	 */
+	@Override
+	public void close() throws IOException {
+		if (_closed) {
+			return;
+		}
+
+		_closed = true;
+
+		try {
+			long directoryOffset = _offset;
+
+			for (int i = 0; i < _entries.size(); i++) {
+				writeCentralHeader(_entries.get(i), _localHeaderOffsets.get(i));
+			}
+
+			long directorySize = _offset - directoryOffset;
+
+			if ((_entries.size() >= 0xffff) ||
+				(directoryOffset > 0xffffffffL)) {
+
+				throw new ZipException("The Zip needs Zip64 extensions");
+			}
+
+			ByteArrayOutputStream end = new ByteArrayOutputStream(END_SIZE);
+
+			writeInt(end, END_SIGNATURE);
+			writeShort(end, 0);
+			writeShort(end, 0);
+			writeShort(end, _entries.size());
+			writeShort(end, _entries.size());
+			writeInt(end, directorySize);
+			writeInt(end, directoryOffset);
+			writeShort(end, 0);
+
+			write(end.toByteArray());
+		}
+		finally {
+			_outputStream.close();
+		}
+	}
+
+	/**
+	 * Writes the entry and its compressed data.
+	 *
+	 * @param  entry the entry
+	 * @param  rawInputStream the entry's data, compressed with the entry's
+	 *         compression method; exactly the entry's compressed size is read
+	 *         from it
+	 * @throws IOException if an IO exception occurred, an entry with the same
+	 *         name was already written, or the stream ended early
+	 */
+	public void putRawEntry(RawZipEntry entry, InputStream rawInputStream)
+		throws IOException {
+
+		if (!_names.add(entry.getName())) {
+			throw new ZipException("Duplicate entry " + entry.getName());
+		}
+
+		if ((entry.getCompressedSize() > 0xffffffffL) ||
+			(entry.getSize() > 0xffffffffL) || (_offset > 0xffffffffL)) {
+
+			throw new ZipException("The Zip needs Zip64 extensions");
+		}
+
+		_entries.add(entry);
+		_localHeaderOffsets.add(_offset);
+
+		byte[] name = entry.getName().getBytes(UTF_8);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream(
+			LOCAL_HEADER_SIZE + name.length);
+
+		writeInt(header, LOCAL_HEADER_SIGNATURE);
+		writeShort(header, getVersion(entry));
+		writeShort(header, getFlags(entry));
+		writeShort(header, entry.getMethod());
+		writeInt(header, entry.getDosTime());
+		writeInt(header, entry.getCrc());
+		writeInt(header, entry.getCompressedSize());
+		writeInt(header, entry.getSize());
+		writeShort(header, name.length);
+		writeShort(header, 0);
+		header.write(name);
+
+		write(header.toByteArray());
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+
+		long remaining = entry.getCompressedSize();
+
+		while (remaining > 0) {
+			int count = rawInputStream.read(
+				buffer, 0, (int)Math.min(buffer.length, remaining));
+
+			if (count < 0) {
+				throw new ZipException(
+					"Unexpected end of the data of entry " + entry.getName());
+			}
+
+			_outputStream.write(buffer, 0, count);
+
+			_offset += count;
+			remaining -= count;
+		}
+	}
+
+	private static int getExternalAttributes(RawZipEntry entry) {
+		if (entry.isDirectory()) {
+
+			// The MS-DOS directory attribute
+
+			return 0x10;
+		}
+
+		return 0;
+	}
+
+	private static int getFlags(RawZipEntry entry) {
+		String name = entry.getName();
+
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) > 0x7f) {
+
+				// The name is encoded in UTF-8
+
+				return 0x800;
+			}
+		}
+
+		return 0;
+	}
+
+	private static int getVersion(RawZipEntry entry) {
+		if (entry.getMethod() == RawZipEntry.DEFLATED) {
+			return 20;
+		}
+
+		return 10;
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, long value) {
+		out.write((int)(value & 0xff));
+		out.write((int)((value >>> 8) & 0xff));
+		out.write((int)((value >>> 16) & 0xff));
+		out.write((int)((value >>> 24) & 0xff));
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		_outputStream.write(bytes);
+
+		_offset += bytes.length;
+	}
+
+	private void writeCentralHeader(RawZipEntry entry, long localHeaderOffset)
+		throws IOException {
+
+		byte[] name = entry.getName().getBytes(UTF_8);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream(
+			CENTRAL_HEADER_SIZE + name.length);
+
+		writeInt(header, CENTRAL_HEADER_SIGNATURE);
+		writeShort(header, getVersion(entry));
+		writeShort(header, getVersion(entry));
+		writeShort(header, getFlags(entry));
+		writeShort(header, entry.getMethod());
+		writeInt(header, entry.getDosTime());
+		writeInt(header, entry.getCrc());
+		writeInt(header, entry.getCompressedSize());
+		writeInt(header, entry.getSize());
+		writeShort(header, name.length);
+		writeShort(header, 0);
+		writeShort(header, 0);
+		writeShort(header, 0);
+		writeShort(header, 0);
+		writeInt(header, getExternalAttributes(entry));
+		writeInt(header, localHeaderOffset);
+		header.write(name);
+
+		write(header.toByteArray());
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int END_SIZE = 22;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private boolean _closed;
+	private final List<RawZipEntry> _entries = new ArrayList<RawZipEntry>();
+	private final List<Long> _localHeaderOffsets = new ArrayList<Long>();
+	private final Set<String> _names = new HashSet<String>();
+	private long _offset;
+	private final OutputStream _outputStream;
+
+}
@@ -0,0 +1,198 @@
+package com.liferay.documentation.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+
+/**
+ * Stages the files of nested <code>fileset</code> elements in a folder, like
+ * Ant's <code>copy</code> task, but hard links each file to its source instead
+ * of copying it. Staging a folder of images takes a link per image rather
+ * than a copy of its bytes, and staging it again only refreshes the links
+ * that are stale.
+ *
+ * <p>
+ * A staged file is left as is if it's still a link to its source, or, for a
+ * copy, if it has the source's size and modification time. Otherwise it's
+ * deleted and staged again, so a file is never written through a link. A
+ * file whose source was replaced (e.g., by a Git checkout) is a stale link
+ * and is linked to the new source.
+ * </p>
+ *
+ * <p>
+ * Files are copied instead if the <code>copy</code> attribute is set, which
+ * is for staged files that are changed in place afterward, or if the file
+ * system can't link them (e.g., the folder is on another device). Staged
+ * files that are replaced, moved, or deleted afterward, like the images of
+ * <code>temp/</code>, can be links.
+ * </p>
+ */
+public class StageFilesTask extends Task {
+
+	public void addFileset(FileSet fileSet) {
+		_fileSets.add(fileSet);
+	}
+
+	@Override
+	public void execute() throws BuildException {
+
+		if (_toDir == null) {
+			throw new BuildException("Specify the todir to stage the files in");
+		}
+
+		_link = !_copy;
+
+		int copied = 0;
+		int linked = 0;
+		int unchanged = 0;
+
+		try {
+			for (FileSet fileSet : _fileSets) {
+				File dir = fileSet.getDir(getProject());
+
+				if (!dir.isDirectory()) {
+					System.out.println("Skipping " + dir.getPath() +
+							", which doesn't exist");
+
+					continue;
+				}
+
+				DirectoryScanner directoryScanner =
+					fileSet.getDirectoryScanner(getProject());
+
+				for (String includedDir :
+						directoryScanner.getIncludedDirectories()) {
+
+					Files.createDirectories(
+						new File(_toDir, includedDir).toPath());
+				}
+
+				for (String includedFile :
+						directoryScanner.getIncludedFiles()) {
+
+					Path source = new File(dir, includedFile).toPath();
+					Path target = new File(_toDir, includedFile).toPath();
+
+					if (isCurrent(source, target)) {
+						unchanged++;
+
+						continue;
+					}
+
+					if (stage(source, target)) {
+						linked++;
+					}
+					else {
+						copied++;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new BuildException(e.getLocalizedMessage());
+		}
+
+		System.out.println("Staged files in " + _toDir.getPath() + ": " +
+				linked + " linked, " + copied + " copied, " + unchanged +
+					" unchanged");
+	}
+
+	public void setCopy(boolean copy) {
+		_copy = copy;
+	}
+
+	public void setTodir(File toDir) {
+		_toDir = toDir;
+	}
+
+	/**
+	 * Returns <code>true</code> if the staged file doesn't need to be staged
+	 * again: it's a link to the source, or it's a copy that has the source's
+	 * size and modification time. A link is only current while links are
+	 * staged, and a copy only while copies are.
+	 *
+	 * @param  source the source file
+	 * @param  target the staged file
+	 * @return <code>true</code> if the staged file is current;
+	 *         <code>false</code> otherwise
+	 * @throws IOException if an IO exception occurred
+	 */
+	private boolean isCurrent(Path source, Path target) throws IOException {
+		if (!Files.isRegularFile(target)) {
+			return false;
+		}
+
+		boolean sameFile = Files.isSameFile(source, target);
+
+		if (_link || sameFile) {
+			return _link && sameFile;
+		}
+
+		BasicFileAttributes sourceAttributes = Files.readAttributes(
+			source, BasicFileAttributes.class);
+		BasicFileAttributes targetAttributes = Files.readAttributes(
+			target, BasicFileAttributes.class);
+
+		return (sourceAttributes.size() == targetAttributes.size()) &&
+			sourceAttributes.lastModifiedTime().equals(
+				targetAttributes.lastModifiedTime());
+	}
+
+	/**
+	 * Stages the source file, replacing the staged file if there is one. The
+	 * file is linked if possible; once a link fails, the rest of the files
+	 * are copied.
+	 *
+	 * @param  source the source file
+	 * @param  target the staged file
+	 * @return <code>true</code> if the file was linked; <code>false</code> if
+	 *         it was copied
+	 * @throws IOException if an IO exception occurred
+	 */
+	private boolean stage(Path source, Path target) throws IOException {
+
+		// Delete the staged file rather than writing over it, which would
+		// write through a link to its source
+
+		Files.deleteIfExists(target);
+
+		Files.createDirectories(target.getParent());
+
+		if (_link) {
+			try {
+				Files.createLink(target, source);
+
+				return true;
+			}
+			catch (IOException ioe) {
+				System.out.println("Unable to link " + target + " (" +
+						ioe.getMessage() + "); copying files instead");
+			}
+			catch (UnsupportedOperationException uoe) {
+				System.out.println("Unable to link " + target +
+						"; copying files instead");
+			}
+
+			_link = false;
+		}
+
+		Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+
+		return false;
+	}
+
+	private boolean _copy;
+	private final List<FileSet> _fileSets = new ArrayList<FileSet>();
+	private boolean _link;
+	private File _toDir;
+
+}
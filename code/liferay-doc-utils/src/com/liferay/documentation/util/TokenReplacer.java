@@ -0,0 +1,217 @@
+package com.liferay.documentation.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tools.ant.filters.ReplaceTokens;
+
+/**
+ * Replaces the <code>@key@</code> tokens of text in one pass, with the same
+ * result as Ant's <code>ReplaceTokens</code> filter. The text is streamed
+ * through a scanner that only looks up the text between two <code>@</code>
+ * characters, so the cost of a pass doesn't depend on the number of tokens.
+ *
+ * <p>
+ * As with the filter, an <code>@</code> that doesn't begin a known token is
+ * written as is, and the <code>@</code> that ends an unknown token can begin
+ * the next token. Replacement values are written as is; they aren't scanned
+ * for tokens. The scanner only holds the text of a possible token, which is
+ * no longer than the longest key (or {@link #MAX_UNKNOWN_TOKEN_LENGTH}
+ * characters, to report unknown tokens).
+ * </p>
+ *
+ * <p>
+ * A replacer has no state of its own while it scans, so one replacer can
+ * scan any number of texts at once.
+ * </p>
+ */
+public class TokenReplacer {
+
+	/**
+	 * Creates a replacer for the tokens. As with the filter, a key that's
+	 * specified more than once takes its last value.
+	 *
+	 * @param tokens the tokens, as specified for the filter
+	 */
+	public TokenReplacer(List<ReplaceTokens.Token> tokens) {
+		int maxKeyLength = 0;
+
+		for (ReplaceTokens.Token token : tokens) {
+			_values.put(token.getKey(), token.getValue());
+
+			maxKeyLength = Math.max(maxKeyLength, token.getKey().length());
+		}
+
+		_maxTokenLength = Math.max(maxKeyLength, MAX_UNKNOWN_TOKEN_LENGTH);
+	}
+
+	/**
+	 * Returns <code>true</code> if the text between two <code>@</code>
+	 * characters looks like a token (e.g., <code>product-ver</code>), rather
+	 * than like the text between two email addresses or annotations.
+	 *
+	 * @param  key the text between the <code>@</code> characters
+	 * @return <code>true</code> if the text looks like a token;
+	 *         <code>false</code> otherwise
+	 */
+	public static boolean isTokenKey(String key) {
+		if (key.isEmpty() || (key.length() > MAX_UNKNOWN_TOKEN_LENGTH)) {
+			return false;
+		}
+
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+
+			if (!Character.isLetterOrDigit(c) && (c != '-') && (c != '.') &&
+				(c != '_')) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the text with its tokens replaced.
+	 *
+	 * @param  text the text
+	 * @return the text with its tokens replaced
+	 */
+	public String replace(String text) {
+		if (_values.isEmpty() || (text.indexOf(TOKEN_DELIMITER) == -1)) {
+			return text;
+		}
+
+		StringWriter stringWriter = new StringWriter(text.length());
+
+		try {
+			replace(new StringReader(text), stringWriter, null);
+		} catch (IOException ioe) {
+
+			// Strings don't throw IO exceptions
+
+			throw new IllegalStateException(ioe);
+		}
+
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Writes the reader's text to the writer, with its tokens replaced. The
+	 * reader and writer aren't closed.
+	 *
+	 * @param  reader the text
+	 * @param  writer the writer of the replaced text
+	 * @param  unknownKeys the set to add the keys of the unknown tokens to, as
+	 *         determined by {@link #isTokenKey(String)} (may be
+	 *         <code>null</code>)
+	 * @return the number of tokens replaced
+	 * @throws IOException if an IO exception occurred
+	 */
+	public int replace(Reader reader, Writer writer, Set<String> unknownKeys)
+		throws IOException {
+
+		char[] buffer = new char[BUFFER_SIZE];
+
+		// The text of a possible token, following its opening @
+
+		StringBuilder key = new StringBuilder();
+
+		boolean inToken = false;
+		int replaced = 0;
+
+		int count;
+
+		while ((count = reader.read(buffer)) != -1) {
+			int start = 0;
+
+			for (int i = 0; i < count; i++) {
+				char c = buffer[i];
+
+				if (!inToken) {
+					if (c == TOKEN_DELIMITER) {
+						writer.write(buffer, start, i - start);
+
+						inToken = true;
+					}
+
+					continue;
+				}
+
+				if (c != TOKEN_DELIMITER) {
+					key.append(c);
+
+					// A token can't be longer than the longest key
+
+					if (key.length() > _maxTokenLength) {
+						writer.write(TOKEN_DELIMITER);
+						writer.append(key);
+
+						key.setLength(0);
+
+						inToken = false;
+						start = i + 1;
+					}
+
+					continue;
+				}
+
+				String value = _values.get(key.toString());
+
+				if (value != null) {
+					writer.write(value);
+
+					inToken = false;
+					start = i + 1;
+
+					replaced++;
+				}
+				else {
+					if ((unknownKeys != null) && isTokenKey(key.toString())) {
+						unknownKeys.add(key.toString());
+					}
+
+					// The closing @ of an unknown token opens the next token
+
+					writer.write(TOKEN_DELIMITER);
+					writer.append(key);
+				}
+
+				key.setLength(0);
+			}
+
+			if (!inToken) {
+				writer.write(buffer, start, count - start);
+			}
+		}
+
+		if (inToken) {
+			writer.write(TOKEN_DELIMITER);
+			writer.append(key);
+		}
+
+		return replaced;
+	}
+
+	/**
+	 * The longest text between two <code>@</code> characters that's reported
+	 * as an unknown token.
+	 */
+	public static final int MAX_UNKNOWN_TOKEN_LENGTH = 64;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final char TOKEN_DELIMITER = '@';
+
+	private final int _maxTokenLength;
+	private final Map<String, String> _values = new HashMap<String, String>();
+
+}